@@ -23,7 +23,7 @@ import org.teavm.model.MethodReference;
 public class DoubleGenerator implements Injector {
     @Override
     public void generate(InjectorContext context, MethodReference methodRef) throws IOException {
-        context.getWriter().append("$rt_").append(methodRef.getName()).append("(");
+        context.getWriter().appendGlobal("$rt_" + methodRef.getName()).append("(");
         context.writeExpr(context.getArgument(0));
         context.getWriter().append(")");
     }
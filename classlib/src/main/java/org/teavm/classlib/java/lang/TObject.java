@@ -31,6 +31,7 @@ import org.teavm.platform.PlatformQueue;
 import org.teavm.platform.PlatformRunnable;
 import org.teavm.platform.async.AsyncCallback;
 import org.teavm.runtime.Allocator;
+import org.teavm.runtime.GC;
 import org.teavm.runtime.RuntimeArray;
 import org.teavm.runtime.RuntimeClass;
 import org.teavm.runtime.RuntimeObject;
@@ -254,6 +255,7 @@ public class TObject {
         }
         if (size > skip) {
             Allocator.moveMemoryBlock(self.toAddress().add(skip), copy.toAddress().add(skip), size - skip);
+            GC.writeBarrier(copy);
         }
         return copy;
     }
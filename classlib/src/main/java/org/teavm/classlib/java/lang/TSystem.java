@@ -121,6 +121,9 @@ public final class TSystem extends TObject {
         destAddress = destAddress.add(itemSize * destPos);
 
         Allocator.moveMemoryBlock(srcAddress, destAddress, length * itemSize);
+        if ((type.itemType.flags & RuntimeClass.PRIMITIVE) == 0) {
+            GC.writeBarrier(dest);
+        }
     }
 
     @DelegateTo("currentTimeMillisLowLevel")
@@ -95,7 +95,7 @@ public class ArrayNativeGenerator implements Generator, DependencyPlugin {
         writer.append("if (" + array + " === null || " + array + ".constructor.$meta.item === undefined) {")
                 .softNewLine().indent();
         MethodReference cons = new MethodReference("java.lang.IllegalArgumentException", "<init>", ValueType.VOID);
-        writer.append("$rt_throw(").appendInit(cons).append("());").softNewLine();
+        writer.appendGlobal("$rt_throw").append("(").appendInit(cons).append("());").softNewLine();
         writer.outdent().append("}").softNewLine();
         writer.append("return " + array + ".data.length;").softNewLine();
     }
@@ -114,12 +114,14 @@ public class ArrayNativeGenerator implements Generator, DependencyPlugin {
         String length = context.getParameterName(2);
         writer.append("if (").append(type).append(".$meta.primitive) {").softNewLine().indent();
         for (String primitive : primitives) {
-            writer.append("if (" + type + " == $rt_" + primitive.toLowerCase() + "cls()) {").indent().softNewLine();
-            writer.append("return $rt_create" + primitive + "Array(" + length + ");").softNewLine();
+            writer.append("if (" + type + " == ").appendGlobal("$rt_" + primitive.toLowerCase() + "cls")
+                    .append("()) {").indent().softNewLine();
+            writer.append("return ").appendGlobal("$rt_create" + primitive + "Array")
+                    .append("(" + length + ");").softNewLine();
             writer.outdent().append("}").softNewLine();
         }
         writer.outdent().append("} else {").indent().softNewLine();
-        writer.append("return $rt_createArray(" + type + ", " + length + ")").softNewLine();
+        writer.append("return ").appendGlobal("$rt_createArray").append("(" + type + ", " + length + ")").softNewLine();
         writer.outdent().append("}").softNewLine();
     }
 
@@ -135,7 +137,8 @@ public class ArrayNativeGenerator implements Generator, DependencyPlugin {
             if (cls == null || cls.getMethod(methodRef.getDescriptor()) == null) {
                 continue;
             }
-            writer.append("if (type === $rt_" + primitives[i].toLowerCase() + "cls()) {").indent().softNewLine();
+            writer.append("if (type === ").appendGlobal("$rt_" + primitives[i].toLowerCase() + "cls")
+                    .append("()) {").indent().softNewLine();
             writer.append("return ").appendMethodBody(methodRef).append("(item);").softNewLine();
             writer.outdent().append("} else ");
         }
@@ -161,7 +164,8 @@ public class ArrayNativeGenerator implements Generator, DependencyPlugin {
                 writer.append(" else ");
             }
             first = false;
-            writer.append("if (type === $rt_" + primitives[i].toLowerCase() + "cls()) {").indent().softNewLine();
+            writer.append("if (type === ").appendGlobal("$rt_" + primitives[i].toLowerCase() + "cls")
+                    .append("()) {").indent().softNewLine();
             writer.append(item + " = ").appendMethodBody(methodRef).append("(" + item + ");").softNewLine();
             writer.outdent().append("}");
         }
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 import org.teavm.ast.AsyncMethodNode;
 import org.teavm.ast.AsyncMethodPart;
 import org.teavm.ast.BlockStatement;
@@ -63,6 +64,7 @@ import org.teavm.model.ElementModifier;
 import org.teavm.model.FieldHolder;
 import org.teavm.model.Instruction;
 import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReader;
 import org.teavm.model.MethodReference;
 import org.teavm.model.Program;
 import org.teavm.model.TextLocation;
@@ -75,6 +77,7 @@ import org.teavm.model.text.ListingBuilder;
 import org.teavm.model.util.AsyncProgramSplitter;
 import org.teavm.model.util.ProgramUtils;
 import org.teavm.model.util.TypeInferer;
+import org.teavm.vm.TeaVMMetrics;
 
 public class Decompiler {
     private ClassHolderSource classSource;
@@ -102,6 +105,7 @@ public class Decompiler {
     private Program program;
     private boolean friendlyToDebugger;
     private boolean moveConstants;
+    private TeaVMMetrics metrics = new TeaVMMetrics(false, 0);
 
     public Decompiler(ClassHolderSource classSource, ClassLoader classLoader,
             CacheStatus cacheStatus, Set<MethodReference> asyncMethods, Set<MethodReference> asyncFamilyMethods,
@@ -124,6 +128,10 @@ public class Decompiler {
         this.regularMethodCache = regularMethodCache;
     }
 
+    public void setMetrics(TeaVMMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public int getGraphSize() {
         return this.graph.size();
     }
@@ -232,14 +240,7 @@ public class Decompiler {
             clsNode.getFields().add(fieldNode);
         }
         for (MethodHolder method : cls.getMethods()) {
-            if (method.getModifiers().contains(ElementModifier.ABSTRACT)) {
-                continue;
-            }
-            if ((!isBootstrap() && method.getAnnotations().get(InjectedBy.class.getName()) != null)
-                    || methodsToSkip.contains(method.getReference())) {
-                continue;
-            }
-            if (!method.hasModifier(ElementModifier.NATIVE) && method.getProgram() == null) {
+            if (!isDecompiled(method)) {
                 continue;
             }
 
@@ -252,6 +253,20 @@ public class Decompiler {
         return clsNode;
     }
 
+    /**
+     * Tells whether {@link #decompile(ClassHolder)} produces a node for the given method.
+     */
+    public boolean isDecompiled(MethodReader method) {
+        if (method.hasModifier(ElementModifier.ABSTRACT)) {
+            return false;
+        }
+        if ((!isBootstrap() && method.getAnnotations().get(InjectedBy.class.getName()) != null)
+                || methodsToSkip.contains(method.getReference())) {
+            return false;
+        }
+        return method.hasModifier(ElementModifier.NATIVE) || method.getProgram() != null;
+    }
+
     public MethodNode decompile(MethodHolder method) {
         return method.getModifiers().contains(ElementModifier.NATIVE) ? decompileNative(method)
                 : !asyncMethods.contains(method.getReference()) ? decompileRegular(method) : decompileAsync(method);
@@ -288,21 +303,41 @@ public class Decompiler {
     }
 
     public RegularMethodNode decompileRegular(MethodHolder method) {
+        return decompileRegular(method, () -> decompileRegularCacheMiss(method));
+    }
+
+    /**
+     * Same as {@link #decompileRegular(MethodHolder)}, but takes AST from the given supplier when the
+     * method is missing in cache. Supplied AST is stored in cache.
+     */
+    public RegularMethodNode decompileRegular(MethodHolder method, Supplier<RegularMethodNode> cacheMiss) {
         if (regularMethodCache == null) {
-            return decompileRegularCacheMiss(method);
+            return cacheMiss.get();
         }
         RegularMethodNode node = !cacheStatus.isStaleMethod(method.getReference())
                 ? regularMethodCache.get(method.getReference(), cacheStatus)
                 : null;
         if (node == null) {
-            node = decompileRegularCacheMiss(method);
+            node = cacheMiss.get();
             RegularMethodNode finalNode = node;
             regularMethodCache.store(method.getReference(), node, () -> astDependencyExtractor.extract(finalNode));
         }
         return node;
     }
 
+    public boolean isRegularMethodCached(MethodReference method) {
+        return regularMethodCache != null && !cacheStatus.isStaleMethod(method)
+                && regularMethodCache.get(method, cacheStatus) != null;
+    }
+
     public RegularMethodNode decompileRegularCacheMiss(MethodHolder method) {
+        TeaVMMetrics.Measurement measurement = metrics.start("decompilation");
+        RegularMethodNode methodNode = decompileRegularImpl(method);
+        measurement.finish(method.getReference());
+        return methodNode;
+    }
+
+    private RegularMethodNode decompileRegularImpl(MethodHolder method) {
         RegularMethodNode methodNode = new RegularMethodNode(method.getReference());
         Program program = method.getProgram();
         int[] targetBlocks = new int[program.basicBlockCount()];
@@ -346,6 +381,13 @@ public class Decompiler {
     }
 
     private AsyncMethodNode decompileAsyncCacheMiss(MethodHolder method) {
+        TeaVMMetrics.Measurement measurement = metrics.start("decompilation");
+        AsyncMethodNode node = decompileAsyncImpl(method);
+        measurement.finish(method.getReference());
+        return node;
+    }
+
+    private AsyncMethodNode decompileAsyncImpl(MethodHolder method) {
         AsyncMethodNode node = new AsyncMethodNode(method.getReference());
         AsyncProgramSplitter splitter = new AsyncProgramSplitter(classSource, splitMethods);
         splitter.split(method.getProgram());
@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.ast.decompilation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import org.teavm.ast.RegularMethodNode;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>Decompiles methods ahead of time on a thread pool. Backend requests methods with
+ * {@link #prefetchRegular(MethodHolder)} some time before it actually needs them, and then takes
+ * results with {@link #decompileRegular(MethodHolder)} in its usual order.</p>
+ *
+ * <p>Each worker thread uses its own {@link Decompiler} without cache. Cache is only accessed
+ * by the calling thread through the main decompiler, so the resulting ASTs, as well as the order
+ * in which backend consumes them, are the same as ones of the serial decompilation.</p>
+ */
+public class PrefetchingDecompiler {
+    private Decompiler decompiler;
+    private ForkJoinPool pool;
+    private ThreadLocal<Decompiler> workerDecompilers;
+    private Map<MethodReference, ForkJoinTask<RegularMethodNode>> pendingMethods = new HashMap<>();
+
+    public PrefetchingDecompiler(Decompiler decompiler, Supplier<Decompiler> workerDecompilerFactory,
+            int threadCount) {
+        this.decompiler = decompiler;
+        if (threadCount > 1) {
+            pool = new ForkJoinPool(threadCount);
+            workerDecompilers = ThreadLocal.withInitial(workerDecompilerFactory);
+        }
+    }
+
+    public Decompiler getDecompiler() {
+        return decompiler;
+    }
+
+    public void prefetchRegular(MethodHolder method) {
+        if (pool == null || method.getProgram() == null || pendingMethods.containsKey(method.getReference())
+                || decompiler.isRegularMethodCached(method.getReference())) {
+            return;
+        }
+        pendingMethods.put(method.getReference(), pool.submit(
+                () -> workerDecompilers.get().decompileRegularCacheMiss(method)));
+    }
+
+    public RegularMethodNode decompileRegular(MethodHolder method) {
+        ForkJoinTask<RegularMethodNode> task = pendingMethods.remove(method.getReference());
+        if (task == null) {
+            return decompiler.decompileRegular(method);
+        }
+        return decompiler.decompileRegular(method, task::join);
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+        pendingMethods.clear();
+    }
+}
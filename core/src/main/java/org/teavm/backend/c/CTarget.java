@@ -29,11 +29,14 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.teavm.ast.decompilation.Decompiler;
+import org.teavm.ast.decompilation.PrefetchingDecompiler;
 import org.teavm.backend.c.analyze.CDependencyListener;
 import org.teavm.backend.c.generate.BufferedCodeWriter;
 import org.teavm.backend.c.generate.ClassGenerator;
@@ -61,7 +64,8 @@ import org.teavm.backend.c.intrinsic.PlatformObjectIntrinsic;
 import org.teavm.backend.c.intrinsic.RuntimeClassIntrinsic;
 import org.teavm.backend.c.intrinsic.ShadowStackIntrinsic;
 import org.teavm.backend.c.intrinsic.StructureIntrinsic;
-import org.teavm.cache.AlwaysStaleCacheStatus;
+import org.teavm.cache.EmptyMethodNodeCache;
+import org.teavm.cache.MethodNodeCache;
 import org.teavm.dependency.ClassDependency;
 import org.teavm.dependency.DependencyAnalyzer;
 import org.teavm.dependency.DependencyListener;
@@ -99,6 +103,7 @@ import org.teavm.model.transformation.ClassInitializerInsertionTransformer;
 import org.teavm.model.transformation.ClassPatch;
 import org.teavm.runtime.Allocator;
 import org.teavm.runtime.ExceptionHandling;
+import org.teavm.runtime.GC;
 import org.teavm.runtime.RuntimeArray;
 import org.teavm.runtime.RuntimeClass;
 import org.teavm.runtime.RuntimeObject;
@@ -109,6 +114,7 @@ import org.teavm.vm.TeaVMTargetController;
 import org.teavm.vm.spi.TeaVMHostExtension;
 
 public class CTarget implements TeaVMTarget, TeaVMCHost {
+    private static final int PREFETCH_CLASS_COUNT = 64;
     private TeaVMTargetController controller;
     private ClassInitializerInsertionTransformer clinitInsertionTransformer;
     private ClassInitializerEliminator classInitializerEliminator;
@@ -118,12 +124,62 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
     private NullCheckTransformation nullCheckTransformation;
     private ExportDependencyListener exportDependencyListener = new ExportDependencyListener();
     private int minHeapSize = 32 * 1024 * 1024;
+    private int maxHeapSize;
+    private MethodNodeCache astCache = EmptyMethodNodeCache.INSTANCE;
+    private int codeGenerationThreadCount = 1;
+    private boolean multiFileOutput;
+    private List<String> generatedFileNames = new ArrayList<>();
     private List<IntrinsicFactory> intrinsicFactories = new ArrayList<>();
 
+    public MethodNodeCache getAstCache() {
+        return astCache;
+    }
+
+    public void setAstCache(MethodNodeCache astCache) {
+        this.astCache = astCache;
+    }
+
     public void setMinHeapSize(int minHeapSize) {
         this.minHeapSize = minHeapSize;
     }
 
+    public void setMaxHeapSize(int maxHeapSize) {
+        this.maxHeapSize = maxHeapSize;
+    }
+
+    public int getCodeGenerationThreadCount() {
+        return codeGenerationThreadCount;
+    }
+
+    /**
+     * Sets number of threads that decompile methods while C code is being generated.
+     * Generated code does not depend on this number.
+     */
+    public void setCodeGenerationThreadCount(int codeGenerationThreadCount) {
+        this.codeGenerationThreadCount = codeGenerationThreadCount;
+    }
+
+    public boolean isMultiFileOutput() {
+        return multiFileOutput;
+    }
+
+    /**
+     * <p>When set, instead of a single <code>.c</code> file, emits a header with declarations shared by all
+     * translation units, a separate <code>.c</code> file with methods for each package and the main file
+     * with runtime data and <code>main</code> function. All <code>.c</code> files should be compiled
+     * and linked together.</p>
+     */
+    public void setMultiFileOutput(boolean multiFileOutput) {
+        this.multiFileOutput = multiFileOutput;
+    }
+
+    /**
+     * Gets names of all files written during the last {@link #emit(ListableClassHolderSource, BuildTarget, String)}.
+     */
+    public List<String> getGeneratedFileNames() {
+        return generatedFileNames;
+    }
+
     @Override
     public List<ClassHolderTransformer> getTransformers() {
         List<ClassHolderTransformer> transformers = new ArrayList<>();
@@ -174,6 +230,8 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
                 RuntimeClass.class, Address.class, int.class, RuntimeArray.class)).use();
 
         dependencyAnalyzer.linkMethod(new MethodReference(Allocator.class, "<clinit>", void.class)).use();
+        dependencyAnalyzer.linkMethod(new MethodReference(GC.class, "writeBarrier", RuntimeObject.class,
+                void.class)).use();
 
         dependencyAnalyzer.linkMethod(new MethodReference(ExceptionHandling.class, "throwException",
                 Throwable.class, void.class)).use();
@@ -219,14 +277,16 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         TagRegistry tagRegistry = new TagRegistry(classes);
         StringPool stringPool = new StringPool();
 
-        Decompiler decompiler = new Decompiler(classes, controller.getClassLoader(),
-                AlwaysStaleCacheStatus.INSTANCE, new HashSet<>(), new HashSet<>(), false, true);
+        Decompiler mainDecompiler = createDecompiler(classes);
+        mainDecompiler.setRegularMethodCache(astCache);
+        PrefetchingDecompiler decompiler = new PrefetchingDecompiler(mainDecompiler,
+                () -> createDecompiler(classes), codeGenerationThreadCount);
         Characteristics characteristics = new Characteristics(controller.getUnprocessedClassSource());
 
         NameProvider nameProvider = new NameProvider(controller.getUnprocessedClassSource());
 
         List<Intrinsic> intrinsics = new ArrayList<>();
-        intrinsics.add(new ShadowStackIntrinsic());
+        intrinsics.add(new ShadowStackIntrinsic(shadowStackTransformer));
         intrinsics.add(new AddressIntrinsic());
         intrinsics.add(new AllocatorIntrinsic());
         intrinsics.add(new StructureIntrinsic(characteristics));
@@ -247,22 +307,49 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
 
         GenerationContext context = new GenerationContext(vtableProvider, characteristics, stringPool, nameProvider,
                 controller.getDiagnostics(), classes, intrinsics, generators);
+        context.setMultiFileOutput(multiFileOutput);
 
+        String headerName = null;
         BufferedCodeWriter codeWriter = new BufferedCodeWriter();
-        copyResource(codeWriter, "runtime.c");
+        BufferedCodeWriter headerWriter = codeWriter;
+        if (multiFileOutput) {
+            headerName = getBaseName(outputName) + ".h";
+            headerWriter = new BufferedCodeWriter();
+            String guardName = "TEAVM_" + getFileName(headerName).toUpperCase().replaceAll("[^A-Z0-9]", "_");
+            headerWriter.println("#ifndef " + guardName);
+            headerWriter.println("#define " + guardName);
+            headerWriter.println("#define TEAVM_MULTI_FILE");
+            codeWriter.println("#define TEAVM_DEFINE_GLOBALS");
+            codeWriter.println("#include \"" + getFileName(headerName) + "\"");
+        }
+        copyResource(headerWriter, "runtime.c");
 
         ClassGenerator classGenerator = new ClassGenerator(context, controller.getUnprocessedClassSource(),
-                tagRegistry, decompiler, codeWriter);
+                tagRegistry, decompiler, headerWriter, codeWriter);
         IntrinsicFactoryContextImpl intrinsicFactoryContext = new IntrinsicFactoryContextImpl(
                 classGenerator.getStructuresWriter(), classGenerator.getPreCodeWriter(),
+                classGenerator.getPreCodeDeclarationsWriter(),
                 controller.getUnprocessedClassSource(), controller.getClassLoader(), controller.getServices(),
                 controller.getProperties());
         for (IntrinsicFactory intrinsicFactory : intrinsicFactories) {
             context.addIntrinsic(intrinsicFactory.createIntrinsic(intrinsicFactoryContext));
         }
 
-        generateClasses(classes, classGenerator);
+        if (multiFileOutput) {
+            copyResource(headerWriter, "runtime-inline.c");
+            headerWriter.println("#endif");
+        }
+
+        Map<String, BufferedCodeWriter> unitWriters = new LinkedHashMap<>();
+        try {
+            generateClasses(classes, classGenerator, decompiler, unitWriters, headerName);
+        } finally {
+            decompiler.shutdown();
+        }
         generateSpecialFunctions(context, codeWriter);
+        if (!multiFileOutput) {
+            copyResource(codeWriter, "runtime-inline.c");
+        }
         copyResource(codeWriter, "runtime-epilogue.c");
 
         List<ValueType> types = classGenerator.getTypes().stream()
@@ -272,10 +359,32 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         generateArrayOfClassReferences(context, codeWriter, types);
         generateMain(context, codeWriter, classes, types);
 
+        generatedFileNames.clear();
+        if (multiFileOutput) {
+            writeFile(buildTarget, headerName, headerWriter);
+            for (Map.Entry<String, BufferedCodeWriter> unit : unitWriters.entrySet()) {
+                writeFile(buildTarget, unit.getKey(), unit.getValue());
+            }
+        }
+        writeFile(buildTarget, outputName, codeWriter);
+    }
+
+    private void writeFile(BuildTarget buildTarget, String fileName, BufferedCodeWriter codeWriter)
+            throws IOException {
         try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
-                buildTarget.createResource(outputName), StandardCharsets.UTF_8))) {
+                buildTarget.createResource(fileName), StandardCharsets.UTF_8))) {
             codeWriter.writeTo(writer);
         }
+        generatedFileNames.add(fileName);
+    }
+
+    private static String getBaseName(String fileName) {
+        int index = fileName.lastIndexOf('.');
+        return index > fileName.lastIndexOf('/') ? fileName.substring(0, index) : fileName;
+    }
+
+    private static String getFileName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
     }
 
     private void copyResource(CodeWriter writer, String resourceName) {
@@ -294,17 +403,49 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         }
     }
 
-    private void generateClasses(ListableClassHolderSource classes, ClassGenerator classGenerator) {
+    private void generateClasses(ListableClassHolderSource classes, ClassGenerator classGenerator,
+            PrefetchingDecompiler decompiler, Map<String, BufferedCodeWriter> unitWriters, String headerName) {
         List<String> classNames = sortClassNames(classes);
+        Map<String, String> unitNames = new LinkedHashMap<>();
 
-        for (String className : classNames) {
-            ClassHolder cls = classes.get(className);
-            classGenerator.generateClass(cls);
+        int prefetchedCount = 0;
+        for (int i = 0; i < classNames.size(); ++i) {
+            for (; prefetchedCount < Math.min(classNames.size(), i + PREFETCH_CLASS_COUNT); ++prefetchedCount) {
+                for (MethodHolder method : classes.get(classNames.get(prefetchedCount)).getMethods()) {
+                    decompiler.prefetchRegular(method);
+                }
+            }
+
+            ClassHolder cls = classes.get(classNames.get(i));
+            if (multiFileOutput) {
+                String packageName = cls.getName().substring(0, cls.getName().lastIndexOf('.') + 1);
+                String unitName = unitNames.computeIfAbsent(packageName,
+                        p -> getUnitName(p, headerName, unitWriters.keySet()));
+                BufferedCodeWriter unitWriter = unitWriters.computeIfAbsent(unitName, n -> {
+                    BufferedCodeWriter writer = new BufferedCodeWriter();
+                    writer.println("#include \"" + getFileName(headerName) + "\"");
+                    return writer;
+                });
+                classGenerator.generateClass(cls, unitWriter);
+            } else {
+                classGenerator.generateClass(cls);
+            }
         }
 
         classGenerator.generateRemainingData(classNames, shadowStackTransformer);
     }
 
+    private static String getUnitName(String packageName, String headerName, Set<String> existingNames) {
+        String baseName = getBaseName(headerName) + "-" + (packageName.isEmpty()
+                ? "default"
+                : packageName.substring(0, packageName.length() - 1).replace('.', '_'));
+        String name = baseName + ".c";
+        for (int i = 1; existingNames.contains(name); ++i) {
+            name = baseName + "-" + i + ".c";
+        }
+        return name;
+    }
+
     private List<String> sortClassNames(ListableClassReaderSource classes) {
         List<String> classNames = new ArrayList<>(classes.getClassNames().size());
         Deque<String> stack = new ArrayDeque<>(classes.getClassNames());
@@ -338,6 +479,13 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         return classNames;
     }
 
+    private Decompiler createDecompiler(ListableClassHolderSource classes) {
+        Decompiler decompiler = new Decompiler(classes, controller.getClassLoader(), controller.getCacheStatus(),
+                new HashSet<>(), new HashSet<>(), false, true);
+        decompiler.setMetrics(controller.getMetrics());
+        return decompiler;
+    }
+
     private VirtualTableProvider createVirtualTableProvider(ListableClassHolderSource classes) {
         Set<MethodReference> virtualMethods = new LinkedHashSet<>();
 
@@ -373,7 +521,7 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
     }
 
     private void generateThrowCCE(GenerationContext context, CodeWriter writer) {
-        writer.println("static void* throwClassCastException() {").indent();
+        writer.println(linkage() + "void* throwClassCastException() {").indent();
         String methodName = context.getNames().forMethod(new MethodReference(ExceptionHandling.class,
                 "throwClassCastException", void.class));
         writer.println(methodName + "();");
@@ -382,7 +530,7 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
     }
 
     private void generateAllocateStringArray(GenerationContext context, CodeWriter writer) {
-        writer.println("static JavaArray* teavm_allocateStringArray(int32_t size) {").indent();
+        writer.println(linkage() + "JavaArray* teavm_allocateStringArray(int32_t size) {").indent();
         String allocateArrayName = context.getNames().forMethod(new MethodReference(Allocator.class,
                         "allocateArray", RuntimeClass.class, int.class, Address.class));
         String stringClassName = context.getNames().forClassInstance(ValueType.arrayOf(
@@ -391,6 +539,10 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         writer.outdent().println("}");
     }
 
+    private String linkage() {
+        return multiFileOutput ? "" : "static ";
+    }
+
     private void generateArrayOfClassReferences(GenerationContext context, CodeWriter writer,
             List<? extends ValueType> types) {
         writer.print("static JavaClass* teavm_classReferences[" + types.size() + "] = {").indent();
@@ -415,7 +567,7 @@ public class CTarget implements TeaVMTarget, TeaVMCHost {
         writer.println("int main(int argc, char** argv) {").indent();
 
         writer.println("TeaVM_beforeInit();");
-        writer.println("initHeap(" + minHeapSize + ");");
+        writer.println("initHeap(" + minHeapSize + ", " + maxHeapSize + ");");
         generateVirtualTableHeaders(context, writer, types);
         generateStringPoolHeaders(context, writer);
         writer.println("initStaticFields();");
@@ -24,16 +24,18 @@ import org.teavm.model.ClassReaderSource;
 class IntrinsicFactoryContextImpl implements IntrinsicFactoryContext {
     private CodeWriter structureCodeWriter;
     private CodeWriter staticFieldsInitWriter;
+    private CodeWriter staticFieldsDeclarationWriter;
     private ClassReaderSource classSource;
     private ClassLoader classLoader;
     private ServiceRepository services;
     private Properties properties;
 
     IntrinsicFactoryContextImpl(CodeWriter structureCodeWriter, CodeWriter staticFieldsInitWriter,
-            ClassReaderSource classSource, ClassLoader classLoader, ServiceRepository services,
-            Properties properties) {
+            CodeWriter staticFieldsDeclarationWriter, ClassReaderSource classSource, ClassLoader classLoader,
+            ServiceRepository services, Properties properties) {
         this.structureCodeWriter = structureCodeWriter;
         this.staticFieldsInitWriter = staticFieldsInitWriter;
+        this.staticFieldsDeclarationWriter = staticFieldsDeclarationWriter;
         this.classSource = classSource;
         this.classLoader = classLoader;
         this.services = services;
@@ -50,6 +52,11 @@ class IntrinsicFactoryContextImpl implements IntrinsicFactoryContext {
         return staticFieldsInitWriter;
     }
 
+    @Override
+    public CodeWriter getStaticFieldsDeclarationWriter() {
+        return staticFieldsDeclarationWriter;
+    }
+
     @Override
     public ClassReaderSource getClassSource() {
         return classSource;
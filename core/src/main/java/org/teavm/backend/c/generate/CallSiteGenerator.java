@@ -56,10 +56,17 @@ public class CallSiteGenerator {
         writer = oldWriter;
     }
 
+    public void generateDeclaration(CodeWriter writer) {
+        writer.print("extern ").print(context.getNames().forClass(CALL_SITE)).println(" callSites[];");
+    }
+
     private void generateCallSites(List<CallSiteDescriptor> callSites) {
         String callSiteName = context.getNames().forClass(CALL_SITE);
 
-        writer.print("static ").print(callSiteName).print(" callSites[" + callSites.size() + "] = {").indent();
+        if (!context.isMultiFileOutput()) {
+            writer.print("static ");
+        }
+        writer.print(callSiteName).print(" callSites[" + callSites.size() + "] = {").indent();
         String handlerCountName = fieldName(CALL_SITE, "handlerCount");
         String firstHandlerName = fieldName(CALL_SITE, "firstHandler");
         String locationName = fieldName(CALL_SITE, "location");
@@ -24,7 +24,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.teavm.ast.RegularMethodNode;
-import org.teavm.ast.decompilation.Decompiler;
+import org.teavm.ast.decompilation.PrefetchingDecompiler;
 import org.teavm.backend.c.generators.Generator;
 import org.teavm.backend.c.generators.GeneratorContext;
 import org.teavm.backend.lowlevel.generate.ClassGeneratorUtil;
@@ -55,7 +55,7 @@ import org.teavm.runtime.RuntimeObject;
 public class ClassGenerator {
     private GenerationContext context;
     private ClassReaderSource unprocessedClassSource;
-    private Decompiler decompiler;
+    private PrefetchingDecompiler decompiler;
     private TagRegistry tagRegistry;
     private CodeGenerator codeGenerator;
     private ObjectIntMap<String> classLayoutOffsets = new ObjectIntHashMap<>();
@@ -76,23 +76,45 @@ public class ClassGenerator {
     private CodeWriter staticGcRootsWriter;
     private CodeWriter callSiteWriter;
     private CodeWriter preCodeWriter;
+    private CodeWriter preCodeDeclarationsWriter;
     private CodeWriter codeWriter;
     private CodeWriter staticFieldInitWriter;
+    private CodeWriter declarationsWriter;
+    private CodeWriter staticFieldsWriter;
+    private String linkage;
 
     public ClassGenerator(GenerationContext context, ClassReaderSource unprocessedClassSource,
-            TagRegistry tagRegistry, Decompiler decompiler, CodeWriter writer) {
+            TagRegistry tagRegistry, PrefetchingDecompiler decompiler, CodeWriter writer) {
+        this(context, unprocessedClassSource, tagRegistry, decompiler, writer, writer);
+    }
+
+    /**
+     * Creates generator that puts declarations shared by all translation units into <code>headerWriter</code>
+     * and data into <code>writer</code>. Methods go to <code>writer</code> as well, unless another unit is
+     * specified in {@link #generateClass(ClassHolder, CodeWriter)}.
+     */
+    public ClassGenerator(GenerationContext context, ClassReaderSource unprocessedClassSource,
+            TagRegistry tagRegistry, PrefetchingDecompiler decompiler, CodeWriter headerWriter, CodeWriter writer) {
         this.context = context;
         this.unprocessedClassSource = unprocessedClassSource;
         this.tagRegistry = tagRegistry;
         this.decompiler = decompiler;
+        linkage = context.isMultiFileOutput() ? "" : "static ";
 
-        includesWriter = writer.fragment();
-        forwardDeclarationsWriter = writer.fragment();
-        structuresWriter = writer.fragment();
-        vtableStructuresWriter = writer.fragment();
+        includesWriter = headerWriter.fragment();
+        forwardDeclarationsWriter = headerWriter.fragment();
+        structuresWriter = headerWriter.fragment();
+        vtableStructuresWriter = headerWriter.fragment();
+        if (context.isMultiFileOutput()) {
+            declarationsWriter = headerWriter.fragment();
+        }
         stringPoolWriter = writer.fragment();
         layoutWriter = writer.fragment();
-        vtableForwardWriter = writer.fragment();
+        vtableForwardWriter = headerWriter.fragment();
+        if (context.isMultiFileOutput()) {
+            preCodeDeclarationsWriter = headerWriter.fragment();
+            staticFieldsWriter = writer.fragment();
+        }
         vtableWriter = writer.fragment();
         isSupertypeWriter = writer.fragment();
         staticGcRootsWriter = writer.fragment();
@@ -111,6 +133,14 @@ public class ClassGenerator {
         return preCodeWriter;
     }
 
+    /**
+     * Returns writer for declarations of data emitted into {@link #getPreCodeWriter()} that other translation
+     * units refer to, or <code>null</code> when output is a single file.
+     */
+    public CodeWriter getPreCodeDeclarationsWriter() {
+        return preCodeDeclarationsWriter;
+    }
+
     public CodeWriter getStructuresWriter() {
         return structuresWriter;
     }
@@ -121,6 +151,19 @@ public class ClassGenerator {
         generateInitializer(cls);
     }
 
+    public void generateClass(ClassHolder cls, CodeWriter unitWriter) {
+        CodeWriter oldCodeWriter = codeWriter;
+        CodeGenerator oldCodeGenerator = codeGenerator;
+        codeWriter = unitWriter;
+        codeGenerator = new CodeGenerator(context, unitWriter, includes);
+        try {
+            generateClass(cls);
+        } finally {
+            codeWriter = oldCodeWriter;
+            codeGenerator = oldCodeGenerator;
+        }
+    }
+
     public void generateRemainingData(List<String> classNames, ShadowStackTransformer shadowStackTransformer) {
         generateCallSites(shadowStackTransformer);
 
@@ -131,7 +174,10 @@ public class ClassGenerator {
         generateStaticGCRoots();
         generateLayoutArray();
 
-        new StringPoolGenerator(stringPoolWriter).generate(context.getStringPool().getStrings());
+        new StringPoolGenerator(stringPoolWriter, linkage).generate(context.getStringPool().getStrings());
+        if (context.isMultiFileOutput()) {
+            generateDeclarations();
+        }
 
         for (String include : includes) {
             includesWriter.println("#include " + include);
@@ -164,6 +210,12 @@ public class ClassGenerator {
         }
     }
 
+    private void generateDeclarations() {
+        declarationsWriter.println("extern JavaString stringPool[];");
+        declarationsWriter.println("extern void** gc_staticRoots[];");
+        new CallSiteGenerator(context, declarationsWriter).generateDeclaration(declarationsWriter);
+    }
+
     private void generateCallSites(ShadowStackTransformer shadowStackTransformer) {
         new CallSiteGenerator(context, callSiteWriter).generate(shadowStackTransformer.getCallSites());
     }
@@ -199,10 +251,10 @@ public class ClassGenerator {
             return;
         }
 
-        forwardDeclarationsWriter.print("static void ")
+        forwardDeclarationsWriter.print(linkage).print("void ")
                 .print(context.getNames().forClassInitializer(cls.getName())).println("();");
 
-        codeWriter.print("static void ").print(context.getNames().forClassInitializer(cls.getName()))
+        codeWriter.print(linkage).print("void ").print(context.getNames().forClassInitializer(cls.getName()))
                 .println("() {").indent();
 
         String classInstanceName = context.getNames().forClassInstance(ValueType.object(cls.getName()));
@@ -249,8 +301,13 @@ public class ClassGenerator {
         for (FieldHolder field : cls.getFields()) {
             if (field.hasModifier(ElementModifier.STATIC)) {
                 String fieldName = context.getNames().forStaticField(field.getReference());
-                fieldsWriter.print("static ").printStrictType(field.getType()).print(" ").print(fieldName)
-                        .println(";");
+                if (context.isMultiFileOutput()) {
+                    fieldsWriter.print("extern ");
+                    staticFieldsWriter.printStrictType(field.getType()).print(" ").print(fieldName).println(";");
+                } else {
+                    fieldsWriter.print("static ");
+                }
+                fieldsWriter.printStrictType(field.getType()).print(" ").print(fieldName).println(";");
                 if (isReferenceType(field.getType())) {
                     staticFields[staticIndex++] = field.getReference();
                 }
@@ -274,10 +331,13 @@ public class ClassGenerator {
         if (staticIndex > 0) {
             staticGcRoots.add(Arrays.copyOf(staticFields, staticIndex));
         }
-        if (instanceIndex > 0) {
+        List<FieldReference> layoutFields = new ArrayList<>();
+        collectInheritedReferenceFields(cls.getParent(), layoutFields);
+        layoutFields.addAll(Arrays.asList(instanceFields).subList(0, instanceIndex));
+        if (!layoutFields.isEmpty()) {
             classLayoutOffsets.put(cls.getName(), layoutIndex);
-            layouts.add(Arrays.copyOf(instanceFields, instanceIndex));
-            currentLayoutIndex += instanceIndex + 1;
+            layouts.add(layoutFields.toArray(new FieldReference[0]));
+            currentLayoutIndex += layoutFields.size() + 1;
         }
 
         structWriter.outdent().print("} ").print(name).println(";");
@@ -335,7 +395,8 @@ public class ClassGenerator {
                 : "JavaClass";
         String name = context.getNames().forClassInstance(type);
 
-        vtableForwardWriter.print("static ").print(structName).print(" ").print(name).println(";");
+        vtableForwardWriter.print(context.isMultiFileOutput() ? "extern " : "static ")
+                .print(structName).print(" ").print(name).println(";");
 
         ClassReader cls = className != null ? context.getClassSource().get(className) : null;
         String enumConstants;
@@ -345,7 +406,8 @@ public class ClassGenerator {
             enumConstants = "NULL";
         }
 
-        vtableWriter.print("static alignas(8) ").print(structName).print(" ").print(name).println(" = {").indent();
+        vtableWriter.print(linkage).print("alignas(8) ").print(structName).print(" ").print(name)
+                .println(" = {").indent();
 
         if (className != null) {
             vtableWriter.println(".parent = {").indent();
@@ -497,6 +559,26 @@ public class ClassGenerator {
         vtableStructuresWriter.outdent().print("} ").print(name).println(";");
     }
 
+    /*
+     * Parent structure is always the first member of a class structure, so offsets of inherited
+     * fields within the declaring class are valid for subclasses as well.
+     */
+    private void collectInheritedReferenceFields(String className, List<FieldReference> fields) {
+        if (className == null || context.getCharacteristics().isStructure(className)) {
+            return;
+        }
+        ClassReader cls = context.getClassSource().get(className);
+        if (cls == null) {
+            return;
+        }
+        collectInheritedReferenceFields(cls.getParent(), fields);
+        for (FieldReader field : cls.getFields()) {
+            if (!field.hasModifier(ElementModifier.STATIC) && isReferenceType(field.getType())) {
+                fields.add(field.getReference());
+            }
+        }
+    }
+
     private boolean isReferenceType(ValueType type) {
         if (type instanceof ValueType.Object) {
             String className = ((ValueType.Object) type).getClassName();
@@ -510,7 +592,7 @@ public class ClassGenerator {
     private void generateStaticGCRoots() {
         int total = staticGcRoots.stream().mapToInt(c -> c.length).sum();
 
-        staticGcRootsWriter.println("static void** gc_staticRoots[" + (total + 1) + "] = {").indent();
+        staticGcRootsWriter.println(linkage + "void** gc_staticRoots[" + (total + 1) + "] = {").indent();
         staticGcRootsWriter.print("(void**) (intptr_t) " + total);
 
         for (FieldReference[] fields : staticGcRoots) {
@@ -714,8 +796,8 @@ public class ClassGenerator {
 
     private void generateIsSupertypeFunction(ValueType type) {
         String name = context.getNames().forSupertypeFunction(type);
-        vtableForwardWriter.println("static int32_t " + name + "(JavaClass*);");
-        isSupertypeWriter.println("static int32_t " + name + "(JavaClass* cls) {").indent();
+        vtableForwardWriter.println(linkage + "int32_t " + name + "(JavaClass*);");
+        isSupertypeWriter.println(linkage + "int32_t " + name + "(JavaClass* cls) {").indent();
 
         if (type instanceof ValueType.Object) {
             generateIsSuperclassFunction(((ValueType.Object) type).getClassName());
@@ -65,14 +65,17 @@ import org.teavm.model.AnnotationReader;
 import org.teavm.model.AnnotationValue;
 import org.teavm.model.ClassReader;
 import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldReader;
 import org.teavm.model.MethodReader;
 import org.teavm.model.MethodReference;
 import org.teavm.model.ValueType;
 import org.teavm.model.classes.VirtualTable;
 import org.teavm.runtime.Allocator;
 import org.teavm.runtime.ExceptionHandling;
+import org.teavm.runtime.GC;
 import org.teavm.runtime.RuntimeArray;
 import org.teavm.runtime.RuntimeClass;
+import org.teavm.runtime.RuntimeObject;
 
 public class CodeGenerationVisitor implements ExprVisitor, StatementVisitor {
     private static final MethodReference ALLOC_METHOD = new MethodReference(Allocator.class,
@@ -83,6 +86,8 @@ public class CodeGenerationVisitor implements ExprVisitor, StatementVisitor {
             "allocateMultiArray", RuntimeClass.class, Address.class, int.class, RuntimeArray.class);
     private static final MethodReference THROW_EXCEPTION_METHOD = new MethodReference(ExceptionHandling.class,
             "throwException", Throwable.class, void.class);
+    private static final MethodReference WRITE_BARRIER_METHOD = new MethodReference(GC.class,
+            "writeBarrier", RuntimeObject.class, void.class);
 
     private GenerationContext context;
     private NameProvider names;
@@ -629,6 +634,11 @@ public class CodeGenerationVisitor implements ExprVisitor, StatementVisitor {
 
     @Override
     public void visit(AssignmentStatement statement) {
+        Expr barrierTarget = getWriteBarrierTarget(statement);
+        if (barrierTarget != null) {
+            assignWithWriteBarrier(statement, barrierTarget);
+            return;
+        }
         if (statement.getLeftValue() != null) {
             statement.getLeftValue().acceptVisitor(this);
             writer.print(" = ");
@@ -637,6 +647,73 @@ public class CodeGenerationVisitor implements ExprVisitor, StatementVisitor {
         writer.println(";");
     }
 
+    private Expr getWriteBarrierTarget(AssignmentStatement statement) {
+        Expr value = statement.getRightValue();
+        if (value instanceof ConstantExpr && ((ConstantExpr) value).getValue() == null) {
+            return null;
+        }
+        Expr left = statement.getLeftValue();
+        if (left instanceof QualificationExpr) {
+            QualificationExpr qualification = (QualificationExpr) left;
+            if (qualification.getQualified() == null
+                    || context.getCharacteristics().isStructure(qualification.getField().getClassName())) {
+                return null;
+            }
+            FieldReader field = context.getClassSource().resolve(qualification.getField());
+            return field != null && isReferenceType(field.getType()) ? qualification.getQualified() : null;
+        } else if (left instanceof SubscriptExpr) {
+            SubscriptExpr subscript = (SubscriptExpr) left;
+            return subscript.getType() == ArrayType.OBJECT ? subscript.getArray() : null;
+        }
+        return null;
+    }
+
+    private boolean isReferenceType(ValueType type) {
+        if (type instanceof ValueType.Object) {
+            String className = ((ValueType.Object) type).getClassName();
+            return !context.getCharacteristics().isStructure(className)
+                    && !className.equals(Address.class.getName());
+        } else {
+            return type instanceof ValueType.Array;
+        }
+    }
+
+    private void assignWithWriteBarrier(AssignmentStatement statement, Expr target) {
+        String receiver;
+        boolean temporary = !(target instanceof VariableExpr);
+        if (temporary) {
+            receiver = allocTemporaryVariable(CVariableType.PTR);
+            writer.print(receiver + " = ");
+            target.acceptVisitor(this);
+            writer.println(";");
+        } else {
+            int index = ((VariableExpr) target).getIndex();
+            receiver = index == 0 ? "_this_" : "local_" + index;
+        }
+
+        Expr left = statement.getLeftValue();
+        if (left instanceof QualificationExpr) {
+            QualificationExpr qualification = (QualificationExpr) left;
+            writer.print("FIELD(" + receiver + ", ").print(names.forClass(qualification.getField().getClassName())
+                    + ", " + names.forMemberField(qualification.getField()) + ")");
+        } else {
+            writer.print("ARRAY_AT(" + receiver + ", ").print(getArrayType(ArrayType.OBJECT)).print(", ");
+            ((SubscriptExpr) left).getIndex().acceptVisitor(this);
+            writer.print(")");
+        }
+        writer.print(" = ");
+        statement.getRightValue().acceptVisitor(this);
+        writer.println(";");
+
+        writer.println("if (((JavaObject*) " + receiver + ")->header & INT32_C(0x"
+                + Integer.toHexString(RuntimeObject.GC_OLD) + ")) " + names.forMethod(WRITE_BARRIER_METHOD)
+                + "(" + receiver + ");");
+
+        if (temporary) {
+            freeTemporaryVariable(CVariableType.PTR);
+        }
+    }
+
     @Override
     public void visit(SequentialStatement statement) {
         visitMany(statement.getSequence());
@@ -55,7 +55,9 @@ public class CodeGenerator {
 
     public void generateMethodSignature(CodeWriter writer, MethodReference methodRef, boolean isStatic,
             boolean withNames) {
-        writer.print("static ");
+        if (!context.isMultiFileOutput()) {
+            writer.print("static ");
+        }
         writer.printType(methodRef.getReturnType()).print(" ").print(names.forMethod(methodRef)).print("(");
 
         generateMethodParameters(writer, methodRef.getDescriptor(), isStatic, withNames);
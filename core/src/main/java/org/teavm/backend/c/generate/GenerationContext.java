@@ -37,6 +37,7 @@ public class GenerationContext {
     private List<Intrinsic> intrinsics;
     private List<Generator> generators;
     private Map<MethodReference, Intrinsic> intrinsicCache = new HashMap<>();
+    private boolean multiFileOutput;
 
     public GenerationContext(VirtualTableProvider virtualTableProvider, Characteristics characteristics,
             StringPool stringPool, NameProvider names, Diagnostics diagnostics, ClassReaderSource classSource,
@@ -79,6 +80,18 @@ public class GenerationContext {
         return classSource;
     }
 
+    /**
+     * Tells whether code is split into several translation units. In this case functions and data
+     * that are referenced across units must not be declared <code>static</code>.
+     */
+    public boolean isMultiFileOutput() {
+        return multiFileOutput;
+    }
+
+    public void setMultiFileOutput(boolean multiFileOutput) {
+        this.multiFileOutput = multiFileOutput;
+    }
+
     public Intrinsic getIntrinsic(MethodReference method) {
         return intrinsicCache.computeIfAbsent(method,
                 m -> intrinsics.stream().filter(i -> i.canHandle(m)).findFirst().orElse(null));
@@ -19,13 +19,19 @@ import java.util.List;
 
 public class StringPoolGenerator {
     private CodeWriter writer;
+    private String linkage;
 
     public StringPoolGenerator(CodeWriter writer) {
+        this(writer, "static ");
+    }
+
+    public StringPoolGenerator(CodeWriter writer, String linkage) {
         this.writer = writer;
+        this.linkage = linkage;
     }
 
     public void generate(List<? extends String> strings) {
-        writer.println("static JavaString stringPool[" + strings.size() + "] = {").indent();
+        writer.println(linkage + "JavaString stringPool[" + strings.size() + "] = {").indent();
         for (int i = 0; i < strings.size(); ++i) {
             String s = strings.get(i);
             boolean codes = hasBadCharacters(s);
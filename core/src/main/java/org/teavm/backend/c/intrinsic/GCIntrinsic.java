@@ -33,7 +33,10 @@ public class GCIntrinsic implements Intrinsic {
             case "regionsAddress":
             case "regionMaxCount":
             case "availableBytes":
+            case "maxAvailableBytes":
             case "regionSize":
+            case "resizeHeap":
+            case "pauseBudget":
                 return true;
             default:
                 return false;
@@ -43,5 +46,10 @@ public class GCIntrinsic implements Intrinsic {
     @Override
     public void apply(IntrinsicContext context, InvocationExpr invocation) {
         context.writer().print("gc_").print(invocation.getMethod().getName());
+        if (invocation.getMethod().getName().equals("resizeHeap")) {
+            context.writer().print("(");
+            context.emit(invocation.getArguments().get(0));
+            context.writer().print(")");
+        }
     }
 }
@@ -25,6 +25,13 @@ public interface IntrinsicFactoryContext {
 
     CodeWriter getStaticFieldsInitWriter();
 
+    /**
+     * Returns writer for <code>extern</code> declarations of data defined in {@link #getStaticFieldsInitWriter()},
+     * shared by all translation units. Returns <code>null</code> when output is a single file, in which case
+     * such data should be <code>static</code>.
+     */
+    CodeWriter getStaticFieldsDeclarationWriter();
+
     ClassReaderSource getClassSource();
 
     ClassLoader getClassLoader();
@@ -15,11 +15,20 @@
  */
 package org.teavm.backend.c.intrinsic;
 
+import org.teavm.ast.ConstantExpr;
+import org.teavm.ast.Expr;
 import org.teavm.ast.InvocationExpr;
 import org.teavm.model.MethodReference;
+import org.teavm.model.lowlevel.ShadowStackTransformer;
 import org.teavm.runtime.ShadowStack;
 
 public class ShadowStackIntrinsic implements Intrinsic {
+    private ShadowStackTransformer shadowStackTransformer;
+
+    public ShadowStackIntrinsic(ShadowStackTransformer shadowStackTransformer) {
+        this.shadowStackTransformer = shadowStackTransformer;
+    }
+
     @Override
     public boolean canHandle(MethodReference method) {
         if (!method.getClassName().equals(ShadowStack.class.getName())) {
@@ -61,10 +70,14 @@ public class ShadowStackIntrinsic implements Intrinsic {
                 context.writer().print("GC_ROOT_RELEASE");
                 break;
             case "registerCallSite":
-                context.writer().print("CALL_SITE");
-                break;
+                context.writer().print("CALL_SITE(");
+                emitCallSiteId(context, invocation.getArguments().get(0));
+                context.writer().print(")");
+                return;
             case "getExceptionHandlerId":
-                context.writer().print("EXCEPTION_HANDLER");
+                context.writer().print("(EXCEPTION_HANDLER - ")
+                        .print(String.valueOf(shadowStackTransformer.getCallSiteOffset(context.getCallingMethod())))
+                        .print(")");
                 return;
             case "setExceptionHandlerId":
                 context.writer().print("SET_EXCEPTION_HANDLER");
@@ -103,4 +116,16 @@ public class ShadowStackIntrinsic implements Intrinsic {
         }
         context.writer().print(")");
     }
+
+    private void emitCallSiteId(IntrinsicContext context, Expr localId) {
+        int offset = shadowStackTransformer.getCallSiteOffset(context.getCallingMethod());
+        if (localId instanceof ConstantExpr && ((ConstantExpr) localId).getValue() instanceof Integer) {
+            int id = (Integer) ((ConstantExpr) localId).getValue() + offset;
+            context.writer().print(String.valueOf(id));
+        } else {
+            context.writer().print("(");
+            context.emit(localId);
+            context.writer().print(" + ").print(String.valueOf(offset)).print(")");
+        }
+    }
 }
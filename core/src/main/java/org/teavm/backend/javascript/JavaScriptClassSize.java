@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript;
+
+import java.util.Collections;
+import java.util.List;
+
+public class JavaScriptClassSize {
+    private String className;
+    private int size;
+    private int metadataSize;
+    private int stringPoolSize;
+    private List<JavaScriptMethodSize> methods;
+
+    public JavaScriptClassSize(String className, int size, int metadataSize, int stringPoolSize,
+            List<JavaScriptMethodSize> methods) {
+        this.className = className;
+        this.size = size;
+        this.metadataSize = metadataSize;
+        this.stringPoolSize = stringPoolSize;
+        this.methods = Collections.unmodifiableList(methods);
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * <p>Gets number of bytes taken by the class declaration, its static fields and its methods,
+     * except for methods moved to chunks.</p>
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getMetadataSize() {
+        return metadataSize;
+    }
+
+    /**
+     * <p>Gets number of bytes that string pool spends on strings first referenced by this class.</p>
+     */
+    public int getStringPoolSize() {
+        return stringPoolSize;
+    }
+
+    /**
+     * <p>Gets methods of the class, largest first.</p>
+     */
+    public List<JavaScriptMethodSize> getMethods() {
+        return methods;
+    }
+}
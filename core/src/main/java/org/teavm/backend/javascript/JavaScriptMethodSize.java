@@ -0,0 +1,71 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript;
+
+import java.util.Collections;
+import java.util.List;
+import org.teavm.model.MethodReference;
+
+public class JavaScriptMethodSize {
+    private MethodReference method;
+    private int size;
+    private String chunk;
+    private List<MethodReference> path;
+    private boolean reachedFromEntryPoint;
+
+    public JavaScriptMethodSize(MethodReference method, int size, String chunk, List<MethodReference> path,
+            boolean reachedFromEntryPoint) {
+        this.method = method;
+        this.size = size;
+        this.chunk = chunk;
+        this.path = Collections.unmodifiableList(path);
+        this.reachedFromEntryPoint = reachedFromEntryPoint;
+    }
+
+    public MethodReference getMethod() {
+        return method;
+    }
+
+    /**
+     * <p>Gets number of bytes taken by functions generated for the method.</p>
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * <p>Gets name of the chunk that contains the method, or <code>null</code> if the method is in the main file.</p>
+     */
+    public String getChunk() {
+        return chunk;
+    }
+
+    /**
+     * <p>Gets the shortest chain of calls that makes the method reachable, starting at a root method and
+     * ending with the method itself. Empty if call graph contains no such chain.</p>
+     */
+    public List<MethodReference> getPath() {
+        return path;
+    }
+
+    /**
+     * <p>Tells whether the chain returned by {@link #getPath()} starts at an entry point. Otherwise it starts
+     * at a method that is required by runtime or by a plugin.</p>
+     */
+    public boolean isReachedFromEntryPoint() {
+        return reachedFromEntryPoint;
+    }
+}
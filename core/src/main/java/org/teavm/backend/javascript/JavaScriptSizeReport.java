@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript;
+
+import java.util.Collections;
+import java.util.List;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>Describes what the generated JavaScript consists of. Produced by {@link JavaScriptTarget} when
+ * {@link JavaScriptTarget#setSizeReportEnabled(boolean)} is on.</p>
+ */
+public class JavaScriptSizeReport {
+    private int totalSize;
+    private int stringPoolSize;
+    private int stringCount;
+    private int metadataSize;
+    private List<MethodReference> entryPoints;
+    private List<JavaScriptClassSize> classes;
+
+    public JavaScriptSizeReport(int totalSize, int stringPoolSize, int stringCount, int metadataSize,
+            List<MethodReference> entryPoints, List<JavaScriptClassSize> classes) {
+        this.totalSize = totalSize;
+        this.stringPoolSize = stringPoolSize;
+        this.stringCount = stringCount;
+        this.metadataSize = metadataSize;
+        this.entryPoints = Collections.unmodifiableList(entryPoints);
+        this.classes = Collections.unmodifiableList(classes);
+    }
+
+    /**
+     * <p>Gets size of the main output file in bytes.</p>
+     */
+    public int getTotalSize() {
+        return totalSize;
+    }
+
+    public int getStringPoolSize() {
+        return stringPoolSize;
+    }
+
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    public int getMetadataSize() {
+        return metadataSize;
+    }
+
+    public List<MethodReference> getEntryPoints() {
+        return entryPoints;
+    }
+
+    /**
+     * <p>Gets all classes of the output, largest first.</p>
+     */
+    public List<JavaScriptClassSize> getClasses() {
+        return classes;
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.teavm.backend.javascript;
 
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntSet;
 import com.carrotsearch.hppc.ObjectIntHashMap;
 import com.carrotsearch.hppc.ObjectIntMap;
 import java.io.IOException;
@@ -30,10 +32,15 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import org.teavm.ast.ClassNode;
 import org.teavm.ast.MethodNode;
 import org.teavm.ast.RegularMethodNode;
@@ -44,10 +51,14 @@ import org.teavm.backend.javascript.codegen.AliasProvider;
 import org.teavm.backend.javascript.codegen.DefaultAliasProvider;
 import org.teavm.backend.javascript.codegen.DefaultNamingStrategy;
 import org.teavm.backend.javascript.codegen.MinifyingAliasProvider;
+import org.teavm.backend.javascript.codegen.NameFrequencyCounter;
+import org.teavm.backend.javascript.codegen.NamingOrderer;
+import org.teavm.backend.javascript.codegen.NamingStrategy;
 import org.teavm.backend.javascript.codegen.SourceWriter;
 import org.teavm.backend.javascript.codegen.SourceWriterBuilder;
 import org.teavm.backend.javascript.rendering.Renderer;
 import org.teavm.backend.javascript.rendering.RenderingContext;
+import org.teavm.backend.javascript.rendering.RenderingUtil;
 import org.teavm.backend.javascript.rendering.RuntimeRenderer;
 import org.teavm.backend.javascript.spi.GeneratedBy;
 import org.teavm.backend.javascript.spi.Generator;
@@ -55,6 +66,10 @@ import org.teavm.backend.javascript.spi.InjectedBy;
 import org.teavm.backend.javascript.spi.Injector;
 import org.teavm.backend.javascript.spi.VirtualMethodContributor;
 import org.teavm.backend.javascript.spi.VirtualMethodContributorContext;
+import org.teavm.backend.javascript.splitting.ChunkLoaderGenerator;
+import org.teavm.backend.javascript.splitting.ChunkPartition;
+import org.teavm.backend.javascript.splitting.ChunkScope;
+import org.teavm.backend.javascript.splitting.SplitPointTransformer;
 import org.teavm.cache.EmptyMethodNodeCache;
 import org.teavm.cache.MethodNodeCache;
 import org.teavm.debugging.information.DebugInformationEmitter;
@@ -66,6 +81,7 @@ import org.teavm.dependency.DependencyAnalyzer;
 import org.teavm.dependency.DependencyListener;
 import org.teavm.dependency.DependencyType;
 import org.teavm.dependency.MethodDependency;
+import org.teavm.diagnostics.AccumulationDiagnostics;
 import org.teavm.interop.PlatformMarker;
 import org.teavm.interop.PlatformMarkers;
 import org.teavm.model.BasicBlock;
@@ -108,6 +124,13 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     private TeaVMTargetController controller;
     private boolean minifying = true;
     private boolean stackTraceIncluded;
+    private boolean nativeBigInt;
+    private boolean streaming;
+    private boolean es2015;
+    private boolean asyncGenerators;
+    private boolean twoPassMinifying;
+    private boolean sizeReportEnabled;
+    private JavaScriptSizeReport sizeReport;
     private final Map<MethodReference, Generator> methodGenerators = new HashMap<>();
     private final Map<MethodReference, Injector> methodInjectors = new HashMap<>();
     private final List<Function<ProviderContext, Generator>> generatorProviders = new ArrayList<>();
@@ -122,7 +145,7 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     private boolean classScoped;
     @Override
     public List<ClassHolderTransformer> getTransformers() {
-        return Collections.emptyList();
+        return Collections.singletonList(new SplitPointTransformer());
     }
 
     @Override
@@ -134,6 +157,7 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     public void setController(TeaVMTargetController controller) {
         this.controller = controller;
         clinitInsertionTransformer = new ClassInitializerInsertionTransformer(controller.getUnprocessedClassSource());
+        methodGenerators.put(SplitPointTransformer.LOAD_METHOD, new ChunkLoaderGenerator());
     }
 
     @Override
@@ -181,6 +205,110 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         this.minifying = minifying;
     }
 
+    public boolean isNativeBigInt() {
+        return nativeBigInt;
+    }
+
+    /**
+     * Specifies whether Java <code>long</code> values are represented by native JavaScript BigInt numbers
+     * and <code>long[]</code> by <code>BigInt64Array</code>. By default TeaVM emulates them with
+     * pairs of 32-bit integers, which works in older engines, but is considerably slower.
+     *
+     * @param nativeBigInt whether TeaVM should generate BigInt arithmetic for <code>long</code>.
+     */
+    public void setNativeBigInt(boolean nativeBigInt) {
+        this.nativeBigInt = nativeBigInt;
+    }
+
+    public boolean isEs2015() {
+        return es2015;
+    }
+
+    /**
+     * Specifies whether TeaVM produces an ES2015 module instead of an ES5 script. In this mode classes
+     * are declared with <code>class</code> syntax, variables with <code>let</code>, JSO functors are
+     * arrow functions and entry points are exported from the module rather than assigned to
+     * global variables.
+     *
+     * @param es2015 whether TeaVM should generate ES2015 module.
+     */
+    public void setEs2015(boolean es2015) {
+        this.es2015 = es2015;
+    }
+
+    public boolean isAsyncGenerators() {
+        return asyncGenerators;
+    }
+
+    /**
+     * Specifies whether asynchronous methods are rendered as generator functions rather than as state
+     * machines. Calls to methods of asynchronous family become <code>yield*</code> expressions, so JavaScript
+     * engine keeps frames of a suspended thread on its own and none of the calls have to save variables
+     * and check whether thread is suspending. Generated code requires ES2015 generators. JavaScript code
+     * that calls Java methods of asynchronous family directly, without starting a thread, gets generator
+     * object instead of result, so such methods should not be exposed to JavaScript in this mode.
+     *
+     * @param asyncGenerators whether TeaVM should render asynchronous methods as generators.
+     */
+    public void setAsyncGenerators(boolean asyncGenerators) {
+        this.asyncGenerators = asyncGenerators;
+    }
+
+    public boolean isTwoPassMinifying() {
+        return twoPassMinifying;
+    }
+
+    /**
+     * Specifies whether minifier counts names by rendering the whole program once before producing
+     * actual output. Without this option name frequencies are estimated from AST, which misses
+     * references emitted by native generators, runtime and metadata. Exact counts let the most
+     * referenced names get the shortest identifiers and allow to alias frequently used runtime
+     * functions, at cost of rendering code twice. Has no effect unless minification is on.
+     *
+     * @param twoPassMinifying whether TeaVM should count names before rendering minified code.
+     */
+    public void setTwoPassMinifying(boolean twoPassMinifying) {
+        this.twoPassMinifying = twoPassMinifying;
+    }
+
+    public boolean isSizeReportEnabled() {
+        return sizeReportEnabled;
+    }
+
+    /**
+     * Specifies whether TeaVM collects sizes of every class and method it emits, together with call
+     * chains that make methods reachable. The report of the last build is available via
+     * {@link #getSizeReport()}.
+     *
+     * @param sizeReportEnabled whether TeaVM should produce size report.
+     */
+    public void setSizeReportEnabled(boolean sizeReportEnabled) {
+        this.sizeReportEnabled = sizeReportEnabled;
+    }
+
+    /**
+     * Gets size report of the last build, or <code>null</code> if it was not requested or build did not complete.
+     */
+    public JavaScriptSizeReport getSizeReport() {
+        return sizeReport;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Specifies whether classes are decompiled right before they get rendered, instead of building
+     * AST of the whole program in advance. This bounds memory consumed by AST to the largest class
+     * at cost of decompiling everything twice when minification is on, since name frequencies
+     * have to be estimated before the first line of code is written.
+     *
+     * @param streaming whether TeaVM should render code while decompiling it.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     public MethodNodeCache getAstCache() {
         return astCache;
     }
@@ -303,7 +431,7 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     public void emit(ListableClassHolderSource classes, BuildTarget target, String outputName) {
         try (OutputStream output = target.createResource(outputName);
                 Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
-            emit(classes, writer, target);
+            emit(classes, writer, target, outputName);
         } catch (IOException e) {
             throw new RenderingException(e);
         }
@@ -318,10 +446,30 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         clinitInsertionTransformer.apply(method, program);
     }
 
-    private void emit(ListableClassHolderSource classes, Writer writer, BuildTarget target) {
-        List<ClassNode> clsNodes = modelToAst(classes);
-        if (controller.wasCancelled()) {
-            return;
+    private void emit(ListableClassHolderSource classes, Writer writer, BuildTarget target, String outputName) {
+        Decompiler decompiler = createDecompiler(classes);
+        List<String> classOrder = decompiler.getClassOrdering(classes.getClassNames());
+        for (String className : classOrder) {
+            for (MethodHolder method : classes.get(className).getMethods()) {
+                preprocessNativeMethod(method, decompiler);
+            }
+            if (controller.wasCancelled()) {
+                return;
+            }
+        }
+
+        IntFunction<ClassNode> clsNodes;
+        if (streaming) {
+            clsNodes = index -> decompiler.decompile(classes.get(classOrder.get(index)));
+        } else {
+            List<ClassNode> clsNodeList = new ArrayList<>();
+            for (String className : classOrder) {
+                clsNodeList.add(decompiler.decompile(classes.get(className)));
+                if (controller.wasCancelled()) {
+                    return;
+                }
+            }
+            clsNodes = clsNodeList::get;
         }
 
         AliasProvider aliasProvider = minifying ? new MinifyingAliasProvider() : new DefaultAliasProvider();
@@ -337,40 +485,44 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         }
         VirtualMethodContributorContext virtualMethodContributorContext = new VirtualMethodContributorContextImpl(
                 classes);
-        RenderingContext renderingContext = new RenderingContext(debugEmitterToUse,
-                controller.getUnprocessedClassSource(), classes,
-                controller.getClassLoader(), controller.getServices(), controller.getProperties(), naming,
-                controller.getDependencyInfo(), m -> isVirtual(virtualMethodContributorContext, m));
-        renderingContext.setMinifying(minifying);
+        Predicate<MethodReference> virtualPredicate = m -> isVirtual(virtualMethodContributorContext, m);
+        RenderingContext renderingContext = createRenderingContext(debugEmitterToUse, naming, classes,
+                virtualPredicate);
         Renderer renderer = new Renderer(sourceWriter, asyncMethods, asyncFamilyMethods,
                 controller.getDiagnostics(), renderingContext, classScoped);
-        RuntimeRenderer runtimeRenderer = new RuntimeRenderer(classes, naming, sourceWriter);
+        RuntimeRenderer runtimeRenderer = new RuntimeRenderer(classes, naming, sourceWriter, renderingContext);
+        runtimeRenderer.setNativeBigInt(nativeBigInt);
         renderer.setProperties(controller.getProperties());
         renderer.setMinifying(minifying);
         renderer.setProgressConsumer(controller::reportProgress);
         if (debugEmitter != null) {
-            for (ClassNode classNode : clsNodes) {
-                ClassHolder cls = classes.get(classNode.getName());
-                for (MethodNode methodNode : classNode.getMethods()) {
-                    if (methodNode instanceof RegularMethodNode) {
-                        emitCFG(debugEmitter, ((RegularMethodNode) methodNode).getBody());
-                    } else {
-                        MethodHolder method = cls.getMethod(methodNode.getReference().getDescriptor());
-                        if (method != null && method.getProgram() != null) {
-                            emitCFG(debugEmitter, method.getProgram());
-                        }
-                    }
-                }
-                if (controller.wasCancelled()) {
-                    return;
-                }
-            }
             renderer.setDebugEmitter(debugEmitter);
         }
         renderer.getDebugEmitter().setLocationProvider(sourceWriter);
-        for (Map.Entry<MethodReference, Injector> entry : methodInjectors.entrySet()) {
-            renderingContext.addInjector(entry.getKey(), entry.getValue());
+
+        Set<MethodReference> renderedMethods = new LinkedHashSet<>();
+        for (String className : classOrder) {
+            for (MethodHolder method : classes.get(className).getMethods()) {
+                if (decompiler.isDecompiled(method)) {
+                    renderedMethods.add(method.getReference());
+                }
+            }
         }
+        ChunkPartition chunkPartition = new ChunkPartition(controller.getDependencyInfo().getCallGraph());
+        chunkPartition.build(classes, renderedMethods, getEntryPointMethods());
+        boolean splitting = debugEmitter == null && !chunkPartition.isEmpty();
+        if (splitting) {
+            renderer.setDeferredMethods(chunkPartition.getDeferredMethods(), chunkPartition.getSplitPoints());
+        }
+        Map<MethodReference, MethodNode> methodNodes = new LinkedHashMap<>();
+        Set<MethodReference> deferredMethods = splitting
+                ? new HashSet<>(chunkPartition.getDeferredMethods())
+                : Collections.emptySet();
+        sizeReport = null;
+        SizeReportBuilder sizeReportBuilder = sizeReportEnabled
+                ? new SizeReportBuilder(controller.getDependencyInfo().getCallGraph(), getEntryPointMethods())
+                : null;
+
         try {
             printWrapperStart(sourceWriter);
 
@@ -379,31 +531,86 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
             }
             int start = sourceWriter.getOffset();
 
-            renderer.prepare(clsNodes);
+            if (minifying && twoPassMinifying) {
+                if (!countNameFrequencies(naming, renderingContext, classes, virtualPredicate, classOrder.size(),
+                        clsNodes)) {
+                    return;
+                }
+            } else {
+                renderer.prepare(classOrder.size(), clsNodes);
+            }
             runtimeRenderer.renderRuntime();
             if (classScoped) {
                 sourceWriter.append("var ").append(Renderer.CONTAINER_OBJECT).ws().append("=").ws()
                         .append("Object.create(null);").newLine();
             }
-            if (!renderer.render(clsNodes)) {
+            boolean rendered = renderer.render(classOrder.size(), index -> {
+                ClassNode classNode = clsNodes.apply(index);
+                for (MethodNode methodNode : classNode.getMethods()) {
+                    if (deferredMethods.contains(methodNode.getReference())) {
+                        methodNodes.put(methodNode.getReference(), methodNode);
+                    }
+                }
+                if (debugEmitter != null) {
+                    emitCFG(debugEmitter, classes.get(classNode.getName()), classNode);
+                }
+                return classNode;
+            });
+            if (!rendered) {
                 return;
             }
-            renderer.renderStringPool();
-            renderer.renderStringConstants();
             renderer.renderCompatibilityStubs();
 
-            if (renderer.isLongLibraryUsed()) {
+            boolean longLibraryUsed = renderer.isLongLibraryUsed();
+            boolean threadLibraryUsed = renderer.isThreadLibraryUsed();
+            if (!chunkPartition.getSplitPoints().isEmpty()) {
+                Set<String> chunkNames = Collections.emptySet();
+                ChunkScope chunkScope = new ChunkScope(chunkPartition.getDeferredMethods());
+                if (splitting) {
+                    Set<MethodReference> requiredMethods;
+                    while (!(requiredMethods = renderer.pollRequiredDeferredMethods()).isEmpty()) {
+                        renderer.renderMethods(getMethodNodes(methodNodes, chunkPartition.pin(requiredMethods)));
+                    }
+                    renderer.renderDeferredMethodDeclarations();
+                    chunkNames = chunkPartition.getChunkNames();
+
+                    int mainStringCount = renderingContext.getStringPool().size();
+                    for (String chunkName : chunkNames) {
+                        Renderer chunkRenderer = emitChunk(builder, renderingContext, target, chunkScope,
+                                getChunkFilePrefix(outputName), chunkName, mainStringCount,
+                                getMethodNodes(methodNodes, chunkPartition, chunkName));
+                        longLibraryUsed |= chunkRenderer.isLongLibraryUsed();
+                        threadLibraryUsed |= chunkRenderer.isThreadLibraryUsed();
+                        if (sizeReportBuilder != null) {
+                            sizeReportBuilder.addMethods(chunkRenderer, chunkName);
+                        }
+                    }
+                    renderer.renderStringPool(mainStringCount);
+                } else {
+                    renderer.renderStringPool();
+                }
+                renderChunkRuntime(sourceWriter, runtimeRenderer, getChunkFilePrefix(outputName), chunkNames,
+                        chunkScope);
+            } else {
+                renderer.renderStringPool();
+            }
+            renderer.renderStringConstants();
+
+            if (longLibraryUsed && !nativeBigInt) {
                 runtimeRenderer.renderHandWrittenRuntime("long.js");
             }
-            if (renderer.isThreadLibraryUsed()) {
-                runtimeRenderer.renderHandWrittenRuntime("thread.js");
+            if (threadLibraryUsed) {
+                runtimeRenderer.renderHandWrittenRuntime(asyncGenerators ? "generatorThread.js" : "thread.js");
             } else {
                 runtimeRenderer.renderHandWrittenRuntime("simpleThread.js");
             }
 
             for (Map.Entry<? extends String, ? extends TeaVMEntryPoint> entry
                     : controller.getEntryPoints().entrySet()) {
-                sourceWriter.append("").append(entry.getKey()).ws().append("=").ws();
+                if (es2015) {
+                    sourceWriter.append("export const ");
+                }
+                sourceWriter.append(entry.getKey()).ws().append("=").ws();
                 MethodReference ref = entry.getValue().getMethod();
                 sourceWriter.append("$rt_mainStarter(").appendMethodBody(ref);
                 sourceWriter.append(");").newLine();
@@ -417,12 +624,198 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
 
             int totalSize = sourceWriter.getOffset() - start;
             printStats(renderer, totalSize);
+            if (sizeReportBuilder != null) {
+                sizeReportBuilder.addMethods(renderer, null);
+                sizeReport = sizeReportBuilder.build(renderer, totalSize, renderingContext.getStringPool().size());
+            }
         } catch (IOException e) {
             throw new RenderingException("IO Error occured", e);
         }
     }
 
+    private RenderingContext createRenderingContext(DebugInformationEmitter debugEmitter, NamingStrategy naming,
+            ListableClassHolderSource classes, Predicate<MethodReference> virtualPredicate) {
+        RenderingContext renderingContext = new RenderingContext(debugEmitter,
+                controller.getUnprocessedClassSource(), classes,
+                controller.getClassLoader(), controller.getServices(), controller.getProperties(), naming,
+                controller.getDependencyInfo(), virtualPredicate);
+        renderingContext.setMinifying(minifying);
+        renderingContext.setNativeBigInt(nativeBigInt);
+        renderingContext.setEs2015(es2015);
+        if (asyncGenerators) {
+            renderingContext.setGeneratorMethods(asyncFamilyMethods);
+        }
+        for (Map.Entry<MethodReference, Injector> entry : methodInjectors.entrySet()) {
+            renderingContext.addInjector(entry.getKey(), entry.getValue());
+        }
+        return renderingContext;
+    }
+
+    /**
+     * Renders the whole program to nowhere, counting every name the output refers to, then assigns
+     * names in order of decreasing frequency and chooses runtime functions worth aliasing.
+     * Deferred methods are rendered in place, since chunks share names with the main file.
+     */
+    private boolean countNameFrequencies(NamingStrategy naming, RenderingContext renderingContext,
+            ListableClassHolderSource classes, Predicate<MethodReference> virtualPredicate, int classCount,
+            IntFunction<ClassNode> clsNodes) throws IOException {
+        NamingOrderer orderer = new NamingOrderer();
+        NamingStrategy countingNaming = new NameFrequencyCounter(new DefaultNamingStrategy(
+                new DefaultAliasProvider(), controller.getUnprocessedClassSource()), orderer);
+        SourceWriterBuilder builder = new SourceWriterBuilder(countingNaming);
+        builder.setMinified(true);
+        builder.setClassScoped(classScoped);
+        SourceWriter sourceWriter = builder.build(new DiscardingAppendable());
+
+        RenderingContext countingContext = createRenderingContext(new DummyDebugInformationEmitter(),
+                countingNaming, classes, virtualPredicate);
+        List<String> candidateFunctions = new ArrayList<>(RenderingContext.DEFAULT_FUNCTION_ALIASES);
+        candidateFunctions.addAll(RenderingContext.OPTIONAL_FUNCTION_ALIASES);
+        countingContext.setAliasedFunctions(candidateFunctions);
+
+        Renderer renderer = new Renderer(sourceWriter, asyncMethods, asyncFamilyMethods,
+                new AccumulationDiagnostics(), countingContext, classScoped);
+        renderer.setProperties(controller.getProperties());
+        renderer.setProgressConsumer(controller::reportProgress);
+        RuntimeRenderer runtimeRenderer = new RuntimeRenderer(classes, countingNaming, sourceWriter,
+                countingContext);
+        runtimeRenderer.setNativeBigInt(nativeBigInt);
+        runtimeRenderer.renderRuntime();
+        if (!renderer.render(classCount, clsNodes)) {
+            return false;
+        }
+        renderer.renderCompatibilityStubs();
+        renderer.renderStringConstants();
+        for (TeaVMEntryPoint entryPoint : controller.getEntryPoints().values()) {
+            sourceWriter.appendMethodBody(entryPoint.getMethod());
+        }
+
+        List<String> aliasedFunctions = new ArrayList<>(RenderingContext.DEFAULT_FUNCTION_ALIASES);
+        for (String function : RenderingContext.OPTIONAL_FUNCTION_ALIASES) {
+            // Alias declaration costs about the length of function name, each reference saves
+            // the name without couple of characters of alias
+            int frequency = orderer.getFunctionFrequency(function);
+            if (frequency * (function.length() - 2) > function.length() + 8) {
+                aliasedFunctions.add(function);
+            } else {
+                orderer.removeFunction(function);
+            }
+        }
+        renderingContext.setAliasedFunctions(aliasedFunctions);
+        orderer.apply(naming);
+        return true;
+    }
+
+    private List<MethodNode> getMethodNodes(Map<MethodReference, MethodNode> methodNodes,
+            Set<MethodReference> methods) {
+        return methodNodes.values().stream()
+                .filter(method -> methods.contains(method.getReference()))
+                .collect(Collectors.toList());
+    }
+
+    private List<MethodReference> getEntryPointMethods() {
+        return controller.getEntryPoints().values().stream()
+                .map(TeaVMEntryPoint::getMethod).collect(Collectors.toList());
+    }
+
+    private List<MethodNode> getMethodNodes(Map<MethodReference, MethodNode> methodNodes,
+            ChunkPartition chunkPartition, String chunkName) {
+        return methodNodes.values().stream()
+                .filter(method -> chunkName.equals(chunkPartition.getChunk(method.getReference())))
+                .collect(Collectors.toList());
+    }
+
+    private static String getChunkFilePrefix(String outputName) {
+        String baseName = outputName.endsWith(".js")
+                ? outputName.substring(0, outputName.length() - 3)
+                : outputName;
+        return baseName + "-";
+    }
+
+    private Renderer emitChunk(SourceWriterBuilder builder, RenderingContext renderingContext, BuildTarget target,
+            ChunkScope chunkScope, String prefix, String chunkName, int mainStringCount, List<MethodNode> methods)
+            throws IOException {
+        List<MethodReference> methodRefs = methods.stream().map(MethodNode::getReference)
+                .collect(Collectors.toList());
+        chunkScope.startChunk(chunkName, methodRefs);
+        StringBuilder code = new StringBuilder();
+        SourceWriter sourceWriter = builder.build(code);
+        sourceWriter.setChunkScope(chunkScope);
+        Renderer renderer = new Renderer(sourceWriter, asyncMethods, asyncFamilyMethods,
+                controller.getDiagnostics(), renderingContext, classScoped);
+        renderer.setProperties(controller.getProperties());
+        renderer.setMinifying(minifying);
+
+        IntSet stringUsage = new IntHashSet();
+        renderingContext.setStringUsage(stringUsage);
+        renderer.renderMethods(methods);
+        renderingContext.setStringUsage(null);
+        renderer.renderStringPoolPart(ChunkPartition.getChunkStrings(stringUsage.toArray(), mainStringCount));
+
+        try (OutputStream output = target.createResource(prefix + chunkName + ".js");
+                Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
+            SourceWriter wrapperWriter = builder.build(writer);
+            wrapperWriter.append(getChunkRegistrar(prefix)).append("(");
+            RenderingUtil.writeString(wrapperWriter, chunkName);
+            wrapperWriter.append(",").ws();
+            chunkScope.renderChunkStart(wrapperWriter, chunkName);
+            writer.append(code);
+            List<String> methodNames = new ArrayList<>();
+            if (!classScoped) {
+                for (MethodReference method : methodRefs) {
+                    methodNames.add(renderingContext.getNaming().getFullNameFor(method));
+                }
+            }
+            chunkScope.renderChunkEnd(wrapperWriter, methodNames);
+            wrapperWriter.append(");").newLine();
+        }
+        return renderer;
+    }
+
+    private static String getChunkRegistrar(String prefix) {
+        String fileName = prefix.substring(prefix.lastIndexOf('/') + 1);
+        StringBuilder sb = new StringBuilder("$teavm_chunk_");
+        for (int i = 0; i < fileName.length(); ++i) {
+            char c = fileName.charAt(i);
+            sb.append(Character.isLetterOrDigit(c) && c < 128 ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    private void renderChunkRuntime(SourceWriter writer, RuntimeRenderer runtimeRenderer, String prefix,
+            Set<String> chunkNames, ChunkScope chunkScope) throws IOException {
+        writer.append("var $rt_chunkPrefix").ws().append("=").ws();
+        RenderingUtil.writeString(writer, prefix);
+        writer.append(";").softNewLine();
+        writer.append("var $rt_chunkRegistrar").ws().append("=").ws();
+        RenderingUtil.writeString(writer, getChunkRegistrar(prefix));
+        writer.append(";").softNewLine();
+        writer.append("var $rt_chunks").ws().append("=").ws().append("{");
+        boolean first = true;
+        for (String chunkName : chunkNames) {
+            if (!first) {
+                writer.append(",").ws();
+            }
+            first = false;
+            RenderingUtil.writeString(writer, chunkName);
+            writer.append(":").ws().append("false");
+        }
+        writer.append("};").newLine();
+        chunkScope.render(writer, "$rt_chunkScope", "$rt_chunkArguments");
+        runtimeRenderer.renderHandWrittenRuntime("chunkLoader.js");
+        if (es2015) {
+            // document.currentScript is not available to modules
+            writer.append("$rt_chunkBaseUrl").ws().append("=").ws()
+                    .append("import.meta.url.substring(0,").ws()
+                    .append("import.meta.url.lastIndexOf(\"/\")").ws().append("+").ws().append("1);").newLine();
+        }
+    }
+
     private void printWrapperStart(SourceWriter writer) throws IOException {
+        if (es2015) {
+            // Modules are always strict and have their own scope, so there's nothing to wrap
+            return;
+        }
         writer.append("\"use strict\";").newLine();
         for (String key : controller.getEntryPoints().keySet()) {
             writer.append("var ").append(key).append(";").softNewLine();
@@ -431,6 +824,9 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
     }
 
     private void printWrapperEnd(SourceWriter writer) throws IOException {
+        if (es2015) {
+            return;
+        }
         writer.append("})();").newLine();
     }
 
@@ -467,16 +863,23 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         Map<String, PackageNode> children = new HashMap<>();
     }
 
-    private List<ClassNode> modelToAst(ListableClassHolderSource classes) {
+    private Decompiler createDecompiler(ListableClassHolderSource classes) {
         AsyncMethodFinder asyncFinder = new AsyncMethodFinder(controller.getDependencyInfo().getCallGraph(),
                 controller.getDiagnostics());
         asyncFinder.find(classes);
+        if (asyncGenerators) {
+            asyncFinder.closeFamily();
+        }
         asyncMethods.addAll(asyncFinder.getAsyncMethods());
         asyncFamilyMethods.addAll(asyncFinder.getAsyncFamilyMethods());
 
+        // Generators don't need methods to be split at calls that may suspend thread
+        Set<MethodReference> splitMethods = asyncGenerators ? Collections.emptySet() : asyncMethods;
+        Set<MethodReference> splitFamilyMethods = asyncGenerators ? Collections.emptySet() : asyncFamilyMethods;
         Decompiler decompiler = new Decompiler(classes, controller.getClassLoader(), controller.getCacheStatus(),
-                asyncMethods, asyncFamilyMethods, controller.isFriendlyToDebugger(), false);
+                splitMethods, splitFamilyMethods, controller.isFriendlyToDebugger(), false);
         decompiler.setRegularMethodCache(astCache);
+        decompiler.setMetrics(controller.getMetrics());
 
         for (Map.Entry<MethodReference, Generator> entry : methodGenerators.entrySet()) {
             decompiler.addGenerator(entry.getKey(), entry.getValue());
@@ -484,19 +887,7 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         for (MethodReference injectedMethod : methodInjectors.keySet()) {
             decompiler.addMethodToSkip(injectedMethod);
         }
-        List<String> classOrder = decompiler.getClassOrdering(classes.getClassNames());
-        List<ClassNode> classNodes = new ArrayList<>();
-        for (String className : classOrder) {
-            ClassHolder cls = classes.get(className);
-            for (MethodHolder method : cls.getMethods()) {
-                preprocessNativeMethod(method, decompiler);
-                if (controller.wasCancelled()) {
-                    break;
-                }
-            }
-            classNodes.add(decompiler.decompile(cls));
-        }
-        return classNodes;
+        return decompiler;
     }
 
     private void preprocessNativeMethod(MethodHolder method, Decompiler decompiler) {
@@ -597,6 +988,19 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
         return false;
     }
 
+    private void emitCFG(DebugInformationEmitter emitter, ClassHolder cls, ClassNode classNode) {
+        for (MethodNode methodNode : classNode.getMethods()) {
+            if (methodNode instanceof RegularMethodNode) {
+                emitCFG(emitter, ((RegularMethodNode) methodNode).getBody());
+            } else {
+                MethodHolder method = cls.getMethod(methodNode.getReference().getDescriptor());
+                if (method != null && method.getProgram() != null) {
+                    emitCFG(emitter, method.getProgram());
+                }
+            }
+        }
+    }
+
     private void emitCFG(DebugInformationEmitter emitter, Program program) {
         emitCFG(emitter, ProgramUtils.getLocationCFG(program));
     }
@@ -662,4 +1066,21 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
             return classSource;
         }
     }
+
+    static class DiscardingAppendable implements Appendable {
+        @Override
+        public Appendable append(CharSequence csq) {
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            return this;
+        }
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import org.teavm.backend.javascript.rendering.Renderer;
+import org.teavm.callgraph.CallGraph;
+import org.teavm.callgraph.CallGraphNode;
+import org.teavm.callgraph.CallSite;
+import org.teavm.model.MethodReference;
+
+class SizeReportBuilder {
+    private static final String RUNTIME_STRINGS = "(runtime)";
+    private CallGraph callGraph;
+    private List<MethodReference> entryPoints;
+    private Map<MethodReference, MethodReference> callers = new HashMap<>();
+    private Set<MethodReference> reachedFromEntryPoints = new LinkedHashSet<>();
+    private Map<MethodReference, Integer> methodSizes = new LinkedHashMap<>();
+    private Map<MethodReference, String> methodChunks = new HashMap<>();
+
+    SizeReportBuilder(CallGraph callGraph, List<MethodReference> entryPoints) {
+        this.callGraph = callGraph;
+        this.entryPoints = entryPoints;
+    }
+
+    void addMethods(Renderer renderer, String chunk) {
+        for (MethodReference method : renderer.getMethodsInStats()) {
+            methodSizes.merge(method, renderer.getMethodSize(method), Integer::sum);
+            if (chunk != null) {
+                methodChunks.put(method, chunk);
+            }
+        }
+    }
+
+    JavaScriptSizeReport build(Renderer renderer, int totalSize, int stringCount) {
+        findCallers();
+
+        Map<String, List<JavaScriptMethodSize>> methodsByClass = new HashMap<>();
+        for (Map.Entry<MethodReference, Integer> entry : methodSizes.entrySet()) {
+            MethodReference method = entry.getKey();
+            methodsByClass.computeIfAbsent(method.getClassName(), k -> new ArrayList<>()).add(
+                    new JavaScriptMethodSize(method, entry.getValue(), methodChunks.get(method), getPath(method),
+                            reachedFromEntryPoints.contains(method)));
+        }
+
+        Set<String> classNames = new LinkedHashSet<>();
+        Collections.addAll(classNames, renderer.getClassesInStats());
+        classNames.addAll(methodsByClass.keySet());
+
+        Map<String, Integer> stringPoolSizes = renderer.getStringPoolSizeByClass();
+        List<JavaScriptClassSize> classes = new ArrayList<>();
+        for (String className : classNames) {
+            List<JavaScriptMethodSize> methods = methodsByClass.getOrDefault(className, new ArrayList<>());
+            methods.sort(Comparator.comparingInt(JavaScriptMethodSize::getSize).reversed());
+            classes.add(new JavaScriptClassSize(className, renderer.getClassSize(className),
+                    renderer.getClassMetadataSize(className), stringPoolSizes.getOrDefault(className, 0), methods));
+        }
+        int runtimeStringPoolSize = stringPoolSizes.getOrDefault(null, 0);
+        if (runtimeStringPoolSize > 0) {
+            classes.add(new JavaScriptClassSize(RUNTIME_STRINGS, 0, 0, runtimeStringPoolSize,
+                    Collections.emptyList()));
+        }
+        classes.sort(Comparator.comparingInt((JavaScriptClassSize cls) -> cls.getSize() + cls.getMetadataSize()
+                + cls.getStringPoolSize()).reversed());
+
+        return new JavaScriptSizeReport(totalSize, renderer.getStringPoolSize(), stringCount,
+                renderer.getMetadataSize(), entryPoints, classes);
+    }
+
+    /*
+     * Breadth-first search over call graph gives the shortest call chain for each method. Methods that are
+     * not reachable from entry points are reached by runtime or by plugins, so the search continues from
+     * rendered methods that nobody calls.
+     */
+    private void findCallers() {
+        Queue<MethodReference> queue = new ArrayDeque<>();
+        for (MethodReference entryPoint : entryPoints) {
+            if (callers.putIfAbsent(entryPoint, entryPoint) == null) {
+                queue.add(entryPoint);
+            }
+        }
+        traverse(queue);
+        reachedFromEntryPoints.addAll(callers.keySet());
+
+        for (MethodReference method : methodSizes.keySet()) {
+            CallGraphNode node = callGraph.getNode(method);
+            if (node == null || node.getCallerCallSites().isEmpty()) {
+                if (callers.putIfAbsent(method, method) == null) {
+                    queue.add(method);
+                }
+            }
+        }
+        traverse(queue);
+    }
+
+    private void traverse(Queue<MethodReference> queue) {
+        while (!queue.isEmpty()) {
+            MethodReference method = queue.remove();
+            CallGraphNode node = callGraph.getNode(method);
+            if (node == null) {
+                continue;
+            }
+            Collection<? extends CallSite> callSites = node.getCallSites();
+            for (CallSite callSite : callSites) {
+                MethodReference callee = callSite.getCallee().getMethod();
+                if (callers.putIfAbsent(callee, method) == null) {
+                    queue.add(callee);
+                }
+            }
+        }
+    }
+
+    private List<MethodReference> getPath(MethodReference method) {
+        if (!callers.containsKey(method)) {
+            return Collections.emptyList();
+        }
+        List<MethodReference> path = new ArrayList<>();
+        while (true) {
+            path.add(method);
+            MethodReference caller = callers.get(method);
+            if (caller.equals(method)) {
+                break;
+            }
+            method = caller;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
@@ -32,5 +32,7 @@ public interface NameFrequencyConsumer {
 
     void consume(FieldReference field);
 
+    void consumeStatic(FieldReference field);
+
     void consumeFunction(String name);
 }
@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript.codegen;
+
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodReference;
+
+/**
+ * Naming strategy that reports every name request to {@link NameFrequencyConsumer}. Rendering the program
+ * through this strategy yields the exact number of references to each name in the output.
+ */
+public class NameFrequencyCounter implements NamingStrategy {
+    private final NamingStrategy naming;
+    private final NameFrequencyConsumer consumer;
+
+    public NameFrequencyCounter(NamingStrategy naming, NameFrequencyConsumer consumer) {
+        this.naming = naming;
+        this.consumer = consumer;
+    }
+
+    @Override
+    public String getNameFor(String cls) {
+        consumer.consume(cls);
+        return naming.getNameFor(cls);
+    }
+
+    @Override
+    public String getNameFor(MethodDescriptor method) {
+        consumer.consume(method);
+        return naming.getNameFor(method);
+    }
+
+    @Override
+    public String getNameForInit(MethodReference method) {
+        consumer.consumeInit(method);
+        return naming.getNameForInit(method);
+    }
+
+    @Override
+    public String getFullNameFor(MethodReference method) {
+        consumer.consume(method);
+        return naming.getFullNameFor(method);
+    }
+
+    @Override
+    public String getNameFor(FieldReference field) {
+        consumer.consume(field);
+        return naming.getNameFor(field);
+    }
+
+    @Override
+    public String getFullNameFor(FieldReference field) {
+        consumer.consumeStatic(field);
+        return naming.getFullNameFor(field);
+    }
+
+    @Override
+    public String getNameForFunction(String name) {
+        consumer.consumeFunction(name);
+        return naming.getNameForFunction(name);
+    }
+
+    @Override
+    public String getNameForClassInit(String className) {
+        consumer.consumeClassInit(className);
+        return naming.getNameForClassInit(className);
+    }
+}
@@ -96,6 +96,18 @@ public class NamingOrderer implements NameFrequencyConsumer {
         entry.frequency++;
     }
 
+    @Override
+    public void consumeStatic(FieldReference field) {
+        String key = "s:" + field;
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            entry.operation = naming -> naming.getFullNameFor(field);
+            entries.put(key, entry);
+        }
+        entry.frequency++;
+    }
+
     @Override
     public void consumeFunction(String name) {
         String key = "n:" + name;
@@ -108,6 +120,15 @@ public class NamingOrderer implements NameFrequencyConsumer {
         entry.frequency++;
     }
 
+    public int getFunctionFrequency(String name) {
+        Entry entry = entries.get("n:" + name);
+        return entry != null ? entry.frequency : 0;
+    }
+
+    public void removeFunction(String name) {
+        entries.remove("n:" + name);
+    }
+
     public void apply(NamingStrategy naming) {
         List<Entry> entryList = new ArrayList<>(entries.values());
         Collections.sort(entryList, (o1, o2) -> Integer.compare(o2.frequency, o1.frequency));
@@ -16,7 +16,9 @@
 package org.teavm.backend.javascript.codegen;
 
 import java.io.IOException;
+import java.util.function.Consumer;
 import org.teavm.backend.javascript.rendering.Renderer;
+import org.teavm.backend.javascript.splitting.ChunkScope;
 import org.teavm.model.FieldReference;
 import org.teavm.model.MethodDescriptor;
 import org.teavm.model.MethodReference;
@@ -33,6 +35,8 @@ public class SourceWriter implements Appendable, LocationProvider {
     private int line;
     private int offset;
     private boolean classScoped;
+    private Consumer<MethodReference> methodBodyListener;
+    private ChunkScope chunkScope;
 
     SourceWriter(NamingStrategy naming, Appendable innerWriter, int lineWidth, boolean classScoped) {
         this.naming = naming;
@@ -45,6 +49,20 @@ public class SourceWriter implements Appendable, LocationProvider {
         this.minified = minified;
     }
 
+    /**
+     * Sets a listener that is notified about every method whose body is referenced from the written code.
+     */
+    public void setMethodBodyListener(Consumer<MethodReference> methodBodyListener) {
+        this.methodBodyListener = methodBodyListener;
+    }
+
+    /**
+     * Makes the writer produce chunk code, which takes names of the main output from the given scope.
+     */
+    public void setChunkScope(ChunkScope chunkScope) {
+        this.chunkScope = chunkScope;
+    }
+
     public SourceWriter append(String value) throws IOException {
         append((CharSequence) value);
         return this;
@@ -102,8 +120,7 @@ public class SourceWriter implements Appendable, LocationProvider {
     }
 
     public SourceWriter appendClass(String cls) throws IOException {
-        appendScopeIfNecessary();
-        return append(naming.getNameFor(cls));
+        return appendTopLevel(naming.getNameFor(cls), false);
     }
 
     public SourceWriter appendClass(Class<?> cls) throws IOException {
@@ -115,8 +132,7 @@ public class SourceWriter implements Appendable, LocationProvider {
     }
 
     public SourceWriter appendStaticField(FieldReference field) throws IOException {
-        appendScopeIfNecessary();
-        return append(naming.getFullNameFor(field));
+        return appendTopLevel(naming.getFullNameFor(field), true);
     }
 
     public SourceWriter appendMethod(MethodDescriptor method) throws IOException {
@@ -128,8 +144,14 @@ public class SourceWriter implements Appendable, LocationProvider {
     }
 
     public SourceWriter appendMethodBody(MethodReference method) throws IOException {
-        appendScopeIfNecessary();
-        return append(naming.getFullNameFor(method));
+        if (methodBodyListener != null) {
+            methodBodyListener.accept(method);
+        }
+        String name = naming.getFullNameFor(method);
+        if (chunkScope != null && !classScoped && chunkScope.isOwnMethod(method)) {
+            return append(name);
+        }
+        return appendTopLevel(name, chunkScope != null && chunkScope.isMutableMethod(method));
     }
 
     public SourceWriter appendMethodBody(String className, String name, ValueType... params) throws IOException {
@@ -141,23 +163,38 @@ public class SourceWriter implements Appendable, LocationProvider {
     }
 
     public SourceWriter appendFunction(String name) throws IOException {
-        return append(naming.getNameForFunction(name));
+        return appendGlobal(naming.getNameForFunction(name));
     }
 
     public SourceWriter appendInit(MethodReference method) throws IOException {
-        appendScopeIfNecessary();
-        return append(naming.getNameForInit(method));
+        return appendTopLevel(naming.getNameForInit(method), false);
     }
 
     public SourceWriter appendClassInit(String className) throws IOException {
-        appendScopeIfNecessary();
-        return append(naming.getNameForClassInit(className));
+        return appendTopLevel(naming.getNameForClassInit(className), true);
     }
 
-    private void appendScopeIfNecessary() throws IOException {
+    /**
+     * Appends a name declared at the top level of the main output, e.g. a runtime function that is not aliased.
+     * Code that may be rendered to chunks has to write such names with this method or with one of
+     * the methods above, so that chunks receive them from the main output.
+     */
+    public SourceWriter appendGlobal(String name) throws IOException {
+        if (chunkScope != null) {
+            chunkScope.useName(name);
+        }
+        return append(name);
+    }
+
+    private SourceWriter appendTopLevel(String name, boolean mutable) throws IOException {
         if (classScoped) {
-            append(Renderer.CONTAINER_OBJECT).append(".");
+            return appendGlobal(Renderer.CONTAINER_OBJECT).append(".").append(name);
+        }
+        if (mutable && chunkScope != null) {
+            chunkScope.useMutableName(name);
+            return append(ChunkScope.SCOPE_OBJECT).append(".").append(name);
         }
+        return appendGlobal(name);
     }
 
     private void appendIndent() throws IOException {
@@ -629,7 +629,10 @@ public class AstWriter {
     private void print(Name node, int precedence) throws IOException {
         NameEmitter alias = nameMap.get(node.getIdentifier());
         if (alias == null) {
-            alias = prec -> writer.append(node.getIdentifier());
+            // Undeclared names with the runtime prefix refer to functions of the main output
+            alias = node.getIdentifier().startsWith("$rt_")
+                    ? prec -> writer.appendGlobal(node.getIdentifier())
+                    : prec -> writer.append(node.getIdentifier());
         }
         alias.emit(precedence);
     }
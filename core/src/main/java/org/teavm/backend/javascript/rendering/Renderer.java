@@ -21,8 +21,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -48,9 +50,11 @@ import org.teavm.debugging.information.DummyDebugInformationEmitter;
 import org.teavm.dependency.DependencyInfo;
 import org.teavm.dependency.MethodDependencyInfo;
 import org.teavm.diagnostics.Diagnostics;
+import org.teavm.model.AccessLevel;
 import org.teavm.model.ClassReader;
 import org.teavm.model.ClassReaderSource;
 import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldReader;
 import org.teavm.model.FieldReference;
 import org.teavm.model.ListableClassReaderSource;
 import org.teavm.model.MethodDescriptor;
@@ -79,12 +83,21 @@ public class Renderer implements RenderingManager {
     private IntFunction<TeaVMProgressFeedback> progressConsumer = p -> TeaVMProgressFeedback.CONTINUE;
 
     private ObjectIntMap<String> sizeByClass = new ObjectIntHashMap<>();
+    private ObjectIntMap<String> metadataSizeByClass = new ObjectIntHashMap<>();
+    private ObjectIntMap<MethodReference> sizeByMethod = new ObjectIntHashMap<>();
+    private List<String> stringOwners = new ArrayList<>();
+    private int[] stringSizes = new int[0];
     private int stringPoolSize;
     private int metadataSize;
 
     private boolean longLibraryUsed;
     private boolean threadLibraryUsed;
 
+    private Set<MethodReference> deferredMethods = Collections.emptySet();
+    private Set<MethodReference> splitPoints = Collections.emptySet();
+    private Set<MethodReference> requiredDeferredMethods = new LinkedHashSet<>();
+    private boolean referencesTracked = true;
+
     public Renderer(SourceWriter writer, Set<MethodReference> asyncMethods, Set<MethodReference> asyncFamilyMethods,
             Diagnostics diagnostics, RenderingContext context, boolean classScoped) {
         this.naming = context.getNaming();
@@ -123,6 +136,35 @@ public class Renderer implements RenderingManager {
         return sizeByClass.getOrDefault(className, 0);
     }
 
+    public int getClassMetadataSize(String className) {
+        return metadataSizeByClass.getOrDefault(className, 0);
+    }
+
+    public MethodReference[] getMethodsInStats() {
+        return sizeByMethod.keys().toArray(MethodReference.class);
+    }
+
+    /**
+     * Gets size of all functions produced for the given method, including the initializer function
+     * of a constructor.
+     */
+    public int getMethodSize(MethodReference method) {
+        return sizeByMethod.getOrDefault(method, 0);
+    }
+
+    /**
+     * Gets the number of bytes that string pool spends on strings, grouped by the class that first referenced
+     * them. Strings first referenced by runtime or by methods rendered apart from their classes are counted
+     * under the <code>null</code> key.
+     */
+    public Map<String, Integer> getStringPoolSizeByClass() {
+        Map<String, Integer> result = new HashMap<>();
+        for (int i = 0; i < stringOwners.size() && i < stringSizes.length; ++i) {
+            result.merge(stringOwners.get(i), stringSizes[i], Integer::sum);
+        }
+        return result;
+    }
+
     @Override
     public SourceWriter getWriter() {
         return writer;
@@ -138,6 +180,11 @@ public class Renderer implements RenderingManager {
         return minifying;
     }
 
+    @Override
+    public boolean isEs2015() {
+        return context.isEs2015();
+    }
+
     public void setMinifying(boolean minifying) {
         this.minifying = minifying;
     }
@@ -171,23 +218,54 @@ public class Renderer implements RenderingManager {
         this.progressConsumer = progressConsumer;
     }
 
+    /**
+     * Specifies methods whose bodies are rendered to chunks rather than by this renderer. Renderer then
+     * collects deferred methods that the main code refers to directly, except from bodies of split points,
+     * which run only after their chunk is loaded, and from wrappers that are called through call sites known
+     * to the call graph.
+     *
+     * @see #pollRequiredDeferredMethods()
+     */
+    public void setDeferredMethods(Set<MethodReference> deferredMethods, Set<MethodReference> splitPoints) {
+        this.deferredMethods = deferredMethods;
+        this.splitPoints = splitPoints;
+        writer.setMethodBodyListener(method -> {
+            if (referencesTracked && deferredMethods.contains(method)) {
+                requiredDeferredMethods.add(method);
+            }
+        });
+    }
+
+    public Set<MethodReference> pollRequiredDeferredMethods() {
+        Set<MethodReference> result = new LinkedHashSet<>(requiredDeferredMethods);
+        requiredDeferredMethods.clear();
+        return result;
+    }
+
     public void setProperties(Properties properties) {
         this.properties.clear();
         this.properties.putAll(properties);
     }
 
     public void renderStringPool() throws RenderingException {
-        if (context.getStringPool().isEmpty()) {
+        renderStringPool(context.getStringPool().size());
+    }
+
+    public void renderStringPool(int count) throws RenderingException {
+        if (count == 0) {
             return;
         }
         try {
             int start = writer.getOffset();
             writer.append("$rt_stringPool([");
-            for (int i = 0; i < context.getStringPool().size(); ++i) {
+            stringSizes = new int[count];
+            for (int i = 0; i < count; ++i) {
+                int stringStart = writer.getOffset();
                 if (i > 0) {
                     writer.append(',').ws();
                 }
                 RenderingUtil.writeString(writer, context.getStringPool().get(i));
+                stringSizes[i] = writer.getOffset() - stringStart;
             }
             writer.append("]);").newLine();
             stringPoolSize = writer.getOffset() - start;
@@ -196,6 +274,31 @@ public class Renderer implements RenderingManager {
         }
     }
 
+    public void renderStringPoolPart(int[] indexes) throws RenderingException {
+        if (indexes.length == 0) {
+            return;
+        }
+        try {
+            writer.appendGlobal("$rt_stringPoolPart").append("([");
+            for (int i = 0; i < indexes.length; ++i) {
+                if (i > 0) {
+                    writer.append(',').ws();
+                }
+                writer.append(indexes[i]);
+            }
+            writer.append("],").ws().append("[");
+            for (int i = 0; i < indexes.length; ++i) {
+                if (i > 0) {
+                    writer.append(',').ws();
+                }
+                RenderingUtil.writeString(writer, context.getStringPool().get(indexes[i]));
+            }
+            writer.append("]);").newLine();
+        } catch (IOException e) {
+            throw new RenderingException("IO error", e);
+        }
+    }
+
     public void renderStringConstants() throws RenderingException {
         try {
             for (PostponedFieldInitializer initializer : postponedFieldInitializers) {
@@ -233,8 +336,14 @@ public class Renderer implements RenderingManager {
     private void renderJavaObjectToString() throws IOException {
         writer.appendClass("java.lang.Object").append(".prototype.toString").ws().append("=").ws()
                 .append("function()").ws().append("{").indent().softNewLine();
-        writer.append("return $rt_ustr(").appendMethodBody(Object.class, "toString", String.class).append("(this));")
-                .softNewLine();
+        MethodReference toStringMethod = new MethodReference(Object.class, "toString", String.class);
+        writer.append("return $rt_ustr(");
+        if (context.isGeneratorMethod(toStringMethod)) {
+            writer.appendFunction("$rt_runGenerator").append("(").appendMethodBody(toStringMethod).append("(this))");
+        } else {
+            writer.appendMethodBody(toStringMethod).append("(this)");
+        }
+        writer.append(");").softNewLine();
         writer.outdent().append("};").newLine();
     }
 
@@ -249,34 +358,54 @@ public class Renderer implements RenderingManager {
         sizeByClass.put(className, sizeByClass.getOrDefault(className, 0) + sz);
     }
 
+    private void appendMethodSize(MethodReference method, int sz) {
+        sizeByMethod.put(method, sizeByMethod.getOrDefault(method, 0) + sz);
+    }
+
     private void renderRuntimeAliases() throws IOException {
-        String[] names = { "$rt_throw", "$rt_compare", "$rt_nullCheck", "$rt_cls", "$rt_createArray",
-                "$rt_isInstance", "$rt_nativeThread", "$rt_suspending", "$rt_resuming", "$rt_invalidPointer",
-                "$rt_s", "$rt_eraseClinit", "$rt_imul" };
         boolean first = true;
-        for (String name : names) {
+        for (String name : context.getAliasedFunctions()) {
             if (!first) {
                 writer.softNewLine();
             }
             first = false;
-            writer.append("var ").appendFunction(name).ws().append('=').ws().append(name).append(";").softNewLine();
+            writer.append(context.variableKeyword()).appendFunction(name).ws().append('=').ws().append(name)
+                    .append(";").softNewLine();
         }
         writer.newLine();
     }
 
     public void prepare(List<ClassNode> classes) {
+        prepare(classes.size(), classes::get);
+    }
+
+    /**
+     * Same as {@link #prepare(List)}, but takes classes one by one, so that caller can produce them
+     * on demand and drop each of them right after it's been consumed.
+     */
+    public void prepare(int classCount, IntFunction<ClassNode> classes) {
         if (minifying) {
             NamingOrderer orderer = new NamingOrderer();
             NameFrequencyEstimator estimator = new NameFrequencyEstimator(orderer, classSource, asyncMethods,
                     asyncFamilyMethods);
-            for (ClassNode cls : classes) {
-                estimator.estimate(cls);
+            for (int i = 0; i < classCount; ++i) {
+                estimator.estimate(classes.apply(i));
             }
             orderer.apply(naming);
         }
     }
 
     public boolean render(List<ClassNode> classes) throws RenderingException {
+        return render(classes.size(), classes::get);
+    }
+
+    /**
+     * <p>Same as {@link #render(List)}, but takes classes one by one. Renderer does not retain
+     * any reference to a class node after its code has been written, only the data required
+     * for class metadata, so peak memory consumption is bounded by the largest class
+     * rather than by the whole program.</p>
+     */
+    public boolean render(int classCount, IntFunction<ClassNode> classes) throws RenderingException {
         if (minifying) {
             try {
                 renderRuntimeAliases();
@@ -284,17 +413,21 @@ public class Renderer implements RenderingManager {
                 throw new RenderingException(e);
             }
         }
-        int index = 0;
-        for (ClassNode cls : classes) {
+        assignStringOwner(null);
+        List<ClassMetadata> metadata = new ArrayList<>(classCount);
+        for (int i = 0; i < classCount; ++i) {
+            ClassNode cls = classes.apply(i);
             int start = writer.getOffset();
             renderDeclaration(cls);
             renderMethodBodies(cls);
             appendClassSize(cls.getName(), writer.getOffset() - start);
-            if (progressConsumer.apply(1000 * ++index / classes.size()) == TeaVMProgressFeedback.CANCEL) {
+            assignStringOwner(cls.getName());
+            metadata.add(new ClassMetadata(cls));
+            if (progressConsumer.apply(1000 * (i + 1) / classCount) == TeaVMProgressFeedback.CANCEL) {
                 return false;
             }
         }
-        renderClassMetadata(classes);
+        renderClassMetadata(metadata);
         return true;
     }
 
@@ -302,10 +435,6 @@ public class Renderer implements RenderingManager {
         String jsName = naming.getNameFor(cls.getName());
         debugEmitter.addClass(jsName, cls.getName(), cls.getParentName());
         try {
-            renderFunctionDeclaration(jsName);
-            writer.append("()").ws().append("{")
-                    .indent().softNewLine();
-            boolean thisAliased = false;
             List<FieldNode> nonStaticFields = new ArrayList<>();
             List<FieldNode> staticFields = new ArrayList<>();
             for (FieldNode field : cls.getFields()) {
@@ -315,36 +444,11 @@ public class Renderer implements RenderingManager {
                     nonStaticFields.add(field);
                 }
             }
-            if (nonStaticFields.size() > 1) {
-                thisAliased = true;
-                writer.append("var a").ws().append("=").ws().append("this;").ws();
-            }
-            if (cls.getParentName() != null) {
-                writer.appendClass(cls.getParentName()).append(".call(").append(thisAliased ? "a" : "this")
-                        .append(");").softNewLine();
-            }
-            for (FieldNode field : nonStaticFields) {
-                Object value = field.getInitialValue();
-                if (value == null) {
-                    value = getDefaultValue(field.getType());
-                }
-                FieldReference fieldRef = new FieldReference(cls.getName(), field.getName());
-                writer.append(thisAliased ? "a" : "this").append(".").appendField(fieldRef).ws()
-                        .append("=").ws();
-                context.constantToString(writer, value);
-                writer.append(";").softNewLine();
-                debugEmitter.addField(field.getName(), naming.getNameFor(fieldRef));
-            }
-
-            if (cls.getName().equals("java.lang.Object")) {
-                writer.append("this.$id$").ws().append('=').ws().append("0;").softNewLine();
-            }
-
-            writer.outdent().append("}");
-            if (classScoped) {
-                writer.append(";");
+            if (context.isEs2015()) {
+                renderClassDeclaration(cls, jsName);
+            } else {
+                renderConstructorFunction(cls, jsName, nonStaticFields);
             }
-            writer.newLine();
 
             for (FieldNode field : staticFields) {
                 Object value = field.getInitialValue();
@@ -360,7 +464,7 @@ public class Renderer implements RenderingManager {
                 if (classScoped) {
                     writer.append(CONTAINER_OBJECT).append(".");
                 } else {
-                    writer.append("var ");
+                    writer.append(context.variableKeyword());
                 }
                 writer.append(naming.getFullNameFor(fieldRef)).ws().append("=").ws();
                 context.constantToString(writer, value);
@@ -371,6 +475,127 @@ public class Renderer implements RenderingManager {
         }
     }
 
+    private void renderConstructorFunction(ClassNode cls, String jsName, List<FieldNode> fields)
+            throws IOException {
+        renderFunctionDeclaration(jsName);
+        writer.append("()").ws().append("{")
+                .indent().softNewLine();
+        boolean thisAliased = false;
+        if (fields.size() > 1) {
+            thisAliased = true;
+            writer.append("var a").ws().append("=").ws().append("this;").ws();
+        }
+        if (cls.getParentName() != null) {
+            writer.appendClass(cls.getParentName()).append(".call(").append(thisAliased ? "a" : "this")
+                    .append(");").softNewLine();
+        }
+        renderFieldInitializers(cls, fields, thisAliased ? "a" : "this");
+
+        writer.outdent().append("}");
+        if (classScoped) {
+            writer.append(";");
+        }
+        writer.newLine();
+    }
+
+    private void renderClassDeclaration(ClassNode cls, String jsName) throws IOException {
+        // Classes don't extend their parents: super() calls are considerably slower than plain constructors
+        // whose functions carry class metadata, so each constructor initializes fields of the whole
+        // hierarchy and $rt_metadata links prototypes afterwards.
+        // Fields go in the same order as in ES5 constructors, so that both modes produce identical layouts.
+        List<ClassReader> hierarchy = new ArrayList<>();
+        for (ClassReader ancestor = classSource.get(cls.getName()); ancestor != null;
+                ancestor = ancestor.getParent() != null ? classSource.get(ancestor.getParent()) : null) {
+            hierarchy.add(ancestor);
+        }
+        Collections.reverse(hierarchy);
+        int fieldCount = 0;
+        boolean hasRuntimeFields = false;
+        for (ClassReader ancestor : hierarchy) {
+            for (FieldReader field : ancestor.getFields()) {
+                if (!field.hasModifier(ElementModifier.STATIC)) {
+                    fieldCount++;
+                }
+            }
+            hasRuntimeFields |= hasRuntimeFields(ancestor.getName());
+        }
+
+        if (classScoped) {
+            writer.append(CONTAINER_OBJECT).append(".").append(jsName).ws().append("=").ws().append("class");
+        } else {
+            writer.append("class ").append(jsName);
+        }
+        writer.ws().append("{");
+        if (fieldCount > 0 || hasRuntimeFields) {
+            writer.indent().softNewLine();
+            writer.append("constructor()").ws().append("{").indent().softNewLine();
+            boolean thisAliased = fieldCount > 1;
+            String instance = thisAliased ? "a" : "this";
+            if (thisAliased) {
+                writer.append("let a").ws().append("=").ws().append("this;").ws();
+            }
+            for (ClassReader ancestor : hierarchy) {
+                for (FieldReader field : ancestor.getFields()) {
+                    if (field.hasModifier(ElementModifier.STATIC)) {
+                        continue;
+                    }
+                    renderFieldInitializer(instance, field.getReference(), field.getType(), field.getInitialValue());
+                    if (ancestor.getName().equals(cls.getName())) {
+                        debugEmitter.addField(field.getName(), naming.getNameFor(field.getReference()));
+                    }
+                }
+                renderRuntimeFieldInitializers(ancestor.getName(), instance);
+            }
+            writer.outdent().append("}").softNewLine();
+            writer.outdent();
+        }
+
+        writer.append("}");
+        if (classScoped) {
+            writer.append(";");
+        }
+        writer.newLine();
+    }
+
+    private void renderFieldInitializers(ClassNode cls, List<FieldNode> fields, String instance) throws IOException {
+        for (FieldNode field : fields) {
+            FieldReference fieldRef = new FieldReference(cls.getName(), field.getName());
+            renderFieldInitializer(instance, fieldRef, field.getType(), field.getInitialValue());
+            debugEmitter.addField(field.getName(), naming.getNameFor(fieldRef));
+        }
+        renderRuntimeFieldInitializers(cls.getName(), instance);
+    }
+
+    private static boolean hasRuntimeFields(String className) {
+        return className.equals("java.lang.Object") || className.equals("java.lang.Throwable");
+    }
+
+    /**
+     * Initializes properties that runtime attaches to objects of the given class, so that they are part
+     * of object layout from the very beginning instead of changing its hidden class later.
+     */
+    private void renderRuntimeFieldInitializers(String className, String instance) throws IOException {
+        switch (className) {
+            case "java.lang.Object":
+                writer.append(instance).append(".$id$").ws().append('=').ws().append("0;").softNewLine();
+                break;
+            case "java.lang.Throwable":
+                writer.append(instance).append(".$jsException").ws().append('=').ws().append("null;")
+                        .softNewLine();
+                break;
+        }
+    }
+
+    private void renderFieldInitializer(String instance, FieldReference field, ValueType type, Object value)
+            throws IOException {
+        if (value == null) {
+            value = getDefaultValue(type);
+        }
+        writer.append(instance).append(".").appendField(field).ws().append("=").ws();
+        context.constantToString(writer, value);
+        writer.append(";").softNewLine();
+    }
+
     private void renderMethodBodies(ClassNode cls) throws RenderingException {
         debugEmitter.emitClass(cls.getName());
         try {
@@ -391,7 +616,9 @@ public class Renderer implements RenderingManager {
             }
 
             for (MethodNode method : cls.getMethods()) {
-                renderBody(method);
+                if (!deferredMethods.contains(method.getReference())) {
+                    renderBody(method);
+                }
             }
         } catch (IOException e) {
             throw new RenderingException("IO error occurred", e);
@@ -399,13 +626,55 @@ public class Renderer implements RenderingManager {
         debugEmitter.emitClass(null);
     }
 
+    public void renderMethods(Collection<? extends MethodNode> methods) throws RenderingException {
+        try {
+            for (MethodNode method : methods) {
+                renderBody(method);
+            }
+        } catch (IOException e) {
+            throw new RenderingException("IO error occurred", e);
+        }
+        assignStringOwner(null);
+    }
+
+    private void assignStringOwner(String className) {
+        while (stringOwners.size() < context.getStringPool().size()) {
+            stringOwners.add(className);
+        }
+    }
+
+    public void renderDeferredMethodDeclarations() throws RenderingException {
+        if (classScoped || deferredMethods.isEmpty()) {
+            return;
+        }
+        try {
+            writer.append(context.variableKeyword());
+            boolean first = true;
+            for (MethodReference method : deferredMethods) {
+                if (!first) {
+                    writer.append(",").ws();
+                }
+                first = false;
+                writer.append(naming.getFullNameFor(method));
+            }
+            writer.append(";").newLine();
+        } catch (IOException e) {
+            throw new RenderingException("IO error occurred", e);
+        }
+    }
+
     private void renderCallClinit(MethodReader clinit, ClassNode cls)
             throws IOException {
         boolean isAsync = asyncMethods.contains(clinit.getReference());
+        if (isAsync && context.isAsyncGenerators()) {
+            renderCallGeneratorClinit(clinit, cls);
+            return;
+        }
 
         String clinitCalled = naming.getNameFor(cls.getName()) + "_$clinitCalled";
         if (isAsync) {
-            writer.append("var ").append(clinitCalled).ws().append("=").ws().append("false;").softNewLine();
+            writer.append(context.variableKeyword()).append(clinitCalled).ws().append("=").ws().append("false;")
+                    .softNewLine();
         }
 
         renderFunctionDeclaration(naming.getNameForClassInit(cls.getName()));
@@ -413,7 +682,7 @@ public class Renderer implements RenderingManager {
                 .append("{").softNewLine().indent();
 
         if (isAsync) {
-            writer.append("var ").append(context.pointerName()).ws().append("=").ws()
+            writer.append(context.variableKeyword()).append(context.pointerName()).ws().append("=").ws()
                     .append("0").append(";").softNewLine();
             writer.append("if").ws().append("(").appendFunction("$rt_resuming").append("())").ws().append("{")
                     .indent().softNewLine();
@@ -460,13 +729,35 @@ public class Renderer implements RenderingManager {
         writer.newLine();
     }
 
+    private void renderCallGeneratorClinit(MethodReader clinit, ClassNode cls) throws IOException {
+        threadLibraryUsed = true;
+        String clinitCalled = naming.getNameFor(cls.getName()) + "_$clinitCalled";
+        writer.append(context.variableKeyword()).append(clinitCalled).ws().append("=").ws().append("false;")
+                .softNewLine();
+
+        renderFunctionDeclaration(naming.getNameForClassInit(cls.getName()), true);
+        writer.append("()").ws().append("{").softNewLine().indent();
+        writer.append("if").ws().append("(").append(clinitCalled).append(")").ws().append("{").indent()
+                .softNewLine();
+        writer.append("return;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append(clinitCalled).ws().append('=').ws().append("true;").softNewLine();
+        writer.append("yield* ").appendMethodBody(new MethodReference(cls.getName(), clinit.getDescriptor()))
+                .append("();").softNewLine();
+        writer.outdent().append("}");
+        if (classScoped) {
+            writer.append(";");
+        }
+        writer.newLine();
+    }
+
     private void renderEraseClinit(ClassNode cls) throws IOException {
         writer.appendClassInit(cls.getName()).ws().append("=").ws()
                 .appendFunction("$rt_eraseClinit").append("(")
                 .appendClass(cls.getName()).append(");").softNewLine();
     }
 
-    private void renderClassMetadata(List<ClassNode> classes) {
+    private void renderClassMetadata(List<ClassMetadata> classes) {
         if (classes.isEmpty()) {
             return;
         }
@@ -491,20 +782,21 @@ public class Renderer implements RenderingManager {
         metadataSize = writer.getOffset() - start;
     }
 
-    private void renderClassMetadataPortion(List<ClassNode> classes, ObjectIntMap<String> packageIndexes,
+    private void renderClassMetadataPortion(List<ClassMetadata> classes, ObjectIntMap<String> packageIndexes,
             Set<String> classesRequiringName) throws IOException {
         writer.append("$rt_metadata([");
         boolean first = true;
-        for (ClassNode cls : classes) {
+        for (ClassMetadata cls : classes) {
             if (!first) {
                 writer.append(',').softNewLine();
             }
             first = false;
-            debugEmitter.emitClass(cls.getName());
-            writer.appendClass(cls.getName()).append(",").ws();
+            int start = writer.getOffset();
+            debugEmitter.emitClass(cls.name);
+            writer.appendClass(cls.name).append(",").ws();
 
-            if (classesRequiringName.contains(cls.getName())) {
-                String className = cls.getName();
+            if (classesRequiringName.contains(cls.name)) {
+                String className = cls.name;
                 int dotIndex = className.lastIndexOf('.') + 1;
                 String packageName = className.substring(0, dotIndex);
                 className = className.substring(dotIndex);
@@ -515,15 +807,15 @@ public class Renderer implements RenderingManager {
             }
             writer.append(",").ws();
 
-            if (cls.getParentName() != null) {
-                writer.appendClass(cls.getParentName());
+            if (cls.parentName != null) {
+                writer.appendClass(cls.parentName);
             } else {
                 writer.append("0");
             }
             writer.append(',').ws();
             writer.append("[");
-            for (int i = 0; i < cls.getInterfaces().size(); ++i) {
-                String iface = cls.getInterfaces().get(i);
+            for (int i = 0; i < cls.interfaces.size(); ++i) {
+                String iface = cls.interfaces.get(i);
                 if (i > 0) {
                     writer.append(",").ws();
                 }
@@ -531,38 +823,39 @@ public class Renderer implements RenderingManager {
             }
             writer.append("],").ws();
 
-            writer.append(ElementModifier.pack(cls.getModifiers())).append(',').ws();
-            writer.append(cls.getAccessLevel().ordinal()).append(',').ws();
+            writer.append(cls.modifiers).append(',').ws();
+            writer.append(cls.accessLevel.ordinal()).append(',').ws();
 
-            MethodReader clinit = classSource.get(cls.getName()).getMethod(
+            MethodReader clinit = classSource.get(cls.name).getMethod(
                     new MethodDescriptor("<clinit>", ValueType.VOID));
             if (clinit != null) {
-                writer.appendClassInit(cls.getName());
+                if (context.isGeneratorMethod(clinit.getReference())) {
+                    writer.append("function()").ws().append("{").ws().appendFunction("$rt_runGenerator").append("(")
+                            .appendClassInit(cls.name).append("());").ws().append("}");
+                } else {
+                    writer.appendClassInit(cls.name);
+                }
             } else {
                 writer.append('0');
             }
             writer.append(',').ws();
 
-            List<MethodReference> virtualMethods = new ArrayList<>();
-            for (MethodNode method : cls.getMethods()) {
-                if (!method.getModifiers().contains(ElementModifier.STATIC)) {
-                    virtualMethods.add(method.getReference());
-                }
-            }
-            collectMethodsToCopyFromInterfaces(classSource.get(cls.getName()), virtualMethods);
+            List<MethodReference> virtualMethods = new ArrayList<>(cls.virtualMethods);
+            collectMethodsToCopyFromInterfaces(classSource.get(cls.name), virtualMethods);
 
             renderVirtualDeclarations(virtualMethods);
             debugEmitter.emitClass(null);
+            metadataSizeByClass.put(cls.name, writer.getOffset() - start);
         }
         writer.append("]);").newLine();
     }
 
-    private ObjectIntMap<String> generatePackageMetadata(List<ClassNode> classes, Set<String> classesRequiringName)
-            throws IOException {
+    private ObjectIntMap<String> generatePackageMetadata(List<ClassMetadata> classes,
+            Set<String> classesRequiringName) throws IOException {
         PackageNode root = new PackageNode(null);
 
-        for (ClassNode classNode : classes) {
-            String className = classNode.getName();
+        for (ClassMetadata classMetadata : classes) {
+            String className = classMetadata.name;
             if (!classesRequiringName.contains(className)) {
                 continue;
             }
@@ -675,7 +968,7 @@ public class Renderer implements RenderingManager {
         }
     }
 
-    private static Object getDefaultValue(ValueType type) {
+    static Object getDefaultValue(ValueType type) {
         if (type instanceof ValueType.Primitive) {
             ValueType.Primitive primitive = (ValueType.Primitive) type;
             switch (primitive.getKind()) {
@@ -701,9 +994,11 @@ public class Renderer implements RenderingManager {
     }
 
     private void renderInitializer(MethodNode method) throws IOException {
+        int start = writer.getOffset();
         MethodReference ref = method.getReference();
+        boolean generator = context.isGeneratorMethod(ref);
         debugEmitter.emitMethod(ref.getDescriptor());
-        renderFunctionDeclaration(naming.getNameForInit(ref));
+        renderFunctionDeclaration(naming.getNameForInit(ref), generator);
         writer.append("(");
         for (int i = 0; i < ref.parameterCount(); ++i) {
             if (i > 0) {
@@ -714,9 +1009,14 @@ public class Renderer implements RenderingManager {
         writer.append(")").ws().append("{").softNewLine().indent();
 
         String instanceName = variableNameForInitializer(ref.parameterCount());
-        writer.append("var " + instanceName).ws().append("=").ws().append("new ").appendClass(
-                ref.getClassName()).append("();").softNewLine();
+        writer.append(context.variableKeyword()).append(instanceName).ws().append("=").ws().append("new ")
+                .appendClass(ref.getClassName()).append("();").softNewLine();
+        referencesTracked = false;
+        if (generator) {
+            writer.append("yield* ");
+        }
         writer.appendMethodBody(ref).append("(" + instanceName);
+        referencesTracked = true;
         for (int i = 0; i < ref.parameterCount(); ++i) {
             writer.append(",").ws();
             writer.append(variableNameForInitializer(i));
@@ -729,6 +1029,7 @@ public class Renderer implements RenderingManager {
         }
         writer.newLine();
         debugEmitter.emitMethod(null);
+        appendMethodSize(ref, writer.getOffset() - start);
     }
 
     private String variableNameForInitializer(int index) {
@@ -773,10 +1074,12 @@ public class Renderer implements RenderingManager {
             writer.append(args.get(i));
         }
         writer.append(")").ws().append("{").ws();
-        if (ref.getDescriptor().getResultType() != ValueType.VOID) {
+        if (ref.getDescriptor().getResultType() != ValueType.VOID || context.isGeneratorMethod(ref)) {
             writer.append("return ");
         }
+        referencesTracked = false;
         writer.appendMethodBody(ref).append("(");
+        referencesTracked = true;
         writer.append("this");
         for (String arg : args) {
             writer.append(",").ws().append(arg);
@@ -785,14 +1088,20 @@ public class Renderer implements RenderingManager {
     }
 
     private void renderBody(MethodNode method) throws IOException {
+        int start = writer.getOffset();
         StatementRenderer statementRenderer = new StatementRenderer(context, writer);
         statementRenderer.setCurrentMethod(method);
 
         MethodReference ref = method.getReference();
         debugEmitter.emitMethod(ref.getDescriptor());
         String name = naming.getFullNameFor(ref);
+        boolean generator = context.isGeneratorMethod(ref);
+        if (generator) {
+            threadLibraryUsed = true;
+        }
+        statementRenderer.setGenerator(generator);
 
-        renderFunctionDeclaration(name);
+        renderFunctionDeclaration(name, generator);
         writer.append("(");
         int startParam = 0;
         if (method.getModifiers().contains(ElementModifier.STATIC)) {
@@ -806,7 +1115,9 @@ public class Renderer implements RenderingManager {
         }
         writer.append(")").ws().append("{").softNewLine().indent();
 
+        referencesTracked = !splitPoints.contains(ref);
         method.acceptVisitor(new MethodBodyRenderer(statementRenderer));
+        referencesTracked = true;
         writer.outdent().append("}");
         if (classScoped) {
             writer.append(";");
@@ -814,15 +1125,20 @@ public class Renderer implements RenderingManager {
 
         writer.newLine();
         debugEmitter.emitMethod(null);
+        appendMethodSize(ref, writer.getOffset() - start);
 
         longLibraryUsed |= statementRenderer.isLongLibraryUsed();
     }
 
     private void renderFunctionDeclaration(String name) throws IOException {
+        renderFunctionDeclaration(name, false);
+    }
+
+    private void renderFunctionDeclaration(String name, boolean generator) throws IOException {
         if (classScoped) {
-            writer.append(CONTAINER_OBJECT).append(".").append(name).ws().append("=").ws();
+            writer.appendGlobal(CONTAINER_OBJECT).append(".").append(name).ws().append("=").ws();
         }
-        writer.append("function");
+        writer.append(generator ? "function*" : "function");
         if (!classScoped) {
             writer.append(" ").append(name);
         }
@@ -858,7 +1174,14 @@ public class Renderer implements RenderingManager {
             try {
                 this.async = methodNode.isAsync();
                 statementRenderer.setAsync(methodNode.isAsync());
-                methodNode.getGenerator().generate(this, writer, methodNode.getReference());
+                if (statementRenderer.isGenerator()) {
+                    writer.append("return yield* ").appendFunction("$rt_nativeGenerator").append("(function()")
+                            .ws().append("{").indent().softNewLine();
+                    methodNode.getGenerator().generate(this, writer, methodNode.getReference());
+                    writer.outdent().append("});").softNewLine();
+                } else {
+                    methodNode.getGenerator().generate(this, writer, methodNode.getReference());
+                }
             } catch (IOException e) {
                 throw new RenderingException("IO error occurred", e);
             }
@@ -890,7 +1213,7 @@ public class Renderer implements RenderingManager {
                     variableNames.add("$$je");
                 }
                 if (!variableNames.isEmpty()) {
-                    writer.append("var ");
+                    writer.append(context.variableKeyword());
                     for (int i = 0; i < variableNames.size(); ++i) {
                         if (i > 0) {
                             writer.append(",").ws();
@@ -903,8 +1226,13 @@ public class Renderer implements RenderingManager {
                 statementRenderer.setEnd(true);
                 statementRenderer.setCurrentPart(0);
 
+                boolean asyncMonitor = statementRenderer.isAsyncMonitor();
                 if (method.getModifiers().contains(ElementModifier.SYNCHRONIZED)) {
-                    writer.appendMethodBody(NameFrequencyEstimator.MONITOR_ENTER_SYNC_METHOD);
+                    if (asyncMonitor) {
+                        writer.append("yield* ").appendMethodBody(NameFrequencyEstimator.MONITOR_ENTER_METHOD);
+                    } else {
+                        writer.appendMethodBody(NameFrequencyEstimator.MONITOR_ENTER_SYNC_METHOD);
+                    }
                     writer.append("(");
                     appendMonitor(statementRenderer, method);
                     writer.append(");").softNewLine();
@@ -917,7 +1245,8 @@ public class Renderer implements RenderingManager {
                 if (method.getModifiers().contains(ElementModifier.SYNCHRONIZED)) {
                     writer.outdent().append("}").ws().append("finally").ws().append("{").indent().softNewLine();
 
-                    writer.appendMethodBody(NameFrequencyEstimator.MONITOR_EXIT_SYNC_METHOD);
+                    writer.appendMethodBody(asyncMonitor ? NameFrequencyEstimator.MONITOR_EXIT_METHOD
+                            : NameFrequencyEstimator.MONITOR_EXIT_SYNC_METHOD);
                     writer.append("(");
                     appendMonitor(statementRenderer, method);
                     writer.append(");").softNewLine();
@@ -962,7 +1291,7 @@ public class Renderer implements RenderingManager {
                 variableNames.add(context.pointerName());
                 variableNames.add(context.tempVarName());
                 if (!variableNames.isEmpty()) {
-                    writer.append("var ");
+                    writer.append(context.variableKeyword());
                     for (int i = 0; i < variableNames.size(); ++i) {
                         if (i > 0) {
                             writer.append(",").ws();
@@ -982,7 +1311,7 @@ public class Renderer implements RenderingManager {
                 writer.append(context.pointerName()).ws().append('=').ws().append("0;").softNewLine();
                 writer.append("if").ws().append("(").appendFunction("$rt_resuming").append("())").ws()
                         .append("{").indent().softNewLine();
-                writer.append("var ").append(context.threadName()).ws().append('=').ws()
+                writer.append(context.variableKeyword()).append(context.threadName()).ws().append('=').ws()
                         .appendFunction("$rt_nativeThread").append("();").softNewLine();
                 writer.append(context.pointerName()).ws().append('=').ws().append(context.threadName()).append(".")
                         .append(popName).append("();");
@@ -1101,6 +1430,16 @@ public class Renderer implements RenderingManager {
         public void useLongLibrary() {
             longLibraryUsed = true;
         }
+
+        @Override
+        public boolean isEs2015() {
+            return context.isEs2015();
+        }
+
+        @Override
+        public boolean isAsyncGenerators() {
+            return context.isAsyncGenerators();
+        }
     }
 
     private void appendMonitor(StatementRenderer statementRenderer, MethodNode methodNode) throws IOException {
@@ -1117,6 +1456,28 @@ public class Renderer implements RenderingManager {
         return services.getService(type);
     }
 
+    private static class ClassMetadata {
+        final String name;
+        final String parentName;
+        final List<String> interfaces;
+        final int modifiers;
+        final AccessLevel accessLevel;
+        final List<MethodReference> virtualMethods = new ArrayList<>();
+
+        ClassMetadata(ClassNode cls) {
+            name = cls.getName();
+            parentName = cls.getParentName();
+            interfaces = new ArrayList<>(cls.getInterfaces());
+            modifiers = ElementModifier.pack(cls.getModifiers());
+            accessLevel = cls.getAccessLevel();
+            for (MethodNode method : cls.getMethods()) {
+                if (!method.getModifiers().contains(ElementModifier.STATIC)) {
+                    virtualMethods.add(method.getReference());
+                }
+            }
+        }
+    }
+
     private static class PostponedFieldInitializer {
         FieldReference field;
         String value;
@@ -15,17 +15,22 @@
  */
 package org.teavm.backend.javascript.rendering;
 
+import com.carrotsearch.hppc.IntSet;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.function.Predicate;
 import org.teavm.backend.javascript.codegen.NamingStrategy;
 import org.teavm.backend.javascript.codegen.SourceWriter;
@@ -45,6 +50,26 @@ import org.teavm.model.TextLocation;
 import org.teavm.model.ValueType;
 
 public class RenderingContext {
+    /**
+     * Runtime functions that always get short aliases in minified output.
+     */
+    public static final List<String> DEFAULT_FUNCTION_ALIASES = Collections.unmodifiableList(Arrays.asList(
+            "$rt_throw", "$rt_compare", "$rt_nullCheck", "$rt_cls", "$rt_createArray", "$rt_isInstance",
+            "$rt_nativeThread", "$rt_suspending", "$rt_resuming", "$rt_invalidPointer", "$rt_s",
+            "$rt_eraseClinit", "$rt_imul"));
+
+    /**
+     * Runtime functions that may additionally get aliases, when it's known that they are referenced
+     * often enough to pay for the alias declaration.
+     */
+    public static final List<String> OPTIONAL_FUNCTION_ALIASES = Collections.unmodifiableList(Arrays.asList(
+            "Long_ZERO", "Long_fromInt", "Long_fromNumber", "Long_toNumber", "Long_add", "Long_sub", "Long_mul",
+            "Long_div", "Long_rem", "Long_or", "Long_and", "Long_xor", "Long_shl", "Long_shr", "Long_shru",
+            "Long_compare", "Long_eq", "Long_ne", "Long_lt", "Long_le", "Long_gt", "Long_ge",
+            "Long_neg", "$rt_createBooleanArray", "$rt_createByteArray", "$rt_createShortArray",
+            "$rt_createIntArray", "$rt_createLongArray", "$rt_createFloatArray", "$rt_createDoubleArray",
+            "$rt_createCharArray", "$rt_createMultiArray", "$rt_wrapException"));
+
     private final DebugInformationEmitter debugEmitter;
     private ClassReaderSource initialClassSource;
     private ListableClassReaderSource classSource;
@@ -60,6 +85,11 @@ public class RenderingContext {
     private final List<String> readonlyStringPool = Collections.unmodifiableList(stringPool);
     private final Map<MethodReference, InjectorHolder> injectorMap = new HashMap<>();
     private boolean minifying;
+    private boolean nativeBigInt;
+    private boolean es2015;
+    private Set<MethodReference> generatorMethods;
+    private IntSet stringUsage;
+    private Set<String> aliasedFunctions = new LinkedHashSet<>(DEFAULT_FUNCTION_ALIASES);
 
     public RenderingContext(DebugInformationEmitter debugEmitter,
             ClassReaderSource initialClassSource, ListableClassReaderSource classSource,
@@ -109,6 +139,63 @@ public class RenderingContext {
         this.minifying = minifying;
     }
 
+    public boolean isNativeBigInt() {
+        return nativeBigInt;
+    }
+
+    public void setNativeBigInt(boolean nativeBigInt) {
+        this.nativeBigInt = nativeBigInt;
+    }
+
+    public boolean isEs2015() {
+        return es2015;
+    }
+
+    public void setEs2015(boolean es2015) {
+        this.es2015 = es2015;
+    }
+
+    public boolean isAsyncGenerators() {
+        return generatorMethods != null;
+    }
+
+    /**
+     * Makes renderer lower asynchronous methods to generator functions instead of state machines.
+     *
+     * @param generatorMethods methods that are rendered as generator functions, i.e. the whole family
+     *                         of asynchronous methods; <code>null</code> to use state machines.
+     */
+    public void setGeneratorMethods(Set<MethodReference> generatorMethods) {
+        this.generatorMethods = generatorMethods;
+    }
+
+    public boolean isGeneratorMethod(MethodReference method) {
+        return generatorMethods != null && generatorMethods.contains(method);
+    }
+
+    /**
+     * Returns keyword that should be used to declare variables, including the trailing space.
+     */
+    public String variableKeyword() {
+        return es2015 ? "let " : "var ";
+    }
+
+    public Set<String> getAliasedFunctions() {
+        return Collections.unmodifiableSet(aliasedFunctions);
+    }
+
+    public void setAliasedFunctions(Collection<String> aliasedFunctions) {
+        this.aliasedFunctions = new LinkedHashSet<>(aliasedFunctions);
+    }
+
+    /**
+     * Returns name by which generated code should refer to the given runtime function, i.e. its alias
+     * if the function is aliased, or the name itself otherwise.
+     */
+    public String functionName(String name) {
+        return aliasedFunctions.contains(name) ? naming.getNameForFunction(name) : name;
+    }
+
     public DebugInformationEmitter getDebugEmitter() {
         return debugEmitter;
     }
@@ -158,6 +245,14 @@ public class RenderingContext {
         return readonlyStringPool;
     }
 
+    /**
+     * Specifies a set that receives indexes of all pooled strings referenced by rendered code, or
+     * <code>null</code> to stop collecting them.
+     */
+    public void setStringUsage(IntSet stringUsage) {
+        this.stringUsage = stringUsage;
+    }
+
     public void constantToString(SourceWriter writer, Object cst) throws IOException {
         if (cst == null) {
             writer.append("null");
@@ -170,15 +265,25 @@ public class RenderingContext {
         } else if (cst instanceof String) {
             String string = (String) cst;
             int index = lookupString(string);
+            if (stringUsage != null) {
+                stringUsage.add(index);
+            }
             writer.appendFunction("$rt_s").append("(" + index + ")");
         } else if (cst instanceof Long) {
             long value = (Long) cst;
-            if (value == 0) {
-                writer.append("Long_ZERO");
+            if (nativeBigInt) {
+                if (value < 0) {
+                    writer.append("(" + value + "n)");
+                } else {
+                    writer.append(value + "n");
+                }
+            } else if (value == 0) {
+                writer.appendGlobal(functionName("Long_ZERO"));
             } else if ((int) value == value) {
-                writer.append("Long_fromInt(" + value + ")");
+                writer.appendGlobal(functionName("Long_fromInt")).append("(" + value + ")");
             } else {
-                writer.append("new Long(" + (value & 0xFFFFFFFFL) + ", " + (value >>> 32) + ")");
+                writer.append("new ").appendGlobal("Long")
+                        .append("(" + (value & 0xFFFFFFFFL) + ", " + (value >>> 32) + ")");
             }
         } else if (cst instanceof Character) {
             writer.append(Integer.toString((Character) cst));
@@ -240,40 +345,40 @@ public class RenderingContext {
         }
 
         for (int i = 0; i < arrayCount; ++i) {
-            writer.append("$rt_arraycls(");
+            writer.appendGlobal("$rt_arraycls").append("(");
         }
 
         if (type instanceof ValueType.Object) {
             ValueType.Object objType = (ValueType.Object) type;
             writer.appendClass(objType.getClassName());
         } else if (type instanceof ValueType.Void) {
-            writer.append("$rt_voidcls()");
+            writer.appendGlobal("$rt_voidcls").append("()");
         } else if (type instanceof ValueType.Primitive) {
             ValueType.Primitive primitiveType = (ValueType.Primitive) type;
             switch (primitiveType.getKind()) {
                 case BOOLEAN:
-                    writer.append("$rt_booleancls()");
+                    writer.appendGlobal("$rt_booleancls").append("()");
                     break;
                 case CHARACTER:
-                    writer.append("$rt_charcls()");
+                    writer.appendGlobal("$rt_charcls").append("()");
                     break;
                 case BYTE:
-                    writer.append("$rt_bytecls()");
+                    writer.appendGlobal("$rt_bytecls").append("()");
                     break;
                 case SHORT:
-                    writer.append("$rt_shortcls()");
+                    writer.appendGlobal("$rt_shortcls").append("()");
                     break;
                 case INTEGER:
-                    writer.append("$rt_intcls()");
+                    writer.appendGlobal("$rt_intcls").append("()");
                     break;
                 case LONG:
-                    writer.append("$rt_longcls()");
+                    writer.appendGlobal("$rt_longcls").append("()");
                     break;
                 case FLOAT:
-                    writer.append("$rt_floatcls()");
+                    writer.appendGlobal("$rt_floatcls").append("()");
                     break;
                 case DOUBLE:
-                    writer.append("$rt_doublecls()");
+                    writer.appendGlobal("$rt_doublecls").append("()");
                     break;
                 default:
                     throw new IllegalArgumentException("The type is not renderable");
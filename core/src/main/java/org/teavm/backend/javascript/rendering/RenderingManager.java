@@ -28,6 +28,8 @@ public interface RenderingManager extends ServiceRepository {
 
     boolean isMinifying();
 
+    boolean isEs2015();
+
     ListableClassReaderSource getClassSource();
 
     ClassLoader getClassLoader();
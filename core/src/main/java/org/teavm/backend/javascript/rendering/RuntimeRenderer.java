@@ -27,6 +27,8 @@ import org.teavm.backend.javascript.codegen.NamingStrategy;
 import org.teavm.backend.javascript.codegen.SourceWriter;
 import org.teavm.model.ClassReader;
 import org.teavm.model.ClassReaderSource;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldReader;
 import org.teavm.model.FieldReference;
 import org.teavm.model.MethodDescriptor;
 import org.teavm.model.MethodReference;
@@ -50,21 +52,31 @@ public class RuntimeRenderer {
     private final ClassReaderSource classSource;
     private final NamingStrategy naming;
     private final SourceWriter writer;
+    private final RenderingContext context;
+    private boolean nativeBigInt;
 
-    public RuntimeRenderer(ClassReaderSource classSource, NamingStrategy naming, SourceWriter writer) {
+    public RuntimeRenderer(ClassReaderSource classSource, NamingStrategy naming, SourceWriter writer,
+            RenderingContext context) {
         this.classSource = classSource;
         this.naming = naming;
         this.writer = writer;
+        this.context = context;
+    }
+
+    public void setNativeBigInt(boolean nativeBigInt) {
+        this.nativeBigInt = nativeBigInt;
     }
 
     public void renderRuntime() throws RenderingException {
         try {
             renderHandWrittenRuntime("runtime.js");
+            renderHandWrittenRuntime(nativeBigInt ? "bigIntRuntime.js" : "longRuntime.js");
             renderSetCloneMethod();
             renderRuntimeCls();
             renderRuntimeString();
             renderRuntimeUnwrapString();
             renderRuntimeObjcls();
+            renderRuntimeInitObject();
             renderRuntimeNullCheck();
             renderRuntimeIntern();
             renderRuntimeThreads();
@@ -170,6 +182,22 @@ public class RuntimeRenderer {
         writer.append("function $rt_objcls() { return ").appendClass("java.lang.Object").append("; }").newLine();
     }
 
+    private void renderRuntimeInitObject() throws IOException {
+        writer.append("function $rt_initObject(obj)").ws().append("{").indent().softNewLine();
+        ClassReader objectCls = classSource.get("java.lang.Object");
+        if (objectCls != null) {
+            for (FieldReader field : objectCls.getFields()) {
+                if (!field.hasModifier(ElementModifier.STATIC)) {
+                    writer.append("obj.").appendField(field.getReference()).ws().append("=").ws();
+                    context.constantToString(writer, Renderer.getDefaultValue(field.getType()));
+                    writer.append(";").softNewLine();
+                }
+            }
+        }
+        writer.append("obj.$id$").ws().append("=").ws().append("0;").softNewLine();
+        writer.outdent().append("}").newLine();
+    }
+
     private void renderRuntimeThreads() throws IOException {
         ClassReader threadCls = classSource.get(THREAD_CLASS);
         boolean threadUsed = threadCls != null && threadCls.getMethod(CURRENT_THREAD_METHOD) != null;
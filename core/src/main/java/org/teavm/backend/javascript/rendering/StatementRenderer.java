@@ -88,6 +88,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
     private SourceWriter writer;
     private ClassReaderSource classSource;
     private boolean async;
+    private boolean generator;
     private boolean minifying;
     private Precedence precedence;
     private DebugInformationEmitter debugEmitter;
@@ -103,12 +104,14 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
     private List<String> blockIds = new ArrayList<>();
     private IntIndexedContainer blockIndexMap = new IntArrayList();
     private boolean longLibraryUsed;
+    private final boolean nativeBigInt;
 
     public StatementRenderer(RenderingContext context, SourceWriter writer) {
         this.context = context;
         this.writer = writer;
         this.classSource = context.getClassSource();
         this.minifying = context.isMinifying();
+        this.nativeBigInt = context.isNativeBigInt();
         this.naming = context.getNaming();
         this.debugEmitter = context.getDebugEmitter();
     }
@@ -125,6 +128,26 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
         this.async = async;
     }
 
+    public boolean isGenerator() {
+        return generator;
+    }
+
+    /**
+     * Specifies whether statements are rendered into a generator function, i.e. whether calls
+     * to methods of asynchronous family can be delegated to with <code>yield*</code>.
+     */
+    public void setGenerator(boolean generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Tells whether monitors are entered with asynchronous <code>monitorEnter</code>,
+     * which may suspend the thread, rather than with <code>monitorEnterSync</code>.
+     */
+    public boolean isAsyncMonitor() {
+        return async || generator && context.isGeneratorMethod(NameFrequencyEstimator.MONITOR_ENTER_METHOD);
+    }
+
     public void setCurrentMethod(MethodNode currentMethod) {
         this.currentMethod = currentMethod;
     }
@@ -437,7 +460,15 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
             if (statement.getLocation() != null) {
                 pushLocation(statement.getLocation());
             }
-            writer.appendClassInit(statement.getClassName()).append("();").softNewLine();
+            boolean generatorCall = context.isGeneratorMethod(method.getReference());
+            if (generatorCall) {
+                startGeneratorCall();
+            }
+            writer.appendClassInit(statement.getClassName()).append("()");
+            if (generatorCall) {
+                writer.append(")");
+            }
+            writer.append(";").softNewLine();
             if (statement.isAsync()) {
                 emitSuspendChecker();
             }
@@ -602,7 +633,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
             if (expr.getLocation() != null) {
                 pushLocation(expr.getLocation());
             }
-            writer.append(function);
+            writer.appendGlobal(function);
             writer.append('(');
             precedence = Precedence.min();
             expr.getFirstOperand().acceptVisitor(this);
@@ -618,64 +649,204 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
         }
     }
 
+    private void visitBigIntBinary(BinaryExpr expr, String op, boolean wrapped) {
+        visitBigIntBinary(expr, op, wrapped, () -> expr.getFirstOperand().acceptVisitor(this),
+                () -> expr.getSecondOperand().acceptVisitor(this));
+    }
+
+    private void visitBigIntBinary(BinaryExpr expr, String op, boolean wrapped, Runnable a, Runnable b) {
+        try {
+            if (expr.getLocation() != null) {
+                pushLocation(expr.getLocation());
+            }
+            if (wrapped) {
+                writer.append("BigInt.asIntN(64,").ws();
+                precedence = Precedence.min();
+            }
+            visitBinary(expr.getOperation(), op, a, b);
+            if (wrapped) {
+                writer.append(')');
+            }
+            if (expr.getLocation() != null) {
+                popLocation();
+            }
+        } catch (IOException e) {
+            throw new RenderingException("IO error occured", e);
+        }
+    }
+
+    private void visitBigIntShift(BinaryExpr expr, String op) {
+        Integer constantCount = getIntConstant(expr.getSecondOperand());
+        Runnable count = () -> {
+            try {
+                if (constantCount != null) {
+                    writer.append((constantCount & 63) + "n");
+                } else {
+                    writer.append("BigInt(");
+                    precedence = Precedence.BITWISE_AND;
+                    expr.getSecondOperand().acceptVisitor(this);
+                    writer.ws().append('&').ws().append("63)");
+                }
+            } catch (IOException e) {
+                throw new RenderingException("IO error occured", e);
+            }
+        };
+        switch (expr.getOperation()) {
+            case LEFT_SHIFT:
+                visitBigIntBinary(expr, op, true, () -> expr.getFirstOperand().acceptVisitor(this), count);
+                break;
+            case RIGHT_SHIFT:
+                visitBigIntBinary(expr, op, false, () -> expr.getFirstOperand().acceptVisitor(this), count);
+                break;
+            default: {
+                // Unsigned shift by a non-zero amount always produces a non-negative 63-bit number
+                boolean wrapped = constantCount == null || (constantCount & 63) == 0;
+                visitBigIntBinary(expr, op, wrapped, () -> {
+                    try {
+                        writer.append("BigInt.asUintN(64,").ws();
+                        precedence = Precedence.min();
+                        expr.getFirstOperand().acceptVisitor(this);
+                        writer.append(')');
+                    } catch (IOException e) {
+                        throw new RenderingException("IO error occured", e);
+                    }
+                }, count);
+                break;
+            }
+        }
+    }
+
+    private static Integer getIntConstant(Expr expr) {
+        if (expr instanceof ConstantExpr && ((ConstantExpr) expr).getValue() instanceof Integer) {
+            return (Integer) ((ConstantExpr) expr).getValue();
+        }
+        return null;
+    }
+
+    private void visitBigInt(BinaryExpr expr) {
+        switch (expr.getOperation()) {
+            case ADD:
+                visitBigIntBinary(expr, "+", true);
+                break;
+            case SUBTRACT:
+                visitBigIntBinary(expr, "-", true);
+                break;
+            case MULTIPLY:
+                visitBigIntBinary(expr, "*", true);
+                break;
+            case DIVIDE: {
+                // Only Long.MIN_VALUE / -1 overflows
+                Object divisor = expr.getSecondOperand() instanceof ConstantExpr
+                        ? ((ConstantExpr) expr.getSecondOperand()).getValue()
+                        : null;
+                visitBigIntBinary(expr, "/", !(divisor instanceof Long) || (Long) divisor == -1);
+                break;
+            }
+            case MODULO:
+                visitBigIntBinary(expr, "%", false);
+                break;
+            case BITWISE_OR:
+                visitBigIntBinary(expr, "|", false);
+                break;
+            case BITWISE_AND:
+                visitBigIntBinary(expr, "&", false);
+                break;
+            case BITWISE_XOR:
+                visitBigIntBinary(expr, "^", false);
+                break;
+            case LEFT_SHIFT:
+                visitBigIntShift(expr, "<<");
+                break;
+            case RIGHT_SHIFT:
+            case UNSIGNED_RIGHT_SHIFT:
+                visitBigIntShift(expr, ">>");
+                break;
+            case COMPARE:
+                visitBinaryFunction(expr, naming.getNameForFunction("$rt_compare"));
+                break;
+            case EQUALS:
+                visitBinary(expr, "===", false);
+                break;
+            case NOT_EQUALS:
+                visitBinary(expr, "!==", false);
+                break;
+            case LESS:
+                visitBinary(expr, "<", false);
+                break;
+            case LESS_OR_EQUALS:
+                visitBinary(expr, "<=", false);
+                break;
+            case GREATER:
+                visitBinary(expr, ">", false);
+                break;
+            case GREATER_OR_EQUALS:
+                visitBinary(expr, ">=", false);
+                break;
+            default:
+                break;
+        }
+    }
+
     @Override
     public void visit(BinaryExpr expr) {
-        if (expr.getType() == OperationType.LONG) {
+        if (expr.getType() == OperationType.LONG && nativeBigInt) {
+            visitBigInt(expr);
+        } else if (expr.getType() == OperationType.LONG) {
             longLibraryUsed = true;
             switch (expr.getOperation()) {
                 case ADD:
-                    visitBinaryFunction(expr, "Long_add");
+                    visitBinaryFunction(expr, context.functionName("Long_add"));
                     break;
                 case SUBTRACT:
-                    visitBinaryFunction(expr, "Long_sub");
+                    visitBinaryFunction(expr, context.functionName("Long_sub"));
                     break;
                 case MULTIPLY:
-                    visitBinaryFunction(expr, "Long_mul");
+                    visitBinaryFunction(expr, context.functionName("Long_mul"));
                     break;
                 case DIVIDE:
-                    visitBinaryFunction(expr, "Long_div");
+                    visitBinaryFunction(expr, context.functionName("Long_div"));
                     break;
                 case MODULO:
-                    visitBinaryFunction(expr, "Long_rem");
+                    visitBinaryFunction(expr, context.functionName("Long_rem"));
                     break;
                 case BITWISE_OR:
-                    visitBinaryFunction(expr, "Long_or");
+                    visitBinaryFunction(expr, context.functionName("Long_or"));
                     break;
                 case BITWISE_AND:
-                    visitBinaryFunction(expr, "Long_and");
+                    visitBinaryFunction(expr, context.functionName("Long_and"));
                     break;
                 case BITWISE_XOR:
-                    visitBinaryFunction(expr, "Long_xor");
+                    visitBinaryFunction(expr, context.functionName("Long_xor"));
                     break;
                 case LEFT_SHIFT:
-                    visitBinaryFunction(expr, "Long_shl");
+                    visitBinaryFunction(expr, context.functionName("Long_shl"));
                     break;
                 case RIGHT_SHIFT:
-                    visitBinaryFunction(expr, "Long_shr");
+                    visitBinaryFunction(expr, context.functionName("Long_shr"));
                     break;
                 case UNSIGNED_RIGHT_SHIFT:
-                    visitBinaryFunction(expr, "Long_shru");
+                    visitBinaryFunction(expr, context.functionName("Long_shru"));
                     break;
                 case COMPARE:
-                    visitBinaryFunction(expr, "Long_compare");
+                    visitBinaryFunction(expr, context.functionName("Long_compare"));
                     break;
                 case EQUALS:
-                    visitBinaryFunction(expr, "Long_eq");
+                    visitBinaryFunction(expr, context.functionName("Long_eq"));
                     break;
                 case NOT_EQUALS:
-                    visitBinaryFunction(expr, "Long_ne");
+                    visitBinaryFunction(expr, context.functionName("Long_ne"));
                     break;
                 case LESS:
-                    visitBinaryFunction(expr, "Long_lt");
+                    visitBinaryFunction(expr, context.functionName("Long_lt"));
                     break;
                 case LESS_OR_EQUALS:
-                    visitBinaryFunction(expr, "Long_le");
+                    visitBinaryFunction(expr, context.functionName("Long_le"));
                     break;
                 case GREATER:
-                    visitBinaryFunction(expr, "Long_gt");
+                    visitBinaryFunction(expr, context.functionName("Long_gt"));
                     break;
                 case GREATER_OR_EQUALS:
-                    visitBinaryFunction(expr, "Long_ge");
+                    visitBinaryFunction(expr, context.functionName("Long_ge"));
                     break;
                 default:
                     break;
@@ -768,9 +939,9 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
             Precedence outerPrecedence = precedence;
             switch (expr.getOperation()) {
                 case NOT: {
-                    if (expr.getType() == OperationType.LONG) {
+                    if (expr.getType() == OperationType.LONG && !nativeBigInt) {
                         longLibraryUsed = true;
-                        writer.append("Long_not(");
+                        writer.appendGlobal("Long_not").append("(");
                         precedence = Precedence.min();
                         expr.getOperand().acceptVisitor(this);
                         writer.append(')');
@@ -788,9 +959,14 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
                     break;
                 }
                 case NEGATE:
-                    if (expr.getType() == OperationType.LONG) {
+                    if (expr.getType() == OperationType.LONG && nativeBigInt) {
+                        writer.append("BigInt.asIntN(64,").ws().append('-');
+                        precedence = Precedence.UNARY;
+                        expr.getOperand().acceptVisitor(this);
+                        writer.append(')');
+                    } else if (expr.getType() == OperationType.LONG) {
                         longLibraryUsed = true;
-                        writer.append("Long_neg(");
+                        writer.appendGlobal(context.functionName("Long_neg")).append("(");
                         precedence = Precedence.min();
                         expr.getOperand().acceptVisitor(this);
                         writer.append(')');
@@ -873,7 +1049,12 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
             switch (expr.getSource()) {
                 case INT:
                     if (expr.getTarget() == OperationType.LONG) {
-                        writer.append("Long_fromInt(");
+                        if (nativeBigInt) {
+                            writer.append("BigInt");
+                        } else {
+                            writer.appendGlobal(context.functionName("Long_fromInt"));
+                        }
+                        writer.append("(");
                         precedence = Precedence.min();
                         expr.getValue().acceptVisitor(this);
                         writer.append(')');
@@ -884,6 +1065,13 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
                 case LONG:
                     switch (expr.getTarget()) {
                         case INT:
+                            if (nativeBigInt) {
+                                writer.append("Number(BigInt.asIntN(32,").ws();
+                                precedence = Precedence.min();
+                                expr.getValue().acceptVisitor(this);
+                                writer.append("))");
+                                break;
+                            }
                             precedence = Precedence.MEMBER_ACCESS;
                             Expr longShifted = extractLongRightShiftedBy32(expr.getValue());
                             if (longShifted != null) {
@@ -896,7 +1084,12 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
                             break;
                         case FLOAT:
                         case DOUBLE:
-                            writer.append("Long_toNumber(");
+                            if (nativeBigInt) {
+                                writer.append("Number");
+                            } else {
+                                writer.appendGlobal(context.functionName("Long_toNumber"));
+                            }
+                            writer.append("(");
                             precedence = Precedence.min();
                             expr.getValue().acceptVisitor(this);
                             writer.append(')');
@@ -909,7 +1102,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
                 case DOUBLE:
                     switch (expr.getTarget()) {
                         case LONG:
-                            writer.append("Long_fromNumber(");
+                            writer.appendGlobal(context.functionName("Long_fromNumber")).append("(");
                             precedence = Precedence.min();
                             expr.getValue().acceptVisitor(this);
                             writer.append(')');
@@ -1072,11 +1265,15 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
             if (injector != null) {
                 injector.generate(new InjectorContextImpl(expr.getArguments()), expr.getMethod());
             } else {
+                MethodReference method = expr.getMethod();
+                boolean generatorCall = context.isGeneratorMethod(method);
+                if (generatorCall) {
+                    startGeneratorCall();
+                }
                 if (expr.getType() == InvocationType.DYNAMIC) {
                     precedence = Precedence.MEMBER_ACCESS;
                     expr.getArguments().get(0).acceptVisitor(this);
                 }
-                MethodReference method = expr.getMethod();
                 String name = naming.getNameFor(method.getDescriptor());
                 DeferredCallSite callSite = prevCallSite;
                 boolean shouldEraseCallSite = lastCallSite == null;
@@ -1132,6 +1329,9 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
                         break;
                 }
                 writer.append(')');
+                if (generatorCall) {
+                    writer.append(')');
+                }
                 if (lastCallSite != null) {
                     if (virtual) {
                         lastCallSite.setVirtualMethod(expr.getMethod());
@@ -1212,49 +1412,49 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
             if (type instanceof ValueType.Primitive) {
                 switch (((ValueType.Primitive) type).getKind()) {
                     case BOOLEAN:
-                        writer.append("$rt_createBooleanArray(");
+                        writer.appendGlobal(context.functionName("$rt_createBooleanArray")).append("(");
                         precedence = Precedence.min();
                         expr.getLength().acceptVisitor(this);
                         writer.append(")");
                         break;
                     case BYTE:
-                        writer.append("$rt_createByteArray(");
+                        writer.appendGlobal(context.functionName("$rt_createByteArray")).append("(");
                         precedence = Precedence.min();
                         expr.getLength().acceptVisitor(this);
                         writer.append(")");
                         break;
                     case SHORT:
-                        writer.append("$rt_createShortArray(");
+                        writer.appendGlobal(context.functionName("$rt_createShortArray")).append("(");
                         precedence = Precedence.min();
                         expr.getLength().acceptVisitor(this);
                         writer.append(")");
                         break;
                     case INTEGER:
-                        writer.append("$rt_createIntArray(");
+                        writer.appendGlobal(context.functionName("$rt_createIntArray")).append("(");
                         precedence = Precedence.min();
                         expr.getLength().acceptVisitor(this);
                         writer.append(")");
                         break;
                     case LONG:
-                        writer.append("$rt_createLongArray(");
+                        writer.appendGlobal(context.functionName("$rt_createLongArray")).append("(");
                         precedence = Precedence.min();
                         expr.getLength().acceptVisitor(this);
                         writer.append(")");
                         break;
                     case FLOAT:
-                        writer.append("$rt_createFloatArray(");
+                        writer.appendGlobal(context.functionName("$rt_createFloatArray")).append("(");
                         precedence = Precedence.min();
                         expr.getLength().acceptVisitor(this);
                         writer.append(")");
                         break;
                     case DOUBLE:
-                        writer.append("$rt_createDoubleArray(");
+                        writer.appendGlobal(context.functionName("$rt_createDoubleArray")).append("(");
                         precedence = Precedence.min();
                         expr.getLength().acceptVisitor(this);
                         writer.append(")");
                         break;
                     case CHARACTER:
-                        writer.append("$rt_createCharArray(");
+                        writer.appendGlobal(context.functionName("$rt_createCharArray")).append("(");
                         precedence = Precedence.min();
                         expr.getLength().acceptVisitor(this);
                         writer.append(")");
@@ -1289,32 +1489,32 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
             if (type instanceof ValueType.Primitive) {
                 switch (((ValueType.Primitive) type).getKind()) {
                     case BOOLEAN:
-                        writer.append("$rt_createBooleanMultiArray(");
+                        writer.appendGlobal("$rt_createBooleanMultiArray").append("(");
                         break;
                     case BYTE:
-                        writer.append("$rt_createByteMultiArray(");
+                        writer.appendGlobal("$rt_createByteMultiArray").append("(");
                         break;
                     case SHORT:
-                        writer.append("$rt_createShortMultiArray(");
+                        writer.appendGlobal("$rt_createShortMultiArray").append("(");
                         break;
                     case INTEGER:
-                        writer.append("$rt_createIntMultiArray(");
+                        writer.appendGlobal("$rt_createIntMultiArray").append("(");
                         break;
                     case LONG:
-                        writer.append("$rt_createLongMultiArray(");
+                        writer.appendGlobal("$rt_createLongMultiArray").append("(");
                         break;
                     case FLOAT:
-                        writer.append("$rt_createFloatMultiArray(");
+                        writer.appendGlobal("$rt_createFloatMultiArray").append("(");
                         break;
                     case DOUBLE:
-                        writer.append("$rt_createDoubleMultiArray(");
+                        writer.appendGlobal("$rt_createDoubleMultiArray").append("(");
                         break;
                     case CHARACTER:
-                        writer.append("$rt_createCharMultiArray(");
+                        writer.appendGlobal("$rt_createCharMultiArray").append("(");
                         break;
                 }
             } else {
-                writer.append("$rt_createMultiArray(");
+                writer.appendGlobal(context.functionName("$rt_createMultiArray")).append("(");
                 context.typeToClsString(writer, expr.getType());
                 writer.append(",").ws();
             }
@@ -1408,7 +1608,8 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
             visitStatements(protectedBody);
             writer.outdent().append("}").ws().append("catch").ws().append("($$e)")
                     .ws().append("{").indent().softNewLine();
-            writer.append("$$je").ws().append("=").ws().append("$rt_wrapException($$e);").softNewLine();
+            writer.append("$$je").ws().append("=").ws().append(context.functionName("$rt_wrapException"))
+                    .append("($$e);").softNewLine();
             boolean first = true;
             boolean defaultHandlerOccurred = false;
             for (TryCatchStatement catchClause : sequence) {
@@ -1473,10 +1674,23 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
         }
     }
 
+    private void startGeneratorCall() throws IOException {
+        if (generator) {
+            writer.append("(yield* ");
+        } else {
+            writer.appendFunction("$rt_runGenerator").append("(");
+        }
+    }
+
     @Override
     public void visit(MonitorEnterStatement statement) {
         try {
-            if (async) {
+            if (generator && isAsyncMonitor()) {
+                writer.append("yield* ").appendMethodBody(NameFrequencyEstimator.MONITOR_ENTER_METHOD).append("(");
+                precedence = Precedence.min();
+                statement.getObjectRef().acceptVisitor(this);
+                writer.append(");").softNewLine();
+            } else if (async) {
                 writer.appendMethodBody(NameFrequencyEstimator.MONITOR_ENTER_METHOD).append("(");
                 precedence = Precedence.min();
                 statement.getObjectRef().acceptVisitor(this);
@@ -1503,7 +1717,7 @@ public class StatementRenderer implements ExprVisitor, StatementVisitor {
     @Override
     public void visit(MonitorExitStatement statement) {
         try {
-            if (async) {
+            if (isAsyncMonitor()) {
                 writer.appendMethodBody(NameFrequencyEstimator.MONITOR_EXIT_METHOD).append("(");
                 precedence = Precedence.min();
                 statement.getObjectRef().acceptVisitor(this);
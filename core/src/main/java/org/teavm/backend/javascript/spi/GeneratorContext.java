@@ -49,4 +49,8 @@ public interface GeneratorContext extends ServiceRepository {
     void typeToClassString(SourceWriter writer, ValueType type);
 
     void useLongLibrary();
+
+    boolean isEs2015();
+
+    boolean isAsyncGenerators();
 }
@@ -0,0 +1,55 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript.splitting;
+
+import java.io.IOException;
+import org.teavm.backend.javascript.codegen.SourceWriter;
+import org.teavm.backend.javascript.spi.Generator;
+import org.teavm.backend.javascript.spi.GeneratorContext;
+import org.teavm.model.MethodReference;
+
+public class ChunkLoaderGenerator implements Generator {
+    @Override
+    public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef) throws IOException {
+        writer.append("var thread").ws().append('=').ws().appendGlobal("$rt_nativeThread").append("();").softNewLine();
+        writer.append("var javaThread").ws().append('=').ws().appendGlobal("$rt_getThread").append("();")
+                .softNewLine();
+        writer.append("if").ws().append("(thread.isResuming())").ws().append("{").indent().softNewLine();
+        writer.append("thread.status").ws().append("=").ws().append("0;").softNewLine();
+        writer.append("var error").ws().append("=").ws().append("thread.attribute;").softNewLine();
+        writer.append("if").ws().append("(error instanceof Error)").ws().append("{").indent().softNewLine();
+        writer.append("throw error;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("return;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+
+        writer.append("var name").ws().append("=").ws().appendGlobal("$rt_ustr").append("(")
+                .append(context.getParameterName(1)).append(");").softNewLine();
+        writer.append("if").ws().append("(").appendGlobal("$rt_isChunkLoaded").append("(name))").ws()
+                .append("{").indent().softNewLine();
+        writer.append("return;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+
+        writer.append("return thread.suspend(function()").ws().append("{").indent().softNewLine();
+        writer.appendGlobal("$rt_loadChunk").append("(name,").ws().append("function(error)").ws().append("{").indent()
+                .softNewLine();
+        writer.append("thread.attribute").ws().append('=').ws().append("error;").softNewLine();
+        writer.appendGlobal("$rt_setThread").append("(javaThread);").softNewLine();
+        writer.append("thread.resume();").softNewLine();
+        writer.outdent().append("});").softNewLine();
+        writer.outdent().append("});").softNewLine();
+    }
+}
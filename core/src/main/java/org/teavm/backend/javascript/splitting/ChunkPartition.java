@@ -0,0 +1,201 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript.splitting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.teavm.callgraph.CallGraph;
+import org.teavm.callgraph.CallGraphNode;
+import org.teavm.callgraph.CallSite;
+import org.teavm.model.ClassReader;
+import org.teavm.model.ListableClassReaderSource;
+import org.teavm.model.MethodReader;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>Decides which method bodies can be moved from the main output to chunks that are loaded on demand.</p>
+ *
+ * <p>A method goes to the chunk of a split point when it is reachable in the call graph from that split point
+ * only. Methods without known callers, entry points and everything reachable from them without passing
+ * through split points stay in the main output. Methods shared between several chunks stay there as well.</p>
+ */
+public class ChunkPartition {
+    private CallGraph callGraph;
+    private Map<MethodReference, String> splitPoints = new LinkedHashMap<>();
+    private Map<MethodReference, String> chunkByMethod = new LinkedHashMap<>();
+    private Set<MethodReference> readonlyDeferredMethods = Collections.unmodifiableSet(chunkByMethod.keySet());
+
+    public ChunkPartition(CallGraph callGraph) {
+        this.callGraph = callGraph;
+    }
+
+    public void build(ListableClassReaderSource classes, Set<MethodReference> renderedMethods,
+            Collection<MethodReference> entryPoints) {
+        for (String className : classes.getClassNames()) {
+            ClassReader cls = classes.get(className);
+            for (MethodReader method : cls.getMethods()) {
+                String chunkName = SplitPointTransformer.getChunkName(method);
+                if (chunkName != null && renderedMethods.contains(method.getReference())) {
+                    splitPoints.put(method.getReference(), chunkName);
+                }
+            }
+        }
+        if (splitPoints.isEmpty()) {
+            return;
+        }
+
+        List<MethodReference> roots = new ArrayList<>(entryPoints);
+        roots.add(SplitPointTransformer.LOAD_METHOD);
+        for (MethodReference method : renderedMethods) {
+            if (callGraph.getNode(method).getCallerCallSites().isEmpty()) {
+                roots.add(method);
+            }
+        }
+        Set<MethodReference> mainMethods = new HashSet<>();
+        reach(roots, mainMethods, Collections.emptySet());
+
+        Map<MethodReference, String> owners = new HashMap<>();
+        Set<MethodReference> shared = new HashSet<>();
+        for (Map.Entry<MethodReference, String> entry : splitPoints.entrySet()) {
+            Set<MethodReference> chunkMethods = new HashSet<>();
+            reach(callees(entry.getKey()), chunkMethods, mainMethods);
+            for (MethodReference method : chunkMethods) {
+                String existing = owners.putIfAbsent(method, entry.getValue());
+                if (existing != null && !existing.equals(entry.getValue())) {
+                    shared.add(method);
+                }
+            }
+        }
+
+        for (MethodReference method : renderedMethods) {
+            String chunk = owners.get(method);
+            if (chunk != null) {
+                chunkByMethod.put(method, chunk);
+            }
+        }
+        pin(shared);
+    }
+
+    public boolean isEmpty() {
+        return chunkByMethod.isEmpty();
+    }
+
+    public Set<MethodReference> getSplitPoints() {
+        return splitPoints.keySet();
+    }
+
+    /**
+     * Returns methods whose bodies go to chunks. The returned set reflects subsequent calls
+     * to {@link #pin(Collection)}.
+     */
+    public Set<MethodReference> getDeferredMethods() {
+        return readonlyDeferredMethods;
+    }
+
+    public String getChunk(MethodReference method) {
+        return chunkByMethod.get(method);
+    }
+
+    public Set<String> getChunkNames() {
+        return new TreeSet<>(chunkByMethod.values());
+    }
+
+    /**
+     * Moves given methods back to the main output, along with all deferred methods they may call directly.
+     *
+     * @return methods that were deferred before this call and now belong to the main output.
+     */
+    public Set<MethodReference> pin(Collection<MethodReference> methods) {
+        Set<MethodReference> result = new HashSet<>();
+        Deque<MethodReference> stack = new ArrayDeque<>();
+        for (MethodReference method : methods) {
+            if (chunkByMethod.remove(method) != null) {
+                result.add(method);
+                stack.push(method);
+            }
+        }
+        while (!stack.isEmpty()) {
+            MethodReference method = stack.pop();
+            if (splitPoints.containsKey(method)) {
+                continue;
+            }
+            for (MethodReference callee : callees(method)) {
+                if (chunkByMethod.remove(callee) != null) {
+                    result.add(callee);
+                    stack.push(callee);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Selects pooled strings that a chunk has to ship. String pool assigns indexes in order of first use,
+     * and the main output is rendered before chunks, so strings missing from the main output are the ones
+     * with indexes not less than the size of its pool.
+     *
+     * @param usedStrings indexes of strings used by the chunk.
+     * @param mainStringCount number of strings in the pool of the main output.
+     * @return sorted indexes of strings to ship with the chunk.
+     */
+    public static int[] getChunkStrings(int[] usedStrings, int mainStringCount) {
+        return Arrays.stream(usedStrings)
+                .filter(index -> index >= mainStringCount)
+                .sorted()
+                .toArray();
+    }
+
+    private void reach(Collection<MethodReference> start, Set<MethodReference> visited,
+            Set<MethodReference> excluded) {
+        Deque<MethodReference> stack = new ArrayDeque<>();
+        for (MethodReference method : start) {
+            if (!excluded.contains(method) && visited.add(method)) {
+                stack.push(method);
+            }
+        }
+        while (!stack.isEmpty()) {
+            MethodReference method = stack.pop();
+            if (splitPoints.containsKey(method)) {
+                continue;
+            }
+            for (MethodReference callee : callees(method)) {
+                if (!excluded.contains(callee) && visited.add(callee)) {
+                    stack.push(callee);
+                }
+            }
+        }
+    }
+
+    private List<MethodReference> callees(MethodReference method) {
+        CallGraphNode node = callGraph.getNode(method);
+        List<MethodReference> result = new ArrayList<>();
+        for (CallSite callSite : node.getCallSites()) {
+            result.add(callSite.getCallee().getMethod());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript.splitting;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.teavm.backend.javascript.codegen.SourceWriter;
+import org.teavm.backend.javascript.rendering.RenderingUtil;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>Collects names that chunks take from the main output.</p>
+ *
+ * <p>Chunks run as separate scripts, outside of the closure of the main output. {@link SourceWriter} reports
+ * every name of the main output that chunk code refers to, and the chunk function receives these names
+ * as parameters. Names that change after the chunk is loaded, i.e. static fields, class initializers
+ * and methods of other chunks, are read and written through properties of a scope object instead.
+ * Chunk declares its own methods as local functions and publishes them through the same object.</p>
+ */
+public class ChunkScope {
+    public static final String SCOPE_OBJECT = "$rt_scope";
+    private Set<MethodReference> deferredMethods;
+    private Set<String> mutableNames = new TreeSet<>();
+    private Map<String, Set<String>> chunkNames = new LinkedHashMap<>();
+    private Set<String> currentNames;
+    private Set<MethodReference> currentMethods = Collections.emptySet();
+
+    /**
+     * @param deferredMethods methods that are rendered to chunks, as opposed to ones rendered
+     *                        by the main output.
+     */
+    public ChunkScope(Set<MethodReference> deferredMethods) {
+        this.deferredMethods = deferredMethods;
+    }
+
+    /**
+     * Starts collecting names for the given chunk.
+     *
+     * @param methods methods that the chunk declares.
+     */
+    public void startChunk(String chunkName, Collection<MethodReference> methods) {
+        currentNames = new TreeSet<>();
+        chunkNames.put(chunkName, currentNames);
+        currentMethods = new HashSet<>(methods);
+    }
+
+    public void useName(String name) {
+        currentNames.add(name);
+    }
+
+    public void useMutableName(String name) {
+        mutableNames.add(name);
+    }
+
+    public boolean isOwnMethod(MethodReference method) {
+        return currentMethods.contains(method);
+    }
+
+    public boolean isMutableMethod(MethodReference method) {
+        return deferredMethods.contains(method) && !currentMethods.contains(method);
+    }
+
+    public Set<String> getNames(String chunkName) {
+        return Collections.unmodifiableSet(chunkNames.get(chunkName));
+    }
+
+    public Set<String> getMutableNames() {
+        return Collections.unmodifiableSet(mutableNames);
+    }
+
+    /**
+     * Renders the beginning of the chunk function, which takes names from the main output as parameters.
+     */
+    public void renderChunkStart(SourceWriter writer, String chunkName) throws IOException {
+        writer.append("function(").append(SCOPE_OBJECT);
+        for (String name : chunkNames.get(chunkName)) {
+            writer.append(",").ws().append(name);
+        }
+        writer.append(")").ws().append("{").softNewLine();
+        writer.append("\"use strict\";").newLine();
+    }
+
+    /**
+     * Renders the end of the chunk function, which publishes methods that the chunk declares.
+     */
+    public void renderChunkEnd(SourceWriter writer, Collection<String> methodNames) throws IOException {
+        for (String name : methodNames) {
+            mutableNames.add(name);
+            writer.append(SCOPE_OBJECT).append(".").append(name).ws().append("=").ws().append(name)
+                    .append(";").softNewLine();
+        }
+        writer.append("}");
+        currentNames = null;
+        currentMethods = Collections.emptySet();
+    }
+
+    /**
+     * Renders into the main output the function that creates the scope object for chunks and
+     * functions that produce arguments of chunk functions.
+     */
+    public void render(SourceWriter writer, String scopeFunctionName, String argumentsName) throws IOException {
+        writer.append("function ").append(scopeFunctionName).append("()").ws().append("{").indent().softNewLine();
+        writer.append("return").ws().append("{");
+        boolean first = true;
+        for (String name : mutableNames) {
+            if (!first) {
+                writer.append(",");
+            }
+            first = false;
+            writer.softNewLine();
+            writer.append("get ").append(name).append("()").ws().append("{").ws()
+                    .append("return ").append(name).append(";").ws().append("},").ws();
+            writer.append("set ").append(name).append("($").append(name).append(")").ws().append("{").ws()
+                    .append(name).ws().append("=").ws().append("$").append(name).append(";").ws().append("}");
+        }
+        writer.softNewLine().append("};").softNewLine();
+        writer.outdent().append("}").newLine();
+
+        writer.append("var ").append(argumentsName).ws().append("=").ws().append("{").indent();
+        first = true;
+        for (Map.Entry<String, Set<String>> entry : chunkNames.entrySet()) {
+            if (!first) {
+                writer.append(",");
+            }
+            first = false;
+            writer.softNewLine();
+            RenderingUtil.writeString(writer, entry.getKey());
+            writer.append(":").ws().append("function(").append(SCOPE_OBJECT).append(")").ws().append("{").ws()
+                    .append("return [").append(SCOPE_OBJECT);
+            for (String name : entry.getValue()) {
+                writer.append(",").ws().append(name);
+            }
+            writer.append("];").ws().append("}");
+        }
+        writer.outdent().softNewLine().append("};").newLine();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript.splitting;
+
+import org.teavm.interop.SplitPoint;
+import org.teavm.model.AnnotationReader;
+import org.teavm.model.AnnotationValue;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassHolderTransformer;
+import org.teavm.model.ClassHolderTransformerContext;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReader;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.StringConstantInstruction;
+
+/**
+ * Makes every method marked with {@link SplitPoint} load its chunk before doing anything else.
+ */
+public class SplitPointTransformer implements ClassHolderTransformer {
+    public static final MethodReference LOAD_METHOD = new MethodReference(ChunkLoader.class, "load",
+            String.class, void.class);
+
+    @Override
+    public void transformClass(ClassHolder cls, ClassHolderTransformerContext context) {
+        for (MethodHolder method : cls.getMethods()) {
+            Program program = method.getProgram();
+            if (program == null || program.basicBlockCount() == 0) {
+                continue;
+            }
+            String chunkName = getChunkName(method);
+            if (chunkName == null) {
+                continue;
+            }
+
+            BasicBlock block = program.basicBlockAt(0);
+            Variable nameVar = program.createVariable();
+            StringConstantInstruction nameInsn = new StringConstantInstruction();
+            nameInsn.setConstant(chunkName);
+            nameInsn.setReceiver(nameVar);
+
+            InvokeInstruction loadInsn = new InvokeInstruction();
+            loadInsn.setType(InvocationType.SPECIAL);
+            loadInsn.setMethod(LOAD_METHOD);
+            loadInsn.setArguments(nameVar);
+
+            block.addFirst(loadInsn);
+            block.addFirst(nameInsn);
+        }
+    }
+
+    static String getChunkName(MethodReader method) {
+        AnnotationReader annot = method.getAnnotations().get(SplitPoint.class.getName());
+        if (annot == null) {
+            return null;
+        }
+        AnnotationValue value = annot.getValue("value");
+        String name = value != null ? value.getString() : "";
+        if (name.isEmpty()) {
+            String className = method.getOwnerName();
+            name = className.substring(className.lastIndexOf('.') + 1) + "_" + method.getName();
+        }
+
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); ++i) {
+            char c = name.charAt(i);
+            sb.append(Character.isLetterOrDigit(c) && c < 128 || c == '-' || c == '_' ? c : '_');
+        }
+        return sb.toString();
+    }
+}
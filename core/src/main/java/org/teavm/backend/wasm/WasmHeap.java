@@ -0,0 +1,100 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm;
+
+import org.teavm.interop.Address;
+import org.teavm.interop.Unmanaged;
+
+/**
+ * <p>Layout of the heap in linear memory. Heap starts at a fixed address and is followed by GC storage
+ * and region table, which are sized for the current heap rather than for the maximum one. When heap grows,
+ * memory grows as well and both structures move to the new end of heap. Only the layout is updated here,
+ * GC is responsible for copying whatever it keeps in GC storage between collections.</p>
+ *
+ * <p>Methods that compute sizes are also used by {@link WasmTarget} to find out how much memory
+ * the initial and the maximum heap take.</p>
+ */
+@Unmanaged
+public final class WasmHeap {
+    public static final int PAGE_SIZE = 64 * 1024;
+    public static final int REGION_SIZE = 32 * 1024;
+
+    public static Address heapAddress;
+    public static int heapSize;
+    public static int maxHeapSize;
+    public static Address storageAddress;
+    public static int storageSize;
+    public static Address regionsAddress;
+    public static int regionsCount;
+
+    private WasmHeap() {
+    }
+
+    public static int calculateStorageSize(int heapSize) {
+        return heapSize >>> 6 >>> 2 << 2;
+    }
+
+    public static int calculateRegionsCount(int heapSize) {
+        return heapSize / REGION_SIZE + 1;
+    }
+
+    public static int calculateRegionsSize(int regionsCount) {
+        return (regionsCount * 2 + 3) >>> 2 << 2;
+    }
+
+    public static long calculateMemoryEnd(int heapAddress, int heapSize) {
+        return (long) heapAddress + heapSize + calculateStorageSize(heapSize)
+                + calculateRegionsSize(calculateRegionsCount(heapSize));
+    }
+
+    private static native int memorySize();
+
+    private static native int growMemory(int pageCount);
+
+    public static void initHeap(Address heapAddress, int minHeapSize, int maxHeapSize) {
+        WasmHeap.heapAddress = heapAddress;
+        WasmHeap.maxHeapSize = maxHeapSize;
+        heapSize = 0;
+        resizeHeap(minHeapSize);
+    }
+
+    public static boolean resizeHeap(int newHeapSize) {
+        if (newHeapSize <= heapSize) {
+            return true;
+        }
+        if (newHeapSize > maxHeapSize) {
+            return false;
+        }
+
+        int newStorageSize = calculateStorageSize(newHeapSize);
+        int newRegionsCount = calculateRegionsCount(newHeapSize);
+        Address newStorageAddress = heapAddress.add(newHeapSize);
+        Address newRegionsAddress = newStorageAddress.add(newStorageSize);
+        int memoryEnd = newRegionsAddress.add(calculateRegionsSize(newRegionsCount)).toInt();
+        int pages = (memoryEnd - 1) / PAGE_SIZE + 1;
+        int oldPages = memorySize();
+        if (pages > oldPages && growMemory(pages - oldPages) == -1) {
+            return false;
+        }
+
+        heapSize = newHeapSize;
+        storageAddress = newStorageAddress;
+        storageSize = newStorageSize;
+        regionsAddress = newRegionsAddress;
+        regionsCount = newRegionsCount;
+        return true;
+    }
+}
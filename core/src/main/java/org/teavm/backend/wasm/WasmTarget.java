@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import org.teavm.ast.decompilation.Decompiler;
+import org.teavm.ast.decompilation.PrefetchingDecompiler;
 import org.teavm.backend.wasm.binary.BinaryWriter;
 import org.teavm.backend.wasm.generate.NameProvider;
 import org.teavm.backend.wasm.generate.WasmClassGenerator;
@@ -60,6 +61,7 @@ import org.teavm.backend.wasm.intrinsics.PlatformObjectIntrinsic;
 import org.teavm.backend.wasm.intrinsics.RuntimeClassIntrinsic;
 import org.teavm.backend.wasm.intrinsics.ShadowStackIntrinsic;
 import org.teavm.backend.wasm.intrinsics.StructureIntrinsic;
+import org.teavm.backend.wasm.intrinsics.WasmHeapIntrinsic;
 import org.teavm.backend.wasm.intrinsics.WasmIntrinsicFactory;
 import org.teavm.backend.wasm.intrinsics.WasmIntrinsicFactoryContext;
 import org.teavm.backend.wasm.intrinsics.WasmRuntimeIntrinsic;
@@ -91,7 +93,8 @@ import org.teavm.backend.wasm.render.WasmCRenderer;
 import org.teavm.backend.wasm.render.WasmRenderer;
 import org.teavm.backend.wasm.transformation.IndirectCallTraceTransformation;
 import org.teavm.backend.wasm.transformation.MemoryAccessTraceTransformation;
-import org.teavm.cache.AlwaysStaleCacheStatus;
+import org.teavm.cache.EmptyMethodNodeCache;
+import org.teavm.cache.MethodNodeCache;
 import org.teavm.common.ServiceRepository;
 import org.teavm.dependency.ClassDependency;
 import org.teavm.dependency.DependencyAnalyzer;
@@ -134,6 +137,7 @@ import org.teavm.model.transformation.ClassInitializerInsertionTransformer;
 import org.teavm.model.transformation.ClassPatch;
 import org.teavm.runtime.Allocator;
 import org.teavm.runtime.ExceptionHandling;
+import org.teavm.runtime.GC;
 import org.teavm.runtime.RuntimeArray;
 import org.teavm.runtime.RuntimeClass;
 import org.teavm.runtime.RuntimeObject;
@@ -144,6 +148,11 @@ import org.teavm.vm.TeaVMTargetController;
 import org.teavm.vm.spi.TeaVMHostExtension;
 
 public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
+    private static final int PREFETCH_METHOD_COUNT = 256;
+    private static final MethodReference INIT_HEAP = new MethodReference(WasmHeap.class, "initHeap",
+            Address.class, int.class, int.class, void.class);
+    private static final MethodReference RESIZE_HEAP = new MethodReference(WasmHeap.class, "resizeHeap",
+            int.class, boolean.class);
     private TeaVMTargetController controller;
     private boolean debugging;
     private boolean wastEmitted;
@@ -156,6 +165,10 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
     private WasmBinaryVersion version = WasmBinaryVersion.V_0x1;
     private List<WasmIntrinsicFactory> additionalIntrinsics = new ArrayList<>();
     private int minHeapSize;
+    private int maxHeapSize;
+    private int gcPauseBudget;
+    private MethodNodeCache astCache = EmptyMethodNodeCache.INSTANCE;
+    private int codeGenerationThreadCount = 1;
 
     @Override
     public void setController(TeaVMTargetController controller) {
@@ -234,10 +247,42 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         this.version = version;
     }
 
+    public MethodNodeCache getAstCache() {
+        return astCache;
+    }
+
+    public void setAstCache(MethodNodeCache astCache) {
+        this.astCache = astCache;
+    }
+
     public void setMinHeapSize(int minHeapSize) {
         this.minHeapSize = minHeapSize;
     }
 
+    public void setMaxHeapSize(int maxHeapSize) {
+        this.maxHeapSize = maxHeapSize;
+    }
+
+    /**
+     * Enables incremental garbage collection, where each GC pause marks or sweeps about the given number
+     * of bytes of old generation. Zero (the default) means that old generation is collected at once.
+     */
+    public void setGcPauseBudget(int gcPauseBudget) {
+        this.gcPauseBudget = gcPauseBudget;
+    }
+
+    public int getCodeGenerationThreadCount() {
+        return codeGenerationThreadCount;
+    }
+
+    /**
+     * Sets number of threads that decompile methods and encode function bodies.
+     * Generated module does not depend on this number.
+     */
+    public void setCodeGenerationThreadCount(int codeGenerationThreadCount) {
+        this.codeGenerationThreadCount = codeGenerationThreadCount;
+    }
+
     @Override
     public void contributeDependencies(DependencyAnalyzer dependencyAnalyzer) {
         for (Class<?> type : Arrays.asList(int.class, long.class, float.class, double.class)) {
@@ -258,6 +303,8 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "allocStack",
                 int.class, Address.class)).use();
         dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "getStackTop", Address.class)).use();
+        dependencyAnalyzer.linkMethod(INIT_HEAP).use();
+        dependencyAnalyzer.linkMethod(RESIZE_HEAP).use();
         dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "getNextStackFrame", Address.class,
                 Address.class)).use();
         dependencyAnalyzer.linkMethod(new MethodReference(WasmRuntime.class, "getStackRootCount", Address.class,
@@ -281,6 +328,8 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
                 RuntimeClass.class, Address.class, int.class, RuntimeArray.class)).use();
 
         dependencyAnalyzer.linkMethod(new MethodReference(Allocator.class, "<clinit>", void.class)).use();
+        dependencyAnalyzer.linkMethod(new MethodReference(GC.class, "writeBarrier", RuntimeObject.class,
+                void.class)).use();
 
         dependencyAnalyzer.linkMethod(new MethodReference(ExceptionHandling.class, "throwException",
                 Throwable.class, void.class)).use();
@@ -325,8 +374,10 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         WasmClassGenerator classGenerator = new WasmClassGenerator(classes, controller.getUnprocessedClassSource(),
                 vtableProvider, tagRegistry, binaryWriter, names);
 
-        Decompiler decompiler = new Decompiler(classes, controller.getClassLoader(),
-                AlwaysStaleCacheStatus.INSTANCE, new HashSet<>(), new HashSet<>(), false, true);
+        Decompiler mainDecompiler = createDecompiler(classes);
+        mainDecompiler.setRegularMethodCache(astCache);
+        PrefetchingDecompiler decompiler = new PrefetchingDecompiler(mainDecompiler,
+                () -> createDecompiler(classes), codeGenerationThreadCount);
         WasmStringPool stringPool = classGenerator.getStringPool();
         WasmGenerationContext context = new WasmGenerationContext(classes, module, controller.getDiagnostics(),
                 vtableProvider, tagRegistry, stringPool, names);
@@ -336,6 +387,7 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         context.addIntrinsic(new FunctionIntrinsic(classGenerator));
         WasmRuntimeIntrinsic wasmRuntimeIntrinsic = new WasmRuntimeIntrinsic();
         context.addIntrinsic(wasmRuntimeIntrinsic);
+        context.addIntrinsic(new WasmHeapIntrinsic());
         context.addIntrinsic(new AllocatorIntrinsic(classGenerator));
         context.addIntrinsic(new PlatformIntrinsic());
         context.addIntrinsic(new PlatformClassIntrinsic());
@@ -355,7 +407,7 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
             context.addIntrinsic(additionalIntrinsicFactory.create(intrinsicFactoryContext));
         }
 
-        GCIntrinsic gcIntrinsic = new GCIntrinsic();
+        GCIntrinsic gcIntrinsic = new GCIntrinsic(classGenerator);
         context.addIntrinsic(gcIntrinsic);
         MutatorIntrinsic mutatorIntrinsic = new MutatorIntrinsic();
         context.addIntrinsic(mutatorIntrinsic);
@@ -364,12 +416,14 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
                 classGenerator, stringPool);
         context.addIntrinsic(exceptionHandlingIntrinsic);
 
-        WasmGenerator generator = new WasmGenerator(decompiler, classes, context, classGenerator, binaryWriter);
+        WasmGenerator generator = new WasmGenerator(decompiler, classes, context, classGenerator, binaryWriter,
+                shadowStackTransformer);
 
-        int pageSize = 1 << 16;
-        int pages = (minHeapSize + pageSize - 1) / pageSize;
-        module.setMemorySize(pages);
-        generateMethods(classes, context, generator, classGenerator, binaryWriter, module);
+        try {
+            generateMethods(classes, context, decompiler, generator, classGenerator, binaryWriter, module);
+        } finally {
+            decompiler.shutdown();
+        }
         exceptionHandlingIntrinsic.postProcess(shadowStackTransformer.getCallSites());
         generateIsSupertypeFunctions(tagRegistry, module, classGenerator);
         classGenerator.postProcess();
@@ -380,7 +434,8 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         dataSegment.setOffset(256);
         module.getSegments().add(dataSegment);
 
-        renderMemoryLayout(module, binaryWriter.getAddress(), gcIntrinsic, wasmRuntimeIntrinsic);
+        renderMemoryLayout(module, initFunction, names, binaryWriter.getAddress(), gcIntrinsic,
+                wasmRuntimeIntrinsic);
         renderClinit(classes, classGenerator, module);
         if (controller.wasCancelled()) {
             return;
@@ -425,6 +480,7 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
 
         WasmBinaryWriter writer = new WasmBinaryWriter();
         WasmBinaryRenderer renderer = new WasmBinaryRenderer(writer, version);
+        renderer.setThreadCount(codeGenerationThreadCount);
         renderer.render(module);
 
         try (OutputStream output = buildTarget.createResource(outputName)) {
@@ -507,7 +563,8 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
     }
 
     private void generateMethods(ListableClassHolderSource classes, WasmGenerationContext context,
-            WasmGenerator generator, WasmClassGenerator classGenerator, BinaryWriter binaryWriter, WasmModule module) {
+            PrefetchingDecompiler decompiler, WasmGenerator generator, WasmClassGenerator classGenerator,
+            BinaryWriter binaryWriter, WasmModule module) {
         List<MethodHolder> methods = new ArrayList<>();
         for (String className : classes.getClassNames()) {
             ClassHolder cls = classes.get(className);
@@ -523,7 +580,16 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         MethodGeneratorContextImpl methodGeneratorContext = new MethodGeneratorContextImpl(binaryWriter,
                 context.getStringPool(), context.getDiagnostics(), context.names, classGenerator, classes);
 
-        for (MethodHolder method : methods) {
+        int prefetchedCount = 0;
+        for (int i = 0; i < methods.size(); ++i) {
+            for (; prefetchedCount < Math.min(methods.size(), i + PREFETCH_METHOD_COUNT); ++prefetchedCount) {
+                MethodHolder prefetchedMethod = methods.get(prefetchedCount);
+                if (prefetchedMethod.getProgram() != null && prefetchedMethod.getProgram().basicBlockCount() > 0) {
+                    decompiler.prefetchRegular(prefetchedMethod);
+                }
+            }
+
+            MethodHolder method = methods.get(i);
             ClassHolder cls = classes.get(method.getOwnerName());
 
             MethodHolder implementor = method;
@@ -742,32 +808,59 @@ public class WasmTarget implements TeaVMTarget, TeaVMWasmHost {
         }
     }
 
-    private void renderMemoryLayout(WasmModule module, int address, GCIntrinsic gcIntrinsic,
-            WasmRuntimeIntrinsic runtimeIntrinsic) {
+    private void renderMemoryLayout(WasmModule module, WasmFunction initFunction, NameProvider names,
+            int address, GCIntrinsic gcIntrinsic, WasmRuntimeIntrinsic runtimeIntrinsic) {
         address = (((address - 1) / 256) + 1) * 256;
 
         runtimeIntrinsic.setStackAddress(address);
         address += 65536;
 
-        int gcMemory = module.getMemorySize() * 65536 - address;
-        int storageSize = (gcMemory >> 6) >> 2 << 2;
-        gcIntrinsic.setGCStorageAddress(address);
-        gcIntrinsic.setGCStorageSize(storageSize);
-
-        gcMemory -= storageSize;
-        address += storageSize;
-        int regionSize = 32768;
-        int regionCount = gcMemory / (2 + regionSize) + 1;
-        gcIntrinsic.setRegionSize(regionSize);
-        gcIntrinsic.setRegionsAddress(address);
-        gcIntrinsic.setRegionMaxCount(regionCount);
-
-        address += regionCount * 2;
-        address = (address + 4) >> 2 << 2;
-
-        gcMemory = module.getMemorySize() * 65536 - address;
-        gcIntrinsic.setHeapAddress(address);
-        gcIntrinsic.setAvailableBytes(gcMemory);
+        int heapAddress = address;
+        int pageSize = WasmHeap.PAGE_SIZE;
+        long initialHeap = roundToPages(Math.max(minHeapSize, pageSize));
+        long maxHeap = roundToPages(Math.max(maxHeapSize, initialHeap));
+
+        // GC storage takes 1/64 and region table takes 1/16384 of the heap, leave a page for alignment
+        long available = Integer.MAX_VALUE - (long) heapAddress - pageSize;
+        long fittingHeap = available * 16384 / (16384 + 256 + 1) / pageSize * pageSize;
+        if (maxHeap > fittingHeap) {
+            controller.getDiagnostics().error(null, "Maximum heap size of " + maxHeap + " bytes does not fit "
+                    + "into 32-bit linear memory along with GC structures, which allows at most "
+                    + fittingHeap + " bytes");
+            maxHeap = fittingHeap;
+            initialHeap = Math.min(initialHeap, maxHeap);
+        }
+
+        gcIntrinsic.setHeapAddress(heapAddress);
+        gcIntrinsic.setMaxAvailableBytes(maxHeap);
+        gcIntrinsic.setRegionSize(WasmHeap.REGION_SIZE);
+        gcIntrinsic.setPauseBudget(gcPauseBudget);
+
+        // GC storage and region table follow the heap and are sized for its current size,
+        // so memory only covers the initial heap and grows along with it
+        module.setMemorySize(toPages(WasmHeap.calculateMemoryEnd(heapAddress, (int) initialHeap)));
+        module.setMaxMemorySize(toPages(WasmHeap.calculateMemoryEnd(heapAddress, (int) maxHeap)));
+
+        WasmCall initHeapCall = new WasmCall(names.forMethod(INIT_HEAP));
+        initHeapCall.getArguments().add(new WasmInt32Constant(heapAddress));
+        initHeapCall.getArguments().add(new WasmInt32Constant((int) initialHeap));
+        initHeapCall.getArguments().add(new WasmInt32Constant((int) maxHeap));
+        initFunction.getBody().add(0, initHeapCall);
+    }
+
+    private static long roundToPages(long size) {
+        return (size + WasmHeap.PAGE_SIZE - 1) / WasmHeap.PAGE_SIZE * WasmHeap.PAGE_SIZE;
+    }
+
+    private static int toPages(long memoryEnd) {
+        return (int) ((memoryEnd + WasmHeap.PAGE_SIZE - 1) / WasmHeap.PAGE_SIZE);
+    }
+
+    private Decompiler createDecompiler(ListableClassHolderSource classes) {
+        Decompiler decompiler = new Decompiler(classes, controller.getClassLoader(), controller.getCacheStatus(),
+                new HashSet<>(), new HashSet<>(), false, true);
+        decompiler.setMetrics(controller.getMetrics());
+        return decompiler;
     }
 
     private VirtualTableProvider createVirtualTableProvider(ListableClassHolderSource classes) {
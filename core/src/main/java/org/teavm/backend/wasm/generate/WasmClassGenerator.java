@@ -276,14 +276,14 @@ public class WasmClassGenerator {
             fillVirtualTable(vtable, array);
         }
 
-        List<FieldReference> fields = getReferenceFields(binaryData.cls);
-        if (!fields.isEmpty()) {
+        IntegerArray fieldOffsets = new IntegerArray(4);
+        collectReferenceFieldOffsets(binaryData, fieldOffsets);
+        if (fieldOffsets.size() > 0) {
             DataValue layoutSize = DataPrimitives.SHORT.createValue();
-            layoutSize.setShort(0, (short) fields.size());
+            layoutSize.setShort(0, (short) fieldOffsets.size());
             header.setAddress(CLASS_LAYOUT, binaryWriter.append(layoutSize));
-            for (FieldReference field : fields) {
+            for (int offset : fieldOffsets.getAll()) {
                 DataValue layoutElement = DataPrimitives.SHORT.createValue();
-                int offset = binaryData.fieldLayout.get(field.getFieldName());
                 layoutElement.setShort(0, (short) offset);
                 binaryWriter.append(layoutElement);
             }
@@ -330,6 +330,20 @@ public class WasmClassGenerator {
         return valuesAddress;
     }
 
+    // Inherited fields go first, so that offsets in layout are ascending
+    private void collectReferenceFieldOffsets(ClassBinaryData data, IntegerArray offsets) {
+        if (data.cls == null) {
+            return;
+        }
+        String parent = data.cls.getParent();
+        if (!data.isInferface && parent != null) {
+            collectReferenceFieldOffsets(binaryDataMap.get(ValueType.object(parent)), offsets);
+        }
+        for (FieldReference field : getReferenceFields(data.cls)) {
+            offsets.add(data.fieldLayout.get(field.getFieldName()));
+        }
+    }
+
     private List<FieldReference> getReferenceFields(ClassReader cls) {
         return cls.getFields().stream()
                 .filter(field -> !field.hasModifier(ElementModifier.STATIC))
@@ -348,7 +362,7 @@ public class WasmClassGenerator {
                 .collect(Collectors.toList());
     }
 
-    private boolean isReferenceType(ValueType type) {
+    public boolean isReferenceType(ValueType type) {
         if (type instanceof ValueType.Primitive) {
             return false;
         } else if (type instanceof ValueType.Object) {
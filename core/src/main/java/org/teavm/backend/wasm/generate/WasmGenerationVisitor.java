@@ -25,6 +25,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.teavm.ast.ArrayType;
 import org.teavm.ast.AssignmentStatement;
 import org.teavm.ast.BinaryExpr;
 import org.teavm.ast.BlockStatement;
@@ -114,9 +115,12 @@ import org.teavm.model.MethodReference;
 import org.teavm.model.TextLocation;
 import org.teavm.model.ValueType;
 import org.teavm.model.classes.VirtualTableEntry;
+import org.teavm.model.lowlevel.ShadowStackTransformer;
 import org.teavm.runtime.Allocator;
+import org.teavm.runtime.GC;
 import org.teavm.runtime.RuntimeArray;
 import org.teavm.runtime.RuntimeClass;
+import org.teavm.runtime.RuntimeObject;
 import org.teavm.runtime.ShadowStack;
 
 class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
@@ -134,15 +138,20 @@ class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
     private List<Deque<WasmLocal>> temporaryVariablesByType = new ArrayList<>();
     private WasmLocal stackVariable;
     private BinaryWriter binaryWriter;
+    private ShadowStackTransformer shadowStackTransformer;
+    private MethodReference currentMethod;
     WasmExpression result;
 
     WasmGenerationVisitor(WasmGenerationContext context, WasmClassGenerator classGenerator,
-            BinaryWriter binaryWriter, WasmFunction function, int firstVariable) {
+            BinaryWriter binaryWriter, WasmFunction function, int firstVariable,
+            ShadowStackTransformer shadowStackTransformer, MethodReference currentMethod) {
         this.context = context;
         this.classGenerator = classGenerator;
         this.binaryWriter = binaryWriter;
         this.function = function;
         this.firstVariable = firstVariable;
+        this.shadowStackTransformer = shadowStackTransformer;
+        this.currentMethod = currentMethod;
         int typeCount = WasmType.values().length;
         for (int i = 0; i < typeCount; ++i) {
             temporaryVariablesByType.add(new ArrayDeque<>());
@@ -480,6 +489,22 @@ class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
     private void storeField(Expr qualified, FieldReference field, Expr value, TextLocation location) {
         WasmExpression address = getAddress(qualified, field, location);
         ValueType type = context.getFieldType(field);
+
+        boolean writeBarrier = qualified != null
+                && classGenerator.isReferenceType(ValueType.object(field.getClassName()))
+                && classGenerator.isReferenceType(type) && !isNullConstant(value);
+        WasmLocal receiver = null;
+        WasmExpression receiverInit = null;
+        if (writeBarrier) {
+            if (address instanceof WasmGetLocal) {
+                receiver = ((WasmGetLocal) address).getLocal();
+            } else {
+                receiver = getTemporary(WasmType.INT32);
+                receiverInit = new WasmSetLocal(receiver, address);
+                address = new WasmGetLocal(receiver);
+            }
+        }
+
         accept(value);
 
         WasmMemoryAccess resultExpr;
@@ -517,9 +542,21 @@ class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
         resultExpr.setOffset(getOffset(qualified, field));
         result = (WasmExpression) resultExpr;
         result.setLocation(location);
+
+        if (writeBarrier) {
+            result = withWriteBarrier(receiverInit, result, receiver);
+            if (receiverInit != null) {
+                releaseTemporary(receiver);
+            }
+        }
     }
 
     private void storeArrayItem(SubscriptExpr leftValue, Expr rightValue) {
+        if (leftValue.getType() == ArrayType.OBJECT && !isNullConstant(rightValue)) {
+            storeReferenceArrayItem(leftValue, rightValue);
+            return;
+        }
+
         WasmExpression ptr = getArrayElementPointer(leftValue);
         accept(rightValue);
 
@@ -549,6 +586,54 @@ class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
         }
     }
 
+    private void storeReferenceArrayItem(SubscriptExpr leftValue, Expr rightValue) {
+        accept(leftValue.getArray());
+        WasmExpression array = result;
+        WasmLocal receiver;
+        WasmExpression receiverInit = null;
+        if (array instanceof WasmGetLocal) {
+            receiver = ((WasmGetLocal) array).getLocal();
+        } else {
+            receiver = getTemporary(WasmType.INT32);
+            receiverInit = new WasmSetLocal(receiver, array);
+        }
+
+        accept(leftValue.getIndex());
+        WasmExpression ptr = getArrayElementPointer(new WasmGetLocal(receiver), result, leftValue.getType());
+        accept(rightValue);
+        result = new WasmStoreInt32(4, ptr, result, WasmInt32Subtype.INT32);
+
+        result = withWriteBarrier(receiverInit, result, receiver);
+        if (receiverInit != null) {
+            releaseTemporary(receiver);
+        }
+    }
+
+    private WasmExpression withWriteBarrier(WasmExpression receiverInit, WasmExpression store, WasmLocal receiver) {
+        WasmBlock block = new WasmBlock(false);
+        if (receiverInit != null) {
+            block.getBody().add(receiverInit);
+        }
+        block.getBody().add(store);
+
+        WasmExpression header = new WasmLoadInt32(4, new WasmGetLocal(receiver), WasmInt32Subtype.INT32);
+        WasmExpression isOld = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.AND, header,
+                new WasmInt32Constant(RuntimeObject.GC_OLD));
+        WasmConditional conditional = new WasmConditional(isOld);
+        WasmCall call = new WasmCall(context.names.forMethod(new MethodReference(GC.class, "writeBarrier",
+                RuntimeObject.class, void.class)));
+        call.getArguments().add(new WasmGetLocal(receiver));
+        conditional.getThenBlock().getBody().add(call);
+        block.getBody().add(conditional);
+
+        block.setLocation(store.getLocation());
+        return block;
+    }
+
+    private static boolean isNullConstant(Expr expr) {
+        return expr instanceof ConstantExpr && ((ConstantExpr) expr).getValue() == null;
+    }
+
     @Override
     public void visit(ConditionalExpr expr) {
         accept(expr.getCondition());
@@ -668,8 +753,12 @@ class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
         accept(expr.getIndex());
         WasmExpression index = result;
 
+        return getArrayElementPointer(array, index, expr.getType());
+    }
+
+    private WasmExpression getArrayElementPointer(WasmExpression array, WasmExpression index, ArrayType type) {
         int size = -1;
-        switch (expr.getType()) {
+        switch (type) {
             case BYTE:
                 size = 0;
                 break;
@@ -1016,8 +1105,15 @@ class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
                     + "Mutator.allocStack");
         }
 
-        callSiteExpr.acceptVisitor(this);
-        WasmExpression callSite = result;
+        int offset = shadowStackTransformer.getCallSiteOffset(currentMethod);
+        WasmExpression callSite;
+        if (callSiteExpr instanceof ConstantExpr && ((ConstantExpr) callSiteExpr).getValue() instanceof Integer) {
+            callSite = new WasmInt32Constant((Integer) ((ConstantExpr) callSiteExpr).getValue() + offset);
+        } else {
+            callSiteExpr.acceptVisitor(this);
+            callSite = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.ADD, result,
+                    new WasmInt32Constant(offset));
+        }
 
         result = new WasmStoreInt32(4, new WasmGetLocal(stackVariable), callSite, WasmInt32Subtype.INT32);
     }
@@ -1029,6 +1125,8 @@ class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
         }
 
         result = new WasmLoadInt32(4, new WasmGetLocal(stackVariable), WasmInt32Subtype.INT32);
+        result = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.SUB, result,
+                new WasmInt32Constant(shadowStackTransformer.getCallSiteOffset(currentMethod)));
     }
 
     private void generateRegisterGcRoot(Expr slotExpr, Expr gcRootExpr) {
@@ -17,7 +17,7 @@ package org.teavm.backend.wasm.generate;
 
 import org.teavm.ast.RegularMethodNode;
 import org.teavm.ast.VariableNode;
-import org.teavm.ast.decompilation.Decompiler;
+import org.teavm.ast.decompilation.PrefetchingDecompiler;
 import org.teavm.backend.wasm.binary.BinaryWriter;
 import org.teavm.backend.wasm.model.WasmFunction;
 import org.teavm.backend.wasm.model.WasmLocal;
@@ -31,22 +31,26 @@ import org.teavm.model.ElementModifier;
 import org.teavm.model.MethodHolder;
 import org.teavm.model.MethodReference;
 import org.teavm.model.ValueType;
+import org.teavm.model.lowlevel.ShadowStackTransformer;
 
 public class WasmGenerator {
-    private Decompiler decompiler;
+    private PrefetchingDecompiler decompiler;
     private ClassHolderSource classSource;
     private WasmGenerationContext context;
     private WasmClassGenerator classGenerator;
     private BinaryWriter binaryWriter;
+    private ShadowStackTransformer shadowStackTransformer;
     private NameProvider names;
 
-    public WasmGenerator(Decompiler decompiler, ClassHolderSource classSource,
-            WasmGenerationContext context, WasmClassGenerator classGenerator, BinaryWriter binaryWriter) {
+    public WasmGenerator(PrefetchingDecompiler decompiler, ClassHolderSource classSource,
+            WasmGenerationContext context, WasmClassGenerator classGenerator, BinaryWriter binaryWriter,
+            ShadowStackTransformer shadowStackTransformer) {
         this.decompiler = decompiler;
         this.classSource = classSource;
         this.context = context;
         this.classGenerator = classGenerator;
         this.binaryWriter = binaryWriter;
+        this.shadowStackTransformer = shadowStackTransformer;
         names = classGenerator.names;
     }
 
@@ -84,7 +88,7 @@ public class WasmGenerator {
         }
 
         WasmGenerationVisitor visitor = new WasmGenerationVisitor(context, classGenerator, binaryWriter, function,
-                firstVariable);
+                firstVariable, shadowStackTransformer, bodyMethod.getReference());
         methodAst.getBody().acceptVisitor(visitor);
         if (visitor.result instanceof WasmBlock) {
             ((WasmBlock) visitor.result).setType(function.getResult());
@@ -18,42 +18,42 @@ package org.teavm.backend.wasm.intrinsics;
 import java.util.ArrayList;
 import java.util.List;
 import org.teavm.ast.InvocationExpr;
+import org.teavm.backend.wasm.WasmHeap;
+import org.teavm.backend.wasm.generate.WasmClassGenerator;
+import org.teavm.backend.wasm.model.WasmType;
+import org.teavm.backend.wasm.model.expression.WasmCall;
+import org.teavm.backend.wasm.model.expression.WasmConversion;
 import org.teavm.backend.wasm.model.expression.WasmExpression;
 import org.teavm.backend.wasm.model.expression.WasmInt32Constant;
+import org.teavm.backend.wasm.model.expression.WasmInt32Subtype;
 import org.teavm.backend.wasm.model.expression.WasmInt64Constant;
+import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
+import org.teavm.model.FieldReference;
 import org.teavm.model.MethodReference;
 import org.teavm.runtime.GC;
 
 public class GCIntrinsic implements WasmIntrinsic {
+    private static final MethodReference RESIZE_HEAP = new MethodReference(WasmHeap.class, "resizeHeap",
+            int.class, boolean.class);
+    private WasmClassGenerator classGenerator;
     private List<WasmInt32Constant> heapAddressExpressions = new ArrayList<>();
-    private List<WasmInt64Constant> availableBytesExpressions = new ArrayList<>();
-    private List<WasmInt32Constant> gcStorageAddressExpressions = new ArrayList<>();
-    private List<WasmInt32Constant> gcStorageSizeExpressions = new ArrayList<>();
+    private List<WasmInt64Constant> maxAvailableBytesExpressions = new ArrayList<>();
     private List<WasmInt32Constant> regionSizeExpressions = new ArrayList<>();
-    private List<WasmInt32Constant> regionsAddressExpressions = new ArrayList<>();
-    private List<WasmInt32Constant> regionMaxCountExpressions = new ArrayList<>();
+    private List<WasmInt32Constant> pauseBudgetExpressions = new ArrayList<>();
 
-    public void setHeapAddress(int address) {
-        for (WasmInt32Constant constant : heapAddressExpressions) {
-            constant.setValue(address);
-        }
-    }
-
-    public void setAvailableBytes(long availableBytes) {
-        for (WasmInt64Constant constant : availableBytesExpressions) {
-            constant.setValue(availableBytes);
-        }
+    public GCIntrinsic(WasmClassGenerator classGenerator) {
+        this.classGenerator = classGenerator;
     }
 
-    public void setGCStorageAddress(int address) {
-        for (WasmInt32Constant constant : gcStorageAddressExpressions) {
+    public void setHeapAddress(int address) {
+        for (WasmInt32Constant constant : heapAddressExpressions) {
             constant.setValue(address);
         }
     }
 
-    public void setGCStorageSize(int storageSize) {
-        for (WasmInt32Constant constant : gcStorageSizeExpressions) {
-            constant.setValue(storageSize);
+    public void setMaxAvailableBytes(long maxAvailableBytes) {
+        for (WasmInt64Constant constant : maxAvailableBytesExpressions) {
+            constant.setValue(maxAvailableBytes);
         }
     }
 
@@ -63,15 +63,9 @@ public class GCIntrinsic implements WasmIntrinsic {
         }
     }
 
-    public void setRegionsAddress(int address) {
-        for (WasmInt32Constant constant : regionsAddressExpressions) {
-            constant.setValue(address);
-        }
-    }
-
-    public void setRegionMaxCount(int maxCount) {
-        for (WasmInt32Constant constant : regionMaxCountExpressions) {
-            constant.setValue(maxCount);
+    public void setPauseBudget(int pauseBudget) {
+        for (WasmInt32Constant constant : pauseBudgetExpressions) {
+            constant.setValue(pauseBudget);
         }
     }
 
@@ -86,9 +80,12 @@ public class GCIntrinsic implements WasmIntrinsic {
             case "gcStorageSize":
             case "heapAddress":
             case "availableBytes":
+            case "maxAvailableBytes":
+            case "resizeHeap":
             case "regionsAddress":
             case "regionMaxCount":
             case "regionSize":
+            case "pauseBudget":
                 return true;
             default:
                 return false;
@@ -100,28 +97,35 @@ public class GCIntrinsic implements WasmIntrinsic {
         List<WasmInt32Constant> list;
         switch (invocation.getMethod().getName()) {
             case "gcStorageAddress":
-                list = gcStorageAddressExpressions;
-                break;
+                return loadHeapField("storageAddress");
             case "gcStorageSize":
-                list = gcStorageSizeExpressions;
-                break;
-            case "heapAddress":
-                list = heapAddressExpressions;
-                break;
+                return loadHeapField("storageSize");
             case "regionsAddress":
-                list = regionsAddressExpressions;
-                break;
+                return loadHeapField("regionsAddress");
             case "regionMaxCount":
-                list = regionMaxCountExpressions;
+                return loadHeapField("regionsCount");
+            case "heapAddress":
+                list = heapAddressExpressions;
                 break;
             case "regionSize":
                 list = regionSizeExpressions;
                 break;
-            case "availableBytes": {
+            case "pauseBudget":
+                list = pauseBudgetExpressions;
+                break;
+            case "availableBytes":
+                return new WasmConversion(WasmType.INT32, WasmType.INT64, false, loadHeapField("heapSize"));
+            case "maxAvailableBytes": {
                 WasmInt64Constant constant = new WasmInt64Constant(0);
-                availableBytesExpressions.add(constant);
+                maxAvailableBytesExpressions.add(constant);
                 return constant;
             }
+            case "resizeHeap": {
+                WasmExpression newSize = manager.generate(invocation.getArguments().get(0));
+                WasmCall call = new WasmCall(manager.getNames().forMethod(RESIZE_HEAP));
+                call.getArguments().add(new WasmConversion(WasmType.INT64, WasmType.INT32, false, newSize));
+                return call;
+            }
             default:
                 throw new IllegalArgumentException(invocation.getMethod().toString());
         }
@@ -129,4 +133,13 @@ public class GCIntrinsic implements WasmIntrinsic {
         list.add(result);
         return result;
     }
+
+    /*
+     * GC storage and region table follow the heap and move when it grows, so their location is read
+     * from WasmHeap on every access rather than baked in as a constant.
+     */
+    private WasmExpression loadHeapField(String name) {
+        int address = classGenerator.getFieldOffset(new FieldReference(WasmHeap.class.getName(), name));
+        return new WasmLoadInt32(4, new WasmInt32Constant(address), WasmInt32Subtype.INT32);
+    }
 }
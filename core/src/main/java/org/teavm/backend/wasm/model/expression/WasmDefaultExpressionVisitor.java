@@ -180,4 +180,13 @@ public class WasmDefaultExpressionVisitor implements WasmExpressionVisitor {
         expression.getIndex().acceptVisitor(this);
         expression.getValue().acceptVisitor(this);
     }
+
+    @Override
+    public void visit(WasmMemorySize expression) {
+    }
+
+    @Override
+    public void visit(WasmMemoryGrow expression) {
+        expression.getAmount().acceptVisitor(this);
+    }
 }
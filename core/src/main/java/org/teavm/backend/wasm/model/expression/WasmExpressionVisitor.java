@@ -73,4 +73,8 @@ public interface WasmExpressionVisitor {
     void visit(WasmStoreFloat32 expression);
 
     void visit(WasmStoreFloat64 expression);
+
+    void visit(WasmMemorySize expression);
+
+    void visit(WasmMemoryGrow expression);
 }
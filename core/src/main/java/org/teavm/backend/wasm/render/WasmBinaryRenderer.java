@@ -20,6 +20,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 import org.teavm.backend.wasm.model.WasmFunction;
 import org.teavm.backend.wasm.model.WasmLocal;
@@ -49,12 +51,22 @@ public class WasmBinaryRenderer {
     private List<WasmSignature> signatures = new ArrayList<>();
     private Map<WasmSignature, Integer> signatureIndexes = new HashMap<>();
     private Map<String, Integer> functionIndexes = new HashMap<>();
+    private int threadCount = 1;
 
     public WasmBinaryRenderer(WasmBinaryWriter output, WasmBinaryVersion version) {
         this.output = output;
         this.version = version;
     }
 
+    /**
+     * Sets number of threads that encode function bodies. Once signatures and function indexes are known,
+     * bodies are independent from each other, so they are encoded separately and then written to the
+     * code section in the original order.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
     public void render(WasmModule module) {
         output.writeInt32(0x6d736100);
         switch (version) {
@@ -180,7 +192,7 @@ public class WasmBinaryRenderer {
         section.writeByte(1);
         section.writeByte(1);
         section.writeLEB(module.getMemorySize());
-        section.writeLEB(module.getMemorySize());
+        section.writeLEB(module.getMaxMemorySize());
 
         writeSection(SECTION_MEMORY, "memory", section.getData());
     }
@@ -251,8 +263,7 @@ public class WasmBinaryRenderer {
                 .collect(Collectors.toList());
 
         section.writeLEB(functions.size());
-        for (WasmFunction function : functions) {
-            byte[] body = renderFunction(function);
+        for (byte[] body : renderFunctions(functions)) {
             section.writeLEB(body.length);
             section.writeBytes(body);
         }
@@ -260,6 +271,30 @@ public class WasmBinaryRenderer {
         writeSection(SECTION_CODE, "code", section.getData());
     }
 
+    private List<byte[]> renderFunctions(List<WasmFunction> functions) {
+        List<byte[]> bodies = new ArrayList<>(functions.size());
+        if (threadCount <= 1) {
+            for (WasmFunction function : functions) {
+                bodies.add(renderFunction(function));
+            }
+            return bodies;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+            List<ForkJoinTask<byte[]>> tasks = new ArrayList<>(functions.size());
+            for (WasmFunction function : functions) {
+                tasks.add(pool.submit(() -> renderFunction(function)));
+            }
+            for (ForkJoinTask<byte[]> task : tasks) {
+                bodies.add(task.join());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return bodies;
+    }
+
     private byte[] renderFunction(WasmFunction function) {
         WasmBinaryWriter code = new WasmBinaryWriter();
 
@@ -41,6 +41,8 @@ import org.teavm.backend.wasm.model.expression.WasmLoadFloat32;
 import org.teavm.backend.wasm.model.expression.WasmLoadFloat64;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt64;
+import org.teavm.backend.wasm.model.expression.WasmMemoryGrow;
+import org.teavm.backend.wasm.model.expression.WasmMemorySize;
 import org.teavm.backend.wasm.model.expression.WasmReturn;
 import org.teavm.backend.wasm.model.expression.WasmSetLocal;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat32;
@@ -824,6 +826,19 @@ class WasmBinaryRenderingVisitor implements WasmExpressionVisitor {
         writer.writeLEB(expression.getOffset());
     }
 
+    @Override
+    public void visit(WasmMemorySize expression) {
+        writer.writeByte(0x3F);
+        writer.writeByte(0);
+    }
+
+    @Override
+    public void visit(WasmMemoryGrow expression) {
+        expression.getAmount().acceptVisitor(this);
+        writer.writeByte(0x40);
+        writer.writeByte(0);
+    }
+
     private int alignment(int value) {
         return 31 - Integer.numberOfLeadingZeros(Math.max(1, value));
     }
@@ -74,6 +74,7 @@ public class WasmCRenderer {
         renderFunctionDeclarations(module);
         line("static int8_t *wasm_heap;");
         line("static int32_t wasm_heap_size;");
+        renderGrowMemory(module);
         renderFunctionTable(module);
 
         for (WasmFunction function : module.getFunctions().values()) {
@@ -116,6 +117,30 @@ public class WasmCRenderer {
         }
     }
 
+    private void renderGrowMemory(WasmModule module) {
+        line("static int32_t wasm_grow_memory(int32_t pages) {");
+        indent();
+        line("int32_t oldPages = wasm_heap_size / 65536;");
+        line("if (pages < 0 || pages > " + module.getMaxMemorySize() + " - oldPages) {");
+        indent();
+        line("return -1;");
+        outdent();
+        line("}");
+        line("int32_t newSize = wasm_heap_size + pages * 65536;");
+        line("int8_t *newHeap = realloc(wasm_heap, newSize);");
+        line("if (newHeap == NULL) {");
+        indent();
+        line("return -1;");
+        outdent();
+        line("}");
+        line("memset(newHeap + wasm_heap_size, 0, newSize - wasm_heap_size);");
+        line("wasm_heap = newHeap;");
+        line("wasm_heap_size = newSize;");
+        line("return oldPages;");
+        outdent();
+        line("}");
+    }
+
     private void renderHeap(WasmModule module) {
         line("wasm_heap_size = " + 65536 * module.getMemorySize() + ";");
         line("wasm_heap = malloc(" + 65536 * module.getMemorySize() + ");");
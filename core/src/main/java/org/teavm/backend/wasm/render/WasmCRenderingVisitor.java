@@ -51,6 +51,8 @@ import org.teavm.backend.wasm.model.expression.WasmLoadFloat32;
 import org.teavm.backend.wasm.model.expression.WasmLoadFloat64;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt64;
+import org.teavm.backend.wasm.model.expression.WasmMemoryGrow;
+import org.teavm.backend.wasm.model.expression.WasmMemorySize;
 import org.teavm.backend.wasm.model.expression.WasmReturn;
 import org.teavm.backend.wasm.model.expression.WasmSetLocal;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat32;
@@ -1030,6 +1032,28 @@ class WasmCRenderingVisitor implements WasmExpressionVisitor {
         value = result;
     }
 
+    @Override
+    public void visit(WasmMemorySize expression) {
+        value = new CExpression("(wasm_heap_size / 65536)");
+    }
+
+    @Override
+    public void visit(WasmMemoryGrow expression) {
+        CExpression result = new CExpression();
+        WasmType type = requiredType;
+
+        requiredType = WasmType.INT32;
+        expression.getAmount().acceptVisitor(this);
+        result.getLines().addAll(value.getLines());
+        result.setText("wasm_grow_memory(" + value.getText() + ")");
+
+        if (type == null) {
+            result.addLine(result.getText() + ";", expression.getLocation());
+            result.setText(null);
+        }
+        value = result;
+    }
+
     private CExpression checkAddress(CExpression index) {
         if (!memoryAccessChecked) {
             return index;
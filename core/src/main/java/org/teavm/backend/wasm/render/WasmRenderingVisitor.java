@@ -51,6 +51,8 @@ import org.teavm.backend.wasm.model.expression.WasmLoadFloat32;
 import org.teavm.backend.wasm.model.expression.WasmLoadFloat64;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt64;
+import org.teavm.backend.wasm.model.expression.WasmMemoryGrow;
+import org.teavm.backend.wasm.model.expression.WasmMemorySize;
 import org.teavm.backend.wasm.model.expression.WasmReturn;
 import org.teavm.backend.wasm.model.expression.WasmSetLocal;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat32;
@@ -594,6 +596,18 @@ class WasmRenderingVisitor implements WasmExpressionVisitor {
         close();
     }
 
+    @Override
+    public void visit(WasmMemorySize expression) {
+        open().append("current_memory").close();
+    }
+
+    @Override
+    public void visit(WasmMemoryGrow expression) {
+        open().append("grow_memory");
+        line(expression.getAmount());
+        close();
+    }
+
     private String type(WasmType type) {
         switch (type) {
             case INT32:
@@ -42,6 +42,8 @@ import org.teavm.backend.wasm.model.expression.WasmLoadFloat32;
 import org.teavm.backend.wasm.model.expression.WasmLoadFloat64;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
 import org.teavm.backend.wasm.model.expression.WasmLoadInt64;
+import org.teavm.backend.wasm.model.expression.WasmMemoryGrow;
+import org.teavm.backend.wasm.model.expression.WasmMemorySize;
 import org.teavm.backend.wasm.model.expression.WasmReturn;
 import org.teavm.backend.wasm.model.expression.WasmSetLocal;
 import org.teavm.backend.wasm.model.expression.WasmStoreFloat32;
@@ -209,6 +211,16 @@ public class WasmTypeInference implements WasmExpressionVisitor {
         result = null;
     }
 
+    @Override
+    public void visit(WasmMemorySize expression) {
+        result = WasmType.INT32;
+    }
+
+    @Override
+    public void visit(WasmMemoryGrow expression) {
+        result = WasmType.INT32;
+    }
+
     private static WasmType map(WasmIntType type) {
         switch (type) {
             case INT32:
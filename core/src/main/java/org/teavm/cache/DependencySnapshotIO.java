@@ -0,0 +1,135 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.teavm.dependency.DependencySnapshot;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodReference;
+
+public class DependencySnapshotIO {
+    private static final int VERSION = 1;
+    private SymbolTable symbolTable;
+
+    public DependencySnapshotIO(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    public void write(DependencySnapshot snapshot, OutputStream stream) throws IOException {
+        DataOutput output = new DataOutputStream(stream);
+        output.writeInt(VERSION);
+        output.writeBoolean(snapshot.isReusable());
+
+        output.writeInt(snapshot.getRoots().size());
+        for (String root : snapshot.getRoots()) {
+            output.writeUTF(root);
+        }
+
+        output.writeInt(snapshot.getClasses().size());
+        for (String className : snapshot.getClasses()) {
+            output.writeInt(symbolTable.lookup(className));
+        }
+
+        output.writeInt(snapshot.getSynthesizedClasses().size());
+        for (String className : snapshot.getSynthesizedClasses()) {
+            output.writeInt(symbolTable.lookup(className));
+        }
+
+        output.writeInt(snapshot.getMethods().size());
+        for (MethodReference method : snapshot.getMethods()) {
+            output.writeInt(symbolTable.lookup(method.getClassName()));
+            output.writeInt(symbolTable.lookup(method.getDescriptor().toString()));
+            String[][] types = snapshot.getMethodTypes(method);
+            output.writeShort(types.length);
+            for (String[] typeSet : types) {
+                writeTypes(output, typeSet);
+            }
+        }
+
+        output.writeInt(snapshot.getFields().size());
+        for (FieldReference field : snapshot.getFields()) {
+            output.writeInt(symbolTable.lookup(field.getClassName()));
+            output.writeInt(symbolTable.lookup(field.getFieldName()));
+            writeTypes(output, snapshot.getFieldTypes(field));
+        }
+    }
+
+    private void writeTypes(DataOutput output, String[] types) throws IOException {
+        output.writeInt(types.length);
+        for (String type : types) {
+            output.writeInt(symbolTable.lookup(type));
+        }
+    }
+
+    public DependencySnapshot read(InputStream stream) throws IOException {
+        DataInput input = new DataInputStream(stream);
+        if (input.readInt() != VERSION) {
+            throw new IOException("Dependency snapshot was written by an incompatible version");
+        }
+        DependencySnapshot snapshot = new DependencySnapshot();
+        snapshot.setReusable(input.readBoolean());
+
+        int rootCount = input.readInt();
+        for (int i = 0; i < rootCount; ++i) {
+            snapshot.addRoot(input.readUTF());
+        }
+
+        int classCount = input.readInt();
+        for (int i = 0; i < classCount; ++i) {
+            snapshot.addClass(symbolTable.at(input.readInt()));
+        }
+
+        int synthesizedClassCount = input.readInt();
+        for (int i = 0; i < synthesizedClassCount; ++i) {
+            snapshot.addSynthesizedClass(symbolTable.at(input.readInt()));
+        }
+
+        int methodCount = input.readInt();
+        for (int i = 0; i < methodCount; ++i) {
+            String className = symbolTable.at(input.readInt());
+            MethodDescriptor descriptor = MethodDescriptor.parse(symbolTable.at(input.readInt()));
+            String[][] types = new String[input.readShort()][];
+            for (int j = 0; j < types.length; ++j) {
+                types[j] = readTypes(input);
+            }
+            snapshot.addMethod(new MethodReference(className, descriptor), types);
+        }
+
+        int fieldCount = input.readInt();
+        for (int i = 0; i < fieldCount; ++i) {
+            String className = symbolTable.at(input.readInt());
+            String fieldName = symbolTable.at(input.readInt());
+            snapshot.addField(new FieldReference(className, fieldName), readTypes(input));
+        }
+
+        return snapshot;
+    }
+
+    private String[] readTypes(DataInput input) throws IOException {
+        String[] types = new String[input.readInt()];
+        for (int i = 0; i < types.length; ++i) {
+            types[i] = symbolTable.at(input.readInt());
+        }
+        return types;
+    }
+}
@@ -27,6 +27,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.EnumSet;
@@ -49,28 +51,68 @@ import org.teavm.model.MethodDescriptor;
 import org.teavm.model.MethodHolder;
 import org.teavm.model.MethodReference;
 import org.teavm.model.ValueType;
+import org.teavm.parsing.ClassContentHashProvider;
 import org.teavm.parsing.ClassDateProvider;
 
 public class DiskCachedClassHolderSource implements ClassHolderSource, CacheStatus {
     private static AccessLevel[] accessLevels = AccessLevel.values();
     private static ElementModifier[] elementModifiers = ElementModifier.values();
+    private static final int HEADER_MAGIC = 0x54564D43;
     private File directory;
     private SymbolTable symbolTable;
     private ClassHolderSource innerSource;
     private ClassDateProvider classDateProvider;
+    private ClassContentHashProvider contentHashProvider;
     private Map<String, Item> cache = new LinkedHashMap<>();
     private Set<String> newClasses = new HashSet<>();
     private ProgramIO programIO;
+    private String configurationHash;
+    private boolean configurationChanged;
 
     public DiskCachedClassHolderSource(File directory, SymbolTable symbolTable, SymbolTable fileTable,
             ClassHolderSource innerSource, ClassDateProvider classDateProvider) {
+        this(directory, symbolTable, fileTable, innerSource, classDateProvider, null);
+    }
+
+    /**
+     * Creates class source that validates cached classes against hashes of their class files rather than
+     * against modification dates. Classes which hashes can't be computed are still validated by date.
+     * This way cache remains valid after it was copied to another machine or restored from CI artifacts.
+     */
+    public DiskCachedClassHolderSource(File directory, SymbolTable symbolTable, SymbolTable fileTable,
+            ClassHolderSource innerSource, ClassDateProvider classDateProvider,
+            ClassContentHashProvider contentHashProvider) {
         this.directory = directory;
         this.symbolTable = symbolTable;
         this.innerSource = innerSource;
         this.classDateProvider = classDateProvider;
+        this.contentHashProvider = contentHashProvider;
         programIO = new ProgramIO(symbolTable, fileTable);
     }
 
+    /**
+     * Sets hash of everything besides class files that affects results of the build, like class transformers,
+     * plugins or properties. When it differs from the one the cache was written with, all classes are
+     * reported as stale.
+     */
+    public void setConfigurationHash(String configurationHash) {
+        this.configurationHash = configurationHash;
+        File file = getConfigurationHashFile();
+        String storedHash = null;
+        if (file.exists()) {
+            try {
+                storedHash = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                // Cache configuration is unknown, so let's treat it as changed
+            }
+        }
+        configurationChanged = !configurationHash.equals(storedHash);
+    }
+
+    private File getConfigurationHashFile() {
+        return new File(directory, "configuration.teavm-hash");
+    }
+
     @Override
     public ClassHolder get(String name) {
         return getItemFromCache(name).cls;
@@ -92,15 +134,20 @@ public class DiskCachedClassHolderSource implements ClassHolderSource, CacheStat
             item = new Item();
             cache.put(name, item);
             File classFile = new File(directory, name.replace('.', '/') + ".teavm-cls");
-            if (classFile.exists()) {
-                Date classDate = classDateProvider.getModificationDate(name);
-                if (classDate != null && classDate.before(new Date(classFile.lastModified()))) {
-                    try (InputStream input = new BufferedInputStream(new FileInputStream(classFile))) {
-                        item.cls = readClass(input, name);
-                    } catch (IOException e) {
-                        // We could not access cache file, so let's parse class file
-                        item.cls = null;
+            item.hash = contentHashProvider != null ? contentHashProvider.getContentHash(name) : null;
+            if (classFile.exists() && !configurationChanged && (item.hash != null || isOlderThan(name, classFile))) {
+                try (InputStream input = new BufferedInputStream(new FileInputStream(classFile))) {
+                    DataInputStream data = new DataInputStream(input);
+                    if (data.readInt() == HEADER_MAGIC) {
+                        String storedHash = data.readUTF();
+                        if (item.hash == null || item.hash.equals(storedHash)) {
+                            item.cls = readClass(input, name);
+                        }
                     }
+                } catch (IOException | RuntimeException e) {
+                    // We could not access cache file or it was written in another format,
+                    // so let's parse class file
+                    item.cls = null;
                 }
             }
             if (item.cls == null) {
@@ -112,8 +159,14 @@ public class DiskCachedClassHolderSource implements ClassHolderSource, CacheStat
         return item;
     }
 
+    private boolean isOlderThan(String className, File classFile) {
+        Date classDate = classDateProvider.getModificationDate(className);
+        return classDate != null && classDate.before(new Date(classFile.lastModified()));
+    }
+
     private static class Item {
         ClassHolder cls;
+        String hash;
         boolean dirty;
     }
 
@@ -124,10 +177,17 @@ public class DiskCachedClassHolderSource implements ClassHolderSource, CacheStat
                 File classFile = new File(directory, className.replace('.', '/') + ".teavm-cls");
                 classFile.getParentFile().mkdirs();
                 try (OutputStream output = new BufferedOutputStream(new FileOutputStream(classFile))) {
+                    DataOutputStream data = new DataOutputStream(output);
+                    data.writeInt(HEADER_MAGIC);
+                    data.writeUTF(item.hash != null ? item.hash : "");
                     writeClass(output, item.cls);
                 }
             }
         }
+        if (configurationHash != null) {
+            directory.mkdirs();
+            Files.write(getConfigurationHashFile().toPath(), configurationHash.getBytes(StandardCharsets.UTF_8));
+        }
     }
 
     private void writeClass(OutputStream stream, ClassHolder cls) throws IOException {
@@ -120,7 +120,8 @@ public class DiskMethodNodeCache implements MethodNodeCache {
 
     public void flush() throws IOException {
         for (MethodReference method : newMethods) {
-            File file = getMethodFile(method, true);
+            File file = getMethodFile(method, false);
+            file.getParentFile().mkdirs();
             Item item = cache.get(method);
             try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
                 output.writeShort(item.dependencies.length);
@@ -132,6 +133,7 @@ public class DiskMethodNodeCache implements MethodNodeCache {
         }
         for (MethodReference method : newAsyncMethods) {
             File file = getMethodFile(method, true);
+            file.getParentFile().mkdirs();
             AsyncItem item = asyncCache.get(method);
             try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
                 output.writeShort(item.dependencies.length);
@@ -0,0 +1,342 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.ProgramCache;
+
+/**
+ * <p>Program cache that keeps all methods in a single pack file instead of a file per method.
+ * The pack is append-only, so flushing only writes methods stored during current build. Location of each
+ * method is kept in a separate index file, which is rewritten on every flush. Once superseded entries
+ * occupy more than a half of the pack, it gets compacted. Entries of methods that were not requested
+ * during a build are considered superseded as well.</p>
+ *
+ * <p>The pack is read through a file channel, programs are only read and deserialized when requested.
+ * The channel is closed before the pack is written, so that the file can be replaced on any platform.
+ * Dependencies of each method are stored as indexes in the symbol table.</p>
+ */
+public class PackedDiskProgramCache implements ProgramCache {
+    private static final int VERSION = 1;
+    private File packFile;
+    private File indexFile;
+    private SymbolTable symbolTable;
+    private ProgramIO programIO;
+    private Map<MethodReference, Entry> index;
+    private long garbageSize;
+    private FileChannel pack;
+    private Map<MethodReference, Item> cache = new HashMap<>();
+    private Map<MethodReference, Item> newMethods = new LinkedHashMap<>();
+
+    public PackedDiskProgramCache(File directory, SymbolTable symbolTable, SymbolTable fileTable) {
+        packFile = new File(directory, "programs.teavm-pack");
+        indexFile = new File(directory, "programs.teavm-idx");
+        this.symbolTable = symbolTable;
+        programIO = new ProgramIO(symbolTable, fileTable);
+    }
+
+    @Override
+    public Program get(MethodReference method, CacheStatus cacheStatus) {
+        Item item = cache.get(method);
+        if (item == null) {
+            item = new Item();
+            cache.put(method, item);
+            Entry entry = getIndex().get(method);
+            if (entry != null && pack != null) {
+                item.program = readProgram(entry, cacheStatus);
+            }
+        }
+        return item.program;
+    }
+
+    private Program readProgram(Entry entry, CacheStatus cacheStatus) {
+        try {
+            ByteBuffer buffer = readEntry(entry);
+            int depCount = buffer.getInt();
+            for (int i = 0; i < depCount; ++i) {
+                if (cacheStatus.isStaleClass(symbolTable.at(buffer.getInt()))) {
+                    return null;
+                }
+            }
+            return programIO.read(new ByteBufferInputStream(buffer));
+        } catch (IOException | RuntimeException e) {
+            // we could not read program, just leave it empty
+            return null;
+        }
+    }
+
+    @Override
+    public void store(MethodReference method, Program program, Supplier<String[]> dependencies) {
+        Item item = new Item();
+        cache.put(method, item);
+        item.program = program;
+        item.dependencies = dependencies.get().clone();
+        newMethods.put(method, item);
+    }
+
+    private ByteBuffer readEntry(Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        long position = entry.offset;
+        while (buffer.hasRemaining()) {
+            int bytesRead = pack.read(buffer, position);
+            if (bytesRead < 0) {
+                throw new EOFException();
+            }
+            position += bytesRead;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    public void flush(ClassReaderSource classSource) throws IOException {
+        Map<MethodReference, Entry> index = getIndex();
+        boolean changed = !newMethods.isEmpty();
+        for (Iterator<Map.Entry<MethodReference, Entry>> iter = index.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<MethodReference, Entry> mapEntry = iter.next();
+            if (!cache.containsKey(mapEntry.getKey())) {
+                garbageSize += mapEntry.getValue().length;
+                iter.remove();
+                changed = true;
+            }
+        }
+        if (!changed) {
+            closePack();
+            cache.clear();
+            this.index = null;
+            return;
+        }
+
+        long liveSize = 0;
+        for (Entry entry : index.values()) {
+            liveSize += entry.length;
+        }
+        for (MethodReference method : newMethods.keySet()) {
+            Entry entry = index.get(method);
+            if (entry != null) {
+                garbageSize += entry.length;
+                liveSize -= entry.length;
+            }
+        }
+
+        if (pack != null && garbageSize > liveSize) {
+            compact(index);
+        } else {
+            append(index);
+        }
+        writeIndex(index);
+
+        newMethods.clear();
+        cache.clear();
+        this.index = null;
+    }
+
+    private void append(Map<MethodReference, Entry> index) throws IOException {
+        boolean appending = pack != null;
+        long offset = appending ? pack.size() : 0;
+        closePack();
+        if (!appending) {
+            garbageSize = 0;
+            index.clear();
+        }
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(packFile, appending))) {
+            writeNewMethods(output, offset, index);
+        }
+    }
+
+    private void compact(Map<MethodReference, Entry> index) throws IOException {
+        File tmpFile = new File(packFile.getPath() + ".tmp");
+        Map<MethodReference, Entry> compactedIndex = new LinkedHashMap<>();
+        long offset = 0;
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(tmpFile))) {
+            for (Map.Entry<MethodReference, Entry> mapEntry : index.entrySet()) {
+                if (newMethods.containsKey(mapEntry.getKey())) {
+                    continue;
+                }
+                Entry entry = mapEntry.getValue();
+                output.write(readEntry(entry).array(), 0, entry.length);
+                compactedIndex.put(mapEntry.getKey(), new Entry(checkOffset(offset), entry.length));
+                offset += entry.length;
+            }
+            writeNewMethods(output, offset, compactedIndex);
+        }
+
+        closePack();
+        Files.move(tmpFile.toPath(), packFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        index.clear();
+        index.putAll(compactedIndex);
+        garbageSize = 0;
+    }
+
+    private void writeNewMethods(OutputStream output, long offset, Map<MethodReference, Entry> index)
+            throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (Map.Entry<MethodReference, Item> mapEntry : newMethods.entrySet()) {
+            Item item = mapEntry.getValue();
+            buffer.reset();
+            DataOutputStream data = new DataOutputStream(buffer);
+            data.writeInt(item.dependencies.length);
+            for (String dep : item.dependencies) {
+                data.writeInt(symbolTable.lookup(dep));
+            }
+            programIO.write(item.program, buffer);
+
+            buffer.writeTo(output);
+            index.put(mapEntry.getKey(), new Entry(checkOffset(offset), buffer.size()));
+            offset += buffer.size();
+        }
+    }
+
+    private static int checkOffset(long offset) throws IOException {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("Program cache pack is too large");
+        }
+        return (int) offset;
+    }
+
+    private Map<MethodReference, Entry> getIndex() {
+        if (index == null) {
+            index = new LinkedHashMap<>();
+            garbageSize = 0;
+            try {
+                readIndex();
+            } catch (IOException | RuntimeException e) {
+                // cache is missing or broken, start from scratch
+                index.clear();
+                garbageSize = 0;
+                closePack();
+            }
+        }
+        return index;
+    }
+
+    private void readIndex() throws IOException {
+        if (!indexFile.exists() || !packFile.exists()) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(indexFile)))) {
+            if (input.readInt() != VERSION) {
+                return;
+            }
+            long packSize = input.readLong();
+            if (packSize != packFile.length()) {
+                return;
+            }
+            garbageSize = input.readLong();
+            int count = input.readInt();
+            for (int i = 0; i < count; ++i) {
+                String className = symbolTable.at(input.readInt());
+                MethodDescriptor descriptor = MethodDescriptor.parse(symbolTable.at(input.readInt()));
+                Entry entry = new Entry(input.readInt(), input.readInt());
+                index.put(new MethodReference(className, descriptor), entry);
+            }
+        }
+        pack = FileChannel.open(packFile.toPath(), StandardOpenOption.READ);
+    }
+
+    private void closePack() {
+        if (pack != null) {
+            try {
+                pack.close();
+            } catch (IOException e) {
+                // nothing was written through the channel, so there's nothing to lose
+            }
+            pack = null;
+        }
+    }
+
+    private void writeIndex(Map<MethodReference, Entry> index) throws IOException {
+        File tmpFile = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tmpFile)))) {
+            output.writeInt(VERSION);
+            output.writeLong(packFile.length());
+            output.writeLong(garbageSize);
+            output.writeInt(index.size());
+            for (Map.Entry<MethodReference, Entry> mapEntry : index.entrySet()) {
+                MethodReference method = mapEntry.getKey();
+                output.writeInt(symbolTable.lookup(method.getClassName()));
+                output.writeInt(symbolTable.lookup(method.getDescriptor().toString()));
+                output.writeInt(mapEntry.getValue().offset);
+                output.writeInt(mapEntry.getValue().length);
+            }
+        }
+        Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static class Entry {
+        final int offset;
+        final int length;
+
+        Entry(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    static class Item {
+        Program program;
+        String[] dependencies;
+    }
+
+    static class ByteBufferInputStream extends InputStream {
+        private ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+    }
+}
@@ -34,6 +34,7 @@ import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 import org.objectweb.asm.tree.ClassNode;
+import org.teavm.cache.CacheStatus;
 import org.teavm.cache.IncrementalDependencyProvider;
 import org.teavm.cache.IncrementalDependencyRegistration;
 import org.teavm.callgraph.CallGraph;
@@ -113,6 +114,7 @@ public abstract class DependencyAnalyzer implements DependencyInfo {
     private ClassHierarchy classHierarchy;
     IncrementalCache incrementalCache = new IncrementalCache();
     boolean asyncSupported;
+    private DependencySnapshot snapshot;
 
     DependencyAnalyzer(ClassReaderSource classSource, ClassLoader classLoader, ServiceRepository services,
             Diagnostics diagnostics) {
@@ -160,6 +162,83 @@ public abstract class DependencyAnalyzer implements DependencyInfo {
         return interrupted;
     }
 
+    /**
+     * <p>Seeds analysis with results of a previous build. When a method or a field is reached, types
+     * recorded in the snapshot are propagated to its parameters, result or value right away, so that
+     * they don't have to travel all the way through the data flow graph again.</p>
+     *
+     * <p>Snapshot is only accepted when none of the classes it was computed from is stale. In this case
+     * seeded types are exactly those that analysis would compute anyway, so the result does not change.
+     * Otherwise the snapshot is thrown away and analysis runs from scratch.</p>
+     *
+     * @return whether the snapshot was accepted.
+     */
+    public boolean setSnapshot(DependencySnapshot snapshot, CacheStatus cacheStatus) {
+        this.snapshot = null;
+        if (snapshot == null || !isSnapshotValid(snapshot, cacheStatus)) {
+            return false;
+        }
+        this.snapshot = snapshot;
+        return true;
+    }
+
+    private boolean isSnapshotValid(DependencySnapshot snapshot, CacheStatus cacheStatus) {
+        if (!snapshot.isReusable()) {
+            return false;
+        }
+        for (String className : snapshot.getClasses()) {
+            if (cacheStatus.isStaleClass(className)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void seedMethod(MethodDependency dep) {
+        String[][] types = snapshot.getMethodTypes(dep.getReference());
+        if (types == null || types.length != dep.getParameterCount() + 1) {
+            return;
+        }
+        for (int i = 0; i < dep.getParameterCount(); ++i) {
+            seedNode(dep.getVariable(i), types[i]);
+        }
+        if (dep.getResult() != null) {
+            seedNode(dep.getResult(), types[dep.getParameterCount()]);
+        }
+    }
+
+    private void seedField(FieldDependency dep) {
+        String[] types = snapshot.getFieldTypes(dep.getReference());
+        if (types != null) {
+            seedNode(dep.getValue(), types);
+        }
+    }
+
+    private void seedNode(DependencyNode node, String[] types) {
+        for (String type : types) {
+            String className = getTypeClassName(type);
+            if (className != null && (snapshot.isSynthesizedClass(className) || isSynthesizedClass(className)
+                    || classSource.get(className) == null)) {
+                continue;
+            }
+            node.propagate(getType(type));
+        }
+    }
+
+    private static String getTypeClassName(String type) {
+        int index = 0;
+        while (index < type.length() && (type.charAt(index) == '[' || type.charAt(index) == '~')) {
+            index++;
+        }
+        if (index == 0) {
+            return type;
+        }
+        if (type.charAt(index) != 'L') {
+            return null;
+        }
+        return type.substring(index + 1, type.length() - 1).replace('/', '.');
+    }
+
     public DependencyType getType(String name) {
         DependencyType type = typeMap.get(name);
         if (type == null) {
@@ -442,6 +521,10 @@ public abstract class DependencyAnalyzer implements DependencyInfo {
                     listener.methodReached(agent, dep);
                 }
                 activateDependencyPlugin(dep);
+                prepareMethodAnalysis(dep);
+                if (snapshot != null) {
+                    seedMethod(dep);
+                }
             }
         }
         return dep;
@@ -505,11 +588,26 @@ public abstract class DependencyAnalyzer implements DependencyInfo {
 
     void scheduleMethodAnalysis(MethodDependency dep) {
         deferredTasks.add(() -> {
+            awaitMethodAnalysis(dep);
             processInvokeDynamic(dep);
             processMethod(dep);
         });
     }
 
+    /**
+     * Called once a method is reached, long before it gets analyzed. Implementations may start
+     * analysis that only reads method's program.
+     */
+    void prepareMethodAnalysis(MethodDependency dep) {
+    }
+
+    /**
+     * Called right before the method's program is modified and analyzed. Implementations must ensure
+     * that nothing started by {@link #prepareMethodAnalysis(MethodDependency)} still reads the program.
+     */
+    void awaitMethodAnalysis(MethodDependency dep) {
+    }
+
     @Override
     public Collection<MethodReference> getReachableMethods() {
         return readonlyReachedMethods;
@@ -535,6 +633,9 @@ public abstract class DependencyAnalyzer implements DependencyInfo {
                 for (DependencyListener listener : listeners) {
                     listener.fieldReached(agent, dep);
                 }
+                if (snapshot != null) {
+                    seedField(dep);
+                }
             }
         }
         return dep;
@@ -741,6 +842,7 @@ public abstract class DependencyAnalyzer implements DependencyInfo {
         allNodes.clear();
         classSource.cleanup();
         agent.cleanup();
+        snapshot = null;
     }
 
     public void cleanupTypes() {
@@ -55,6 +55,10 @@ class DependencyGraphBuilder {
     }
 
     public void buildGraph(MethodDependency dep) {
+        buildGraph(dep, null);
+    }
+
+    public void buildGraph(MethodDependency dep, int[] nodeMapping) {
         caller = dependencyAnalyzer.callGraph.getNode(dep.getReference());
         MethodHolder method = dep.method;
         if (method.getProgram() == null || method.getProgram().basicBlockCount() == 0) {
@@ -63,17 +67,9 @@ class DependencyGraphBuilder {
         program = method.getProgram();
         resultNode = dep.getResult();
 
-        DataFlowGraphBuilder dfgBuilder = new DataFlowGraphBuilder();
-        boolean[] significantParams = new boolean[dep.getParameterCount()];
-        significantParams[0] = true;
-        for (int i = 1; i < dep.getParameterCount(); ++i) {
-            ValueType arg = method.parameterType(i - 1);
-            if (!(arg instanceof ValueType.Primitive)) {
-                significantParams[i] = true;
-            }
+        if (nodeMapping == null) {
+            nodeMapping = buildNodeMapping(dep, program);
         }
-        int[] nodeMapping = dfgBuilder.buildMapping(program, significantParams,
-                !(method.getResultType() instanceof ValueType.Primitive) && method.getResultType() != ValueType.VOID);
 
         if (DependencyAnalyzer.shouldLog) {
             System.out.println("Method reached: " + method.getReference());
@@ -164,6 +160,20 @@ class DependencyGraphBuilder {
         }
     }
 
+    static int[] buildNodeMapping(MethodDependency dep, Program program) {
+        MethodHolder method = dep.method;
+        boolean[] significantParams = new boolean[dep.getParameterCount()];
+        significantParams[0] = true;
+        for (int i = 1; i < dep.getParameterCount(); ++i) {
+            ValueType arg = method.parameterType(i - 1);
+            if (!(arg instanceof ValueType.Primitive)) {
+                significantParams[i] = true;
+            }
+        }
+        return new DataFlowGraphBuilder().buildMapping(program, significantParams,
+                !(method.getResultType() instanceof ValueType.Primitive) && method.getResultType() != ValueType.VOID);
+    }
+
     private ExceptionConsumer createExceptionConsumer(MethodDependency methodDep, BasicBlockReader block) {
         List<? extends TryCatchBlockReader> tryCatchBlocks = block.readTryCatchBlocks();
         ClassReader[] exceptions = new ClassReader[tryCatchBlocks.size()];
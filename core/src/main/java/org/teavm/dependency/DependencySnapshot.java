@@ -0,0 +1,173 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.dependency;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.teavm.cache.IncrementalDependencyProvider;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>Result of a previous dependency analysis, i.e. reachable methods and fields together with types
+ * that reached their parameters, results and values. Used by incremental builds to seed the next analysis,
+ * see {@link DependencyAnalyzer#setSnapshot(DependencySnapshot, org.teavm.cache.CacheStatus)}.</p>
+ *
+ * <p>Snapshot also lists classes it was computed from, i.e. all reachable classes and classes that plugins
+ * declared as dependencies of reachable code, as well as roots of the analysis. As long as none of these
+ * classes has changed and the roots are the same, the next analysis computes exactly the same types.</p>
+ *
+ * <p>Types of a method are stored as an array of <code>parameterCount + 1</code> elements, where
+ * parameter 0 stands for <code>this</code> and the last element contains types of the result.</p>
+ */
+public class DependencySnapshot {
+    private Map<MethodReference, String[][]> methods = new LinkedHashMap<>();
+    private Map<FieldReference, String[]> fields = new LinkedHashMap<>();
+    private Set<String> synthesizedClasses = new HashSet<>();
+    private Set<String> classes = new LinkedHashSet<>();
+    private Set<String> roots = new LinkedHashSet<>();
+    private boolean reusable = true;
+
+    public static DependencySnapshot capture(DependencyAnalyzer analyzer) {
+        DependencySnapshot snapshot = new DependencySnapshot();
+        IncrementalDependencyProvider incrementalDependencies = analyzer.getIncrementalDependencies();
+        for (MethodReference methodRef : analyzer.getReachableMethods()) {
+            if (incrementalDependencies.isNoCache(methodRef)) {
+                snapshot.reusable = false;
+            }
+            snapshot.addClasses(incrementalDependencies.getDependencies(methodRef));
+            MethodDependency method = analyzer.getMethod(methodRef);
+            if (method == null || method.isMissing() || analyzer.isSynthesizedClass(methodRef.getClassName())) {
+                continue;
+            }
+            int parameterCount = method.getParameterCount();
+            String[][] types = new String[parameterCount + 1][];
+            for (int i = 0; i < parameterCount; ++i) {
+                types[i] = method.getVariable(i).getTypes();
+            }
+            types[parameterCount] = method.getResult() != null ? method.getResult().getTypes() : new String[0];
+            snapshot.methods.put(methodRef, types);
+        }
+
+        for (FieldReference fieldRef : analyzer.getReachableFields()) {
+            FieldDependency field = analyzer.getField(fieldRef);
+            if (field == null || field.isMissing()
+                    || analyzer.isSynthesizedClass(field.getReference().getClassName())) {
+                continue;
+            }
+            snapshot.fields.put(field.getReference(), field.getValue().getTypes());
+        }
+
+        for (String className : analyzer.getReachableClasses()) {
+            if (analyzer.isSynthesizedClass(className)) {
+                snapshot.synthesizedClasses.add(className);
+            } else {
+                snapshot.classes.add(className);
+            }
+            if (incrementalDependencies.isNoCache(className)) {
+                snapshot.reusable = false;
+            }
+            snapshot.addClasses(incrementalDependencies.getDependencies(className));
+        }
+        snapshot.classes.removeAll(snapshot.synthesizedClasses);
+        return snapshot;
+    }
+
+    public Collection<MethodReference> getMethods() {
+        return Collections.unmodifiableSet(methods.keySet());
+    }
+
+    public String[][] getMethodTypes(MethodReference method) {
+        return methods.get(method);
+    }
+
+    public void addMethod(MethodReference method, String[][] types) {
+        methods.put(method, types);
+    }
+
+    public Collection<FieldReference> getFields() {
+        return Collections.unmodifiableSet(fields.keySet());
+    }
+
+    public String[] getFieldTypes(FieldReference field) {
+        return fields.get(field);
+    }
+
+    public void addField(FieldReference field, String[] types) {
+        fields.put(field, types);
+    }
+
+    public Collection<String> getSynthesizedClasses() {
+        return Collections.unmodifiableSet(synthesizedClasses);
+    }
+
+    public void addSynthesizedClass(String className) {
+        synthesizedClasses.add(className);
+    }
+
+    /**
+     * Returns classes that results of the analysis depend on. Snapshot can only be reused when none of them
+     * has changed since it was captured.
+     */
+    public Collection<String> getClasses() {
+        return Collections.unmodifiableSet(classes);
+    }
+
+    public void addClass(String className) {
+        classes.add(className);
+    }
+
+    private void addClasses(String[] classNames) {
+        Collections.addAll(classes, classNames);
+    }
+
+    /**
+     * Returns roots of the analysis, i.e. entry points and preserved classes, in a form that can be compared
+     * between builds.
+     */
+    public Collection<String> getRoots() {
+        return Collections.unmodifiableSet(roots);
+    }
+
+    public void addRoot(String root) {
+        roots.add(root);
+    }
+
+    /**
+     * Tells whether the snapshot can be reused at all. It can't when some of the reachable code
+     * was excluded from caching by a plugin, since such code may change without any class changing.
+     */
+    public boolean isReusable() {
+        return reusable;
+    }
+
+    public void setReusable(boolean reusable) {
+        this.reusable = reusable;
+    }
+
+    /**
+     * Tells whether the class was generated during previous analysis. Names of such classes are not stable
+     * between builds, so they should not be trusted.
+     */
+    public boolean isSynthesizedClass(String className) {
+        return synthesizedClasses.contains(className);
+    }
+}
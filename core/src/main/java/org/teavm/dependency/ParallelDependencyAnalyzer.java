@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.dependency;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import org.teavm.common.ServiceRepository;
+import org.teavm.diagnostics.Diagnostics;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.Instruction;
+import org.teavm.model.InvokeDynamicInstruction;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+
+/**
+ * <p>Precise dependency analyzer that builds data flow graphs of reached methods on a thread pool.
+ * Data flow mapping is computed as soon as a method is reached, so by the time the method is
+ * actually used, most of its graph is ready. Type propagation itself, as well as dependency listeners
+ * and plugins, still run on the calling thread, therefore reachable sets are exactly the same as
+ * ones produced by {@link PreciseDependencyAnalyzer}.</p>
+ */
+public class ParallelDependencyAnalyzer extends PreciseDependencyAnalyzer {
+    private ForkJoinPool pool;
+    private Map<MethodReference, PendingMapping> pendingMappings = new HashMap<>();
+
+    public ParallelDependencyAnalyzer(ClassReaderSource classSource, ClassLoader classLoader,
+            ServiceRepository services, Diagnostics diagnostics) {
+        this(classSource, classLoader, services, diagnostics, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelDependencyAnalyzer(ClassReaderSource classSource, ClassLoader classLoader,
+            ServiceRepository services, Diagnostics diagnostics, int threadCount) {
+        super(classSource, classLoader, services, diagnostics);
+        pool = new ForkJoinPool(threadCount);
+    }
+
+    public static DependencyAnalyzerFactory factory(int threadCount) {
+        return (classSource, classLoader, services, diagnostics) -> new ParallelDependencyAnalyzer(
+                classSource, classLoader, services, diagnostics, threadCount);
+    }
+
+    @Override
+    void prepareMethodAnalysis(MethodDependency dep) {
+        if (dep.method == null || pool.isShutdown()) {
+            return;
+        }
+        Program program = dep.method.getProgram();
+        if (program == null || program.basicBlockCount() == 0) {
+            return;
+        }
+        ForkJoinTask<int[]> task = pool.submit(() -> hasInvokeDynamic(program)
+                ? null
+                : DependencyGraphBuilder.buildNodeMapping(dep, program));
+        pendingMappings.put(dep.getReference(), new PendingMapping(program, task));
+    }
+
+    @Override
+    void awaitMethodAnalysis(MethodDependency dep) {
+        PendingMapping pending = pendingMappings.get(dep.getReference());
+        if (pending != null) {
+            pending.join();
+        }
+    }
+
+    @Override
+    protected void processMethod(MethodDependency methodDep) {
+        int[] nodeMapping = null;
+        PendingMapping pending = pendingMappings.remove(methodDep.getReference());
+        if (pending != null && methodDep.method != null && methodDep.method.getProgram() == pending.program) {
+            nodeMapping = pending.join();
+        }
+        new DependencyGraphBuilder(this).buildGraph(methodDep, nodeMapping);
+    }
+
+    /**
+     * Stops the pool even when analysis was interrupted or failed. Mappings that were not started yet
+     * are dropped, and the ones being built are waited for, since they still read programs of methods.
+     */
+    @Override
+    public void processDependencies() {
+        try {
+            super.processDependencies();
+        } finally {
+            pool.shutdownNow();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            pendingMappings.clear();
+        }
+    }
+
+    private static boolean hasInvokeDynamic(Program program) {
+        for (BasicBlock block : program.getBasicBlocks()) {
+            for (Instruction instruction : block) {
+                if (instruction instanceof InvokeDynamicInstruction) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static class PendingMapping {
+        final Program program;
+        final ForkJoinTask<int[]> task;
+
+        PendingMapping(Program program, ForkJoinTask<int[]> task) {
+            this.program = program;
+            this.task = task;
+        }
+
+        int[] join() {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for data flow graph", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException("Error building data flow graph", cause);
+            }
+        }
+    }
+}
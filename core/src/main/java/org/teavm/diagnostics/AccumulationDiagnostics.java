@@ -27,14 +27,14 @@ public class AccumulationDiagnostics implements Diagnostics, ProblemProvider {
     private List<Problem> readonlySevereProblems = Collections.unmodifiableList(severeProblems);
 
     @Override
-    public void error(CallLocation location, String error, Object... params) {
+    public synchronized void error(CallLocation location, String error, Object... params) {
         Problem problem = new Problem(ProblemSeverity.ERROR, location, error, params);
         problems.add(problem);
         severeProblems.add(problem);
     }
 
     @Override
-    public void warning(CallLocation location, String error, Object... params) {
+    public synchronized void warning(CallLocation location, String error, Object... params) {
         Problem problem = new Problem(ProblemSeverity.ERROR, location, error, params);
         problems.add(problem);
     }
@@ -63,6 +63,7 @@ import org.teavm.runtime.ShadowStack;
 public class ExceptionHandlingShadowStackContributor {
     private Characteristics characteristics;
     private List<CallSiteDescriptor> callSites;
+    private int callSiteOffset;
     private BasicBlock defaultExceptionHandler;
     private MethodReference method;
     private Program program;
@@ -75,6 +76,7 @@ public class ExceptionHandlingShadowStackContributor {
             List<CallSiteDescriptor> callSites, MethodReference method, Program program) {
         this.characteristics = characteristics;
         this.callSites = callSites;
+        callSiteOffset = callSites.size();
         this.method = method;
         this.program = program;
 
@@ -293,7 +295,7 @@ public class ExceptionHandlingShadowStackContributor {
 
         Variable idVariable = program.createVariable();
         IntegerConstantInstruction idInsn = new IntegerConstantInstruction();
-        idInsn.setConstant(callSite.getId());
+        idInsn.setConstant(callSite.getId() - callSiteOffset);
         idInsn.setReceiver(idVariable);
         instructions.add(idInsn);
 
@@ -324,7 +326,7 @@ public class ExceptionHandlingShadowStackContributor {
 
         if (next != null) {
             SwitchTableEntry continueExecutionEntry = new SwitchTableEntry();
-            continueExecutionEntry.setCondition(callSite.getId());
+            continueExecutionEntry.setCondition(callSite.getId() - callSiteOffset);
             continueExecutionEntry.setTarget(next);
             switchInsn.getEntries().add(continueExecutionEntry);
         }
@@ -342,7 +344,7 @@ public class ExceptionHandlingShadowStackContributor {
             } else {
                 SwitchTableEntry catchEntry = new SwitchTableEntry();
                 catchEntry.setTarget(tryCatch.getHandler());
-                catchEntry.setCondition(handler.getId());
+                catchEntry.setCondition(handler.getId() - callSiteOffset);
                 switchInsn.getEntries().add(catchEntry);
             }
         }
@@ -96,6 +96,7 @@ public class GCShadowStackContributor {
         for (int i = 0; i < spilled.length; ++i) {
             findAutoSpilledPhis(spilled, destinationPhis, inputCount, autoSpilled, i);
         }
+        excludePhisWithForeignSlots(program, colors, autoSpilled);
 
         List<Map<Instruction, int[]>> liveInStores = reduceGCRootStores(program, usedColors, liveInInformation,
                 colors, autoSpilled);
@@ -123,6 +124,24 @@ public class GCShadowStackContributor {
         }
     }
 
+    // Phi is spilled implicitly only when all of its inputs are stored to the same slot as the phi itself
+    private void excludePhisWithForeignSlots(Program program, int[] colors, boolean[] autoSpilled) {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Phi phi : program.basicBlockAt(i).getPhis()) {
+                int receiver = phi.getReceiver().getIndex();
+                if (!autoSpilled[receiver]) {
+                    continue;
+                }
+                for (Incoming incoming : phi.getIncomings()) {
+                    if (colors[incoming.getValue().getIndex()] != colors[receiver]) {
+                        autoSpilled[receiver] = false;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
     private List<Map<Instruction, BitSet>> findCallSiteLiveIns(Program program, MethodReader method) {
         Graph cfg = ProgramUtils.buildControlFlowGraph(program);
         TypeInferer typeInferer = new TypeInferer();
@@ -267,7 +286,7 @@ public class GCShadowStackContributor {
         Step[] stack = new Step[program.basicBlockCount() * 2];
         int head = 0;
         Step start = new Step(0);
-        Arrays.fill(start.slotStates, usedColors);
+        Arrays.fill(start.slotStates, program.variableCount());
         stack[head++] = start;
 
         while (head > 0) {
@@ -16,7 +16,9 @@
 package org.teavm.model.lowlevel;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.teavm.model.BasicBlock;
 import org.teavm.model.Incoming;
 import org.teavm.model.Instruction;
@@ -36,6 +38,7 @@ public class ShadowStackTransformer {
     private Characteristics managedMethodRepository;
     private GCShadowStackContributor gcContributor;
     private List<CallSiteDescriptor> callSites = new ArrayList<>();
+    private Map<MethodReference, Integer> callSiteOffsets = new HashMap<>();
 
     public ShadowStackTransformer(Characteristics managedMethodRepository) {
         gcContributor = new GCShadowStackContributor(managedMethodRepository);
@@ -46,12 +49,26 @@ public class ShadowStackTransformer {
         return callSites;
     }
 
+    /**
+     * Returns id of the first call site of a method. Transformed program refers to its call sites and
+     * exception handlers relative to this offset, so that neither the program nor an AST decompiled from it
+     * depend on the order in which methods were transformed. Code generators add the offset back.
+     */
+    public int getCallSiteOffset(MethodReference method) {
+        Integer offset = callSiteOffsets.get(method);
+        if (offset == null) {
+            throw new IllegalStateException("Call sites of method " + method + " were not registered");
+        }
+        return offset;
+    }
+
     public void apply(Program program, MethodReader method) {
         if (!managedMethodRepository.isManaged(method.getReference())) {
             return;
         }
 
         int shadowStackSize = gcContributor.contribute(program, method);
+        callSiteOffsets.put(method.getReference(), callSites.size());
         boolean exceptions = new ExceptionHandlingShadowStackContributor(managedMethodRepository, callSites,
                 method.getReference(), program).contribute();
 
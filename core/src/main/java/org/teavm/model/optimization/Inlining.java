@@ -31,6 +31,7 @@ import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.teavm.dependency.DependencyInfo;
+import org.teavm.interop.SplitPoint;
 import org.teavm.model.BasicBlock;
 import org.teavm.model.BasicBlockReader;
 import org.teavm.model.ClassHierarchy;
@@ -321,7 +322,8 @@ public class Inlining {
                 MethodReader invokedMethod = getMethod(invoke.getMethod());
                 if (invokedMethod == null || invokedMethod.getProgram() == null
                         || invokedMethod.getProgram().basicBlockCount() == 0
-                        || invokedMethod.hasModifier(ElementModifier.SYNCHRONIZED)) {
+                        || invokedMethod.hasModifier(ElementModifier.SYNCHRONIZED)
+                        || invokedMethod.getAnnotations().get(SplitPoint.class.getName()) != null) {
                     instructionsToSkip.add(insn);
                     continue;
                 }
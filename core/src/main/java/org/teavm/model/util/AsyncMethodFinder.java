@@ -108,6 +108,35 @@ public class AsyncMethodFinder {
         }
     }
 
+    /**
+     * Extends family of asynchronous methods to methods that are overridden by methods of the family.
+     * After this, any virtual call either always dispatches to a method of the family, or never does,
+     * which is required when methods of the family have calling convention of their own.
+     * Must be called after {@link #find(ListableClassReaderSource)}.
+     */
+    public void closeFamily() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (String clsName : classSource.getClassNames()) {
+                ClassReader cls = classSource.get(clsName);
+                for (MethodReader method : cls.getMethods()) {
+                    boolean inFamily = asyncFamilyMethods.containsKey(method.getReference());
+                    for (MethodReference overriddenMethod : findOverriddenMethods(cls, method.getDescriptor())) {
+                        if (inFamily && !asyncFamilyMethods.containsKey(overriddenMethod)) {
+                            asyncFamilyMethods.put(overriddenMethod, true);
+                            changed = true;
+                        } else if (!inFamily && asyncFamilyMethods.containsKey(overriddenMethod)) {
+                            asyncFamilyMethods.put(method.getReference(), true);
+                            inFamily = true;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private boolean hasAsyncMethods() {
         boolean result = false;
         loop: for (String clsName : classSource.getClassNames()) {
@@ -20,13 +20,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import org.teavm.cache.HashUtils;
 import org.teavm.common.CachedMapper;
 import org.teavm.common.Mapper;
 import org.teavm.model.ClassHolder;
 import org.teavm.model.ReferenceCache;
 
-public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, ClassDateProvider {
+public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, ClassDateProvider,
+        ClassContentHashProvider {
     private static final String PACKAGE_PREFIX = "packagePrefix.";
     private static final String CLASS_PREFIX = "classPrefix.";
     private Mapper<String, ClassHolder> innerMapper;
@@ -34,6 +38,7 @@ public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, Cla
     private ClassRefsRenamer renamer;
     private ClassLoader classLoader;
     private Map<String, ModificationDate> modificationDates = new HashMap<>();
+    private Map<String, Optional<String>> contentHashes = new HashMap<>();
     private ReferenceCache referenceCache;
 
     private static class Transformation {
@@ -198,6 +203,59 @@ public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, Cla
         }
     }
 
+    @Override
+    public String getContentHash(String className) {
+        return contentHashes.computeIfAbsent(className, n -> Optional.ofNullable(calculateContentHash(n)))
+                .orElse(null);
+    }
+
+    private String calculateContentHash(String className) {
+        int dotIndex = className.lastIndexOf('.');
+        String packageName;
+        String simpleName;
+        if (dotIndex > 0) {
+            packageName = className.substring(0, dotIndex + 1);
+            simpleName = className.substring(dotIndex + 1);
+        } else {
+            packageName = "";
+            simpleName = className;
+        }
+        for (Transformation transformation : transformations) {
+            if (packageName.startsWith(transformation.packageName)) {
+                String fullName = transformation.packagePrefix + packageName + transformation.classPrefix + simpleName;
+                String hash = getOriginalContentHash(fullName);
+                if (hash != null) {
+                    return hash;
+                }
+            }
+        }
+        return getOriginalContentHash(className);
+    }
+
+    private String getOriginalContentHash(String className) {
+        if (classLoader == null) {
+            return null;
+        }
+        try (InputStream input = classLoader.getResourceAsStream(className.replace('.', '/') + ".class")) {
+            if (input == null) {
+                return null;
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[4096];
+            while (true) {
+                int bytesRead = input.read(buffer);
+                if (bytesRead < 0) {
+                    break;
+                }
+                digest.update(buffer, 0, bytesRead);
+            }
+            return HashUtils.toHexString(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            // If class file can't be read, we just report that class should be reparsed
+            return null;
+        }
+    }
+
     static class ModificationDate {
         Date date;
     }
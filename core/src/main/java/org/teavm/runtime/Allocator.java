@@ -27,40 +27,85 @@ public final class Allocator {
 
     public static Address allocate(RuntimeClass tag) {
         RuntimeObject object = GC.alloc(tag.size);
+        if (object == null) {
+            ExceptionHandling.throwOutOfMemoryError();
+            return null;
+        }
+        int generation = object.classReference;
         fillZero(object.toAddress(), tag.size);
-        object.classReference = tag.pack();
+        object.classReference = tag.pack() | generation;
         return object.toAddress();
     }
 
     public static Address allocateArray(RuntimeClass tag, int size) {
+        int sizeInBytes = arraySize(tag, size);
+        RuntimeArray array = (RuntimeArray) GC.alloc(sizeInBytes);
+        if (array == null) {
+            ExceptionHandling.throwOutOfMemoryError();
+            return null;
+        }
+        int generation = array.classReference;
+        fillZero(array.toAddress(), sizeInBytes);
+
+        array.classReference = tag.pack() | generation;
+        array.size = size;
+
+        return array.toAddress();
+    }
+
+    private static int arraySize(RuntimeClass tag, int size) {
         int itemSize = (tag.itemType.flags & RuntimeClass.PRIMITIVE) != 0 ? tag.itemType.size : Address.sizeOf();
         int sizeInBytes = Address.align(Address.fromInt(Structure.sizeOf(RuntimeArray.class)), itemSize).toInt();
         sizeInBytes += itemSize * size;
-        sizeInBytes = Address.align(Address.fromInt(sizeInBytes), Address.sizeOf()).toInt();
-        Address result = GC.alloc(sizeInBytes).toAddress();
-        fillZero(result, sizeInBytes);
+        return Address.align(Address.fromInt(sizeInBytes), Address.sizeOf()).toInt();
+    }
 
-        RuntimeArray array = result.toStructure();
-        array.classReference = tag.pack();
-        array.size = size;
+    /*
+     * All arrays of a multi-dimensional array are carved from a single block, so no collection can happen
+     * while the outer arrays are still unreachable from roots.
+     */
+    @Unmanaged
+    public static RuntimeArray allocateMultiArray(RuntimeClass tag, Address dimensions, int dimensionCount) {
+        int sizeInBytes = multiArraySize(tag, dimensions, dimensionCount);
+        RuntimeObject block = GC.alloc(sizeInBytes);
+        if (block == null) {
+            ExceptionHandling.throwOutOfMemoryError();
+            return null;
+        }
+        int generation = block.classReference;
+        fillZero(block.toAddress(), sizeInBytes);
+        fillMultiArray(tag, dimensions, dimensionCount, block.toAddress(), generation);
+        return block.toAddress().toStructure();
+    }
 
+    @Unmanaged
+    private static int multiArraySize(RuntimeClass tag, Address dimensions, int dimensionCount) {
+        int size = dimensions.getInt();
+        int result = arraySize(tag, size);
+        if (dimensionCount > 1) {
+            result += size * multiArraySize(tag.itemType, dimensions.add(4), dimensionCount - 1);
+        }
         return result;
     }
 
     @Unmanaged
-    public static RuntimeArray allocateMultiArray(RuntimeClass tag, Address dimensions, int dimensionCount) {
+    private static Address fillMultiArray(RuntimeClass tag, Address dimensions, int dimensionCount, Address address,
+            int generation) {
         int size = dimensions.getInt();
-        RuntimeArray array = allocateArray(tag, dimensions.getInt()).toStructure();
+        RuntimeArray array = address.toStructure();
+        array.classReference = tag.pack() | generation;
+        array.size = size;
+        Address next = address.add(arraySize(tag, size));
         if (dimensionCount > 1) {
             Address arrayData = Structure.add(RuntimeArray.class, array, 1).toAddress();
             arrayData = Address.align(arrayData, Address.sizeOf());
             for (int i = 0; i < size; ++i) {
-                RuntimeArray innerArray = allocateMultiArray(tag.itemType, dimensions.add(4), dimensionCount - 1);
-                arrayData.putAddress(innerArray.toAddress());
+                arrayData.putAddress(next);
+                next = fillMultiArray(tag.itemType, dimensions.add(4), dimensionCount - 1, next, generation);
                 arrayData = arrayData.add(Address.sizeOf());
             }
         }
-        return array;
+        return next;
     }
 
     @Unmanaged
@@ -75,6 +75,11 @@ public final class ExceptionHandling {
         throw new NullPointerException();
     }
 
+    @Unmanaged
+    public static void throwOutOfMemoryError() {
+        throw new OutOfMemoryError();
+    }
+
     @Unmanaged
     public static int callStackSize() {
         Address stackFrame = ShadowStack.getStackTop();
@@ -26,12 +26,48 @@ public final class GC {
     private GC() {
     }
 
+    private static final int MAX_NURSERY_SIZE = 8 * 1024 * 1024;
+    private static final int HEAP_GROWTH_GRANULARITY = 64 * 1024;
+    private static final int FRAGMENTATION_RATIO = 4;
+    private static final int COMPACTION_LOOKAHEAD = 16;
+    private static final int INCREMENTAL_START_RATIO = 2;
+
+    private static final int GC_IDLE = 0;
+    private static final int GC_MARKING = 1;
+    private static final int GC_SWEEPING = 2;
+
     static Address currentChunkLimit;
     static FreeChunk currentChunk;
     static FreeChunkHolder currentChunkPointer;
     static int freeChunks;
     static int freeMemory = (int) availableBytes();
 
+    static Address nurseryStart;
+    static Address nurseryEnd;
+    static Address nurseryTop;
+    static Address nurseryLimit;
+    static int largeObjectSize;
+    static Address oldGenerationStart;
+
+    static Address rememberedSet;
+    static int rememberedSetCapacity;
+    static int rememberedSetSize;
+    static boolean rememberedSetOverflow;
+
+    static boolean hasPendingNurseryObjects;
+    static FreeChunkHolder promotionScanChunk;
+    static Address promotionScanPointer;
+
+    static int largestFreeChunk;
+    static int oldGenerationFreeBytes;
+    static FreeChunkHolder compactionHoles;
+    static int compactionHoleCount;
+    static int compactionFirstHole;
+
+    static int incrementalPhase;
+    static Address sweepPointer;
+    static Address sweepEnd;
+
     static native Address gcStorageAddress();
 
     static native int gcStorageSize();
@@ -44,167 +80,782 @@ public final class GC {
 
     public static native long availableBytes();
 
+    private static native long maxAvailableBytes();
+
+    private static native boolean resizeHeap(long newSize);
+
     private static native int regionSize();
 
+    private static native int pauseBudget();
+
     public static int getFreeMemory() {
-        return freeMemory;
+        return freeMemory + (int) (nurseryLimit.toLong() - nurseryTop.toLong());
     }
 
+    /*
+     * The heap is split into a nursery, a one-region remembered set buffer and the old generation.
+     * The nursery is bump-allocated; the old generation is the mark-sweep space managed by free chunks.
+     */
     static {
-        currentChunk = heapAddress().toStructure();
+        int regionSize = regionSize();
+        long heapSize = availableBytes();
+        long nurserySize = heapSize / 8;
+        if (nurserySize > MAX_NURSERY_SIZE) {
+            nurserySize = MAX_NURSERY_SIZE;
+        }
+        nurserySize = nurserySize / regionSize * regionSize;
+
+        nurseryStart = heapAddress();
+        nurseryEnd = nurseryStart.add(nurserySize);
+        nurseryTop = nurseryStart;
+        nurseryLimit = nurseryStart;
+        oldGenerationStart = nurseryEnd;
+        if (nurserySize > 0) {
+            FreeChunk nursery = nurseryStart.toStructure();
+            nursery.classReference = 0;
+            nursery.size = (int) nurserySize;
+            rememberedSet = nurseryEnd;
+            rememberedSetCapacity = regionSize / Address.sizeOf();
+            oldGenerationStart = nurseryEnd.add(regionSize);
+        }
+        largeObjectSize = (int) nurserySize / 16;
+
+        currentChunk = oldGenerationStart.toStructure();
         currentChunk.classReference = 0;
-        currentChunk.size = (int) availableBytes();
+        currentChunk.size = (int) (heapAddress().add(heapSize).toLong() - oldGenerationStart.toLong());
         currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
         currentChunkPointer = gcStorageAddress().toStructure();
         currentChunkPointer.value = currentChunk;
         freeChunks = 1;
-        getAvailableChunkIfPossible(0);
+        freeMemory = currentChunk.size + (int) nurserySize;
+        nextNurseryChunk(0);
     }
 
     public static RuntimeObject alloc(int size) {
-        FreeChunk current = currentChunk;
-        Address next = current.toAddress().add(size);
-        if (!next.add(Structure.sizeOf(FreeChunk.class)).isLessThan(currentChunkLimit)) {
-            getAvailableChunk(size);
-            current = currentChunk;
-            next = currentChunk.toAddress().add(size);
-        }
-        int freeSize = current.size;
-        freeSize -= size;
-        if (freeSize > 0) {
-            currentChunk = next.toStructure();
-            currentChunk.size = freeSize;
-        } else {
-            freeMemory -= size;
-            getAvailableChunkIfPossible(currentChunk.size + 1);
+        Address result = nurseryTop;
+        Address next = result.add(size);
+        if (nurseryLimit.isLessThan(next.add(Structure.sizeOf(FreeChunk.class)))) {
+            return allocSlow(size);
         }
-        currentChunk.classReference = 0;
-        freeMemory -= size;
-        return current.toAddress().toStructure();
+        nurseryTop = next;
+        RuntimeObject object = result.toStructure();
+        object.classReference = 0;
+        return object;
     }
 
-    private static void getAvailableChunk(int size) {
-        if (getAvailableChunkIfPossible(size)) {
-            return;
+    private static RuntimeObject allocSlow(int size) {
+        if (size < largeObjectSize) {
+            if (!nextNurseryChunk(size)) {
+                collectGarbage(false, 0);
+                if (!nextNurseryChunk(size)) {
+                    return allocOldGeneration(size);
+                }
+            }
+            return alloc(size);
+        }
+        return allocOldGeneration(size);
+    }
+
+    /*
+     * Returns null when neither collection nor heap growth gives enough room for the object,
+     * so that allocator can report OutOfMemoryError.
+     */
+    private static RuntimeObject allocOldGeneration(int size) {
+        RuntimeObject result = allocOld(size);
+        while (result == null && incrementalPhase == GC_SWEEPING) {
+            sweepSlice();
+            result = allocOld(size);
+        }
+        if (result == null) {
+            collectGarbage(true, size);
+            result = allocOld(size);
+            if (result == null && growHeap(size)) {
+                result = allocOld(size);
+            }
+            if (result == null) {
+                return null;
+            }
         }
-        collectGarbage(size);
-        getAvailableChunkIfPossible(size);
+        result.classReference = RuntimeObject.GC_OLD;
+        return result;
     }
 
-    private static boolean getAvailableChunkIfPossible(int size) {
+    private static boolean nextNurseryChunk(int size) {
+        if (nurseryTop.isLessThan(nurseryLimit)) {
+            FreeChunk rest = nurseryTop.toStructure();
+            rest.classReference = 0;
+            rest.size = (int) (nurseryLimit.toLong() - nurseryTop.toLong());
+        }
+        Address ptr = nurseryLimit;
+        while (ptr.isLessThan(nurseryEnd)) {
+            FreeChunk chunk = ptr.toStructure();
+            if (chunk.classReference == 0) {
+                Address limit = ptr.add(chunk.size);
+                if (!limit.isLessThan(ptr.add(size + Structure.sizeOf(FreeChunk.class)))) {
+                    nurseryTop = ptr;
+                    nurseryLimit = limit;
+                    freeMemory -= chunk.size;
+                    return true;
+                }
+                ptr = limit;
+            } else {
+                ptr = ptr.add(objectSize(chunk));
+            }
+        }
+        nurseryTop = nurseryEnd;
+        nurseryLimit = nurseryEnd;
+        return false;
+    }
+
+    private static RuntimeObject allocOld(int size) {
         if (freeChunks == 0) {
-            return false;
+            return null;
         }
         while (true) {
-            if (currentChunk.toAddress().add(size) == currentChunkLimit) {
-                break;
-            }
-            if (currentChunk.toAddress().add(size + Structure.sizeOf(FreeChunk.class)).isLessThan(currentChunkLimit)) {
-                break;
+            Address result = currentChunk.toAddress();
+            Address next = result.add(size);
+            if (!currentChunkLimit.isLessThan(next.add(Structure.sizeOf(FreeChunk.class)))) {
+                int freeSize = currentChunk.size - size;
+                currentChunk = next.toStructure();
+                currentChunk.classReference = 0;
+                currentChunk.size = freeSize;
+                freeMemory -= size;
+                return result.toStructure();
             }
-            if (--freeChunks == 0) {
-                return false;
+            if (freeChunks == 1) {
+                return null;
             }
+            --freeChunks;
             freeMemory -= currentChunk.size;
             currentChunkPointer = Structure.add(FreeChunkHolder.class, currentChunkPointer, 1);
             currentChunk = currentChunkPointer.value;
             currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
         }
-        return true;
+    }
+
+    public static void writeBarrier(RuntimeObject object) {
+        int tag = object.classReference;
+        if ((tag & (RuntimeObject.GC_OLD | RuntimeObject.GC_REMEMBERED)) != RuntimeObject.GC_OLD) {
+            return;
+        }
+        object.classReference = tag | RuntimeObject.GC_REMEMBERED;
+        if (rememberedSetSize < rememberedSetCapacity) {
+            rememberedSet.add(Address.sizeOf() * rememberedSetSize++).putAddress(object.toAddress());
+        } else {
+            rememberedSetOverflow = true;
+        }
     }
 
     public static boolean collectGarbage(int size) {
-        mark();
-        sweep();
+        collectGarbage(true, size);
+        return true;
+    }
+
+    private static void collectGarbage(boolean full, int size) {
+        if (full && incrementalPhase != GC_IDLE) {
+            completeIncrementalCycle();
+            // Incremental sweep can't move objects, so fragmented heap falls back to a stop-the-world
+            // collection, which compacts it
+            if (size == 0 || !isFragmented(size)) {
+                return;
+            }
+        }
+        if (!full && pauseBudget() > 0) {
+            collectIncrementally();
+            return;
+        }
+
+        boolean hasNursery = nurseryStart != nurseryEnd;
+        if (hasNursery) {
+            collectNursery();
+        }
         updateFreeMemory();
+        boolean major = full || !hasNursery || freeMemory < nurseryEnd.toLong() - nurseryStart.toLong();
+        if (major) {
+            mark();
+            sweep();
+            if (isFragmented(size)) {
+                compact();
+            }
+            updateFreeMemory();
+        }
+        freeMemory += rebuildNursery(major);
+        if (major && freeMemory < availableBytes() / 4) {
+            growHeap(0);
+        }
+    }
+
+    /*
+     * Heap grows at its end, at least twice its size, and new space is added as a free chunk
+     * which becomes the current one. Where GC storage and region table follow the heap, they move as well.
+     * Heap only grows while no collection is in progress, so the free chunk list is the only thing in GC storage
+     * that has to be carried over.
+     */
+    private static boolean growHeap(int size) {
+        long oldSize = availableBytes();
+        long maxSize = maxAvailableBytes();
+        long required = (long) size + Structure.sizeOf(FreeChunk.class);
+        long delta = oldSize > required ? oldSize : required;
+        delta = (delta + HEAP_GROWTH_GRANULARITY - 1) / HEAP_GROWTH_GRANULARITY * HEAP_GROWTH_GRANULARITY;
+        if (delta > maxSize - oldSize) {
+            delta = maxSize - oldSize;
+        }
+        Address oldStorage = gcStorageAddress();
+        if (delta < required || !resizeHeap(oldSize + delta)) {
+            return false;
+        }
+
+        if (freeChunks > 0 && gcStorageAddress() != oldStorage) {
+            Allocator.moveMemoryBlock(currentChunkPointer.toAddress(), gcStorageAddress(),
+                    freeChunks * Structure.sizeOf(FreeChunkHolder.class));
+            currentChunkPointer = gcStorageAddress().toStructure();
+        }
+
+        Address oldEnd = heapAddress().add(oldSize);
+        if (freeChunks > 0 && currentChunkLimit == oldEnd) {
+            currentChunk.size += (int) delta;
+        } else {
+            FreeChunk chunk = oldEnd.toStructure();
+            chunk.classReference = 0;
+            chunk.size = (int) delta;
+            if (freeChunks > 0) {
+                FreeChunkHolder last = Structure.add(FreeChunkHolder.class, currentChunkPointer, freeChunks);
+                int index = (int) (last.toAddress().toLong() - gcStorageAddress().toLong())
+                        / Structure.sizeOf(FreeChunkHolder.class);
+                if (index < freeChunkCapacity()) {
+                    last.value = currentChunk;
+                    freeChunks++;
+                } else {
+                    // No room to keep current chunk in the list, so it stays unused until next sweep
+                    freeMemory -= currentChunk.size;
+                }
+            } else {
+                currentChunkPointer = gcStorageAddress().toStructure();
+                freeChunks++;
+            }
+            currentChunkPointer.value = chunk;
+            currentChunk = chunk;
+        }
+        currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
+        freeMemory += (int) delta;
         return true;
     }
 
-    private static void mark() {
-        Allocator.fillZero(regionsAddress().toAddress(), regionMaxCount() * Structure.sizeOf(Region.class));
+    /*
+     * Incremental collection is driven by nursery collections. Each of them runs a slice of old generation
+     * marking or sweeping, which processes about pauseBudget() bytes of heap. Marking follows tri-color
+     * invariant: old objects written since the previous slice are found in the remembered set and pushed
+     * to the mark stack again, objects created meanwhile are white and get reached through their referrers.
+     * Young objects are not marked until they are promoted, promoted copies become gray.
+     */
+    private static void collectIncrementally() {
+        if (incrementalPhase == GC_SWEEPING) {
+            sweepSlice();
+        }
+        collectNursery();
+        updateFreeMemory();
+        boolean marked = false;
+        if (incrementalPhase == GC_IDLE) {
+            if (freeMemory < availableBytes() / 4) {
+                growHeap(0);
+            }
+            if (freeMemory < availableBytes() / INCREMENTAL_START_RATIO) {
+                startMarking();
+            }
+        } else if (incrementalPhase == GC_MARKING && markSlice()) {
+            finishMarking();
+            sweepSlice();
+            marked = true;
+        }
+        freeMemory += rebuildNursery(marked);
+    }
 
+    private static void completeIncrementalCycle() {
+        if (nurseryStart != nurseryEnd) {
+            collectNursery();
+        }
+        boolean marked = incrementalPhase == GC_MARKING;
+        if (marked) {
+            finishMarking();
+        }
+        sweepLazily(sweepEnd);
+        updateFreeMemory();
+        freeMemory += rebuildNursery(marked);
+        if (freeMemory < availableBytes() / 4) {
+            growHeap(0);
+        }
+    }
+
+    private static void startMarking() {
+        clearRegions();
+        int stackSize = gcStorageSize() / 2;
+        MarkStack.init(gcStorageAddress().add(gcStorageSize() - stackSize), stackSize);
+        incrementalPhase = GC_MARKING;
+        markRoots();
+    }
+
+    private static boolean markSlice() {
+        int budget = pauseBudget();
+        while (budget > 0 && !MarkStack.isEmpty()) {
+            RuntimeObject object = MarkStack.pop();
+            markReferences(object);
+            budget -= objectSize(object.toAddress().toStructure());
+        }
+        return MarkStack.isEmpty();
+    }
+
+    // Roots are marked once again, since they changed since the first slice
+    private static void finishMarking() {
+        markRoots();
+        drainMarkStack();
+        while (MarkStack.resetOverflow()) {
+            rescanMarkedObjects();
+        }
+
+        incrementalPhase = GC_SWEEPING;
+        sweepPointer = oldGenerationStart;
+        sweepEnd = heapAddress().add(availableBytes());
+        currentChunkPointer = gcStorageAddress().toStructure();
+        freeChunks = 0;
+        freeMemory = 0;
+        largestFreeChunk = 0;
+        oldGenerationFreeBytes = 0;
+    }
+
+    private static void sweepSlice() {
+        long limit = sweepPointer.toLong() - heapAddress().toLong() + pauseBudget();
+        limit = (limit + regionSize() - 1) / regionSize() * regionSize();
+        if (limit < sweepEnd.toLong() - heapAddress().toLong()) {
+            sweepLazily(heapAddress().add(limit));
+        } else {
+            sweepLazily(sweepEnd);
+        }
+    }
+
+    /*
+     * Lazily sweeps old generation up to the given address, which is rounded to region bounds by the caller.
+     * Free space found is appended to the list of free chunks, so it becomes available to allocator at once.
+     * Objects allocated in swept part are never visited again, so they need no mark.
+     */
+    private static void sweepLazily(Address limit) {
+        FreeChunk lastFreeSpace = null;
+        Address ptr = sweepPointer;
+        while (ptr.isLessThan(limit)) {
+            FreeChunk object = ptr.toStructure();
+            int size = objectSize(object);
+            int tag = object.classReference;
+            if ((tag & RuntimeObject.GC_MARKED) != 0) {
+                object.classReference = tag & ~RuntimeObject.GC_MARKED;
+                if (lastFreeSpace != null) {
+                    addSweptChunk(lastFreeSpace, ptr);
+                    lastFreeSpace = null;
+                }
+            } else if (lastFreeSpace == null) {
+                lastFreeSpace = object;
+            }
+            ptr = ptr.add(size);
+        }
+        if (lastFreeSpace != null) {
+            addSweptChunk(lastFreeSpace, ptr);
+        }
+
+        sweepPointer = ptr;
+        if (!ptr.isLessThan(sweepEnd)) {
+            incrementalPhase = GC_IDLE;
+        }
+    }
+
+    private static void addSweptChunk(FreeChunk chunk, Address end) {
+        chunk.classReference = 0;
+        chunk.size = (int) (end.toLong() - chunk.toAddress().toLong());
+        oldGenerationFreeBytes += chunk.size;
+        if (largestFreeChunk < chunk.size) {
+            largestFreeChunk = chunk.size;
+        }
+        FreeChunkHolder holder = Structure.add(FreeChunkHolder.class, currentChunkPointer, freeChunks);
+        int index = (int) (holder.toAddress().toLong() - gcStorageAddress().toLong())
+                / Structure.sizeOf(FreeChunkHolder.class);
+        if (index >= freeChunkCapacity()) {
+            return;
+        }
+        holder.value = chunk;
+        if (freeChunks++ == 0) {
+            currentChunk = chunk;
+            currentChunkLimit = chunk.toAddress().add(chunk.size);
+        }
+        freeMemory += chunk.size;
+    }
+
+    /*
+     * In incremental mode the upper half of GC storage holds the mark stack, which lives across slices,
+     * so the list of free chunks is limited to the lower half. Chunks that don't fit stay unused until next sweep.
+     */
+    private static int freeChunkCapacity() {
+        int size = gcStorageSize();
+        if (pauseBudget() > 0) {
+            size /= 2;
+        }
+        return size / Structure.sizeOf(FreeChunkHolder.class);
+    }
+
+    /*
+     * Objects referenced from the shadow stack can't be moved, since the generated code keeps using
+     * the references it holds in locals. Such objects are promoted in place, everything else reachable
+     * from them, from static fields or from remembered old objects is copied to the old generation.
+     */
+    private static void collectNursery() {
+        if (nurseryTop.isLessThan(nurseryLimit)) {
+            FreeChunk rest = nurseryTop.toStructure();
+            rest.classReference = 0;
+            rest.size = (int) (nurseryLimit.toLong() - nurseryTop.toLong());
+        }
+        nurseryTop = nurseryStart;
+        nurseryLimit = nurseryStart;
+
+        promotionScanChunk = currentChunkPointer;
+        promotionScanPointer = currentChunk.toAddress();
+
+        pinStackRoots();
+        promoteStaticRoots();
+        scanRememberedSet();
+        while (true) {
+            scanPromotedObjects();
+            if (!hasPendingNurseryObjects) {
+                break;
+            }
+            hasPendingNurseryObjects = false;
+            scanPendingNurseryObjects();
+        }
+
+        rememberedSetSize = 0;
+        rememberedSetOverflow = false;
+    }
+
+    private static void pinStackRoots() {
+        for (Address stackRoots = ShadowStack.getStackTop(); stackRoots != null;
+             stackRoots = ShadowStack.getNextStackFrame(stackRoots)) {
+            int count = ShadowStack.getStackRootCount(stackRoots);
+            Address stackRootsPtr = ShadowStack.getStackRootPointer(stackRoots);
+            while (count-- > 0) {
+                RuntimeObject obj = stackRootsPtr.getAddress().toStructure();
+                if (obj != null && isInNursery(obj) && (obj.classReference & RuntimeObject.GC_OLD) == 0) {
+                    obj.classReference |= RuntimeObject.GC_OLD | RuntimeObject.GC_REMEMBERED;
+                    hasPendingNurseryObjects = true;
+                }
+                stackRootsPtr = stackRootsPtr.add(Address.sizeOf());
+            }
+        }
+    }
+
+    private static void promoteStaticRoots() {
         Address staticRoots = Mutator.getStaticGCRoots();
         int staticCount = staticRoots.getInt();
         staticRoots = staticRoots.add(Address.sizeOf());
         while (staticCount-- > 0) {
-            RuntimeObject object = staticRoots.getAddress().getAddress().toStructure();
-            if (object != null) {
-                mark(object);
+            Address field = staticRoots.getAddress();
+            RuntimeObject object = field.getAddress().toStructure();
+            if (object != null && isInNursery(object)) {
+                field.putAddress(promote(object).toAddress());
             }
             staticRoots = staticRoots.add(Address.sizeOf());
         }
+    }
+
+    private static void scanRememberedSet() {
+        Address entry = rememberedSet;
+        for (int i = 0; i < rememberedSetSize; ++i) {
+            RuntimeObject object = entry.getAddress().toStructure();
+            if ((object.classReference & RuntimeObject.GC_REMEMBERED) != 0) {
+                object.classReference &= ~RuntimeObject.GC_REMEMBERED;
+                scanYoungReferences(object);
+                shade(object);
+            }
+            entry = entry.add(Address.sizeOf());
+        }
+
+        if (rememberedSetOverflow) {
+            Address limit = heapAddress().add(availableBytes());
+            Address ptr = oldGenerationStart;
+            while (ptr.isLessThan(limit)) {
+                FreeChunk chunk = ptr.toStructure();
+                if ((chunk.classReference & RuntimeObject.GC_REMEMBERED) != 0) {
+                    chunk.classReference &= ~RuntimeObject.GC_REMEMBERED;
+                    scanYoungReferences(ptr.toStructure());
+                    shade(ptr.toStructure());
+                }
+                ptr = ptr.add(objectSize(chunk));
+            }
+            hasPendingNurseryObjects = true;
+        }
+    }
+
+    // Marked object was written since it had been scanned, so it's scanned once again
+    private static void shade(RuntimeObject object) {
+        if (incrementalPhase == GC_MARKING && isMarked(object)) {
+            MarkStack.push(object);
+        }
+    }
+
+    private static void scanPromotedObjects() {
+        if (freeChunks == 0) {
+            return;
+        }
+        while (true) {
+            FreeChunk object = promotionScanPointer.toStructure();
+            if (object.classReference == 0) {
+                if (promotionScanChunk == currentChunkPointer) {
+                    break;
+                }
+                promotionScanChunk = Structure.add(FreeChunkHolder.class, promotionScanChunk, 1);
+                promotionScanPointer = promotionScanChunk.value.toAddress();
+                continue;
+            }
+            scanYoungReferences(promotionScanPointer.toStructure());
+            promotionScanPointer = promotionScanPointer.add(objectSize(object));
+        }
+    }
+
+    private static void scanPendingNurseryObjects() {
+        int pending = RuntimeObject.GC_OLD | RuntimeObject.GC_REMEMBERED;
+        Address ptr = nurseryStart;
+        while (ptr.isLessThan(nurseryEnd)) {
+            FreeChunk chunk = ptr.toStructure();
+            if ((chunk.classReference & pending) == pending) {
+                chunk.classReference &= ~RuntimeObject.GC_REMEMBERED;
+                scanYoungReferences(ptr.toStructure());
+            }
+            ptr = ptr.add(objectSize(chunk));
+        }
+    }
+
+    private static void scanYoungReferences(RuntimeObject object) {
+        RuntimeClass cls = RuntimeClass.getClass(object);
+        if (cls.itemType == null) {
+            Address layout = cls.layout;
+            if (layout != null) {
+                short fieldCount = layout.getShort();
+                while (fieldCount-- > 0) {
+                    layout = layout.add(2);
+                    int fieldOffset = layout.getShort();
+                    Address field = object.toAddress().add(fieldOffset);
+                    RuntimeObject reference = field.getAddress().toStructure();
+                    if (reference != null && isInNursery(reference)) {
+                        field.putAddress(promote(reference).toAddress());
+                    }
+                }
+            }
+        } else if ((cls.itemType.flags & RuntimeClass.PRIMITIVE) == 0) {
+            RuntimeArray array = (RuntimeArray) object;
+            Address base = Address.align(array.toAddress().add(RuntimeArray.class, 1), Address.sizeOf());
+            for (int i = 0; i < array.size; ++i) {
+                RuntimeObject reference = base.getAddress().toStructure();
+                if (reference != null && isInNursery(reference)) {
+                    base.putAddress(promote(reference).toAddress());
+                }
+                base = base.add(Address.sizeOf());
+            }
+        }
+    }
+
+    /*
+     * A copied object keeps its class reference, gets the GC_MARKED flag and stores offset of its copy
+     * in place of hash code, so that the nursery remains walkable after collection.
+     */
+    private static RuntimeObject promote(RuntimeObject object) {
+        int tag = object.classReference;
+        if ((tag & RuntimeObject.GC_OLD) != 0) {
+            return object;
+        }
+        if ((tag & RuntimeObject.GC_MARKED) != 0) {
+            return heapAddress().add(object.hashCode).toStructure();
+        }
+
+        int size = objectSize(object.toAddress().toStructure());
+        RuntimeObject copy = allocOld(size);
+        if (copy == null) {
+            object.classReference = tag | RuntimeObject.GC_OLD | RuntimeObject.GC_REMEMBERED;
+            hasPendingNurseryObjects = true;
+            return object;
+        }
+        Allocator.moveMemoryBlock(object.toAddress(), copy.toAddress(), size);
+        copy.classReference = tag | RuntimeObject.GC_OLD;
+        object.classReference = tag | RuntimeObject.GC_MARKED;
+        object.hashCode = (int) (copy.toAddress().toLong() - heapAddress().toLong());
+        if (incrementalPhase == GC_MARKING) {
+            mark(copy);
+        }
+        return copy;
+    }
+
+    private static int rebuildNursery(boolean afterMark) {
+        int liveTag = afterMark ? RuntimeObject.GC_OLD | RuntimeObject.GC_MARKED : RuntimeObject.GC_OLD;
+        int freeSize = 0;
+        FreeChunk gap = null;
+        Address ptr = nurseryStart;
+        while (ptr.isLessThan(nurseryEnd)) {
+            FreeChunk object = ptr.toStructure();
+            int tag = object.classReference;
+            int size = objectSize(object);
+            if ((tag & liveTag) == liveTag) {
+                // kept objects remain black until incremental marking finishes
+                if (incrementalPhase != GC_MARKING) {
+                    object.classReference = tag & ~RuntimeObject.GC_MARKED;
+                }
+                if (gap != null) {
+                    freeSize += closeNurseryGap(gap, ptr);
+                    gap = null;
+                }
+            } else if (gap == null) {
+                gap = object;
+            }
+            ptr = ptr.add(size);
+        }
+        if (gap != null) {
+            freeSize += closeNurseryGap(gap, nurseryEnd);
+        }
+        nurseryTop = nurseryStart;
+        nurseryLimit = nurseryStart;
+        return freeSize;
+    }
+
+    private static int closeNurseryGap(FreeChunk gap, Address end) {
+        gap.classReference = 0;
+        gap.size = (int) (end.toLong() - gap.toAddress().toLong());
+        return gap.size;
+    }
+
+    private static boolean isYoung(RuntimeObject object) {
+        return (object.classReference & RuntimeObject.GC_OLD) == 0 && isInNursery(object);
+    }
+
+    private static boolean isInNursery(RuntimeObject object) {
+        Address address = object.toAddress();
+        return !address.isLessThan(nurseryStart) && address.isLessThan(nurseryEnd);
+    }
+
+    private static void mark() {
+        clearRegions();
+        MarkStack.init(gcStorageAddress(), gcStorageSize());
+        markRoots();
+        drainMarkStack();
+        while (MarkStack.resetOverflow()) {
+            rescanMarkedObjects();
+        }
+    }
+
+    private static void clearRegions() {
+        int regionCount = (int) (availableBytes() / regionSize()) + 1;
+        if (regionCount > regionMaxCount()) {
+            regionCount = regionMaxCount();
+        }
+        Allocator.fillZero(regionsAddress().toAddress(), regionCount * Structure.sizeOf(Region.class));
+    }
+
+    private static void markRoots() {
+        Address staticRoots = Mutator.getStaticGCRoots();
+        int staticCount = staticRoots.getInt();
+        staticRoots = staticRoots.add(Address.sizeOf());
+        while (staticCount-- > 0) {
+            mark(staticRoots.getAddress().getAddress().toStructure());
+            staticRoots = staticRoots.add(Address.sizeOf());
+        }
 
         for (Address stackRoots = ShadowStack.getStackTop(); stackRoots != null;
              stackRoots = ShadowStack.getNextStackFrame(stackRoots)) {
             int count = ShadowStack.getStackRootCount(stackRoots);
             Address stackRootsPtr = ShadowStack.getStackRootPointer(stackRoots);
             while (count-- > 0) {
-                RuntimeObject obj = stackRootsPtr.getAddress().toStructure();
-                mark(obj);
+                mark(stackRootsPtr.getAddress().toStructure());
                 stackRootsPtr = stackRootsPtr.add(Address.sizeOf());
             }
         }
     }
 
     private static void mark(RuntimeObject object) {
-        if (object == null || isMarked(object)) {
+        if (object == null || isMarked(object) || (incrementalPhase == GC_MARKING && isYoung(object))) {
             return;
         }
+        object.classReference |= RuntimeObject.GC_MARKED;
+        markRegion(object.toAddress());
+        MarkStack.push(object);
+    }
 
-        MarkQueue.init();
-        MarkQueue.enqueue(object);
-        while (!MarkQueue.isEmpty()) {
-            object = MarkQueue.dequeue();
-            if (isMarked(object)) {
-                continue;
+    private static void drainMarkStack() {
+        while (!MarkStack.isEmpty()) {
+            markReferences(MarkStack.pop());
+        }
+    }
+
+    /*
+     * Layout of a class lists offsets of all its reference fields, including inherited ones,
+     * in ascending order, so fields are visited with a single sequential pass over the object.
+     */
+    private static void markReferences(RuntimeObject object) {
+        RuntimeClass cls = RuntimeClass.getClass(object);
+        if (cls.itemType == null) {
+            Address layout = cls.layout;
+            if (layout != null) {
+                short fieldCount = layout.getShort();
+                while (fieldCount-- > 0) {
+                    layout = layout.add(2);
+                    int fieldOffset = layout.getShort();
+                    mark(object.toAddress().add(fieldOffset).getAddress().toStructure());
+                }
+            }
+        } else if ((cls.itemType.flags & RuntimeClass.PRIMITIVE) == 0) {
+            RuntimeArray array = (RuntimeArray) object;
+            Address base = Address.align(array.toAddress().add(RuntimeArray.class, 1), Address.sizeOf());
+            for (int i = 0; i < array.size; ++i) {
+                mark(base.getAddress().toStructure());
+                base = base.add(Address.sizeOf());
             }
-            object.classReference |= RuntimeObject.GC_MARKED;
+        }
+    }
 
-            long offset = object.toAddress().toLong() - heapAddress().toLong();
-            Region region = Structure.add(Region.class, regionsAddress(), (int) (offset /  regionSize()));
-            short relativeOffset = (short) (offset % regionSize() + 1);
-            if (region.start == 0 || region.start > relativeOffset) {
-                region.start = relativeOffset;
+    /*
+     * Some marked objects were dropped from the overflowed mark stack before their references were
+     * visited. Visiting references of every marked object once again pushes whatever they missed.
+     * Copied nursery objects are marked as well, but they are not GC_OLD and are skipped.
+     */
+    private static void rescanMarkedObjects() {
+        int liveTag = RuntimeObject.GC_OLD | RuntimeObject.GC_MARKED;
+        Address ptr = nurseryStart;
+        while (ptr.isLessThan(nurseryEnd)) {
+            FreeChunk object = ptr.toStructure();
+            if ((object.classReference & liveTag) == liveTag) {
+                markReferences(ptr.toStructure());
+                drainMarkStack();
             }
+            ptr = ptr.add(objectSize(object));
+        }
 
-            RuntimeClass cls = RuntimeClass.getClass(object);
-            if (cls.itemType == null) {
-                while (cls != null) {
-                    Address layout = cls.layout;
-                    if (layout != null) {
-                        short fieldCount = layout.getShort();
-                        while (fieldCount-- > 0) {
-                            layout = layout.add(2);
-                            int fieldOffset = layout.getShort();
-                            RuntimeObject reference = object.toAddress().add(fieldOffset).getAddress().toStructure();
-                            if (reference != null && !isMarked(reference)) {
-                                MarkQueue.enqueue(reference);
-                            }
-                        }
-                    }
-                    cls = cls.parent;
-                }
-            } else {
-                if ((cls.itemType.flags & RuntimeClass.PRIMITIVE) == 0) {
-                    RuntimeArray array = (RuntimeArray) object;
-                    Address base = Address.align(array.toAddress().add(RuntimeArray.class, 1), Address.sizeOf());
-                    for (int i = 0; i < array.size; ++i) {
-                        RuntimeObject reference = base.getAddress().toStructure();
-                        if (reference != null && !isMarked(reference)) {
-                            MarkQueue.enqueue(reference);
-                        }
-                        base = base.add(Address.sizeOf());
-                    }
-                }
+        Address limit = heapAddress().add(availableBytes());
+        ptr = oldGenerationStart;
+        while (ptr.isLessThan(limit)) {
+            FreeChunk object = ptr.toStructure();
+            if ((object.classReference & RuntimeObject.GC_MARKED) != 0) {
+                markReferences(ptr.toStructure());
+                drainMarkStack();
             }
+            ptr = ptr.add(objectSize(object));
+        }
+    }
+
+    private static void markRegion(Address address) {
+        long offset = address.toLong() - heapAddress().toLong();
+        Region region = Structure.add(Region.class, regionsAddress(), (int) (offset /  regionSize()));
+        short relativeOffset = (short) (offset % regionSize() + 1);
+        if (region.start == 0 || region.start > relativeOffset) {
+            region.start = relativeOffset;
         }
     }
 
     private static void sweep() {
         FreeChunkHolder freeChunkPtr = gcStorageAddress().toStructure();
         freeChunks = 0;
+        int maxFreeChunks = freeChunkCapacity();
 
-        FreeChunk object = heapAddress().toStructure();
+        FreeChunk object = oldGenerationStart.toStructure();
         FreeChunk lastFreeSpace = null;
         long heapSize = availableBytes();
         long reclaimedSpace = 0;
@@ -250,9 +901,11 @@ public final class GC {
                 if (lastFreeSpace != null) {
                     lastFreeSpace.classReference = 0;
                     lastFreeSpace.size = (int) (object.toAddress().toLong() - lastFreeSpace.toAddress().toLong());
-                    freeChunkPtr.value = lastFreeSpace;
-                    freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
-                    freeChunks++;
+                    if (freeChunks < maxFreeChunks) {
+                        freeChunkPtr.value = lastFreeSpace;
+                        freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
+                        freeChunks++;
+                    }
                     reclaimedSpace += lastFreeSpace.size;
                     if (maxFreeChunk < lastFreeSpace.size) {
                         maxFreeChunk = lastFreeSpace.size;
@@ -269,65 +922,280 @@ public final class GC {
             int freeSize = (int) (object.toAddress().toLong() - lastFreeSpace.toAddress().toLong());
             lastFreeSpace.classReference = 0;
             lastFreeSpace.size = freeSize;
-            freeChunkPtr.value = lastFreeSpace;
-            freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
-            freeChunks++;
+            if (freeChunks < maxFreeChunks) {
+                freeChunkPtr.value = lastFreeSpace;
+                freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
+                freeChunks++;
+            }
             reclaimedSpace += freeSize;
             if (maxFreeChunk < freeSize) {
                 maxFreeChunk = freeSize;
             }
         }
 
+        largestFreeChunk = (int) maxFreeChunk;
+        oldGenerationFreeBytes = (int) reclaimedSpace;
+
         currentChunkPointer = gcStorageAddress().toStructure();
-        sortFreeChunks(0, freeChunks - 1);
-        currentChunk = currentChunkPointer.value;
-        currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
+        if (freeChunks > 0) {
+            sortFreeChunks(0, freeChunks - 1);
+            currentChunk = currentChunkPointer.value;
+            currentChunkLimit = currentChunk.toAddress().add(currentChunk.size);
+        }
+    }
+
+    private static boolean isFragmented(int size) {
+        int required = size + Structure.sizeOf(FreeChunk.class);
+        if (oldGenerationFreeBytes < required || oldGenerationFreeBytes < regionSize()) {
+            return false;
+        }
+        return largestFreeChunk < required || largestFreeChunk < oldGenerationFreeBytes / FRAGMENTATION_RATIO;
+    }
+
+    /*
+     * Live objects past the split point are evacuated into free chunks before it. Like promoted nursery
+     * objects, an evacuated object keeps its class reference with the GC_MARKED flag and stores offset
+     * of its copy in place of hash code until all references are fixed up. Objects referenced
+     * from the shadow stack are pinned, since the generated code keeps using the references it holds in locals.
+     */
+    private static void compact() {
+        Address heapEnd = heapAddress().add(availableBytes());
+        setStackRootsPinned(heapEnd, true);
+        Address split = collectCompactionHoles(heapEnd);
+        evacuate(split, heapEnd);
+        setStackRootsPinned(heapEnd, false);
+
+        fixStaticRoots(heapEnd);
+        int liveTag = RuntimeObject.GC_OLD | RuntimeObject.GC_MARKED;
+        Address ptr = nurseryStart;
+        while (ptr.isLessThan(nurseryEnd)) {
+            FreeChunk object = ptr.toStructure();
+            if ((object.classReference & liveTag) == liveTag) {
+                fixReferences(ptr.toStructure(), heapEnd);
+            }
+            ptr = ptr.add(objectSize(object));
+        }
+        ptr = oldGenerationStart;
+        while (ptr.isLessThan(heapEnd)) {
+            FreeChunk object = ptr.toStructure();
+            int tag = object.classReference;
+            if (tag != 0 && (tag & RuntimeObject.GC_MARKED) == 0) {
+                fixReferences(ptr.toStructure(), heapEnd);
+            }
+            ptr = ptr.add(objectSize(object));
+        }
+
+        releaseEvacuatedObjects(heapEnd);
+        sweep();
+    }
+
+    private static void setStackRootsPinned(Address heapEnd, boolean pinned) {
+        for (Address stackRoots = ShadowStack.getStackTop(); stackRoots != null;
+             stackRoots = ShadowStack.getNextStackFrame(stackRoots)) {
+            int count = ShadowStack.getStackRootCount(stackRoots);
+            Address stackRootsPtr = ShadowStack.getStackRootPointer(stackRoots);
+            while (count-- > 0) {
+                RuntimeObject obj = stackRootsPtr.getAddress().toStructure();
+                if (obj != null && isInOldGeneration(obj, heapEnd)) {
+                    if (pinned) {
+                        obj.classReference |= RuntimeObject.GC_MARKED;
+                    } else {
+                        obj.classReference &= ~RuntimeObject.GC_MARKED;
+                    }
+                }
+                stackRootsPtr = stackRootsPtr.add(Address.sizeOf());
+            }
+        }
+    }
+
+    private static Address collectCompactionHoles(Address heapEnd) {
+        long liveBytes = heapEnd.toLong() - oldGenerationStart.toLong() - oldGenerationFreeBytes;
+        long freeBytes = 0;
+        int minHoleSize = 2 * Structure.sizeOf(FreeChunk.class);
+        int maxHoleCount = gcStorageSize() / Structure.sizeOf(FreeChunkHolder.class);
+        compactionHoles = gcStorageAddress().toStructure();
+        compactionHoleCount = 0;
+        compactionFirstHole = 0;
+
+        Address ptr = oldGenerationStart;
+        while (ptr.isLessThan(heapEnd) && freeBytes < liveBytes && compactionHoleCount < maxHoleCount) {
+            FreeChunk chunk = ptr.toStructure();
+            int size = objectSize(chunk);
+            if (chunk.classReference != 0) {
+                liveBytes -= size;
+            } else if (size >= minHoleSize) {
+                Structure.add(FreeChunkHolder.class, compactionHoles, compactionHoleCount++).value = chunk;
+                freeBytes += size;
+            }
+            ptr = ptr.add(size);
+        }
+        return ptr;
+    }
+
+    private static void evacuate(Address start, Address heapEnd) {
+        Address ptr = start;
+        while (ptr.isLessThan(heapEnd) && compactionFirstHole < compactionHoleCount) {
+            RuntimeObject object = ptr.toStructure();
+            int size = objectSize(ptr.toStructure());
+            int tag = object.classReference;
+            if (tag != 0 && (tag & RuntimeObject.GC_MARKED) == 0) {
+                Address copy = allocCompactionTarget(size);
+                if (copy != null) {
+                    Allocator.moveMemoryBlock(ptr, copy, size);
+                    markRegion(copy);
+                    object.classReference = tag | RuntimeObject.GC_MARKED;
+                    object.hashCode = (int) (copy.toLong() - heapAddress().toLong());
+                }
+            }
+            ptr = ptr.add(size);
+        }
+    }
+
+    private static Address allocCompactionTarget(int size) {
+        while (compactionFirstHole < compactionHoleCount && getCompactionHole(compactionFirstHole).value == null) {
+            compactionFirstHole++;
+        }
+        int last = compactionFirstHole + COMPACTION_LOOKAHEAD;
+        if (last > compactionHoleCount) {
+            last = compactionHoleCount;
+        }
+        for (int i = compactionFirstHole; i < last; ++i) {
+            FreeChunkHolder holder = getCompactionHole(i);
+            FreeChunk hole = holder.value;
+            if (hole == null) {
+                continue;
+            }
+            int rest = hole.size - size;
+            if (rest == 0 || rest >= Structure.sizeOf(FreeChunk.class)) {
+                Address result = hole.toAddress();
+                if (rest < 2 * Structure.sizeOf(FreeChunk.class)) {
+                    holder.value = null;
+                } else {
+                    holder.value = result.add(size).toStructure();
+                }
+                if (rest > 0) {
+                    FreeChunk next = result.add(size).toStructure();
+                    next.classReference = 0;
+                    next.size = rest;
+                }
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private static FreeChunkHolder getCompactionHole(int index) {
+        return Structure.add(FreeChunkHolder.class, compactionHoles, index);
+    }
+
+    private static void fixStaticRoots(Address heapEnd) {
+        Address staticRoots = Mutator.getStaticGCRoots();
+        int staticCount = staticRoots.getInt();
+        staticRoots = staticRoots.add(Address.sizeOf());
+        while (staticCount-- > 0) {
+            Address field = staticRoots.getAddress();
+            field.putAddress(forwardedObject(field.getAddress().toStructure(), heapEnd).toAddress());
+            staticRoots = staticRoots.add(Address.sizeOf());
+        }
+    }
+
+    private static void fixReferences(RuntimeObject object, Address heapEnd) {
+        RuntimeClass cls = RuntimeClass.getClass(object);
+        if (cls.itemType == null) {
+            Address layout = cls.layout;
+            if (layout != null) {
+                short fieldCount = layout.getShort();
+                while (fieldCount-- > 0) {
+                    layout = layout.add(2);
+                    Address field = object.toAddress().add(layout.getShort());
+                    field.putAddress(forwardedObject(field.getAddress().toStructure(), heapEnd).toAddress());
+                }
+            }
+        } else if ((cls.itemType.flags & RuntimeClass.PRIMITIVE) == 0) {
+            RuntimeArray array = (RuntimeArray) object;
+            Address base = Address.align(array.toAddress().add(RuntimeArray.class, 1), Address.sizeOf());
+            for (int i = 0; i < array.size; ++i) {
+                base.putAddress(forwardedObject(base.getAddress().toStructure(), heapEnd).toAddress());
+                base = base.add(Address.sizeOf());
+            }
+        }
+    }
+
+    private static RuntimeObject forwardedObject(RuntimeObject object, Address heapEnd) {
+        if (object != null && isInOldGeneration(object, heapEnd)
+                && (object.classReference & RuntimeObject.GC_MARKED) != 0) {
+            return heapAddress().add(object.hashCode).toStructure();
+        }
+        return object;
+    }
+
+    private static boolean isInOldGeneration(RuntimeObject object, Address heapEnd) {
+        Address address = object.toAddress();
+        return !address.isLessThan(oldGenerationStart) && address.isLessThan(heapEnd);
+    }
+
+    /*
+     * Turns old copies of evacuated objects into free space and marks everything else,
+     * so that the following sweep coalesces free space and rebuilds the free chunk list.
+     */
+    private static void releaseEvacuatedObjects(Address heapEnd) {
+        Address ptr = oldGenerationStart;
+        while (ptr.isLessThan(heapEnd)) {
+            FreeChunk chunk = ptr.toStructure();
+            int size = objectSize(chunk);
+            int tag = chunk.classReference;
+            if ((tag & RuntimeObject.GC_MARKED) != 0) {
+                chunk.classReference = 0;
+                chunk.size = size;
+            } else if (tag != 0) {
+                chunk.classReference = tag | RuntimeObject.GC_MARKED;
+            }
+            ptr = ptr.add(size);
+        }
     }
 
     private static void updateFreeMemory() {
         freeMemory = 0;
+        if (freeChunks == 0) {
+            return;
+        }
+        freeMemory = currentChunk.size;
         FreeChunkHolder freeChunkPtr = currentChunkPointer;
-        for (int i = 0; i < freeChunks; ++i) {
-            freeMemory += freeChunkPtr.value.size;
+        for (int i = 1; i < freeChunks; ++i) {
             freeChunkPtr = Structure.add(FreeChunkHolder.class, freeChunkPtr, 1);
+            freeMemory += freeChunkPtr.value.size;
         }
     }
 
     private static void sortFreeChunks(int lower, int upper) {
-        int start = lower;
-        int end = upper;
-        int mid = (lower + upper) / 2;
-
-        FreeChunk midChunk = getFreeChunk(mid).value;
-        outer: while (true) {
-            while (true) {
-                if (lower == upper) {
-                    break outer;
+        while (lower < upper) {
+            int pivot = getFreeChunk((lower + upper) >>> 1).value.size;
+            int i = lower;
+            int j = upper;
+            while (i <= j) {
+                while (getFreeChunk(i).value.size > pivot) {
+                    ++i;
                 }
-                if (getFreeChunk(lower).value.size <= midChunk.size) {
-                    break;
-                }
-                ++lower;
-            }
-            while (true) {
-                if (lower == upper) {
-                    break outer;
+                while (getFreeChunk(j).value.size < pivot) {
+                    --j;
                 }
-                if (getFreeChunk(upper).value.size > midChunk.size) {
-                    break;
+                if (i <= j) {
+                    FreeChunk tmp = getFreeChunk(i).value;
+                    getFreeChunk(i).value = getFreeChunk(j).value;
+                    getFreeChunk(j).value = tmp;
+                    ++i;
+                    --j;
                 }
-                --upper;
             }
-            FreeChunk tmp = getFreeChunk(lower).value;
-            getFreeChunk(lower).value = getFreeChunk(upper).value;
-            getFreeChunk(upper).value = tmp;
-        }
 
-        if (lower - start > 0) {
-            sortFreeChunks(start, lower);
-        }
-        if (end - lower - 1 > 0) {
-            sortFreeChunks(lower + 1, end);
+            // recursion goes to the smaller part, so that stack depth stays logarithmic
+            if (j - lower < upper - i) {
+                sortFreeChunks(lower, j);
+                lower = i;
+            } else {
+                sortFreeChunks(i, upper);
+                upper = j;
+            }
         }
     }
 
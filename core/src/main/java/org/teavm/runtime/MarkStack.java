@@ -0,0 +1,61 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.runtime;
+
+import org.teavm.interop.Address;
+
+/*
+ * Objects that don't fit into GC storage are dropped and overflow flag is raised instead.
+ * Dropped objects are already marked, so GC finds them again by rescanning the heap.
+ */
+final class MarkStack {
+    private MarkStack() {
+    }
+
+    private static Address base;
+    private static int size;
+    private static int limit;
+    private static boolean overflow;
+
+    static void init(Address storage, int storageSize) {
+        base = storage;
+        size = 0;
+        limit = storageSize / Address.sizeOf();
+        overflow = false;
+    }
+
+    static void push(RuntimeObject object) {
+        if (size == limit) {
+            overflow = true;
+            return;
+        }
+        base.add(Address.sizeOf() * size++).putAddress(object.toAddress());
+    }
+
+    static RuntimeObject pop() {
+        return base.add(Address.sizeOf() * --size).getAddress().toStructure();
+    }
+
+    static boolean isEmpty() {
+        return size == 0;
+    }
+
+    static boolean resetOverflow() {
+        boolean result = overflow;
+        overflow = false;
+        return result;
+    }
+}
@@ -24,11 +24,15 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -43,6 +47,7 @@ import org.teavm.dependency.DependencyAnalyzer;
 import org.teavm.dependency.DependencyInfo;
 import org.teavm.dependency.DependencyListener;
 import org.teavm.dependency.DependencyPlugin;
+import org.teavm.dependency.DependencySnapshot;
 import org.teavm.dependency.Linker;
 import org.teavm.dependency.MethodDependency;
 import org.teavm.dependency.MethodDependencyInfo;
@@ -129,6 +134,7 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
     private final DependencyAnalyzer dependencyAnalyzer;
     private final AccumulationDiagnostics diagnostics = new AccumulationDiagnostics();
     private final ClassLoader classLoader;
+    private final int optimizationThreadCount;
     private final Map<String, TeaVMEntryPoint> entryPoints = new LinkedHashMap<>();
     private final Map<String, TeaVMEntryPoint> readonlyEntryPoints = Collections.unmodifiableMap(entryPoints);
     private final Set<String> preservedClasses = new HashSet<>();
@@ -136,9 +142,14 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
     private final Map<Class<?>, Object> services = new HashMap<>();
     private final Properties properties = new Properties();
     private ProgramCache programCache = EmptyProgramCache.INSTANCE;
+    private DependencySnapshot dependencySnapshot;
+    private boolean dependencySnapshotUsed;
     private CacheStatus rawCacheStatus = AlwaysStaleCacheStatus.INSTANCE;
     private TeaVMOptimizationLevel optimizationLevel = TeaVMOptimizationLevel.SIMPLE;
     private TeaVMProgressListener progressListener;
+    private boolean metricsEnabled;
+    private int slowestMethodCount = 10;
+    private TeaVMMetrics metrics = new TeaVMMetrics(false, 0);
     private boolean cancelled;
     private ListableClassHolderSource writtenClasses;
     private TeaVMTarget target;
@@ -157,6 +168,7 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         target = builder.target;
         classSource = builder.classSource;
         classLoader = builder.classLoader;
+        optimizationThreadCount = builder.optimizationThreadCount;
         dependencyAnalyzer = builder.dependencyAnalyzerFactory.create(this.classSource, classLoader,
                 this, diagnostics);
         progressListener = new TeaVMProgressListener() {
@@ -242,6 +254,56 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         rawCacheStatus = cacheStatus;
     }
 
+    /**
+     * Sets results of dependency analysis made by a previous build. They are only used when
+     * {@link #setCacheStatus(CacheStatus) cache status} reports none of the classes they were computed from
+     * as stale and the build has the same entry points and target, otherwise analysis runs from scratch.
+     */
+    public void setDependencySnapshot(DependencySnapshot dependencySnapshot) {
+        this.dependencySnapshot = dependencySnapshot;
+    }
+
+    /**
+     * Tells whether snapshot passed to {@link #setDependencySnapshot(DependencySnapshot)} was actually used
+     * during last build.
+     */
+    public boolean wasDependencySnapshotUsed() {
+        return dependencySnapshotUsed;
+    }
+
+    /**
+     * Captures results of dependency analysis so that they can be passed to the next incremental build.
+     * Must be called after {@link #build(BuildTarget, String)}.
+     */
+    public DependencySnapshot captureDependencySnapshot() {
+        DependencySnapshot snapshot = DependencySnapshot.capture(dependencyAnalyzer);
+        for (String root : getDependencyRoots()) {
+            snapshot.addRoot(root);
+        }
+        return snapshot;
+    }
+
+    private Set<String> getDependencyRoots() {
+        Set<String> roots = new LinkedHashSet<>();
+        roots.add("target " + target.getClass().getName());
+        roots.add("analyzer " + dependencyAnalyzer.getClass().getName());
+        for (TeaVMEntryPoint entryPoint : entryPoints.values()) {
+            roots.add("entry " + entryPoint.getPublicName() + " " + entryPoint.getMethod());
+        }
+        for (String className : preservedClasses) {
+            roots.add("preserve " + className);
+        }
+        return roots;
+    }
+
+    private boolean useDependencySnapshot() {
+        if (dependencySnapshot == null
+                || !new HashSet<>(dependencySnapshot.getRoots()).equals(getDependencyRoots())) {
+            return false;
+        }
+        return dependencyAnalyzer.setSnapshot(dependencySnapshot, rawCacheStatus);
+    }
+
     public TeaVMOptimizationLevel getOptimizationLevel() {
         return optimizationLevel;
     }
@@ -258,6 +320,29 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         this.progressListener = progressListener;
     }
 
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * <p>Enables collection of wall time and allocated memory of compiler passes. Collected metrics
+     * are reported to {@link TeaVMProgressListener#metricsCollected(List)} when build finishes.</p>
+     */
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    public int getSlowestMethodCount() {
+        return slowestMethodCount;
+    }
+
+    /**
+     * <p>Sets how many slowest methods are reported for each pass that is measured per method.</p>
+     */
+    public void setSlowestMethodCount(int slowestMethodCount) {
+        this.slowestMethodCount = slowestMethodCount;
+    }
+
     public boolean wasCancelled() {
         return cancelled;
     }
@@ -364,6 +449,17 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
      * @param outputName name of output file within buildTarget. Should not be null.
      */
     public void build(BuildTarget buildTarget, String outputName) {
+        metrics = new TeaVMMetrics(metricsEnabled, slowestMethodCount);
+        try {
+            buildImpl(buildTarget, outputName);
+        } finally {
+            if (metrics.isEnabled()) {
+                progressListener.metricsCollected(metrics.getPasses());
+            }
+        }
+    }
+
+    private void buildImpl(BuildTarget buildTarget, String outputName) {
         target.setController(targetController);
 
         // Check dependencies
@@ -378,8 +474,11 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
             cancelled |= progressListener.progressReached(progress) != TeaVMProgressFeedback.CONTINUE;
             return !cancelled;
         });
+        TeaVMMetrics.Measurement dependencyMeasurement = metrics.start("dependencyAnalysis");
+        dependencySnapshotUsed = useDependencySnapshot();
         target.contributeDependencies(dependencyAnalyzer);
         dependencyAnalyzer.processDependencies();
+        dependencyMeasurement.finish();
         if (wasCancelled() || !diagnostics.getSevereProblems().isEmpty()) {
             return;
         }
@@ -411,14 +510,20 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         }
 
         // Render
+        TeaVMMetrics.Measurement renderingMeasurement = metrics.start("rendering");
         try {
             if (!isLazy) {
                 compileProgressReportStart = 500;
                 compileProgressReportLimit = 1000;
             }
             target.emit(classSet, buildTarget, outputName);
+            renderingMeasurement.finish();
         } catch (IOException e) {
             throw new RuntimeException("Error generating output files", e);
+        } finally {
+            if (classSet instanceof PrefetchingClassHolderSource) {
+                ((PrefetchingClassHolderSource) classSet).shutdown();
+            }
         }
     }
 
@@ -467,6 +572,9 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
     }
 
     private ListableClassHolderSource lazyPipeline() {
+        if (optimizationThreadCount > 1) {
+            return new PrefetchingClassHolderSource();
+        }
         return new PostProcessingClassHolderSource();
     }
 
@@ -486,10 +594,12 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         for (String className : dependency.getReachableClasses()) {
             ClassReader clsReader = dependency.getClassSource().get(className);
             if (clsReader != null) {
+                TeaVMMetrics.Measurement measurement = metrics.start("linking");
                 ClassHolder cls = ModelUtils.copyClass(clsReader);
                 cutClasses.putClassHolder(cls);
                 missingItemsProcessor.processClass(cls);
                 linker.link(cls);
+                measurement.finish();
             }
             reportCompileProgress(++compileProgressValue);
             if (wasCancelled()) {
@@ -526,7 +636,9 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
             ClassHolder cls = classes.get(className);
             for (MethodHolder method : cls.getMethods()) {
                 if (method.getProgram() != null) {
+                    TeaVMMetrics.Measurement measurement = metrics.start("devirtualization");
                     devirtualization.apply(method);
+                    measurement.finish(method.getReference());
                 }
             }
             reportCompileProgress(++compileProgressValue);
@@ -563,10 +675,12 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
                 if (!inlining.hasUsages(methodReference)) {
                     method.setProgram(null);
                 } else {
+                    TeaVMMetrics.Measurement measurement = metrics.start("inlining");
                     Program program = method.getProgram();
                     MethodOptimizationContextImpl context = new MethodOptimizationContextImpl(method);
                     inlining.apply(program, method.getReference());
                     new UnusedVariableElimination().optimize(context, program);
+                    measurement.finish(method.getReference());
                 }
             }
 
@@ -582,6 +696,10 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
     }
 
     private void optimize(ListableClassHolderSource classSource) {
+        if (optimizationThreadCount > 1) {
+            optimizeConcurrently(classSource);
+            return;
+        }
         for (String className : classSource.getClassNames()) {
             ClassHolder cls = classSource.get(className);
             for (MethodHolder method : cls.getMethods()) {
@@ -611,40 +729,151 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         method.setProgram(optimizedProgram);
     }
 
-    private Program optimizeMethodCacheMiss(MethodHolder method, Program optimizedProgram) {
-        target.beforeOptimizations(optimizedProgram, method);
+    /*
+     * Target callbacks may accumulate state (for example, call site tables) that depends on the order
+     * in which methods are visited, so they are always invoked serially in class order. Only
+     * the optimization fixpoint and register allocation, which touch nothing but the method's own
+     * program, run on the pool. Tasks are joined in class order, so progress is reported and cancellation
+     * is checked as soon as all methods of a class are optimized.
+     */
+    private void optimizeConcurrently(ListableClassHolderSource classSource) {
+        List<PendingMethod> pendingMethods = new ArrayList<>();
+        int[] classEnds = new int[classSource.getClassNames().size()];
+        int classIndex = 0;
+        for (String className : classSource.getClassNames()) {
+            ClassHolder cls = classSource.get(className);
+            for (MethodHolder method : cls.getMethods()) {
+                if (method.getProgram() == null) {
+                    continue;
+                }
+                Program cachedProgram = !cacheStatus.isStaleMethod(method.getReference())
+                        ? programCache.get(method.getReference(), cacheStatus)
+                        : null;
+                if (cachedProgram != null) {
+                    method.setProgram(cachedProgram);
+                } else {
+                    Program program = ProgramUtils.copy(method.getProgram());
+                    target.beforeOptimizations(program, method);
+                    if (program.basicBlockCount() > 0) {
+                        pendingMethods.add(new PendingMethod(method, program));
+                    } else {
+                        storeOptimizedProgram(method, program);
+                    }
+                }
+            }
+            classEnds[classIndex++] = pendingMethods.size();
+        }
+        if (wasCancelled()) {
+            return;
+        }
 
-        if (optimizedProgram.basicBlockCount() > 0) {
-            MethodOptimizationContextImpl context = new MethodOptimizationContextImpl(method);
-            boolean changed;
-            do {
-                changed = false;
-                for (MethodOptimization optimization : getOptimizations()) {
-                    try {
-                        changed |= optimization.optimize(context, optimizedProgram);
-                    } catch (Exception | AssertionError e) {
-                        ListingBuilder listingBuilder = new ListingBuilder();
-                        String listing = listingBuilder.buildListing(optimizedProgram, "");
-                        System.err.println("Error optimizing program for method " + method.getReference()
-                                + ":\n" + listing);
-                        throw new RuntimeException(e);
+        ForkJoinPool pool = new ForkJoinPool(optimizationThreadCount);
+        try {
+            List<ForkJoinTask<?>> tasks = submitAll(pool, pendingMethods,
+                    pending -> applyOptimizations(pending.method, pending.program));
+            int taskIndex = 0;
+            for (int classEnd : classEnds) {
+                while (taskIndex < classEnd) {
+                    tasks.get(taskIndex++).join();
+                }
+                reportCompileProgress(++compileProgressValue);
+                if (wasCancelled()) {
+                    return;
+                }
+            }
+
+            for (PendingMethod pending : pendingMethods) {
+                target.afterOptimizations(pending.program, pending.method);
+            }
+            if (target.requiresRegisterAllocation()) {
+                tasks = submitAll(pool, pendingMethods,
+                        pending -> allocateRegisters(pending.method, pending.program));
+                for (ForkJoinTask<?> task : tasks) {
+                    task.join();
+                    if (wasCancelled()) {
+                        return;
                     }
                 }
-            } while (changed);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (PendingMethod pending : pendingMethods) {
+            storeOptimizedProgram(pending.method, pending.program);
+        }
+    }
+
+    private static List<ForkJoinTask<?>> submitAll(ForkJoinPool pool, List<PendingMethod> methods,
+            Consumer<PendingMethod> action) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(methods.size());
+        for (PendingMethod method : methods) {
+            tasks.add(pool.submit(() -> action.accept(method)));
+        }
+        return tasks;
+    }
+
+    private void storeOptimizedProgram(MethodHolder method, Program program) {
+        programCache.store(method.getReference(), program,
+                () -> programDependencyExtractor.extractDependencies(program));
+        method.setProgram(program);
+    }
+
+    static class PendingMethod {
+        final MethodHolder method;
+        final Program program;
 
+        PendingMethod(MethodHolder method, Program program) {
+            this.method = method;
+            this.program = program;
+        }
+    }
+
+    private Program optimizeMethodCacheMiss(MethodHolder method, Program optimizedProgram) {
+        target.beforeOptimizations(optimizedProgram, method);
+
+        if (optimizedProgram.basicBlockCount() > 0) {
+            applyOptimizations(method, optimizedProgram);
             target.afterOptimizations(optimizedProgram, method);
             if (target.requiresRegisterAllocation()) {
-                RegisterAllocator allocator = new RegisterAllocator();
-                allocator.allocateRegisters(method.getReference(), optimizedProgram,
-                        optimizationLevel == TeaVMOptimizationLevel.SIMPLE);
+                allocateRegisters(method, optimizedProgram);
             }
         }
 
         return optimizedProgram;
     }
 
+    private void applyOptimizations(MethodHolder method, Program optimizedProgram) {
+        MethodOptimizationContextImpl context = new MethodOptimizationContextImpl(method);
+        boolean changed;
+        do {
+            changed = false;
+            for (MethodOptimization optimization : getOptimizations()) {
+                try {
+                    TeaVMMetrics.Measurement measurement = metrics.start(optimization.getClass().getSimpleName());
+                    changed |= optimization.optimize(context, optimizedProgram);
+                    measurement.finish(method.getReference());
+                } catch (Exception | AssertionError e) {
+                    ListingBuilder listingBuilder = new ListingBuilder();
+                    String listing = listingBuilder.buildListing(optimizedProgram, "");
+                    System.err.println("Error optimizing program for method " + method.getReference()
+                            + ":\n" + listing);
+                    throw new RuntimeException(e);
+                }
+            }
+        } while (changed);
+    }
+
+    private void allocateRegisters(MethodHolder method, Program optimizedProgram) {
+        TeaVMMetrics.Measurement measurement = metrics.start("registerAllocation");
+        RegisterAllocator allocator = new RegisterAllocator();
+        allocator.allocateRegisters(method.getReference(), optimizedProgram,
+                optimizationLevel == TeaVMOptimizationLevel.SIMPLE);
+        measurement.finish(method.getReference());
+    }
+
     class MethodOptimizationContextImpl implements MethodOptimizationContext {
-        private MethodReader method;
+        private final MethodReader method;
 
         MethodOptimizationContextImpl(MethodReader method) {
             this.method = method;
@@ -810,6 +1039,11 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
                     + compileProgressReportStart;
             return progressListener.progressReached(progress);
         }
+
+        @Override
+        public TeaVMMetrics getMetrics() {
+            return metrics;
+        }
     };
 
     class PostProcessingClassHolderSource implements ListableClassHolderSource {
@@ -838,21 +1072,6 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
                     }
                 }
 
-                Function<MethodHolder, Program> programSupplier = method -> {
-                    Program program = !cacheStatus.isStaleMethod(method.getReference())
-                            ? programCache.get(method.getReference(), cacheStatus)
-                            : null;
-                    if (program == null) {
-                        program = ProgramUtils.copy(classReader.getMethod(method.getDescriptor()).getProgram());
-                        missingItemsProcessor.processMethod(method.getReference(), program);
-                        linker.link(method.getReference(), program);
-                        program = optimizeMethodCacheMiss(method, program);
-                        Program finalProgram = program;
-                        programCache.store(method.getReference(), finalProgram,
-                                () -> programDependencyExtractor.extractDependencies(finalProgram));
-                    }
-                    return program;
-                };
                 for (MethodHolder method : cls.getMethods().toArray(new MethodHolder[0])) {
                     MethodDependencyInfo methodDep = dependencyAnalyzer.getMethod(method.getReference());
                     if (methodDep == null) {
@@ -862,7 +1081,7 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
                     } else {
                         MethodReader methodReader = classReader.getMethod(method.getDescriptor());
                         if (methodReader != null && methodReader.getProgram() != null) {
-                            method.setProgramSupplier(programSupplier);
+                            prepareMethod(method, methodReader);
                         }
                     }
                 }
@@ -870,9 +1089,98 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
             });
         }
 
+        void prepareMethod(MethodHolder method, MethodReader methodReader) {
+            method.setProgramSupplier(m -> {
+                Program program = getCachedProgram(m);
+                if (program == null) {
+                    program = optimizeMethodCacheMiss(m, linkProgram(m, methodReader));
+                    storeProgram(m, program);
+                }
+                return program;
+            });
+        }
+
+        Program getCachedProgram(MethodHolder method) {
+            return !cacheStatus.isStaleMethod(method.getReference())
+                    ? programCache.get(method.getReference(), cacheStatus)
+                    : null;
+        }
+
+        Program linkProgram(MethodHolder method, MethodReader methodReader) {
+            return linkProgram(method, methodReader, linker, missingItemsProcessor);
+        }
+
+        Program linkProgram(MethodHolder method, MethodReader methodReader, Linker linker,
+                MissingItemsProcessor missingItemsProcessor) {
+            TeaVMMetrics.Measurement measurement = metrics.start("linking");
+            Program program = ProgramUtils.copy(methodReader.getProgram());
+            missingItemsProcessor.processMethod(method.getReference(), program);
+            linker.link(method.getReference(), program);
+            measurement.finish(method.getReference());
+            return program;
+        }
+
+        void storeProgram(MethodHolder method, Program program) {
+            programCache.store(method.getReference(), program,
+                    () -> programDependencyExtractor.extractDependencies(program));
+        }
+
         @Override
         public Set<String> getClassNames() {
             return classNames;
         }
     }
+
+    /*
+     * Runs the whole per-method pipeline on a pool. Methods of a class are submitted when the target
+     * first asks for the class, i.e. in the order the target requests them, and are linked and optimized
+     * while the target renders classes it requested earlier. Program supplier joins the task.
+     * Linking and before-optimization hooks touch shared compiler state, so they are serialized
+     * by a lock and use their own class hierarchy, and only optimization fixpoints run in parallel.
+     * After-optimization hooks and register allocation run in the supplier, on the calling thread,
+     * in the order the target requests programs.
+     */
+    class PrefetchingClassHolderSource extends PostProcessingClassHolderSource {
+        private ForkJoinPool pool = new ForkJoinPool(optimizationThreadCount);
+        private final Object linkLock = new Object();
+        private Linker concurrentLinker = new Linker(dependencyAnalyzer);
+        private MissingItemsProcessor concurrentMissingItemsProcessor = new MissingItemsProcessor(
+                dependencyAnalyzer, new ClassHierarchy(dependencyAnalyzer.getClassSource()), diagnostics);
+
+        @Override
+        void prepareMethod(MethodHolder method, MethodReader methodReader) {
+            Program cachedProgram = getCachedProgram(method);
+            if (cachedProgram != null) {
+                method.setProgramSupplier(m -> cachedProgram);
+                return;
+            }
+
+            ForkJoinTask<Program> task = pool.submit(() -> {
+                Program program;
+                synchronized (linkLock) {
+                    program = linkProgram(method, methodReader, concurrentLinker, concurrentMissingItemsProcessor);
+                    target.beforeOptimizations(program, method);
+                }
+                if (program.basicBlockCount() > 0) {
+                    applyOptimizations(method, program);
+                }
+                return program;
+            });
+            method.setProgramSupplier(m -> {
+                Program program = task.join();
+                if (program.basicBlockCount() > 0) {
+                    target.afterOptimizations(program, m);
+                    if (target.requiresRegisterAllocation()) {
+                        allocateRegisters(m, program);
+                    }
+                }
+                storeProgram(m, program);
+                return program;
+            });
+        }
+
+        void shutdown() {
+            pool.shutdownNow();
+        }
+    }
 }
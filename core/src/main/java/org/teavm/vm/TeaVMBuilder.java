@@ -26,6 +26,7 @@ public class TeaVMBuilder {
     ClassReaderSource classSource;
     ClassLoader classLoader;
     DependencyAnalyzerFactory dependencyAnalyzerFactory = PreciseDependencyAnalyzer::new;
+    int optimizationThreadCount = 1;
 
     public TeaVMBuilder(TeaVMTarget target) {
         this.target = target;
@@ -60,6 +61,24 @@ public class TeaVMBuilder {
         return this;
     }
 
+    public int getOptimizationThreadCount() {
+        return optimizationThreadCount;
+    }
+
+    /**
+     * Sets number of threads that are used to optimize methods. When greater than one, methods are
+     * optimized concurrently, still producing exactly the same output as with a single thread.
+     *
+     * @param optimizationThreadCount number of threads, must be positive.
+     */
+    public TeaVMBuilder setOptimizationThreadCount(int optimizationThreadCount) {
+        if (optimizationThreadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + optimizationThreadCount);
+        }
+        this.optimizationThreadCount = optimizationThreadCount;
+        return this;
+    }
+
     public TeaVM build() {
         return new TeaVM(this);
     }
@@ -0,0 +1,55 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import org.teavm.model.MethodReference;
+
+public class TeaVMMethodMetrics {
+    private MethodReference method;
+    private int invocationCount;
+    private long time;
+    private long allocatedBytes;
+
+    public TeaVMMethodMetrics(MethodReference method, int invocationCount, long time, long allocatedBytes) {
+        this.method = method;
+        this.invocationCount = invocationCount;
+        this.time = time;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public MethodReference getMethod() {
+        return method;
+    }
+
+    public int getInvocationCount() {
+        return invocationCount;
+    }
+
+    /**
+     * <p>Gets total wall time that the pass spent on this method, in nanoseconds.</p>
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * <p>Gets number of bytes allocated by the pass while processing this method, or <code>-1</code>
+     * if JVM does not support allocation accounting.</p>
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+}
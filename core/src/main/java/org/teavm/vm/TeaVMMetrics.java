@@ -0,0 +1,183 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>Collects wall time and allocated memory of compiler passes. Passes are measured with
+ * {@link #start(String)} and {@link Measurement#finish(MethodReference)}, which may be called
+ * from any thread. When collection is disabled, measurements do nothing.</p>
+ *
+ * <p>Allocated memory is only known on JVMs that support per-thread allocation accounting
+ * (i.e. provide <code>com.sun.management.ThreadMXBean</code>).</p>
+ */
+public class TeaVMMetrics {
+    private static final boolean allocationCountingSupported = isAllocationCountingSupported();
+    private static final Measurement DISABLED_MEASUREMENT = new Measurement(null, null);
+    private final boolean enabled;
+    private final int slowestMethodCount;
+    private final Map<String, PassData> passes = new LinkedHashMap<>();
+
+    public TeaVMMetrics(boolean enabled, int slowestMethodCount) {
+        this.enabled = enabled;
+        this.slowestMethodCount = slowestMethodCount;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Measurement start(String pass) {
+        if (!enabled) {
+            return DISABLED_MEASUREMENT;
+        }
+        PassData data;
+        synchronized (passes) {
+            data = passes.computeIfAbsent(pass, k -> new PassData());
+        }
+        return new Measurement(this, data);
+    }
+
+    public List<TeaVMPassMetrics> getPasses() {
+        List<TeaVMPassMetrics> result = new ArrayList<>();
+        synchronized (passes) {
+            for (Map.Entry<String, PassData> entry : passes.entrySet()) {
+                result.add(entry.getValue().toMetrics(entry.getKey(), slowestMethodCount));
+            }
+        }
+        return result;
+    }
+
+    private static boolean isAllocationCountingSupported() {
+        try {
+            return AllocationCounter.bean != null;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    static long currentAllocatedBytes() {
+        return allocationCountingSupported ? AllocationCounter.currentAllocatedBytes() : -1;
+    }
+
+    // Kept apart from TeaVMMetrics, so that JVMs without com.sun.management only fail to link this class
+    static final class AllocationCounter {
+        static final com.sun.management.ThreadMXBean bean = getAllocationBean();
+
+        private AllocationCounter() {
+        }
+
+        private static com.sun.management.ThreadMXBean getAllocationBean() {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+                return null;
+            }
+            com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+            return allocationBean.isThreadAllocatedMemorySupported()
+                    && allocationBean.isThreadAllocatedMemoryEnabled()
+                    ? allocationBean
+                    : null;
+        }
+
+        static long currentAllocatedBytes() {
+            return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+
+    public static final class Measurement {
+        private final TeaVMMetrics owner;
+        private final PassData pass;
+        private final long startTime;
+        private final long startAllocatedBytes;
+
+        Measurement(TeaVMMetrics owner, PassData pass) {
+            this.owner = owner;
+            this.pass = pass;
+            if (owner != null) {
+                startAllocatedBytes = currentAllocatedBytes();
+                startTime = System.nanoTime();
+            } else {
+                startAllocatedBytes = 0;
+                startTime = 0;
+            }
+        }
+
+        public void finish() {
+            finish(null);
+        }
+
+        public void finish(MethodReference method) {
+            if (owner == null) {
+                return;
+            }
+            long time = System.nanoTime() - startTime;
+            long allocatedBytes = startAllocatedBytes >= 0 ? currentAllocatedBytes() - startAllocatedBytes : -1;
+            pass.add(method, time, allocatedBytes, owner.slowestMethodCount > 0);
+        }
+    }
+
+    static class PassData {
+        int invocationCount;
+        long time;
+        long allocatedBytes;
+        Map<MethodReference, MethodData> methods = new HashMap<>();
+
+        synchronized void add(MethodReference method, long time, long allocatedBytes, boolean trackMethods) {
+            invocationCount++;
+            this.time += time;
+            if (allocatedBytes >= 0 && this.allocatedBytes >= 0) {
+                this.allocatedBytes += allocatedBytes;
+            } else {
+                this.allocatedBytes = -1;
+            }
+            if (method != null && trackMethods) {
+                MethodData methodData = methods.computeIfAbsent(method, k -> new MethodData());
+                methodData.invocationCount++;
+                methodData.time += time;
+                methodData.allocatedBytes = allocatedBytes >= 0 && methodData.allocatedBytes >= 0
+                        ? methodData.allocatedBytes + allocatedBytes
+                        : -1;
+            }
+        }
+
+        synchronized TeaVMPassMetrics toMetrics(String name, int slowestMethodCount) {
+            List<TeaVMMethodMetrics> slowestMethods = new ArrayList<>();
+            methods.entrySet().stream()
+                    .sorted(Comparator.comparingLong(
+                            (Map.Entry<MethodReference, MethodData> entry) -> entry.getValue().time).reversed())
+                    .limit(slowestMethodCount)
+                    .forEach(entry -> slowestMethods.add(new TeaVMMethodMetrics(entry.getKey(),
+                            entry.getValue().invocationCount, entry.getValue().time,
+                            entry.getValue().allocatedBytes)));
+            return new TeaVMPassMetrics(name, invocationCount, time, allocatedBytes, slowestMethods);
+        }
+    }
+
+    static class MethodData {
+        int invocationCount;
+        long time;
+        long allocatedBytes;
+    }
+}
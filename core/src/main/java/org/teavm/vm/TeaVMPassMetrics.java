@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import java.util.Collections;
+import java.util.List;
+
+public class TeaVMPassMetrics {
+    private String name;
+    private int invocationCount;
+    private long time;
+    private long allocatedBytes;
+    private List<TeaVMMethodMetrics> slowestMethods;
+
+    public TeaVMPassMetrics(String name, int invocationCount, long time, long allocatedBytes,
+            List<TeaVMMethodMetrics> slowestMethods) {
+        this.name = name;
+        this.invocationCount = invocationCount;
+        this.time = time;
+        this.allocatedBytes = allocatedBytes;
+        this.slowestMethods = Collections.unmodifiableList(slowestMethods);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getInvocationCount() {
+        return invocationCount;
+    }
+
+    /**
+     * <p>Gets total wall time of the pass in nanoseconds. When the pass runs on several threads,
+     * this is the sum of times measured on each thread.</p>
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * <p>Gets number of bytes allocated by the pass, or <code>-1</code> if JVM does not support
+     * allocation accounting.</p>
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * <p>Gets methods that took the most time in this pass, slowest first. Empty for passes
+     * that are not measured per method.</p>
+     */
+    public List<TeaVMMethodMetrics> getSlowestMethods() {
+        return slowestMethods;
+    }
+}
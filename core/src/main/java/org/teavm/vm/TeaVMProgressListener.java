@@ -15,8 +15,19 @@
  */
 package org.teavm.vm;
 
+import java.util.List;
+
 public interface TeaVMProgressListener {
     TeaVMProgressFeedback phaseStarted(TeaVMPhase phase, int count);
 
     TeaVMProgressFeedback progressReached(int progress);
+
+    /**
+     * <p>Receives metrics of compiler passes when build finishes. Only called when metrics collection
+     * was enabled with {@link TeaVM#setMetricsEnabled(boolean)}.</p>
+     *
+     * @param passes passes in order they were first started.
+     */
+    default void metricsCollected(List<TeaVMPassMetrics> passes) {
+    }
 }
@@ -51,4 +51,6 @@ public interface TeaVMTargetController {
     boolean isVirtual(MethodReference method);
 
     TeaVMProgressFeedback reportProgress(int progress);
+
+    TeaVMMetrics getMetrics();
 }
@@ -1,12 +1,4 @@
-static inline int32_t instanceof(void* obj, int32_t (*cls)(JavaClass*)) {
-    return obj != NULL && cls(CLASS_OF(obj));
-}
-
-static inline void* checkcast(void* obj, int32_t (*cls)(JavaClass*)) {
-    return obj == NULL || cls(CLASS_OF(obj)) ? obj : throwClassCastException();
-}
-
-static int32_t teavm_hashCode(JavaString* string) {
+TEAVM_LINKAGE int32_t teavm_hashCode(JavaString* string) {
     int32_t hashCode = INT32_C(0);
     int32_t length = string->characters->size;
     char16_t* chars = ARRAY_DATA(string->characters, char16_t);
@@ -16,7 +8,7 @@ static int32_t teavm_hashCode(JavaString* string) {
     return hashCode;
 }
 
-static int32_t teavm_equals(JavaString* first, JavaString* second) {
+TEAVM_LINKAGE int32_t teavm_equals(JavaString* first, JavaString* second) {
     if (first->characters->size != second->characters->size) {
         return 0;
     }
@@ -32,7 +24,7 @@ static int32_t teavm_equals(JavaString* first, JavaString* second) {
     return 1;
 }
 
-static JavaArray* teavm_resourceMapKeys(TeaVM_ResourceMap *map) {
+TEAVM_LINKAGE JavaArray* teavm_resourceMapKeys(TeaVM_ResourceMap *map) {
     int32_t size = 0;
     for (int32_t i = 0; i < map->size; ++i) {
         if (map->entries[i].key != NULL) {
@@ -84,7 +76,7 @@ static size_t teavm_mbSize(char16_t* javaChars, int32_t javaCharsCount) {
     return sz;
 }
 
-static char* teavm_stringToC(void* obj) {
+TEAVM_LINKAGE char* teavm_stringToC(void* obj) {
     if (obj == NULL) {
         return NULL;
     }
@@ -104,9 +96,3 @@ static char* teavm_stringToC(void* obj) {
     *dst = '\0';
     return result;
 }
-
-static inline void teavm_free(void* s) {
-    if (s != NULL) {
-        free(s);
-    }
-}
\ No newline at end of file
@@ -20,6 +20,18 @@
 #include <Windows.h>
 #endif
 
+#ifdef TEAVM_MULTI_FILE
+#define TEAVM_LINKAGE
+#else
+#define TEAVM_LINKAGE static
+#endif
+
+#if defined(TEAVM_MULTI_FILE) && !defined(TEAVM_DEFINE_GLOBALS)
+#define TEAVM_GLOBAL(type, name, value) extern type name
+#else
+#define TEAVM_GLOBAL(type, name, value) TEAVM_LINKAGE type name = value
+#endif
+
 struct JavaObject;
 struct JavaArray;
 struct JavaClass;
@@ -30,7 +42,7 @@ typedef struct JavaClass JavaClass;
 typedef struct JavaString JavaString;
 
 #define PACK_CLASS(cls) ((int32_t) ((uintptr_t) ((char*) (cls) - TeaVM_beforeClasses) >> 3))
-#define UNPACK_CLASS(cls) ((JavaClass*) (TeaVM_beforeClasses + ((cls) << 3)))
+#define UNPACK_CLASS(cls) ((JavaClass*) (TeaVM_beforeClasses + ((uint32_t) (cls) << 3)))
 #define CLASS_OF(obj) (UNPACK_CLASS(((JavaObject*) (obj))->header))
 #define AS(ptr, type) ((type*) (ptr))
 
@@ -60,7 +72,7 @@ static inline int32_t compare_double(double a, double b) {
 #define ARRAY_DATA(array, type) ((type*) ALIGN((((JavaArray*) (array)) + 1), sizeof(type)))
 #define ARRAY_AT(array, type, index) (((type*) ARRAY_DATA(array, type))[index])
 
-static void* throwClassCastException();
+TEAVM_LINKAGE void* throwClassCastException();
 static inline int32_t instanceof(void*, int32_t (*)(JavaClass*));
 static inline void* checkcast(void*, int32_t (*)(JavaClass*));
 
@@ -96,19 +108,21 @@ static inline void* checkcast(void*, int32_t (*)(JavaClass*));
     .hashCode = INT32_C(hash) \
 }
 
-static void** stackTop;
+TEAVM_GLOBAL(void**, stackTop, NULL);
 
-static void* gc_gcStorageAddress = NULL;
-static int32_t gc_gcStorageSize = INT32_C(0);
-static void* gc_heapAddress = NULL;
-static void* gc_regionsAddress = NULL;
-static int32_t gc_regionSize = INT32_C(32768);
-static int32_t gc_regionMaxCount = INT32_C(0);
-static int64_t gc_availableBytes = INT64_C(0);
+TEAVM_GLOBAL(void*, gc_gcStorageAddress, NULL);
+TEAVM_GLOBAL(int32_t, gc_gcStorageSize, INT32_C(0));
+TEAVM_GLOBAL(void*, gc_heapAddress, NULL);
+TEAVM_GLOBAL(void*, gc_regionsAddress, NULL);
+TEAVM_GLOBAL(int32_t, gc_regionSize, INT32_C(32768));
+TEAVM_GLOBAL(int32_t, gc_regionMaxCount, INT32_C(0));
+TEAVM_GLOBAL(int64_t, gc_availableBytes, INT64_C(0));
+TEAVM_GLOBAL(int64_t, gc_maxAvailableBytes, INT64_C(0));
+TEAVM_GLOBAL(int32_t, gc_pauseBudget, INT32_C(0));
 
-static char *TeaVM_beforeClasses;
+TEAVM_GLOBAL(char*, TeaVM_beforeClasses, NULL);
 
-static double TeaVM_rand() {
+static inline double TeaVM_rand() {
     return rand() / ((double) RAND_MAX + 1);
 }
 
@@ -131,11 +145,11 @@ typedef struct {
     TeaVM_ResourceMapEntry entries[0];
 } TeaVM_ResourceMap;
 
-static int32_t teavm_hashCode(JavaString*);
-static int32_t teavm_equals(JavaString*, JavaString*);
-static JavaArray* teavm_allocateStringArray(int32_t size);
+TEAVM_LINKAGE int32_t teavm_hashCode(JavaString*);
+TEAVM_LINKAGE int32_t teavm_equals(JavaString*, JavaString*);
+TEAVM_LINKAGE JavaArray* teavm_allocateStringArray(int32_t size);
 
-static TeaVM_ResourceMapEntry* teavm_lookupResource(TeaVM_ResourceMap *map, JavaString* string) {
+static inline TeaVM_ResourceMapEntry* teavm_lookupResource(TeaVM_ResourceMap *map, JavaString* string) {
     uint32_t hashCode = teavm_hashCode(string);
     for (int32_t i = 0; i < map->size; ++i) {
         uint32_t index = (hashCode + i) % map->size;
@@ -154,47 +168,69 @@ static inline void* teavm_lookupResourceValue(TeaVM_ResourceMap *map, JavaString
     return entry != NULL ? entry->value : NULL;
 }
 
-static JavaArray* teavm_resourceMapKeys(TeaVM_ResourceMap *);
+TEAVM_LINKAGE JavaArray* teavm_resourceMapKeys(TeaVM_ResourceMap *);
 
-static void TeaVM_beforeInit() {
+static inline void TeaVM_beforeInit() {
     srand(time(NULL));
 }
 
+static inline void checkHeapAllocation(void* address, const char* what, int64_t size) {
+    if (address == NULL) {
+        fprintf(stderr, "Could not allocate %lld bytes for %s\n", (long long) size, what);
+        abort();
+    }
+}
+
 #ifdef __GNUC__
-static void initHeap(int64_t heapSize) {
-    long workSize = heapSize / 16;
-    long regionsSize = (long) (heapSize / gc_regionSize);
+static inline int64_t alignHeapSize(int64_t size, int64_t pageSize) {
+    return (size + pageSize - 1) / pageSize * pageSize;
+}
 
-    long pageSize = sysconf(_SC_PAGE_SIZE);
-    int heapPages = (int) ((heapSize + pageSize + 1) / pageSize * pageSize);
-    int workPages = (int) ((workSize + pageSize + 1) / pageSize * pageSize);
-    int regionsPages = (int) ((regionsSize * 2 + pageSize + 1) / pageSize * pageSize);
+static inline void* mapPages(int64_t size, int protection, const char* what) {
+    void* result = mmap(NULL, size, protection, MAP_PRIVATE | MAP_ANONYMOUS | MAP_NORESERVE, -1, 0);
+    checkHeapAllocation(result != MAP_FAILED ? result : NULL, what, size);
+    return result;
+}
 
-    gc_heapAddress = mmap(
-            NULL,
-            heapPages,
-            PROT_READ | PROT_WRITE,
-            MAP_PRIVATE | MAP_ANONYMOUS,
-            0, 0);
-    gc_gcStorageAddress = mmap(
-            NULL,
-            workPages,
-            PROT_READ | PROT_WRITE,
-            MAP_PRIVATE | MAP_ANONYMOUS,
-            0, 0);
-    gc_regionsAddress = mmap(
-            NULL,
-            regionsPages,
-            PROT_READ | PROT_WRITE,
-            MAP_PRIVATE | MAP_ANONYMOUS,
-            0, 0);
+/*
+ * Address space for the maximum heap is reserved up front, so that the heap can grow in place
+ * without moving objects. Only its initial part is accessible until the GC asks for more.
+ */
+static inline void initHeap(int64_t minHeapSize, int64_t maxHeapSize) {
+    long pageSize = sysconf(_SC_PAGE_SIZE);
+    minHeapSize = alignHeapSize(minHeapSize, pageSize);
+    maxHeapSize = alignHeapSize(maxHeapSize > minHeapSize ? maxHeapSize : minHeapSize, pageSize);
+    long workSize = maxHeapSize / 16;
+    long regionsSize = (long) (maxHeapSize / gc_regionSize);
+
+    gc_heapAddress = mapPages(maxHeapSize, PROT_NONE, "heap");
+    if (mprotect(gc_heapAddress, minHeapSize, PROT_READ | PROT_WRITE) != 0) {
+        checkHeapAllocation(NULL, "initial heap", minHeapSize);
+    }
+    gc_gcStorageAddress = mapPages(alignHeapSize(workSize, pageSize), PROT_READ | PROT_WRITE, "GC storage");
+    gc_regionsAddress = mapPages(alignHeapSize(regionsSize * 2, pageSize), PROT_READ | PROT_WRITE, "GC regions");
 
     gc_gcStorageSize = (int) workSize;
     gc_regionMaxCount = regionsSize;
-    gc_availableBytes = heapSize;
+    gc_availableBytes = minHeapSize;
+    gc_maxAvailableBytes = maxHeapSize;
 }
 
-static int64_t currentTimeMillis() {
+static inline int32_t gc_resizeHeap(int64_t newSize) {
+    if (newSize > gc_maxAvailableBytes) {
+        return 0;
+    }
+    if (newSize > gc_availableBytes) {
+        if (mprotect((char*) gc_heapAddress + gc_availableBytes, newSize - gc_availableBytes,
+                PROT_READ | PROT_WRITE) != 0) {
+            return 0;
+        }
+        gc_availableBytes = newSize;
+    }
+    return 1;
+}
+
+static inline int64_t currentTimeMillis() {
     struct timespec time;
     clock_gettime(CLOCK_REALTIME, &time);
 
@@ -203,39 +239,61 @@ static int64_t currentTimeMillis() {
 #endif
 
 #ifdef _MSC_VER
-static void initHeap(int64_t heapSize) {
-    long workSize = heapSize / 16;
-    long regionsSize = (long) (heapSize / gc_regionSize);
+static inline int64_t alignHeapSize(int64_t size, int64_t pageSize) {
+    return (size + pageSize - 1) / pageSize * pageSize;
+}
 
+static inline void initHeap(int64_t minHeapSize, int64_t maxHeapSize) {
     SYSTEM_INFO systemInfo;
     GetSystemInfo(&systemInfo);
     long pageSize = systemInfo.dwPageSize;
-    int heapPages = (int) ((heapSize + pageSize + 1) / pageSize * pageSize);
-    int workPages = (int) ((workSize + pageSize + 1) / pageSize * pageSize);
-    int regionsPages = (int) ((regionsSize * 2 + pageSize + 1) / pageSize * pageSize);
+    minHeapSize = alignHeapSize(minHeapSize, pageSize);
+    maxHeapSize = alignHeapSize(maxHeapSize > minHeapSize ? maxHeapSize : minHeapSize, pageSize);
+    long workSize = maxHeapSize / 16;
+    long regionsSize = (long) (maxHeapSize / gc_regionSize);
 
     gc_heapAddress = VirtualAlloc(
             NULL,
-            heapPages,
-            MEM_RESERVE | MEM_COMMIT,
-            PAGE_READWRITE
+            maxHeapSize,
+            MEM_RESERVE,
+            PAGE_NOACCESS
     );
+    checkHeapAllocation(gc_heapAddress, "heap", maxHeapSize);
+    checkHeapAllocation(VirtualAlloc(gc_heapAddress, minHeapSize, MEM_COMMIT, PAGE_READWRITE),
+            "initial heap", minHeapSize);
     gc_gcStorageAddress = VirtualAlloc(
             NULL,
-            workPages,
+            alignHeapSize(workSize, pageSize),
             MEM_RESERVE | MEM_COMMIT,
             PAGE_READWRITE
     );
+    checkHeapAllocation(gc_gcStorageAddress, "GC storage", workSize);
     gc_regionsAddress = VirtualAlloc(
             NULL,
-            regionsPages,
+            alignHeapSize(regionsSize * 2, pageSize),
             MEM_RESERVE | MEM_COMMIT,
             PAGE_READWRITE
     );
+    checkHeapAllocation(gc_regionsAddress, "GC regions", regionsSize * 2);
 
     gc_gcStorageSize = (int) workSize;
     gc_regionMaxCount = regionsSize;
-    gc_availableBytes = heapSize;
+    gc_availableBytes = minHeapSize;
+    gc_maxAvailableBytes = maxHeapSize;
+}
+
+static inline int32_t gc_resizeHeap(int64_t newSize) {
+    if (newSize > gc_maxAvailableBytes) {
+        return 0;
+    }
+    if (newSize > gc_availableBytes) {
+        if (VirtualAlloc((char*) gc_heapAddress + gc_availableBytes, newSize - gc_availableBytes,
+                MEM_COMMIT, PAGE_READWRITE) == NULL) {
+            return 0;
+        }
+        gc_availableBytes = newSize;
+    }
+    return 1;
 }
 
 static SYSTEMTIME unixEpochStart = {
@@ -249,7 +307,7 @@ static SYSTEMTIME unixEpochStart = {
     .wMilliseconds = 0
 };
 
-static int64_t currentTimeMillis() {
+static inline int64_t currentTimeMillis() {
     SYSTEMTIME time;
     FILETIME fileTime;
     GetSystemTime(&time);
@@ -265,15 +323,20 @@ static int64_t currentTimeMillis() {
 }
 #endif
 
-static int32_t teavm_timeZoneOffset() {
+static inline int32_t teavm_timeZoneOffset() {
     time_t t = time(NULL);
     time_t local = mktime(localtime(&t));
     time_t utc = mktime(gmtime(&t));
     return difftime(utc, local) / 60;
 }
 
-static char* teavm_stringToC(void*);
-static inline void teavm_free(void*);
+TEAVM_LINKAGE char* teavm_stringToC(void*);
+
+static inline void teavm_free(void* s) {
+    if (s != NULL) {
+        free(s);
+    }
+}
 
 static inline int64_t teavm_reinterpretDoubleToLong(double v) {
     union { int64_t longValue; double doubleValue; } conv;
@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+"use strict";
+
+var $rt_chunkCallbacks = {};
+var $rt_chunkErrors = {};
+var $rt_chunkScopeObject = null;
+var $rt_chunkBaseUrl = (function() {
+    if (typeof document === "object" && document.currentScript && document.currentScript.src) {
+        var src = document.currentScript.src;
+        return src.substring(0, src.lastIndexOf("/") + 1);
+    }
+    return "";
+})();
+(typeof self !== "undefined" ? self : typeof global !== "undefined" ? global : window)[$rt_chunkRegistrar] =
+    function(name, body) {
+        if ($rt_chunks[name] !== false) {
+            return;
+        }
+        try {
+            if ($rt_chunkScopeObject === null) {
+                $rt_chunkScopeObject = $rt_chunkScope();
+            }
+            body.apply(null, $rt_chunkArguments[name]($rt_chunkScopeObject));
+            $rt_chunks[name] = true;
+        } catch (e) {
+            $rt_chunkErrors[name] = e instanceof Error ? e : new Error(String(e));
+        }
+    };
+function $rt_isChunkLoaded(name) {
+    return $rt_chunks[name] !== false;
+}
+function $rt_loadChunk(name, callback) {
+    if ($rt_isChunkLoaded(name)) {
+        callback(null);
+        return;
+    }
+    var callbacks = $rt_chunkCallbacks[name];
+    if (callbacks) {
+        callbacks.push(callback);
+        return;
+    }
+    callbacks = [callback];
+    $rt_chunkCallbacks[name] = callbacks;
+    $rt_runChunk($rt_chunkPrefix + name + ".js", function(error) {
+        if (!error && !$rt_isChunkLoaded(name)) {
+            error = $rt_chunkErrors[name] || new Error("Chunk " + name + " did not register itself");
+        }
+        delete $rt_chunkErrors[name];
+        delete $rt_chunkCallbacks[name];
+        for (var i = 0; i < callbacks.length; ++i) {
+            callbacks[i](error || null);
+        }
+    });
+}
+function $rt_runChunk(fileName, callback) {
+    var url = $rt_chunkBaseUrl + fileName;
+    if (typeof document === "object" && typeof document.createElement === "function") {
+        var script = document.createElement("script");
+        var complete = function(error) {
+            script.onload = null;
+            script.onerror = null;
+            script.parentNode.removeChild(script);
+            callback(error);
+        };
+        script.onload = function() {
+            complete(null);
+        };
+        script.onerror = function() {
+            complete(new Error("Could not load " + url));
+        };
+        script.src = url;
+        (document.head || document.documentElement).appendChild(script);
+    } else if (typeof importScripts === "function") {
+        try {
+            importScripts(url);
+        } catch (e) {
+            callback(e instanceof Error ? e : new Error("Could not load " + url));
+            return;
+        }
+        callback(null);
+    } else if (typeof require === "function") {
+        var path = require("path").join(__dirname, fileName);
+        try {
+            delete require.cache[require.resolve(path)];
+            require(path);
+        } catch (e) {
+            callback(e instanceof Error ? e : new Error("Could not load " + path));
+            return;
+        }
+        callback(null);
+    } else {
+        callback(new Error("Could not load " + fileName + ": no way to run scripts in this environment"));
+    }
+}
+function $rt_stringPoolPart(indexes, strings) {
+    if (!$rt_stringPool_source) {
+        $rt_stringPool([]);
+    }
+    for (var i = 0; i < indexes.length; ++i) {
+        $rt_stringPool_source[indexes[i]] = strings[i];
+    }
+}
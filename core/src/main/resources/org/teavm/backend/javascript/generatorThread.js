@@ -0,0 +1,164 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+"use strict";
+
+function TeaVMThread(runner) {
+    this.status = 3;
+    this.generator = null;
+    this.suspendCallback = null;
+    this.runner = runner;
+    this.attribute = null;
+    this.completeCallback = null;
+}
+TeaVMThread.prototype.isResuming = function() {
+    return this.status === 2;
+};
+TeaVMThread.prototype.isSuspending = function() {
+    return this.status === 1;
+};
+TeaVMThread.prototype.suspend = function(callback) {
+    this.suspendCallback = callback;
+    this.status = 1;
+};
+TeaVMThread.prototype.start = function(callback) {
+    if (this.status !== 3) {
+        throw new Error("Thread already started");
+    }
+    if ($rt_currentNativeThread !== null) {
+        throw new Error("Another thread is running");
+    }
+    this.status = 0;
+    this.completeCallback = callback ? callback : function(result) {
+        if (result instanceof Error) {
+            throw result;
+        }
+    };
+    this.run();
+};
+TeaVMThread.prototype.resume = function() {
+    if ($rt_currentNativeThread !== null) {
+        throw new Error("Another thread is running");
+    }
+    this.status = 2;
+    this.run();
+};
+TeaVMThread.prototype.run = function() {
+    $rt_currentNativeThread = this;
+    var result;
+    var done = true;
+    try {
+        if (this.generator === null) {
+            result = this.runner();
+            if ($rt_isGenerator(result)) {
+                this.generator = result;
+            }
+        }
+        if (this.generator !== null) {
+            var step = this.generator.next();
+            done = step.done;
+            result = step.value;
+        }
+    } catch (e) {
+        result = e;
+        done = true;
+    } finally {
+        $rt_currentNativeThread = null;
+    }
+    if (this.suspendCallback !== null) {
+        var self = this;
+        var callback = this.suspendCallback;
+        this.suspendCallback = null;
+        callback(function() {
+            self.resume();
+        });
+    } else if (done) {
+        this.completeCallback(result);
+    }
+};
+
+function $rt_isGenerator(value) {
+    return value !== null && typeof value === "object" && typeof value.next === "function"
+        && typeof value[Symbol.iterator] === "function";
+}
+function TeaVMNativeIterator(body) {
+    this.body = body;
+    this.delegate = null;
+    this.result = null;
+}
+TeaVMNativeIterator.prototype[Symbol.iterator] = function() {
+    return this;
+};
+TeaVMNativeIterator.prototype.next = function() {
+    if (this.delegate !== null) {
+        var step = this.delegate.next();
+        if (!step.done) {
+            return step;
+        }
+        this.delegate = null;
+        return { done: true, value: this.result };
+    }
+    var result = this.body();
+    if ($rt_suspending()) {
+        return { done: false, value: void 0 };
+    }
+    if (result instanceof TeaVMGeneratorDelegate) {
+        if ($rt_isGenerator(result.generator)) {
+            this.delegate = result.generator;
+            this.result = result.result;
+            return this.next();
+        }
+        result = result.result;
+    }
+    return { done: true, value: result };
+};
+function $rt_nativeGenerator(body) {
+    return new TeaVMNativeIterator(body);
+}
+function TeaVMGeneratorDelegate(generator, result) {
+    this.generator = generator;
+    this.result = result;
+}
+function $rt_delegateGenerator(generator, result) {
+    return new TeaVMGeneratorDelegate(generator, result);
+}
+function $rt_runGenerator(generator) {
+    var step = generator.next();
+    if (!step.done) {
+        throw new Error("Thread can't be suspended in synchronous method");
+    }
+    return step.value;
+}
+function $rt_suspending() {
+    var thread = $rt_currentNativeThread;
+    return thread !== null && thread.status === 1;
+}
+function $rt_resuming() {
+    var thread = $rt_currentNativeThread;
+    return thread !== null && thread.status === 2;
+}
+function $rt_suspend(callback) {
+    return $rt_nativeThread().suspend(callback);
+}
+function $rt_startThread(runner, callback) {
+    new TeaVMThread(runner).start(callback);
+}
+var $rt_currentNativeThread = null;
+function $rt_nativeThread() {
+    return $rt_currentNativeThread;
+}
+function $rt_invalidPointer() {
+    throw new Error("Invalid recorded state");
+}
@@ -42,16 +42,14 @@ function $rt_isAssignable(from, to) {
     return false;
 }
 function $rt_createArray(cls, sz) {
-    var data = new Array(sz);
-    var arr = new ($rt_arraycls(cls))(data);
-    if (sz > 0) {
-        var i = 0;
-        do {
-            data[i] = null;
-            i = (i + 1) | 0;
-        } while (i < sz);
+    return new ($rt_arraycls(cls))($rt_createFilledArray(sz, null));
+}
+function $rt_createFilledArray(sz, value) {
+    var data = [];
+    for (var i = 0; i < sz; i = (i + 1) | 0) {
+        data.push(value);
     }
-    return arr;
+    return data;
 }
 function $rt_wrapArray(cls, data) {
     return new ($rt_arraycls(cls))(data);
@@ -59,14 +57,6 @@ function $rt_wrapArray(cls, data) {
 function $rt_createUnfilledArray(cls, sz) {
     return new ($rt_arraycls(cls))(new Array(sz));
 }
-function $rt_createLongArray(sz) {
-    var data = new Array(sz);
-    var arr = new ($rt_arraycls($rt_longcls()))(data);
-    for (var i = 0; i < sz; i = (i + 1) | 0) {
-        data[i] = Long_ZERO;
-    }
-    return arr;
-}
 function $rt_createNumericArray(cls, nativeArray) {
     return new ($rt_arraycls(cls))(nativeArray);
 }
@@ -96,8 +86,8 @@ function $rt_arraycls(cls) {
     var result = cls.$array;
     if (result === null) {
         var arraycls = function(data) {
+            $rt_initObject(this);
             this.data = data;
-            this.$id$ = 0;
         };
         arraycls.prototype = new ($rt_objcls())();
         arraycls.prototype.constructor = arraycls;
@@ -456,9 +446,13 @@ function $rt_metadata(data) {
         m.supertypes = data[i++];
         if (m.superclass) {
             m.supertypes.push(m.superclass);
-            cls.prototype = Object.create(m.superclass.prototype);
+        }
+        var superPrototype = m.superclass ? m.superclass.prototype : Object.prototype;
+        if (Object.getOwnPropertyDescriptor(cls, "prototype").writable) {
+            cls.prototype = Object.create(superPrototype);
         } else {
-            cls.prototype = {};
+            // Classes declared with ES2015 syntax have read-only prototype
+            Object.setPrototypeOf(cls.prototype, superPrototype);
         }
         var flags = data[i++];
         m.enum = (flags & 8) !== 0;
@@ -494,7 +488,7 @@ function $rt_threadStarter(f) {
     return function() {
         var args = Array.prototype.slice.apply(arguments);
         $rt_startThread(function() {
-            f.apply(this, args);
+            return f.apply(this, args);
         });
     }
 }
@@ -511,7 +505,7 @@ function $rt_mainStarter(f) {
         if (typeof $rt_last_run_args == "object") {
             $rt_last_run_args = javaArgs;
         }
-        $rt_startThread(function() { f.call(null, javaArgs); }, function() {
+        $rt_startThread(function() { return f.call(null, javaArgs); }, function() {
             if (typeof $rt_last_run_args == "object") {
                 $rt_last_run_args = javaArgs;
             }
@@ -522,14 +516,18 @@ function $rt_mainStarter(f) {
     }
 }
 var $rt_stringPool_instance;
+var $rt_stringPool_source;
 function $rt_stringPool(strings) {
+    $rt_stringPool_source = strings;
     $rt_stringPool_instance = new Array(strings.length);
-    for (var i = 0; i < strings.length; ++i) {
-        $rt_stringPool_instance[i] = $rt_intern($rt_str(strings[i]));
-    }
 }
 function $rt_s(index) {
-    return $rt_stringPool_instance[index];
+    var result = $rt_stringPool_instance[index];
+    if (result === void 0) {
+        result = $rt_intern($rt_str($rt_stringPool_source[index]));
+        $rt_stringPool_instance[index] = result;
+    }
+    return result;
 }
 function $rt_eraseClinit(target) {
     return target.$clinit = function() {};
@@ -537,15 +535,6 @@ function $rt_eraseClinit(target) {
 
 var $rt_numberConversionView = new DataView(new ArrayBuffer(8));
 
-function $rt_doubleToLongBits(n) {
-    $rt_numberConversionView.setFloat64(0, n, true);
-    return new Long($rt_numberConversionView.getInt32(0, true), $rt_numberConversionView.getInt32(4, true));
-}
-function $rt_longBitsToDouble(n) {
-    $rt_numberConversionView.setInt32(0, n.lo, true);
-    $rt_numberConversionView.setInt32(4, n.hi, true);
-    return $rt_numberConversionView.getFloat64(0, true);
-}
 function $rt_floatToIntBits(n) {
     $rt_numberConversionView.setFloat32(0, n);
     return $rt_numberConversionView.getInt32(0);
@@ -605,53 +594,6 @@ function $dbg_class(obj) {
     return clsName;
 }
 
-function Long(lo, hi) {
-    this.lo = lo | 0;
-    this.hi = hi | 0;
-}
-Long.prototype.__teavm_class__ = function() {
-    return "long";
-};
-Long.prototype.toString = function() {
-    var result = [];
-    var n = this;
-    var positive = Long_isPositive(n);
-    if (!positive) {
-        n = Long_neg(n);
-    }
-    var radix = new Long(10, 0);
-    do {
-        var divRem = Long_divRem(n, radix);
-        result.push(String.fromCharCode(48 + divRem[1].lo));
-        n = divRem[0];
-    } while (n.lo !== 0 || n.hi !== 0);
-    result = result.reverse().join('');
-    return positive ? result : "-" + result;
-};
-Long.prototype.valueOf = function() {
-    return Long_toNumber(this);
-};
-var Long_ZERO = new Long(0, 0);
-var Long_MAX_NORMAL = 1 << 18;
-function Long_fromInt(val) {
-    return val >= 0 ? new Long(val, 0) : new Long(val, -1);
-}
-function Long_fromNumber(val) {
-    if (val >= 0) {
-        return new Long(val | 0, (val / 0x100000000) | 0);
-    } else {
-        return Long_neg(new Long(-val | 0, (-val / 0x100000000) | 0));
-    }
-}
-function Long_toNumber(val) {
-    var lo = val.lo;
-    var hi = val.hi;
-    if (lo < 0) {
-        lo += 0x100000000;
-    }
-    return 0x100000000 * hi + lo;
-}
-
 var $rt_imul = Math.imul || function(a, b) {
     var ah = (a >>> 16) & 0xFFFF;
     var al = a & 0xFFFF;
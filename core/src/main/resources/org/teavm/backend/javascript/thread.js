@@ -24,9 +24,7 @@ function TeaVMThread(runner) {
     this.completeCallback = null;
 }
 TeaVMThread.prototype.push = function() {
-    for (var i = 0; i < arguments.length; ++i) {
-        this.stack.push(arguments[i]);
-    }
+    Array.prototype.push.apply(this.stack, arguments);
     return this;
 };
 TeaVMThread.prototype.s = TeaVMThread.prototype.push;
@@ -89,12 +87,12 @@ TeaVMThread.prototype.run = function() {
 };
 
 function $rt_suspending() {
-    var thread = $rt_nativeThread();
-    return thread != null && thread.isSuspending();
+    var thread = $rt_currentNativeThread;
+    return thread !== null && thread.status === 1;
 }
 function $rt_resuming() {
-    var thread = $rt_nativeThread();
-    return thread != null && thread.isResuming();
+    var thread = $rt_currentNativeThread;
+    return thread !== null && thread.status === 2;
 }
 function $rt_suspend(callback) {
     return $rt_nativeThread().suspend(callback);
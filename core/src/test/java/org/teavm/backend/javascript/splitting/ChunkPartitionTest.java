@@ -0,0 +1,163 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript.splitting;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.junit.Test;
+import org.teavm.callgraph.DefaultCallGraph;
+import org.teavm.interop.SplitPoint;
+import org.teavm.model.AnnotationHolder;
+import org.teavm.model.AnnotationValue;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.MutableClassHolderSource;
+import org.teavm.model.ValueType;
+
+public class ChunkPartitionTest {
+    private static final String CLASS_NAME = "Test";
+    private ClassHolder cls = new ClassHolder(CLASS_NAME);
+    private DefaultCallGraph callGraph = new DefaultCallGraph();
+    private Set<MethodReference> methods = new LinkedHashSet<>();
+
+    @Test
+    public void sharedDependenciesStayInMain() {
+        MethodReference main = method("main");
+        MethodReference splitA = splitPoint("splitA", "a");
+        MethodReference splitB = splitPoint("splitB", "b");
+        MethodReference onlyA = method("onlyA");
+        MethodReference onlyB = method("onlyB");
+        MethodReference shared = method("shared");
+        MethodReference sharedCallee = method("sharedCallee");
+        MethodReference usedByMain = method("usedByMain");
+        call(main, splitA);
+        call(main, splitB);
+        call(main, usedByMain);
+        call(splitA, onlyA);
+        call(splitA, shared);
+        call(splitA, usedByMain);
+        call(splitB, onlyB);
+        call(onlyB, shared);
+        call(shared, sharedCallee);
+
+        ChunkPartition partition = build(main);
+
+        assertThat(partition.getChunk(onlyA), is("a"));
+        assertThat(partition.getChunk(onlyB), is("b"));
+        assertThat(partition.getChunk(shared), nullValue());
+        assertThat(partition.getChunk(sharedCallee), nullValue());
+        assertThat(partition.getChunk(usedByMain), nullValue());
+        assertThat(partition.getChunk(splitA), nullValue());
+        assertThat(partition.getChunk(splitB), nullValue());
+        assertThat(partition.getDeferredMethods(), is(new HashSet<>(Arrays.asList(onlyA, onlyB))));
+    }
+
+    @Test
+    public void nestedSplitPointGoesToOuterChunk() {
+        MethodReference main = method("main");
+        MethodReference outer = splitPoint("outer", "outer");
+        MethodReference outerWork = method("outerWork");
+        MethodReference inner = splitPoint("inner", "inner");
+        MethodReference innerWork = method("innerWork");
+        call(main, outer);
+        call(outer, outerWork);
+        call(outerWork, inner);
+        call(inner, innerWork);
+
+        ChunkPartition partition = build(main);
+
+        assertThat(partition.getChunk(outer), nullValue());
+        assertThat(partition.getChunk(outerWork), is("outer"));
+        assertThat(partition.getChunk(inner), is("outer"));
+        assertThat(partition.getChunk(innerWork), is("inner"));
+        assertThat(partition.getChunkNames(), is(new HashSet<>(Arrays.asList("inner", "outer"))));
+    }
+
+    @Test
+    public void pinnedMethodTakesItsCalleesBack() {
+        MethodReference main = method("main");
+        MethodReference split = splitPoint("split", "chunk");
+        MethodReference first = method("first");
+        MethodReference second = method("second");
+        MethodReference other = method("other");
+        call(main, split);
+        call(split, first);
+        call(split, other);
+        call(first, second);
+
+        ChunkPartition partition = build(main);
+        Set<MethodReference> pinned = partition.pin(Collections.singletonList(first));
+
+        assertThat(pinned, is(new HashSet<>(Arrays.asList(first, second))));
+        assertThat(partition.getChunk(first), nullValue());
+        assertThat(partition.getChunk(second), nullValue());
+        assertThat(partition.getChunk(other), is("chunk"));
+    }
+
+    @Test
+    public void chunkShipsOnlyStringsMissingFromMainOutput() {
+        int[] strings = ChunkPartition.getChunkStrings(new int[] { 7, 1, 4, 3, 5 }, 4);
+        assertThat(strings, is(new int[] { 4, 5, 7 }));
+    }
+
+    @Test
+    public void noChunksWithoutSplitPoints() {
+        MethodReference main = method("main");
+        MethodReference callee = method("callee");
+        call(main, callee);
+
+        ChunkPartition partition = build(main);
+
+        assertThat(partition.isEmpty(), is(true));
+        assertThat(partition.getSplitPoints().isEmpty(), is(true));
+    }
+
+    private ChunkPartition build(MethodReference entryPoint) {
+        MutableClassHolderSource classes = new MutableClassHolderSource();
+        classes.putClassHolder(cls);
+        ChunkPartition partition = new ChunkPartition(callGraph);
+        partition.build(classes, methods, Collections.singletonList(entryPoint));
+        return partition;
+    }
+
+    private MethodReference method(String name) {
+        MethodHolder method = new MethodHolder(name, ValueType.VOID);
+        cls.addMethod(method);
+        MethodReference reference = new MethodReference(CLASS_NAME, method.getDescriptor());
+        methods.add(reference);
+        callGraph.getNode(reference);
+        return reference;
+    }
+
+    private MethodReference splitPoint(String name, String chunkName) {
+        MethodReference reference = method(name);
+        AnnotationHolder annotation = new AnnotationHolder(SplitPoint.class.getName());
+        annotation.getValues().put("value", new AnnotationValue(chunkName));
+        cls.getMethod(reference.getDescriptor()).getAnnotations().add(annotation);
+        return reference;
+    }
+
+    private void call(MethodReference caller, MethodReference callee) {
+        callGraph.getNode(caller).addCallSite(callee);
+    }
+}
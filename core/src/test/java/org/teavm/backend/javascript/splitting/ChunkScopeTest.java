@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.javascript.splitting;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Test;
+import org.teavm.backend.javascript.codegen.DefaultAliasProvider;
+import org.teavm.backend.javascript.codegen.DefaultNamingStrategy;
+import org.teavm.backend.javascript.codegen.NamingStrategy;
+import org.teavm.backend.javascript.codegen.SourceWriter;
+import org.teavm.backend.javascript.codegen.SourceWriterBuilder;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldHolder;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ValueType;
+
+public class ChunkScopeTest {
+    private static final String CLASS_NAME = "org.teavm.test.A";
+    private static final MethodReference OWN_METHOD = new MethodReference(CLASS_NAME, "own", ValueType.VOID);
+    private static final MethodReference MAIN_METHOD = new MethodReference(CLASS_NAME, "main", ValueType.VOID);
+    private static final MethodReference OTHER_CHUNK_METHOD = new MethodReference(CLASS_NAME, "other",
+            ValueType.VOID);
+    private static final FieldReference FIELD = new FieldReference(CLASS_NAME, "counter");
+    private NamingStrategy naming;
+    private ChunkScope scope = new ChunkScope(new HashSet<>(Arrays.asList(OWN_METHOD, OTHER_CHUNK_METHOD)));
+    private StringBuilder code = new StringBuilder();
+    private SourceWriter writer;
+
+    public ChunkScopeTest() {
+        ClassHolder cls = new ClassHolder(CLASS_NAME);
+        FieldHolder field = new FieldHolder(FIELD.getFieldName());
+        field.getModifiers().add(ElementModifier.STATIC);
+        cls.addField(field);
+        naming = new DefaultNamingStrategy(new DefaultAliasProvider(),
+                name -> name.equals(CLASS_NAME) ? cls : null);
+        SourceWriterBuilder builder = new SourceWriterBuilder(naming);
+        builder.setMinified(true);
+        writer = builder.build(code);
+        writer.setChunkScope(scope);
+        scope.startChunk("c", Collections.singletonList(OWN_METHOD));
+    }
+
+    @Test
+    public void namesOfMainOutputBecomeParameters() throws IOException {
+        writer.appendClass(CLASS_NAME).append(";");
+        writer.appendFunction("$rt_nullCheck").append(";");
+        writer.appendMethodBody(MAIN_METHOD).append(";");
+
+        assertThat(scope.getNames("c"), is(new HashSet<>(Arrays.asList(naming.getNameFor(CLASS_NAME),
+                "$rt_nullCheck", naming.getFullNameFor(MAIN_METHOD)))));
+        assertThat(scope.getMutableNames().isEmpty(), is(true));
+    }
+
+    @Test
+    public void ownMethodsAreLocal() throws IOException {
+        writer.appendMethodBody(OWN_METHOD);
+
+        assertThat(code.toString(), is(naming.getFullNameFor(OWN_METHOD)));
+        assertThat(scope.getNames("c").isEmpty(), is(true));
+    }
+
+    @Test
+    public void mutableNamesGoThroughScopeObject() throws IOException {
+        writer.appendStaticField(FIELD).append(";");
+        writer.appendClassInit(CLASS_NAME).append(";");
+        writer.appendMethodBody(OTHER_CHUNK_METHOD).append(";");
+
+        String fieldName = naming.getFullNameFor(FIELD);
+        String clinitName = naming.getNameForClassInit(CLASS_NAME);
+        String methodName = naming.getFullNameFor(OTHER_CHUNK_METHOD);
+        assertThat(code.toString(), is("$rt_scope." + fieldName + ";$rt_scope." + clinitName + ";$rt_scope."
+                + methodName + ";"));
+        assertThat(scope.getNames("c").isEmpty(), is(true));
+        assertThat(scope.getMutableNames(), is(new HashSet<>(Arrays.asList(fieldName, clinitName, methodName))));
+    }
+
+    @Test
+    public void runtimeNamesFromGeneratorsAreRecorded() throws IOException {
+        writer.appendGlobal("$rt_ustr").append("(x)");
+
+        assertThat(scope.getNames("c"), is(Collections.singleton("$rt_ustr")));
+    }
+
+    @Test
+    public void chunkFunctionTakesNamesAndPublishesOwnMethods() throws IOException {
+        writer.appendFunction("$rt_nullCheck");
+        StringBuilder wrapper = new StringBuilder();
+        SourceWriterBuilder builder = new SourceWriterBuilder(naming);
+        builder.setMinified(true);
+        SourceWriter wrapperWriter = builder.build(wrapper);
+        String ownName = naming.getFullNameFor(OWN_METHOD);
+
+        scope.renderChunkStart(wrapperWriter, "c");
+        scope.renderChunkEnd(wrapperWriter, Collections.singletonList(ownName));
+
+        assertThat(wrapper.toString(), is("function($rt_scope,$rt_nullCheck){\"use strict\";\n"
+                + "$rt_scope." + ownName + "=" + ownName + ";}"));
+        assertThat(scope.getMutableNames(), is(Collections.singleton(ownName)));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.Test;
+import org.teavm.ast.AssignmentStatement;
+import org.teavm.ast.BinaryExpr;
+import org.teavm.ast.BinaryOperation;
+import org.teavm.ast.Expr;
+import org.teavm.ast.OperationType;
+import org.teavm.ast.QualificationExpr;
+import org.teavm.ast.RegularMethodNode;
+import org.teavm.ast.ReturnStatement;
+import org.teavm.ast.SequentialStatement;
+import org.teavm.ast.Statement;
+import org.teavm.ast.UnaryExpr;
+import org.teavm.ast.UnaryOperation;
+import org.teavm.ast.VariableExpr;
+import org.teavm.ast.VariableNode;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ValueType;
+import org.teavm.model.util.VariableType;
+
+public class AstIOTest {
+    private static final MethodReference METHOD = new MethodReference("org.teavm.test.A", "foo",
+            ValueType.LONG, ValueType.LONG);
+    private static final FieldReference STATIC_FIELD = new FieldReference("org.teavm.test.A", "staticField");
+    private static final FieldReference INSTANCE_FIELD = new FieldReference("org.teavm.test.A", "instanceField");
+    private InMemorySymbolTable symbolTable = new InMemorySymbolTable();
+    private InMemorySymbolTable fileTable = new InMemorySymbolTable();
+
+    @Test
+    public void variablesRestored() throws IOException {
+        RegularMethodNode node = createMethod(Statement.exitFunction(Expr.var(1)));
+
+        RegularMethodNode restored = writeAndRead(node);
+
+        assertThat(restored.getVariables().size(), is(2));
+        assertThat(restored.getVariables().get(0).getName(), nullValue());
+        assertThat(restored.getVariables().get(0).getType(), is(VariableType.OBJECT));
+        assertThat(restored.getVariables().get(1).getName(), is("value"));
+        assertThat(restored.getVariables().get(1).getType(), is(VariableType.LONG));
+        assertThat(restored.getBody(), instanceOf(ReturnStatement.class));
+    }
+
+    @Test
+    public void operationTypesRestored() throws IOException {
+        Expr negated = Expr.unary(UnaryOperation.NEGATE, OperationType.LONG, Expr.var(1));
+        RegularMethodNode node = createMethod(Statement.exitFunction(
+                Expr.binary(BinaryOperation.ADD, OperationType.INT, Expr.var(1), negated)));
+
+        ReturnStatement body = (ReturnStatement) writeAndRead(node).getBody();
+
+        BinaryExpr sum = (BinaryExpr) body.getResult();
+        assertThat(sum.getOperation(), is(BinaryOperation.ADD));
+        assertThat(sum.getType(), is(OperationType.INT));
+        UnaryExpr restoredNegation = (UnaryExpr) sum.getSecondOperand();
+        assertThat(restoredNegation.getOperation(), is(UnaryOperation.NEGATE));
+        assertThat(restoredNegation.getType(), is(OperationType.LONG));
+    }
+
+    @Test
+    public void fieldAccessesRestored() throws IOException {
+        SequentialStatement sequence = new SequentialStatement();
+        sequence.getSequence().add(Statement.assign(Expr.qualify(null, STATIC_FIELD),
+                Expr.qualify(Expr.var(0), INSTANCE_FIELD)));
+        sequence.getSequence().add(Statement.exitFunction(Expr.var(1)));
+        RegularMethodNode node = createMethod(sequence);
+
+        SequentialStatement body = (SequentialStatement) writeAndRead(node).getBody();
+
+        AssignmentStatement assignment = (AssignmentStatement) body.getSequence().get(0);
+        QualificationExpr staticAccess = (QualificationExpr) assignment.getLeftValue();
+        assertThat(staticAccess.getQualified(), nullValue());
+        assertThat(staticAccess.getField(), is(STATIC_FIELD));
+        QualificationExpr instanceAccess = (QualificationExpr) assignment.getRightValue();
+        assertThat(((VariableExpr) instanceAccess.getQualified()).getIndex(), is(0));
+        assertThat(instanceAccess.getField(), is(INSTANCE_FIELD));
+    }
+
+    private RegularMethodNode createMethod(Statement body) {
+        RegularMethodNode node = new RegularMethodNode(METHOD);
+        node.getVariables().add(new VariableNode(0, VariableType.OBJECT));
+        VariableNode parameter = new VariableNode(1, VariableType.LONG);
+        parameter.setName("value");
+        node.getVariables().add(parameter);
+        node.setBody(body);
+        return node;
+    }
+
+    private RegularMethodNode writeAndRead(RegularMethodNode node) throws IOException {
+        AstIO astIO = new AstIO(symbolTable, fileTable);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        astIO.write(new DataOutputStream(bytes), node);
+        return astIO.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), METHOD);
+    }
+}
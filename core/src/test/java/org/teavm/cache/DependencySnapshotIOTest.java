@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+import org.teavm.dependency.DependencySnapshot;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ValueType;
+
+public class DependencySnapshotIOTest {
+    private static final MethodReference METHOD = new MethodReference("org.teavm.test.A", "foo",
+            ValueType.object("java.lang.Object"), ValueType.INT);
+    private static final FieldReference FIELD = new FieldReference("org.teavm.test.A", "field");
+    private InMemorySymbolTable symbolTable = new InMemorySymbolTable();
+
+    @Test
+    public void snapshotRestored() throws IOException {
+        DependencySnapshot snapshot = new DependencySnapshot();
+        snapshot.addRoot("entry main org.teavm.test.A.main([Ljava/lang/String;)V");
+        snapshot.addClass("org.teavm.test.A");
+        snapshot.addClass("org.teavm.test.B");
+        snapshot.addSynthesizedClass("org.teavm.test.A$lambda$1");
+        snapshot.addMethod(METHOD, new String[][] {
+                { "org.teavm.test.A" },
+                { "org.teavm.test.B", "[Ljava/lang/String;" },
+                {}
+        });
+        snapshot.addField(FIELD, new String[] { "org.teavm.test.B" });
+
+        DependencySnapshot restored = writeAndRead(snapshot);
+
+        assertThat(restored.isReusable(), is(true));
+        assertThat(new ArrayList<>(restored.getRoots()), is(new ArrayList<>(snapshot.getRoots())));
+        assertThat(new ArrayList<>(restored.getClasses()), is(Arrays.asList("org.teavm.test.A", "org.teavm.test.B")));
+        assertThat(restored.isSynthesizedClass("org.teavm.test.A$lambda$1"), is(true));
+        assertThat(new ArrayList<>(restored.getMethods()), is(Arrays.asList(METHOD)));
+        assertArrayEquals(snapshot.getMethodTypes(METHOD), restored.getMethodTypes(METHOD));
+        assertArrayEquals(snapshot.getFieldTypes(FIELD), restored.getFieldTypes(FIELD));
+    }
+
+    @Test
+    public void nonReusableFlagRestored() throws IOException {
+        DependencySnapshot snapshot = new DependencySnapshot();
+        snapshot.setReusable(false);
+
+        assertThat(writeAndRead(snapshot).isReusable(), is(false));
+    }
+
+    @Test(expected = IOException.class)
+    public void incompatibleVersionRejected() throws IOException {
+        new DependencySnapshotIO(symbolTable).read(new ByteArrayInputStream(new byte[] { 0, 0, 0, 0 }));
+    }
+
+    private DependencySnapshot writeAndRead(DependencySnapshot snapshot) throws IOException {
+        DependencySnapshotIO io = new DependencySnapshotIO(symbolTable);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        io.write(snapshot, output);
+        return io.read(new ByteArrayInputStream(output.toByteArray()));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.teavm.model.ClassHolder;
+
+public class DiskCachedClassHolderSourceTest {
+    private static final String CLASS_NAME = "org.teavm.test.A";
+    private InMemorySymbolTable symbolTable = new InMemorySymbolTable();
+    private InMemorySymbolTable fileTable = new InMemorySymbolTable();
+    private int parsedClassCount;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void cachedClassRestored() throws IOException {
+        DiskCachedClassHolderSource source = createSource();
+        source.get(CLASS_NAME);
+        source.flush();
+
+        source = createSource();
+        assertThat(source.get(CLASS_NAME).getName(), is(CLASS_NAME));
+        assertThat(source.isStaleClass(CLASS_NAME), is(false));
+        assertThat(parsedClassCount, is(1));
+    }
+
+    @Test
+    public void fileWithoutHeaderIsCacheMiss() throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(createCacheFile()))) {
+            output.writeByte(0);
+            output.writeInt(0);
+            output.writeInt(-1);
+        }
+
+        DiskCachedClassHolderSource source = createSource();
+        assertThat(source.get(CLASS_NAME), notNullValue());
+        assertThat(source.isStaleClass(CLASS_NAME), is(true));
+    }
+
+    @Test
+    public void truncatedFileIsCacheMiss() throws IOException {
+        DiskCachedClassHolderSource source = createSource();
+        source.get(CLASS_NAME);
+        source.flush();
+        File file = createCacheFile();
+        byte[] content = Files.readAllBytes(file.toPath());
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(content, 0, 6);
+        }
+
+        source = createSource();
+        assertThat(source.get(CLASS_NAME), notNullValue());
+        assertThat(source.isStaleClass(CLASS_NAME), is(true));
+    }
+
+    private DiskCachedClassHolderSource createSource() {
+        return new DiskCachedClassHolderSource(folder.getRoot(), symbolTable, fileTable, name -> {
+            if (!name.equals(CLASS_NAME)) {
+                return null;
+            }
+            parsedClassCount++;
+            return new ClassHolder(name);
+        }, className -> new Date(0), className -> "0123456789abcdef");
+    }
+
+    private File createCacheFile() {
+        File file = new File(folder.getRoot(), CLASS_NAME.replace('.', '/') + ".teavm-cls");
+        file.getParentFile().mkdirs();
+        return file;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.teavm.ast.Expr;
+import org.teavm.ast.RegularMethodNode;
+import org.teavm.ast.ReturnStatement;
+import org.teavm.ast.Statement;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ValueType;
+
+public class DiskMethodNodeCacheTest {
+    private static final MethodReference METHOD = new MethodReference("org.teavm.test.A", "foo", ValueType.INTEGER);
+    private InMemorySymbolTable symbolTable = new InMemorySymbolTable();
+    private InMemorySymbolTable fileTable = new InMemorySymbolTable();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void regularMethodRestored() throws IOException {
+        DiskMethodNodeCache cache = createCache();
+        cache.store(METHOD, createMethod(), () -> new String[] { "org.teavm.test.A" });
+        cache.flush();
+
+        cache = createCache();
+        RegularMethodNode node = cache.get(METHOD, AlwaysFreshCacheStatus.INSTANCE);
+        assertThat(node, notNullValue());
+        assertThat(node.getBody(), instanceOf(ReturnStatement.class));
+        assertThat(createCache().getAsync(METHOD, AlwaysFreshCacheStatus.INSTANCE), nullValue());
+    }
+
+    @Test
+    public void staleDependencyInvalidatesMethod() throws IOException {
+        DiskMethodNodeCache cache = createCache();
+        cache.store(METHOD, createMethod(), () -> new String[] { "org.teavm.test.B" });
+        cache.flush();
+
+        assertThat(createCache().get(METHOD, AlwaysStaleCacheStatus.INSTANCE), nullValue());
+    }
+
+    private DiskMethodNodeCache createCache() {
+        return new DiskMethodNodeCache(folder.getRoot(), symbolTable, fileTable);
+    }
+
+    private static RegularMethodNode createMethod() {
+        RegularMethodNode node = new RegularMethodNode(METHOD);
+        node.setBody(Statement.exitFunction(Expr.constant(23)));
+        return node;
+    }
+}
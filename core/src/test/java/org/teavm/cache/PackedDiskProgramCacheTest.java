@@ -0,0 +1,167 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.cache;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+
+public class PackedDiskProgramCacheTest {
+    private static final MethodReference FOO = new MethodReference("org.teavm.test.A", "foo", ValueType.INTEGER);
+    private static final MethodReference BAR = new MethodReference("org.teavm.test.B", "bar", ValueType.INTEGER);
+    private InMemorySymbolTable symbolTable = new InMemorySymbolTable();
+    private InMemorySymbolTable fileTable = new InMemorySymbolTable();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void storedProgramsRestored() throws IOException {
+        PackedDiskProgramCache cache = createCache();
+        cache.store(FOO, createProgram(23), () -> new String[] { "org.teavm.test.A" });
+        cache.store(BAR, createProgram(42), () -> new String[] { "org.teavm.test.B" });
+        cache.flush(null);
+
+        cache = createCache();
+        assertThat(constantOf(cache.get(FOO, AlwaysFreshCacheStatus.INSTANCE)), is(23));
+        assertThat(constantOf(cache.get(BAR, AlwaysFreshCacheStatus.INSTANCE)), is(42));
+    }
+
+    @Test
+    public void staleDependencyInvalidatesProgram() throws IOException {
+        PackedDiskProgramCache cache = createCache();
+        cache.store(FOO, createProgram(23), () -> new String[] { "org.teavm.test.A", "org.teavm.test.B" });
+        cache.flush(null);
+
+        cache = createCache();
+        assertThat(cache.get(FOO, new StaleClassCacheStatus("org.teavm.test.B")), nullValue());
+        cache = createCache();
+        assertThat(cache.get(FOO, AlwaysFreshCacheStatus.INSTANCE), notNullValue());
+    }
+
+    @Test
+    public void newProgramsAppended() throws IOException {
+        PackedDiskProgramCache cache = createCache();
+        cache.store(FOO, createProgram(23), () -> new String[0]);
+        cache.flush(null);
+        long initialSize = getPackFile().length();
+
+        cache = createCache();
+        cache.get(FOO, AlwaysFreshCacheStatus.INSTANCE);
+        cache.store(BAR, createProgram(42), () -> new String[0]);
+        cache.flush(null);
+
+        assertThat(getPackFile().length() > initialSize, is(true));
+        cache = createCache();
+        assertThat(constantOf(cache.get(FOO, AlwaysFreshCacheStatus.INSTANCE)), is(23));
+        assertThat(constantOf(cache.get(BAR, AlwaysFreshCacheStatus.INSTANCE)), is(42));
+    }
+
+    @Test
+    public void packCompacted() throws IOException {
+        PackedDiskProgramCache cache = createCache();
+        cache.store(FOO, createProgram(1), () -> new String[0]);
+        cache.flush(null);
+        long initialSize = getPackFile().length();
+
+        for (int i = 2; i <= 3; ++i) {
+            cache = createCache();
+            cache.get(FOO, AlwaysFreshCacheStatus.INSTANCE);
+            cache.store(FOO, createProgram(i), () -> new String[0]);
+            cache.flush(null);
+        }
+
+        assertThat(getPackFile().length(), is(initialSize));
+        cache = createCache();
+        assertThat(constantOf(cache.get(FOO, AlwaysFreshCacheStatus.INSTANCE)), is(3));
+    }
+
+    @Test
+    public void unrequestedProgramsReclaimed() throws IOException {
+        PackedDiskProgramCache cache = createCache();
+        cache.store(FOO, createProgram(1), () -> new String[0]);
+        cache.flush(null);
+        long initialSize = getPackFile().length();
+        cache = createCache();
+        cache.get(FOO, AlwaysFreshCacheStatus.INSTANCE);
+        cache.store(BAR, createProgram(2), () -> new String[0]);
+        cache.flush(null);
+
+        cache = createCache();
+        cache.get(FOO, AlwaysFreshCacheStatus.INSTANCE);
+        cache.store(FOO, createProgram(3), () -> new String[0]);
+        cache.flush(null);
+
+        assertThat(getPackFile().length(), is(initialSize));
+        cache = createCache();
+        assertThat(constantOf(cache.get(FOO, AlwaysFreshCacheStatus.INSTANCE)), is(3));
+        assertThat(cache.get(BAR, AlwaysFreshCacheStatus.INSTANCE), nullValue());
+    }
+
+    private PackedDiskProgramCache createCache() {
+        return new PackedDiskProgramCache(folder.getRoot(), symbolTable, fileTable);
+    }
+
+    private File getPackFile() {
+        return new File(folder.getRoot(), "programs.teavm-pack");
+    }
+
+    private static Program createProgram(int constant) {
+        Program program = new Program();
+        BasicBlock block = program.createBasicBlock();
+        IntegerConstantInstruction insn = new IntegerConstantInstruction();
+        insn.setReceiver(program.createVariable());
+        insn.setConstant(constant);
+        block.add(insn);
+        return program;
+    }
+
+    private static int constantOf(Program program) {
+        assertThat(program, notNullValue());
+        assertThat(program.basicBlockAt(0).getFirstInstruction(), instanceOf(IntegerConstantInstruction.class));
+        return ((IntegerConstantInstruction) program.basicBlockAt(0).getFirstInstruction()).getConstant();
+    }
+
+    private static class StaleClassCacheStatus implements CacheStatus {
+        private String staleClass;
+
+        StaleClassCacheStatus(String staleClass) {
+            this.staleClass = staleClass;
+        }
+
+        @Override
+        public boolean isStaleClass(String className) {
+            return className.equals(staleClass);
+        }
+
+        @Override
+        public boolean isStaleMethod(MethodReference method) {
+            return isStaleClass(method.getClassName());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.interop;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Marks a method as an entry of a separately loaded part of the program. When targeting JavaScript,
+ * code that is only reachable through split points is emitted to separate files, which are downloaded
+ * the first time a split point is called. Split points that share a name share one file.</p>
+ *
+ * <p>Calling a split point may suspend the current thread, so split points and all their callers
+ * are treated like methods marked with {@link Async}.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.CONSTRUCTOR, ElementType.METHOD })
+public @interface SplitPoint {
+    /**
+     * Name of the part. When omitted, it is derived from the name of the class and the method.
+     */
+    String value() default "";
+}
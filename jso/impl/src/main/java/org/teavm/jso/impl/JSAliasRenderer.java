@@ -37,11 +37,13 @@ class JSAliasRenderer implements RendererListener, VirtualMethodContributor {
     private static String variableChars = "abcdefghijklmnopqrstuvwxyz";
     private SourceWriter writer;
     private ListableClassReaderSource classSource;
+    private boolean es2015;
 
     @Override
     public void begin(RenderingManager context, BuildTarget buildTarget) {
         writer = context.getWriter();
         classSource = context.getClassSource();
+        es2015 = context.isEs2015();
     }
 
     @Override
@@ -142,15 +144,23 @@ class JSAliasRenderer implements RendererListener, VirtualMethodContributor {
                 .indent().softNewLine();
         writer.append("if").ws().append("(!this.").appendField(functorField).append(")").ws().append("{")
                 .indent().softNewLine();
-        writer.append("var self").ws().append('=').ws().append("this;").softNewLine();
-
-        writer.append("this.").appendField(functorField).ws().append('=').ws().append("function(");
-        appendArguments(functorMethod.parameterCount());
-        writer.append(")").ws().append('{').indent().softNewLine();
-        writer.append("return self.").appendMethod(functorMethod).append('(');
-        appendArguments(functorMethod.parameterCount());
-        writer.append(");").softNewLine();
-        writer.outdent().append("};").softNewLine();
+        if (es2015) {
+            writer.append("this.").appendField(functorField).ws().append('=').ws().append("(");
+            appendArguments(functorMethod.parameterCount());
+            writer.append(")").ws().append("=>").ws().append("this.").appendMethod(functorMethod).append('(');
+            appendArguments(functorMethod.parameterCount());
+            writer.append(");").softNewLine();
+        } else {
+            writer.append("var self").ws().append('=').ws().append("this;").softNewLine();
+
+            writer.append("this.").appendField(functorField).ws().append('=').ws().append("function(");
+            appendArguments(functorMethod.parameterCount());
+            writer.append(")").ws().append('{').indent().softNewLine();
+            writer.append("return self.").appendMethod(functorMethod).append('(');
+            appendArguments(functorMethod.parameterCount());
+            writer.append(");").softNewLine();
+            writer.outdent().append("};").softNewLine();
+        }
 
         writer.outdent().append("}").softNewLine();
         writer.append("return this.").appendField(functorField).append(';').softNewLine();
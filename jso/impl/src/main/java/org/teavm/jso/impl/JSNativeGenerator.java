@@ -63,6 +63,16 @@ public class JSNativeGenerator implements Injector, DependencyPlugin, Generator
         writer.append("if").ws().append("(!").append(thisName).append("[name])").ws().append('{')
                 .indent().softNewLine();
 
+        if (context.isEs2015()) {
+            writer.append("const fn").ws().append('=').ws().append("(...args)").ws().append("=>").ws()
+                    .append(thisName).append('[').append(methodName).append("](...args);").softNewLine();
+            writer.append(thisName).append("[name]").ws().append('=').ws().append("()").ws().append("=>").ws()
+                    .append("fn;").softNewLine();
+            writer.outdent().append('}').softNewLine();
+            writer.append("return ").append(thisName).append("[name]();").softNewLine();
+            return;
+        }
+
         writer.append("var fn").ws().append('=').ws().append("function()").ws().append('{')
                 .indent().softNewLine();
         writer.append("return ").append(thisName).append('[').append(methodName).append(']')
@@ -147,7 +157,7 @@ public class JSNativeGenerator implements Injector, DependencyPlugin, Generator
                             break;
                         }
                     }
-                    writer.append("$rt_ustr(");
+                    writer.appendGlobal("$rt_ustr").append("(");
                     context.writeExpr(context.getArgument(0), Precedence.min());
                     writer.append(")");
                 } else if (methodRef.getDescriptor().parameterType(0) == ValueType.BOOLEAN) {
@@ -164,7 +174,7 @@ public class JSNativeGenerator implements Injector, DependencyPlugin, Generator
                 }
                 break;
             case "unwrapString":
-                writer.append("$rt_str(");
+                writer.appendGlobal("$rt_str").append("(");
                 context.writeExpr(context.getArgument(0), Precedence.min());
                 writer.append(")");
                 break;
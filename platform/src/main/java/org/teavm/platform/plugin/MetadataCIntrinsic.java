@@ -40,15 +40,17 @@ public class MetadataCIntrinsic implements Intrinsic {
     private Set<MethodReference> writtenInitializers = new HashSet<>();
     private CodeWriter structuresWriter;
     private CodeWriter staticFieldInitWriter;
+    private CodeWriter staticFieldDeclarationWriter;
     private DefaultMetadataGeneratorContext metadataContext;
 
     public MetadataCIntrinsic(ClassReaderSource classSource, ClassLoader classLoader,
             ServiceRepository services, Properties properties, CodeWriter structuresWriter,
-            CodeWriter staticFieldInitWriter) {
+            CodeWriter staticFieldInitWriter, CodeWriter staticFieldDeclarationWriter) {
         this.classSource = classSource;
         this.classLoader = classLoader;
         this.structuresWriter = structuresWriter;
         this.staticFieldInitWriter = staticFieldInitWriter;
+        this.staticFieldDeclarationWriter = staticFieldDeclarationWriter;
         metadataContext = new DefaultMetadataGeneratorContext(classSource, classLoader, properties, services);
     }
 
@@ -79,8 +81,13 @@ public class MetadataCIntrinsic implements Intrinsic {
                 new CallLocation(invocation.getMethod()), context.getDiagnotics());
 
         String variableName = context.names().forMethod(methodReference);
-        staticFieldInitWriter.print("static ").printType(method.getResultType()).print(" ")
-                .print(variableName).print(" = ");
+        if (staticFieldDeclarationWriter != null) {
+            staticFieldDeclarationWriter.print("extern ").printType(method.getResultType()).print(" ")
+                    .print(variableName).println(";");
+        } else {
+            staticFieldInitWriter.print("static ");
+        }
+        staticFieldInitWriter.printType(method.getResultType()).print(" ").print(variableName).print(" = ");
         if (generator == null) {
             staticFieldInitWriter.print("NULL");
         } else {
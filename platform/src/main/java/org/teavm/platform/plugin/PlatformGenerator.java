@@ -83,7 +83,7 @@ public class PlatformGenerator implements Generator, Injector, DependencyPlugin
     public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef) throws IOException {
         switch (methodRef.getName()) {
             case "newInstanceImpl":
-                generateNewInstance(context, writer);
+                generateNewInstance(context, writer, methodRef);
                 break;
             case "prepareNewInstance":
                 generatePrepareNewInstance(context, writer);
@@ -128,14 +128,22 @@ public class PlatformGenerator implements Generator, Injector, DependencyPlugin
         }
     }
 
-    private void generateNewInstance(GeneratorContext context, SourceWriter writer) throws IOException {
+    private void generateNewInstance(GeneratorContext context, SourceWriter writer, MethodReference methodRef)
+            throws IOException {
         String cls = context.getParameterName(1);
 
-        writer.append("if").ws().append("($rt_resuming())").ws().append("{").indent().softNewLine();
-        writer.append("var $r = $rt_nativeThread().pop();").softNewLine();
+        if (context.isAsyncGenerators() && context.isAsyncFamily(methodRef)) {
+            generateNewInstanceWithGenerators(cls, writer);
+            return;
+        }
+
+        writer.append("if").ws().append("(").appendGlobal("$rt_resuming").append("())").ws().append("{").indent()
+                .softNewLine();
+        writer.append("var $r = ").appendGlobal("$rt_nativeThread").append("().pop();").softNewLine();
         writer.append(cls + ".$$constructor$$($r);").softNewLine();
-        writer.append("if").ws().append("($rt_suspending())").ws().append("{").indent().softNewLine();
-        writer.append("return $rt_nativeThread().push($r);").softNewLine();
+        writer.append("if").ws().append("(").appendGlobal("$rt_suspending").append("())").ws().append("{").indent()
+                .softNewLine();
+        writer.append("return ").appendGlobal("$rt_nativeThread").append("().push($r);").softNewLine();
         writer.outdent().append("}").softNewLine();
         writer.append("return $r;").softNewLine();
         writer.outdent().append("}").softNewLine();
@@ -147,15 +155,27 @@ public class PlatformGenerator implements Generator, Injector, DependencyPlugin
 
         writer.append("var $r").ws().append('=').ws().append("new ").append(cls).append("();").softNewLine();
         writer.append(cls).append(".$$constructor$$($r);").softNewLine();
-        writer.append("if").ws().append("($rt_suspending())").ws().append("{").indent().softNewLine();
-        writer.append("return $rt_nativeThread().push($r);").softNewLine();
+        writer.append("if").ws().append("(").appendGlobal("$rt_suspending").append("())").ws().append("{").indent()
+                .softNewLine();
+        writer.append("return ").appendGlobal("$rt_nativeThread").append("().push($r);").softNewLine();
         writer.outdent().append("}").softNewLine();
         writer.append("return $r;").softNewLine();
     }
 
+    private void generateNewInstanceWithGenerators(String cls, SourceWriter writer) throws IOException {
+        writer.append("if").ws().append("(!").append(cls).append(".hasOwnProperty('$$constructor$$'))")
+                .ws().append("{").indent().softNewLine();
+        writer.append("return null;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+
+        writer.append("var $r").ws().append('=').ws().append("new ").append(cls).append("();").softNewLine();
+        writer.append("return ").appendGlobal("$rt_delegateGenerator").append("(").append(cls)
+                .append(".$$constructor$$($r),").ws().append("$r);").softNewLine();
+    }
+
     private void generateLookup(GeneratorContext context, SourceWriter writer) throws IOException {
         String param = context.getParameterName(1);
-        writer.append("switch ($rt_ustr(" + param + ")) {").softNewLine().indent();
+        writer.append("switch (").appendGlobal("$rt_ustr").append("(" + param + ")) {").softNewLine().indent();
         for (String name : context.getClassSource().getClassNames()) {
             writer.append("case \"" + name + "\": ").appendClass(name).append(".$clinit(); ")
                     .append("return ").appendClass(name).append(";").softNewLine();
@@ -184,7 +204,7 @@ public class PlatformGenerator implements Generator, Injector, DependencyPlugin
         if (timeout) {
             writer.appendMethodBody(launchRef);
         } else {
-            writer.append("$rt_threadStarter(").appendMethodBody(launchRef).append(")");
+            writer.appendGlobal("$rt_threadStarter").append("(").appendMethodBody(launchRef).append(")");
         }
         writer.append("(").append(runnable).append(");").softNewLine();
         writer.outdent().append("},").ws().append(timeout ? context.getParameterName(2) : "0")
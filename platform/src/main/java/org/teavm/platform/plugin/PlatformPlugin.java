@@ -92,7 +92,7 @@ public class PlatformPlugin implements TeaVMPlugin, MetadataRegistration {
             if (cHost != null) {
                 cHost.addIntrinsic(ctx -> new MetadataCIntrinsic(ctx.getClassSource(), ctx.getClassLoader(),
                         ctx.getServices(), ctx.getProperties(), ctx.getStructureCodeWriter(),
-                        ctx.getStaticFieldsInitWriter()));
+                        ctx.getStaticFieldsInitWriter(), ctx.getStaticFieldsDeclarationWriter()));
                 cHost.addIntrinsic(ctx -> new ResourceReadCIntrinsic(ctx.getClassSource()));
                 cHost.addIntrinsic(ctx -> new Intrinsic() {
                     @Override
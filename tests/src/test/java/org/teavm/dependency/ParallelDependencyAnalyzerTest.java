@@ -0,0 +1,156 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.dependency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntUnaryOperator;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.teavm.backend.javascript.JavaScriptTarget;
+import org.teavm.model.ClassHolderSource;
+import org.teavm.model.MethodReference;
+import org.teavm.parsing.ClasspathClassHolderSource;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMBuilder;
+import org.teavm.vm.TeaVMPhase;
+import org.teavm.vm.TeaVMProgressFeedback;
+import org.teavm.vm.TeaVMProgressListener;
+
+public class ParallelDependencyAnalyzerTest {
+    private static ClassHolderSource classSource;
+
+    @BeforeClass
+    public static void prepare() {
+        classSource = new ClasspathClassHolderSource(ParallelDependencyAnalyzerTest.class.getClassLoader());
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        classSource = null;
+    }
+
+    @Test
+    public void reachesSameItemsAsPreciseAnalyzer() {
+        DependencyInfo expected = analyze(PreciseDependencyAnalyzer::new);
+        DependencyInfo actual = analyze(ParallelDependencyAnalyzer.factory(4));
+
+        assertTrue(expected.getReachableMethods().contains(new MethodReference(SampleProgram.class,
+                "main", String[].class, void.class)));
+        assertEquals(new HashSet<>(expected.getReachableClasses()), new HashSet<>(actual.getReachableClasses()));
+        assertEquals(new HashSet<>(expected.getReachableFields()), new HashSet<>(actual.getReachableFields()));
+        assertEquals(new HashSet<>(expected.getReachableMethods()), new HashSet<>(actual.getReachableMethods()));
+        assertEquals(describeMethods(expected), describeMethods(actual));
+    }
+
+    private DependencyInfo analyze(DependencyAnalyzerFactory factory) {
+        TeaVM vm = new TeaVMBuilder(new JavaScriptTarget())
+                .setClassLoader(ParallelDependencyAnalyzerTest.class.getClassLoader())
+                .setClassSource(classSource)
+                .setDependencyAnalyzerFactory(factory)
+                .build();
+        vm.setProgressListener(new TeaVMProgressListener() {
+            @Override
+            public TeaVMProgressFeedback phaseStarted(TeaVMPhase phase, int count) {
+                return phase == TeaVMPhase.DEPENDENCY_ANALYSIS
+                        ? TeaVMProgressFeedback.CONTINUE
+                        : TeaVMProgressFeedback.CANCEL;
+            }
+
+            @Override
+            public TeaVMProgressFeedback progressReached(int progress) {
+                return TeaVMProgressFeedback.CONTINUE;
+            }
+        });
+        vm.installPlugins();
+        vm.entryPoint(SampleProgram.class.getName());
+        vm.build(fileName -> new ByteArrayOutputStream(), "out");
+        assertEquals(0, vm.getProblemProvider().getSevereProblems().size());
+        return vm.getDependencyInfo();
+    }
+
+    private static Map<String, String> describeMethods(DependencyInfo dependencyInfo) {
+        Map<String, String> result = new TreeMap<>();
+        for (MethodReference method : dependencyInfo.getReachableMethods()) {
+            MethodDependencyInfo methodDep = dependencyInfo.getMethod(method);
+            StringBuilder sb = new StringBuilder();
+            sb.append(methodDep.isUsed());
+            if (methodDep.getResult() != null) {
+                String[] types = methodDep.getResult().getTypes();
+                Arrays.sort(types);
+                sb.append(' ').append(Arrays.toString(types));
+            }
+            result.put(method.toString(), sb.toString());
+        }
+        return result;
+    }
+
+    public static class SampleProgram {
+        public static void main(String[] args) {
+            List<Shape> shapes = new ArrayList<>();
+            shapes.add(new Square(args.length));
+            shapes.add(new Circle(args.length + 1));
+            IntUnaryOperator twice = x -> x * 2;
+            double area = 0;
+            for (Shape shape : shapes) {
+                area += shape.area() * twice.applyAsInt(args.length);
+            }
+            try {
+                System.out.println(Integer.parseInt(args[0]) + area);
+            } catch (NumberFormatException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    interface Shape {
+        double area();
+    }
+
+    static class Square implements Shape {
+        private final int side;
+
+        Square(int side) {
+            this.side = side;
+        }
+
+        @Override
+        public double area() {
+            return side * side;
+        }
+    }
+
+    static class Circle implements Shape {
+        private final int radius;
+
+        Circle(int radius) {
+            this.radius = radius;
+        }
+
+        @Override
+        public double area() {
+            return Math.PI * radius * radius;
+        }
+    }
+}
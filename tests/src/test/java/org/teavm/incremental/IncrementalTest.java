@@ -16,6 +16,8 @@
 package org.teavm.incremental;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
@@ -49,6 +51,8 @@ import org.teavm.cache.CacheStatus;
 import org.teavm.cache.InMemoryMethodNodeCache;
 import org.teavm.cache.InMemoryProgramCache;
 import org.teavm.callgraph.CallGraph;
+import org.teavm.dependency.DependencyInfo;
+import org.teavm.dependency.DependencySnapshot;
 import org.teavm.dependency.FastDependencyAnalyzer;
 import org.teavm.diagnostics.DefaultProblemTextConsumer;
 import org.teavm.diagnostics.Problem;
@@ -57,6 +61,7 @@ import org.teavm.model.ClassHolderSource;
 import org.teavm.model.ClassReader;
 import org.teavm.model.MethodReference;
 import org.teavm.model.Program;
+import org.teavm.model.ValueType;
 import org.teavm.model.util.ModelUtils;
 import org.teavm.parsing.ClasspathClassHolderSource;
 import org.teavm.tooling.TeaVMProblemRenderer;
@@ -76,6 +81,9 @@ public class IncrementalTest {
     private String[] updatedMethods;
     private String oldResult;
     private String newResult;
+    private DependencyInfo oldDependencies;
+    private DependencyInfo newDependencies;
+    private boolean newSnapshotUsed;
 
     @Rule
     public TestName name = new TestName();
@@ -129,6 +137,38 @@ public class IncrementalTest {
         assertEquals("meta: ok", newResult);
     }
 
+    @Test
+    public void methodNoLongerCalled() {
+        run();
+        checkUpdatedMethods("Foo.get");
+        assertEquals("old", oldResult);
+        assertEquals("new", newResult);
+        MethodReference barGet = new MethodReference("org.teavm.incremental.data.methodnolongercalled.Bar",
+                "get", ValueType.object("java.lang.String"));
+        assertTrue(oldDependencies.getReachableMethods().contains(barGet));
+        assertFalse("Method of unchanged class must become unreachable",
+                newDependencies.getReachableMethods().contains(barGet));
+        assertFalse("Snapshot covering stale class must be rejected", newSnapshotUsed);
+    }
+
+    @Test
+    public void dependencySnapshotReusedWhenNothingChanged() {
+        Builder builder = new Builder("org.teavm.incremental.data.lambdaunchanged.Main");
+        DependencyInfo firstDependencies = builder.build(oldClassSource, AlwaysStaleCacheStatus.INSTANCE, OLD_FILE);
+        assertFalse(builder.snapshotUsed);
+        DependencyInfo secondDependencies = builder.build(oldClassSource, NeverStaleCacheStatus.INSTANCE,
+                REFRESHED_FILE);
+
+        assertTrue("Snapshot must be used when no class changed", builder.snapshotUsed);
+        assertEquals(new HashSet<>(firstDependencies.getReachableMethods()),
+                new HashSet<>(secondDependencies.getReachableMethods()));
+        assertEquals(new HashSet<>(firstDependencies.getReachableClasses()),
+                new HashSet<>(secondDependencies.getReachableClasses()));
+        assertEquals("Script must be the same after seeding", builder.buildTarget.get(OLD_FILE),
+                builder.buildTarget.get(REFRESHED_FILE));
+        assertEquals("Foo: main", runScript(builder.buildTarget.get(REFRESHED_FILE), REFRESHED_FILE));
+    }
+
     private void checkUpdatedMethods(String... methods) {
         assertEquals("Unexpected set of updated methods", new HashSet<>(Arrays.asList(methods)),
                 new HashSet<>(Arrays.asList(updatedMethods)));
@@ -141,10 +181,11 @@ public class IncrementalTest {
         ClassHolderSourceImpl newClassSource = new ClassHolderSourceImpl(oldClassSource, true);
         ClassHolderSourceImpl refreshedClassSource = new ClassHolderSourceImpl(oldClassSource, false);
 
-        builder.build(oldClassSource, AlwaysStaleCacheStatus.INSTANCE, OLD_FILE);
+        oldDependencies = builder.build(oldClassSource, AlwaysStaleCacheStatus.INSTANCE, OLD_FILE);
         builder.build(refreshedClassSource, refreshedClassSource, REFRESHED_FILE);
         builder.enableCapturing();
-        builder.build(newClassSource, newClassSource, NEW_FILE);
+        newDependencies = builder.build(newClassSource, newClassSource, NEW_FILE);
+        newSnapshotUsed = builder.snapshotUsed;
 
         assertEquals("Script must be the same after refreshing", builder.buildTarget.get(OLD_FILE),
                 builder.buildTarget.get(REFRESHED_FILE));
@@ -183,6 +224,8 @@ public class IncrementalTest {
         CapturingMethodNodeCache astCache = new CapturingMethodNodeCache();
         CapturingProgramCache programCache = new CapturingProgramCache();
         BuildTargetImpl buildTarget = new BuildTargetImpl();
+        DependencySnapshot snapshot;
+        boolean snapshotUsed;
 
         Builder(String entryPoint) {
             this.entryPoint = entryPoint;
@@ -193,7 +236,7 @@ public class IncrementalTest {
             astCache.capturing = true;
         }
 
-        void build(ClassHolderSource classSource, CacheStatus cacheStatus, String name) {
+        DependencyInfo build(ClassHolderSource classSource, CacheStatus cacheStatus, String name) {
             JavaScriptTarget target = new JavaScriptTarget();
             TeaVM vm = new TeaVMBuilder(target)
                     .setClassLoader(IncrementalTest.class.getClassLoader())
@@ -203,6 +246,7 @@ public class IncrementalTest {
             vm.setCacheStatus(cacheStatus);
             vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
             vm.setProgramCache(programCache);
+            vm.setDependencySnapshot(snapshot);
             target.setAstCache(astCache);
             target.setMinifying(false);
             vm.add(new EntryPointTransformer(entryPoint));
@@ -215,6 +259,9 @@ public class IncrementalTest {
             }
             astCache.commit();
             programCache.commit();
+            snapshotUsed = vm.wasDependencySnapshotUsed();
+            snapshot = vm.captureDependencySnapshot();
+            return vm.getDependencyInfo();
         }
 
         private String buildErrorMessage(TeaVM vm) {
@@ -232,6 +279,20 @@ public class IncrementalTest {
         }
     }
 
+    static class NeverStaleCacheStatus implements CacheStatus {
+        static final NeverStaleCacheStatus INSTANCE = new NeverStaleCacheStatus();
+
+        @Override
+        public boolean isStaleClass(String className) {
+            return false;
+        }
+
+        @Override
+        public boolean isStaleMethod(MethodReference method) {
+            return false;
+        }
+    }
+
     static class CapturingMethodNodeCache extends InMemoryMethodNodeCache {
         final Set<MethodReference> updatedMethods = new HashSet<>();
         boolean capturing;
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+import org.teavm.backend.javascript.JavaScriptTarget;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMBuilder;
+import org.teavm.vm.TeaVMOptimizationLevel;
+
+public class ConcurrentOptimizationTest {
+    private static final int THREAD_COUNT = 4;
+
+    @Test
+    public void lazyPipelineDoesNotDependOnThreadCount() {
+        assertSameOutput(TeaVMOptimizationLevel.SIMPLE);
+    }
+
+    @Test
+    public void advancedOptimizationDoesNotDependOnThreadCount() {
+        assertSameOutput(TeaVMOptimizationLevel.ADVANCED);
+    }
+
+    @Test
+    public void fullOptimizationDoesNotDependOnThreadCount() {
+        assertSameOutput(TeaVMOptimizationLevel.FULL);
+    }
+
+    private void assertSameOutput(TeaVMOptimizationLevel optimizationLevel) {
+        Map<String, String> serialOutput = build(optimizationLevel, 1);
+        Map<String, String> concurrentOutput = build(optimizationLevel, THREAD_COUNT);
+        assertTrue(serialOutput.containsKey("classes.js"));
+        assertEquals(serialOutput, concurrentOutput);
+    }
+
+    private Map<String, String> build(TeaVMOptimizationLevel optimizationLevel, int threadCount) {
+        Map<String, ByteArrayOutputStream> resources = new HashMap<>();
+        TeaVM vm = new TeaVMBuilder(new JavaScriptTarget())
+                .setOptimizationThreadCount(threadCount)
+                .build();
+        vm.setOptimizationLevel(optimizationLevel);
+        vm.installPlugins();
+        vm.entryPoint(SampleProgram.class.getName());
+        vm.build(name -> resources.computeIfAbsent(name, n -> new ByteArrayOutputStream()), "classes.js");
+        assertEquals(0, vm.getProblemProvider().getSevereProblems().size());
+
+        Map<String, String> output = new TreeMap<>();
+        for (Map.Entry<String, ByteArrayOutputStream> entry : resources.entrySet()) {
+            output.put(entry.getKey(), new String(entry.getValue().toByteArray(), StandardCharsets.UTF_8));
+        }
+        return output;
+    }
+
+    public static class SampleProgram {
+        public static void main(String[] args) {
+            List<String> words = new ArrayList<>();
+            for (String arg : args) {
+                words.add(arg.trim());
+            }
+            Map<String, Integer> counts = new HashMap<>();
+            for (String word : words) {
+                counts.merge(word, 1, Integer::sum);
+            }
+            StringBuilder sb = new StringBuilder();
+            counts.forEach((word, count) -> sb.append(word).append('=').append(count).append(';'));
+            try {
+                System.out.println(sb.toString() + Long.parseLong(args[0]) / args.length);
+            } catch (NumberFormatException e) {
+                System.out.println(String.format("%s: %.2f", e.getMessage(), Math.sqrt(words.size())));
+            }
+        }
+    }
+}
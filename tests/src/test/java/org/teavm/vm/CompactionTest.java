@@ -0,0 +1,96 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.TeaVMTestRunner;
+
+/*
+ * Test configurations run with a fixed 32 MB heap. The test fills about 18 MB of it with pieces of mixed size,
+ * frees every other piece and then allocates an array that is larger than the free space at the end
+ * of the heap, but smaller than total free space, so that the collector has to compact the heap.
+ */
+@RunWith(TeaVMTestRunner.class)
+public class CompactionTest {
+    private static final int PIECE_COUNT = 10_000;
+    private static final int LARGE_ARRAY_SIZE = 12 * 1024 * 1024;
+    private static Piece staticPiece;
+
+    @Test
+    public void objectsSurviveCompaction() {
+        Piece[] pieces = new Piece[PIECE_COUNT];
+        for (int i = 0; i < pieces.length; ++i) {
+            pieces[i] = new Piece(i, 200 + (i * 7919) % 500);
+            if (i >= 2) {
+                pieces[i].link = pieces[i - 2];
+            }
+        }
+        System.gc();
+
+        int[] hashCodes = new int[pieces.length];
+        for (int i = 0; i < pieces.length; i += 2) {
+            hashCodes[i] = System.identityHashCode(pieces[i]);
+        }
+        staticPiece = pieces[pieces.length / 2];
+        Piece pinned = pieces[pieces.length - 2];
+        for (int i = 1; i < pieces.length; i += 2) {
+            pieces[i] = null;
+        }
+        System.gc();
+
+        byte[] large = new byte[LARGE_ARRAY_SIZE];
+        large[0] = 1;
+        large[large.length - 1] = 2;
+
+        for (int i = 0; i < pieces.length; i += 2) {
+            Piece piece = pieces[i];
+            assertEquals(i, piece.id);
+            assertEquals(200 + (i * 7919) % 500, piece.payload.length);
+            for (int j = 0; j < piece.payload.length; ++j) {
+                assertEquals(i + j, piece.payload[j]);
+            }
+            if (i >= 2) {
+                assertSame(pieces[i - 2], piece.link);
+            }
+            assertEquals(hashCodes[i], System.identityHashCode(piece));
+        }
+        assertSame(pieces[pieces.length / 2], staticPiece);
+        assertEquals(pieces.length / 2, staticPiece.id);
+        assertSame(pieces[pieces.length - 2], pinned);
+        assertEquals(pieces.length - 2, pinned.id);
+        assertSame(pieces[pieces.length - 4], pinned.link);
+        assertEquals(1, large[0]);
+        assertEquals(2, large[large.length - 1]);
+        staticPiece = null;
+    }
+
+    static class Piece {
+        int id;
+        int[] payload;
+        Piece link;
+
+        Piece(int id, int size) {
+            this.id = id;
+            payload = new int[size];
+            for (int i = 0; i < size; ++i) {
+                payload[i] = id + i;
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+public class GenerationalGCTest {
+    private static final int COUNT = 1000;
+    private static final int LARGE_ARRAY_SIZE = 300_000;
+    private static Object sink;
+
+    @Test
+    public void oldToYoungReferenceThroughField() {
+        Node holder = new Node(-1, null);
+        System.gc();
+        holder.next = new Node(1, new Node(2, null));
+        allocateGarbage();
+        assertEquals(1, holder.next.value);
+        assertEquals(2, holder.next.next.value);
+    }
+
+    @Test
+    public void oldToYoungReferenceThroughArray() {
+        Node[] holder = new Node[COUNT];
+        System.gc();
+        for (int i = 0; i < holder.length; ++i) {
+            holder[i] = new Node(i, null);
+        }
+        allocateGarbage();
+        for (int i = 0; i < holder.length; ++i) {
+            assertEquals(i, holder[i].value);
+        }
+    }
+
+    @Test
+    public void oldToYoungReferenceThroughArrayCopy() {
+        Node[] holder = new Node[COUNT];
+        System.gc();
+        Node[] source = new Node[COUNT];
+        for (int i = 0; i < source.length; ++i) {
+            source[i] = new Node(i, null);
+        }
+        System.arraycopy(source, 0, holder, 0, source.length);
+        source = null;
+        allocateGarbage();
+        for (int i = 0; i < holder.length; ++i) {
+            assertEquals(i, holder[i].value);
+        }
+    }
+
+    @Test
+    public void oldToYoungReferenceThroughClone() {
+        // Large arrays are allocated directly in the old generation, so the clone is old from the start
+        Node[] source = new Node[LARGE_ARRAY_SIZE];
+        for (int i = 0; i < source.length; i += 1000) {
+            source[i] = new Node(i, null);
+        }
+        Node[] copy = source.clone();
+        source = null;
+        allocateGarbage();
+        for (int i = 0; i < copy.length; ++i) {
+            if (i % 1000 == 0) {
+                assertEquals(i, copy[i].value);
+            } else {
+                assertNull(copy[i]);
+            }
+        }
+    }
+
+    @Test
+    public void objectsPinnedByStackArePromoted() {
+        Node first = new Node(1, null);
+        Node second = new Node(2, first);
+        allocateGarbage();
+        Node holder = new Node(0, null);
+        System.gc();
+        holder.next = second;
+        allocateGarbage();
+        assertSame(second, holder.next);
+        assertSame(first, second.next);
+        assertEquals(2, holder.next.value);
+        assertEquals(1, holder.next.next.value);
+    }
+
+    @Test
+    public void rememberedSetOverflows() {
+        Node[] holders = new Node[COUNT * 20];
+        for (int i = 0; i < holders.length; ++i) {
+            holders[i] = new Node(i, null);
+        }
+        System.gc();
+        for (int round = 0; round < 3; ++round) {
+            for (int i = 0; i < holders.length; ++i) {
+                holders[i].next = new Node(i * round, null);
+            }
+            allocateGarbage();
+            for (int i = 0; i < holders.length; ++i) {
+                assertEquals(i * round, holders[i].next.value);
+            }
+        }
+    }
+
+    private static void allocateGarbage() {
+        for (int i = 0; i < 500_000; ++i) {
+            sink = new Object[4];
+        }
+        sink = null;
+    }
+
+    static class Node {
+        int value;
+        Node next;
+
+        Node(int value, Node next) {
+            this.value = value;
+            this.next = next;
+        }
+    }
+}
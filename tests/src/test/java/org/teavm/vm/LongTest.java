@@ -56,6 +56,63 @@ public class LongTest {
         assertEquals(0, a / b);
     }
 
+    @Test
+    public void shiftsTakeLowerSixBitsOfDistance() {
+        long a = id(0x123456789ABCDEF0L);
+        assertEquals(a, a << id(64));
+        assertEquals(a << 1, a << id(65));
+        assertEquals(a >> 4, a >> id(68));
+        assertEquals(a >>> 4, a >>> id(132));
+        assertEquals(-1L, id(Long.MIN_VALUE) >> id(127));
+        assertEquals(1L, id(Long.MIN_VALUE) >>> id(63));
+        assertEquals(Long.MIN_VALUE, id(1) << id(-1));
+    }
+
+    @Test
+    public void minValueDividedByMinusOneOverflows() {
+        long a = id(Long.MIN_VALUE);
+        long b = id(-1);
+        assertEquals(Long.MIN_VALUE, a / b);
+        assertEquals(0, a % b);
+        assertEquals(Long.MIN_VALUE, a * b);
+        assertEquals(Long.MIN_VALUE, -a);
+    }
+
+    @Test
+    public void unsignedDivision() {
+        assertEquals(Long.MAX_VALUE, Long.divideUnsigned(id(-1), id(2)));
+        assertEquals(1, Long.remainderUnsigned(id(-1), id(2)));
+        assertEquals(1, Long.divideUnsigned(id(-1), id(-2)));
+        assertEquals(1, Long.remainderUnsigned(id(-1), id(-2)));
+        assertEquals(0, Long.divideUnsigned(id(5), id(-1)));
+        assertEquals(5, Long.remainderUnsigned(id(5), id(-1)));
+        assertEquals(0x3333333333333333L, Long.divideUnsigned(id(0xFFFFFFFFFFFFFFFFL), id(5)));
+    }
+
+    @Test
+    public void doubleToLongSaturates() {
+        assertEquals(Long.MAX_VALUE, (long) idDouble(1e30));
+        assertEquals(Long.MIN_VALUE, (long) idDouble(-1e30));
+        assertEquals(Long.MAX_VALUE, (long) idDouble(Double.POSITIVE_INFINITY));
+        assertEquals(Long.MIN_VALUE, (long) idDouble(Double.NEGATIVE_INFINITY));
+        assertEquals(0, (long) idDouble(Double.NaN));
+        assertEquals(-9007199254740992L, (long) idDouble(-9007199254740992.0));
+        assertEquals(123, (long) idDouble(123.9));
+        assertEquals(-123, (long) idDouble(-123.9));
+    }
+
+    @Test
+    public void longOverflowWraps() {
+        assertEquals(Long.MIN_VALUE, id(Long.MAX_VALUE) + id(1));
+        assertEquals(Long.MAX_VALUE, id(Long.MIN_VALUE) - id(1));
+        assertEquals(-2, id(Long.MAX_VALUE) * id(2));
+        assertEquals(0, (int) (id(1) << 32));
+    }
+
+    private static double idDouble(double value) {
+        return value;
+    }
+
     private static long id(long value) {
         return value;
     }
@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.SkipJVM;
+import org.teavm.junit.TeaVMTestRunner;
+import org.teavm.vm.MarkingTest.DerivedNode;
+import org.teavm.vm.MarkingTest.Node;
+
+/**
+ * <p>Measures how many live objects GC marks per second. This is not a unit test: its name does not
+ * match surefire includes, so it only runs when requested explicitly, for example:</p>
+ *
+ * <pre>
+ * mvn test -pl tests -Dtest=MarkingBenchmark -Dteavm.junit.js=false -Dteavm.junit.wasm=true
+ * </pre>
+ *
+ * <p>Run it before and after a change to GC and compare printed numbers. JavaScript target does not
+ * have its own GC, so numbers reported there are meaningless.</p>
+ */
+@RunWith(TeaVMTestRunner.class)
+@SkipJVM
+public class MarkingBenchmark {
+    private static final int GRAPH_SIZE = 200_000;
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 10;
+
+    @Test
+    public void deepGraph() {
+        Node head = null;
+        for (int i = 0; i < GRAPH_SIZE; ++i) {
+            head = new Node(i, head);
+        }
+        measure("deep graph", GRAPH_SIZE);
+        assertEquals(GRAPH_SIZE - 1, head.value);
+    }
+
+    @Test
+    public void wideGraph() {
+        Node[] nodes = new Node[GRAPH_SIZE / 2];
+        for (int i = 0; i < nodes.length; ++i) {
+            nodes[i] = new Node(i, new Node(-i, null));
+        }
+        measure("wide graph", GRAPH_SIZE + 1);
+        assertEquals(nodes.length - 1, nodes[nodes.length - 1].value);
+    }
+
+    @Test
+    public void inheritedFields() {
+        DerivedNode[] nodes = new DerivedNode[GRAPH_SIZE / 3];
+        for (int i = 0; i < nodes.length; ++i) {
+            nodes[i] = new DerivedNode(i, new Node(i, null), new Node(-i, null));
+        }
+        measure("inherited fields", nodes.length * 3 + 1);
+        assertEquals(-(nodes.length - 1), nodes[nodes.length - 1].other.value);
+    }
+
+    private static void measure(String name, int liveObjects) {
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            System.gc();
+        }
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            System.gc();
+        }
+        long time = Math.max(1, System.currentTimeMillis() - start);
+        System.out.println("MarkingBenchmark, " + name + ": " + (long) liveObjects * ITERATIONS * 1000 / time
+                + " objects per second, " + time / ITERATIONS + " ms per collection");
+    }
+}
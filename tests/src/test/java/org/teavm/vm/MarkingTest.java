@@ -0,0 +1,136 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+public class MarkingTest {
+    private static final int GRAPH_SIZE = 200_000;
+
+    @Test
+    public void wideGraphSurvivesCollection() {
+        Node[] nodes = new Node[GRAPH_SIZE];
+        for (int i = 0; i < nodes.length; ++i) {
+            nodes[i] = new Node(i, new Node(-i, null));
+        }
+        System.gc();
+        for (int i = 0; i < nodes.length; ++i) {
+            assertEquals(i, nodes[i].value);
+            assertEquals(-i, nodes[i].next.value);
+        }
+    }
+
+    @Test
+    public void deepGraphSurvivesCollection() {
+        Node head = null;
+        for (int i = 0; i < GRAPH_SIZE; ++i) {
+            head = new Node(i, head);
+        }
+        System.gc();
+        int expected = GRAPH_SIZE;
+        for (Node node = head; node != null; node = node.next) {
+            assertEquals(--expected, node.value);
+        }
+        assertEquals(0, expected);
+    }
+
+    @Test
+    public void inheritedFieldsSurviveCollection() {
+        DerivedNode[] nodes = new DerivedNode[GRAPH_SIZE / 4];
+        for (int i = 0; i < nodes.length; ++i) {
+            nodes[i] = new DerivedNode(i, new Node(i, null), new Node(-i, null));
+        }
+        System.gc();
+        for (int i = 0; i < nodes.length; ++i) {
+            assertEquals(i, nodes[i].next.value);
+            assertEquals(-i, nodes[i].other.value);
+        }
+    }
+
+    @Test
+    public void sharedObjectsSurviveCollection() {
+        Node shared = new Node(42, null);
+        Object[][] tree = new Object[GRAPH_SIZE / 100][];
+        for (int i = 0; i < tree.length; ++i) {
+            tree[i] = new Object[100];
+            for (int j = 0; j < tree[i].length; ++j) {
+                tree[i][j] = new Node(j, shared);
+            }
+        }
+        System.gc();
+        for (Object[] children : tree) {
+            for (int j = 0; j < children.length; ++j) {
+                Node node = (Node) children[j];
+                assertEquals(j, node.value);
+                assertSame(shared, node.next);
+            }
+        }
+    }
+
+    @Test
+    public void graphMutatedWhileAllocating() {
+        Node[] holders = new Node[GRAPH_SIZE / 10];
+        int[] expected = new int[holders.length];
+        for (int i = 0; i < holders.length; ++i) {
+            holders[i] = new Node(i, new Node(i, null));
+            expected[i] = i;
+        }
+        System.gc();
+
+        for (int round = 0; round < 20; ++round) {
+            for (int i = 0; i < holders.length; ++i) {
+                int j = (i * 31 + round) % holders.length;
+                Node tmp = holders[i].next;
+                holders[i].next = holders[j].next;
+                holders[j].next = tmp;
+                int expectedTmp = expected[i];
+                expected[i] = expected[j];
+                expected[j] = expectedTmp;
+                Object[] garbage = new Object[8];
+                garbage[0] = new Node(i, null);
+            }
+        }
+
+        for (int i = 0; i < holders.length; ++i) {
+            assertEquals(i, holders[i].value);
+            assertEquals(expected[i], holders[i].next.value);
+        }
+    }
+
+    static class Node {
+        int value;
+        Node next;
+
+        Node(int value, Node next) {
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    static class DerivedNode extends Node {
+        Node other;
+
+        DerivedNode(int value, Node next, Node other) {
+            super(value, next);
+            this.other = other;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.vm;
+
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.SkipJVM;
+import org.teavm.junit.TeaVMTestRunner;
+
+/**
+ * <p>Measures call sites that see objects which went through different runtime paths, i.e. thrown
+ * and never thrown exceptions, locked and never locked arrays. When runtime adds properties to such
+ * objects lazily, they end up with different hidden classes and the call sites become polymorphic.
+ * This is not a unit test: its name does not match surefire includes, so it only runs when requested
+ * explicitly, for example:</p>
+ *
+ * <pre>
+ * mvn test -pl tests -Dtest=ObjectShapeBenchmark
+ * </pre>
+ *
+ * <p>Run it before and after a change to generated JavaScript and compare printed numbers.</p>
+ */
+@RunWith(TeaVMTestRunner.class)
+@SkipJVM
+public class ObjectShapeBenchmark {
+    private static final int SIZE = 10_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 100;
+
+    @Test
+    public void mixedObjects() {
+        RuntimeException[] exceptions = new RuntimeException[SIZE];
+        int[][] arrays = new int[SIZE][];
+        for (int i = 0; i < SIZE; ++i) {
+            exceptions[i] = new RuntimeException("e" + (i % 10));
+            arrays[i] = new int[] { i };
+            if (i % 2 == 0) {
+                try {
+                    throw exceptions[i];
+                } catch (RuntimeException e) {
+                    // make exception go through the throw path
+                }
+                synchronized (arrays[i]) {
+                    arrays[i][0]++;
+                }
+            }
+        }
+
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+            checksum += round(exceptions, arrays);
+        }
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < ROUNDS; ++i) {
+            checksum += round(exceptions, arrays);
+        }
+        long time = System.currentTimeMillis() - start;
+        System.out.println("ObjectShapeBenchmark: " + time / (double) ROUNDS + " ms per round");
+        assertTrue(checksum > 0);
+    }
+
+    private static long round(RuntimeException[] exceptions, int[][] arrays) {
+        long sum = 0;
+        for (int i = 0; i < SIZE; ++i) {
+            sum += exceptions[i].getMessage().length();
+            sum += arrays[i][0];
+        }
+        return sum;
+    }
+}
@@ -18,6 +18,7 @@ package org.teavm.vm;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import java.util.function.Supplier;
 import org.junit.Test;
@@ -463,6 +464,31 @@ public class VMTest {
     }
 
 
+    @Test
+    public void arrayCanBeUsedAsMonitor() {
+        int[] a = { 1, 2 };
+        int hash = a.hashCode();
+        synchronized (a) {
+            a[0]++;
+        }
+        assertEquals(hash, a.hashCode());
+        assertEquals(2, a[0]);
+        assertEquals(2, a.clone()[1]);
+    }
+
+    @Test
+    public void exceptionRethrownAfterCatch() {
+        RuntimeException original = new IllegalStateException("foo");
+        for (int i = 0; i < 2; ++i) {
+            try {
+                throw original;
+            } catch (IllegalStateException e) {
+                assertSame(original, e);
+                assertEquals("foo", e.getMessage());
+            }
+        }
+    }
+
     @Test
     public void stringConstantsInBaseClass() {
         new DerivedClassWithConstantFields();
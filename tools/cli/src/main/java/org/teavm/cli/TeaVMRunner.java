@@ -77,6 +77,29 @@ public final class TeaVMRunner {
                 .withDescription("causes TeaVM to generate minimized JavaScript file")
                 .withLongOpt("minify")
                 .create("m"));
+        options.addOption(OptionBuilder
+                .withDescription("causes TeaVM to count names in the whole output before minifying it, "
+                        + "so that most frequent names get shortest identifiers")
+                .withLongOpt("two-pass-minify")
+                .create());
+        options.addOption(OptionBuilder
+                .withDescription("causes TeaVM to represent long values by JavaScript BigInt numbers")
+                .withLongOpt("native-bigint")
+                .create());
+        options.addOption(OptionBuilder
+                .withDescription("causes TeaVM to render JavaScript class by class, without keeping AST "
+                        + "of the whole program in memory")
+                .withLongOpt("streaming")
+                .create());
+        options.addOption(OptionBuilder
+                .withDescription("causes TeaVM to generate ES2015 module with class syntax and exported entry points")
+                .withLongOpt("es2015")
+                .create());
+        options.addOption(OptionBuilder
+                .withDescription("causes TeaVM to render asynchronous methods as ES2015 generators "
+                        + "instead of state machines")
+                .withLongOpt("async-generators")
+                .create());
         options.addOption(OptionBuilder
                 .withDescription("optimization level (1-3)")
                 .hasArg()
@@ -134,6 +157,60 @@ public final class TeaVMRunner {
                 .hasArg()
                 .withDescription("Minimum heap size in bytes (for C and WebAssembly)")
                 .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("max-heap")
+                .withArgName("size")
+                .hasArg()
+                .withDescription("Maximum heap size in bytes the heap may grow to (for C and WebAssembly)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("gc-pause-budget")
+                .withArgName("size")
+                .hasArg()
+                .withDescription("Bytes of heap processed by a single pause of incremental GC, "
+                        + "0 disables incremental GC (for WebAssembly)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("optimization-threads")
+                .withArgName("number")
+                .hasArg()
+                .withDescription("Number of threads used to optimize methods (1 by default)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("dependency-analysis-threads")
+                .withArgName("number")
+                .hasArg()
+                .withDescription("Number of threads used by dependency analysis (1 by default)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("code-generation-threads")
+                .withArgName("number")
+                .hasArg()
+                .withDescription("Number of threads used to generate C and WebAssembly code (1 by default)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("c-multiple-files")
+                .withDescription("Split generated C code into a header and a file per package")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("metrics")
+                .withArgName("file")
+                .hasArg()
+                .withDescription("Write JSON report with time and memory spent in each compiler pass to file")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("slowest-methods")
+                .withArgName("number")
+                .hasArg()
+                .withDescription("Number of slowest methods reported for each pass (10 by default)")
+                .create());
+        options.addOption(OptionBuilder
+                .withLongOpt("size-report")
+                .withArgName("file")
+                .hasArg()
+                .withDescription("Write JSON report with size of each class and method of JavaScript output "
+                        + "to file, and the same report in HTML next to it")
+                .create());
     }
 
     private TeaVMRunner(CommandLine commandLine) {
@@ -167,6 +244,10 @@ public final class TeaVMRunner {
         parseDebugOptions();
         parsePreserveClassOptions();
         parseOptimizationOption();
+        parseOptimizationThreadsOption();
+        parseDependencyAnalysisThreadsOption();
+        parseCodeGenerationThreadsOption();
+        parseMetricsOptions();
         parseIncrementalOptions();
         parseJavaScriptOptions();
         parseWasmOptions();
@@ -220,6 +301,14 @@ public final class TeaVMRunner {
         } else {
             tool.setMinifying(false);
         }
+        tool.setTwoPassMinifying(commandLine.hasOption("two-pass-minify"));
+        tool.setNativeBigInt(commandLine.hasOption("native-bigint"));
+        tool.setStreaming(commandLine.hasOption("streaming"));
+        tool.setEs2015(commandLine.hasOption("es2015"));
+        tool.setAsyncGenerators(commandLine.hasOption("async-generators"));
+        if (commandLine.hasOption("size-report")) {
+            tool.setSizeReportFile(new File(commandLine.getOptionValue("size-report")));
+        }
     }
 
     private void parseDebugOptions() {
@@ -264,6 +353,80 @@ public final class TeaVMRunner {
         }
     }
 
+    private void parseOptimizationThreadsOption() {
+        if (commandLine.hasOption("optimization-threads")) {
+            int threadCount;
+            try {
+                threadCount = Integer.parseInt(commandLine.getOptionValue("optimization-threads"));
+            } catch (NumberFormatException e) {
+                threadCount = 0;
+            }
+            if (threadCount < 1) {
+                System.err.print("Wrong number of optimization threads");
+                printUsage();
+                return;
+            }
+            tool.setOptimizationThreadCount(threadCount);
+        }
+    }
+
+    private void parseDependencyAnalysisThreadsOption() {
+        if (commandLine.hasOption("dependency-analysis-threads")) {
+            int threadCount;
+            try {
+                threadCount = Integer.parseInt(commandLine.getOptionValue("dependency-analysis-threads"));
+            } catch (NumberFormatException e) {
+                threadCount = 0;
+            }
+            if (threadCount < 1) {
+                System.err.print("Wrong number of dependency analysis threads");
+                printUsage();
+                return;
+            }
+            tool.setDependencyAnalysisThreadCount(threadCount);
+        }
+    }
+
+    private void parseCodeGenerationThreadsOption() {
+        if (commandLine.hasOption("code-generation-threads")) {
+            int threadCount;
+            try {
+                threadCount = Integer.parseInt(commandLine.getOptionValue("code-generation-threads"));
+            } catch (NumberFormatException e) {
+                threadCount = 0;
+            }
+            if (threadCount < 1) {
+                System.err.print("Wrong number of code generation threads");
+                printUsage();
+                return;
+            }
+            tool.setCodeGenerationThreadCount(threadCount);
+        }
+        if (commandLine.hasOption("c-multiple-files")) {
+            tool.setCMultiFileOutput(true);
+        }
+    }
+
+    private void parseMetricsOptions() {
+        if (commandLine.hasOption("metrics")) {
+            tool.setMetricsFile(new File(commandLine.getOptionValue("metrics")));
+        }
+        if (commandLine.hasOption("slowest-methods")) {
+            int count;
+            try {
+                count = Integer.parseInt(commandLine.getOptionValue("slowest-methods"));
+            } catch (NumberFormatException e) {
+                count = -1;
+            }
+            if (count < 0) {
+                System.err.print("Wrong number of slowest methods");
+                printUsage();
+                return;
+            }
+            tool.setSlowestMethodCount(count);
+        }
+    }
+
     private void parseIncrementalOptions() {
         if (commandLine.hasOption('i')) {
             tool.setIncremental(true);
@@ -313,6 +476,28 @@ public final class TeaVMRunner {
             }
             tool.setMinHeapSize(size);
         }
+        if (commandLine.hasOption("max-heap")) {
+            int size;
+            try {
+                size = Integer.parseInt(commandLine.getOptionValue("max-heap"));
+            } catch (NumberFormatException e) {
+                System.err.print("Wrong heap size");
+                printUsage();
+                return;
+            }
+            tool.setMaxHeapSize(size);
+        }
+        if (commandLine.hasOption("gc-pause-budget")) {
+            int size;
+            try {
+                size = Integer.parseInt(commandLine.getOptionValue("gc-pause-budget"));
+            } catch (NumberFormatException e) {
+                System.err.print("Wrong GC pause budget");
+                printUsage();
+                return;
+            }
+            tool.setGcPauseBudget(size);
+        }
     }
 
     private void setUp() {
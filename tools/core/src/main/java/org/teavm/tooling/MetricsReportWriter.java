@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import org.teavm.vm.TeaVMMethodMetrics;
+import org.teavm.vm.TeaVMPassMetrics;
+
+class MetricsReportWriter {
+    private Writer writer;
+
+    MetricsReportWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    void write(TeaVMTargetType targetType, String optimizationLevel, List<TeaVMPassMetrics> passes)
+            throws IOException {
+        writer.write("{\n");
+        writer.write("  \"target\": ");
+        writeString(targetType.name());
+        writer.write(",\n  \"optimizationLevel\": ");
+        writeString(optimizationLevel);
+        writer.write(",\n  \"passes\": [");
+        for (int i = 0; i < passes.size(); ++i) {
+            writer.write(i > 0 ? ",\n" : "\n");
+            writePass(passes.get(i));
+        }
+        writer.write("\n  ]\n}\n");
+    }
+
+    private void writePass(TeaVMPassMetrics pass) throws IOException {
+        writer.write("    {\n      \"name\": ");
+        writeString(pass.getName());
+        writer.write(",\n      \"invocations\": " + pass.getInvocationCount());
+        writer.write(",\n      \"timeNanos\": " + pass.getTime());
+        writer.write(",\n      \"allocatedBytes\": " + pass.getAllocatedBytes());
+        writer.write(",\n      \"slowestMethods\": [");
+        List<TeaVMMethodMetrics> methods = pass.getSlowestMethods();
+        for (int i = 0; i < methods.size(); ++i) {
+            TeaVMMethodMetrics method = methods.get(i);
+            writer.write(i > 0 ? ",\n" : "\n");
+            writer.write("        { \"method\": ");
+            writeString(method.getMethod().toString());
+            writer.write(", \"invocations\": " + method.getInvocationCount());
+            writer.write(", \"timeNanos\": " + method.getTime());
+            writer.write(", \"allocatedBytes\": " + method.getAllocatedBytes() + " }");
+        }
+        writer.write(methods.isEmpty() ? "]\n    }" : "\n      ]\n    }");
+    }
+
+    private void writeString(String s) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                default:
+                    if (c < ' ') {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                    break;
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ *  Copyright 2019 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.tooling;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import org.teavm.backend.javascript.JavaScriptClassSize;
+import org.teavm.backend.javascript.JavaScriptMethodSize;
+import org.teavm.backend.javascript.JavaScriptSizeReport;
+import org.teavm.model.MethodReference;
+
+class SizeReportWriter {
+    private Writer writer;
+
+    SizeReportWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    void writeJson(JavaScriptSizeReport report) throws IOException {
+        writer.write("{\n");
+        writer.write("  \"totalSize\": " + report.getTotalSize());
+        writer.write(",\n  \"stringPoolSize\": " + report.getStringPoolSize());
+        writer.write(",\n  \"stringCount\": " + report.getStringCount());
+        writer.write(",\n  \"metadataSize\": " + report.getMetadataSize());
+        writer.write(",\n  \"entryPoints\": ");
+        writeMethodList(report.getEntryPoints());
+        writer.write(",\n  \"classes\": [");
+        List<JavaScriptClassSize> classes = report.getClasses();
+        for (int i = 0; i < classes.size(); ++i) {
+            writer.write(i > 0 ? ",\n" : "\n");
+            writeClassJson(classes.get(i));
+        }
+        writer.write(classes.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+    }
+
+    private void writeClassJson(JavaScriptClassSize cls) throws IOException {
+        writer.write("    {\n      \"name\": ");
+        writeString(cls.getClassName());
+        writer.write(",\n      \"size\": " + cls.getSize());
+        writer.write(",\n      \"metadataSize\": " + cls.getMetadataSize());
+        writer.write(",\n      \"stringPoolSize\": " + cls.getStringPoolSize());
+        writer.write(",\n      \"methods\": [");
+        List<JavaScriptMethodSize> methods = cls.getMethods();
+        for (int i = 0; i < methods.size(); ++i) {
+            JavaScriptMethodSize method = methods.get(i);
+            writer.write(i > 0 ? ",\n" : "\n");
+            writer.write("        { \"method\": ");
+            writeString(method.getMethod().toString());
+            writer.write(", \"size\": " + method.getSize());
+            if (method.getChunk() != null) {
+                writer.write(", \"chunk\": ");
+                writeString(method.getChunk());
+            }
+            writer.write(", \"reachedFromEntryPoint\": " + method.isReachedFromEntryPoint());
+            writer.write(", \"path\": ");
+            writeMethodList(method.getPath());
+            writer.write(" }");
+        }
+        writer.write(methods.isEmpty() ? "]\n    }" : "\n      ]\n    }");
+    }
+
+    private void writeMethodList(List<MethodReference> methods) throws IOException {
+        writer.write("[");
+        for (int i = 0; i < methods.size(); ++i) {
+            if (i > 0) {
+                writer.write(", ");
+            }
+            writeString(methods.get(i).toString());
+        }
+        writer.write("]");
+    }
+
+    private void writeString(String s) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                default:
+                    if (c < ' ') {
+                        writer.write(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                    break;
+            }
+        }
+        writer.write('"');
+    }
+
+    void writeHtml(JavaScriptSizeReport report) throws IOException {
+        int total = report.getTotalSize();
+        writer.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n");
+        writer.write("<title>TeaVM size report</title>\n<style>\n");
+        writer.write("body { font-family: sans-serif; font-size: 14px; }\n");
+        writer.write("table { border-collapse: collapse; }\n");
+        writer.write("td, th { padding: 2px 8px; text-align: left; vertical-align: top; }\n");
+        writer.write("td.size { text-align: right; }\n");
+        writer.write("tr.class { background: #eee; font-weight: bold; }\n");
+        writer.write("ol { margin: 0; padding-left: 20px; font-weight: normal; }\n");
+        writer.write("</style>\n</head>\n<body>\n");
+
+        writer.write("<h1>TeaVM size report</h1>\n<table>\n");
+        writeSummaryRow("Total size", report.getTotalSize(), total);
+        writeSummaryRow("String pool (" + report.getStringCount() + " strings)", report.getStringPoolSize(), total);
+        writeSummaryRow("Class metadata", report.getMetadataSize(), total);
+        writer.write("</table>\n");
+
+        writer.write("<h2>Entry points</h2>\n<ul>\n");
+        for (MethodReference entryPoint : report.getEntryPoints()) {
+            writer.write("<li>");
+            writeHtmlString(entryPoint.toString());
+            writer.write("</li>\n");
+        }
+        writer.write("</ul>\n");
+
+        writer.write("<h2>Classes</h2>\n<table>\n");
+        writer.write("<tr><th>Class / method</th><th>Code</th><th>Metadata</th><th>Strings</th>"
+                + "<th>Reachable via</th></tr>\n");
+        for (JavaScriptClassSize cls : report.getClasses()) {
+            writer.write("<tr class=\"class\"><td>");
+            writeHtmlString(cls.getClassName());
+            writer.write("</td><td class=\"size\">" + cls.getSize() + "</td><td class=\"size\">"
+                    + cls.getMetadataSize() + "</td><td class=\"size\">" + cls.getStringPoolSize()
+                    + "</td><td></td></tr>\n");
+            for (JavaScriptMethodSize method : cls.getMethods()) {
+                writer.write("<tr><td>");
+                writeHtmlString(method.getMethod().getDescriptor().toString());
+                if (method.getChunk() != null) {
+                    writer.write(" [chunk ");
+                    writeHtmlString(method.getChunk());
+                    writer.write("]");
+                }
+                writer.write("</td><td class=\"size\">" + method.getSize() + "</td><td></td><td></td><td>");
+                writeHtmlPath(method);
+                writer.write("</td></tr>\n");
+            }
+        }
+        writer.write("</table>\n</body>\n</html>\n");
+    }
+
+    private void writeSummaryRow(String title, int size, int total) throws IOException {
+        writer.write("<tr><td>");
+        writeHtmlString(title);
+        writer.write("</td><td class=\"size\">" + size + "</td><td class=\"size\">");
+        writer.write(total > 0 ? String.format(Locale.ROOT, "%.1f%%", size * 100.0 / total) : "");
+        writer.write("</td></tr>\n");
+    }
+
+    private void writeHtmlPath(JavaScriptMethodSize method) throws IOException {
+        List<MethodReference> path = method.getPath();
+        if (path.isEmpty()) {
+            writer.write("unknown");
+            return;
+        }
+        writer.write("<details><summary>");
+        writer.write(method.isReachedFromEntryPoint() ? "entry point" : "runtime or plugin");
+        writer.write(", " + path.size() + " step(s)</summary><ol>");
+        for (MethodReference step : path) {
+            writer.write("<li>");
+            writeHtmlString(step.toString());
+            writer.write("</li>");
+        }
+        writer.write("</ol></details>");
+    }
+
+    private void writeHtmlString(String s) throws IOException {
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                default:
+                    writer.write(c);
+                    break;
+            }
+        }
+    }
+}
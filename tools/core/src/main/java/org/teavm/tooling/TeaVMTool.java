@@ -15,16 +15,21 @@
  */
 package org.teavm.tooling;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -33,20 +38,25 @@ import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import org.teavm.backend.c.CTarget;
+import org.teavm.backend.javascript.JavaScriptSizeReport;
 import org.teavm.backend.javascript.JavaScriptTarget;
 import org.teavm.backend.wasm.WasmTarget;
 import org.teavm.backend.wasm.render.WasmBinaryVersion;
 import org.teavm.cache.AlwaysStaleCacheStatus;
 import org.teavm.cache.CacheStatus;
+import org.teavm.cache.DependencySnapshotIO;
 import org.teavm.cache.DiskCachedClassHolderSource;
 import org.teavm.cache.DiskMethodNodeCache;
-import org.teavm.cache.DiskProgramCache;
 import org.teavm.cache.EmptyProgramCache;
 import org.teavm.cache.FileSymbolTable;
+import org.teavm.cache.HashUtils;
+import org.teavm.cache.PackedDiskProgramCache;
 import org.teavm.debugging.information.DebugInformation;
 import org.teavm.debugging.information.DebugInformationBuilder;
 import org.teavm.dependency.DependencyInfo;
+import org.teavm.dependency.DependencySnapshot;
 import org.teavm.dependency.FastDependencyAnalyzer;
+import org.teavm.dependency.ParallelDependencyAnalyzer;
 import org.teavm.dependency.PreciseDependencyAnalyzer;
 import org.teavm.diagnostics.ProblemProvider;
 import org.teavm.model.ClassHolderSource;
@@ -61,14 +71,24 @@ import org.teavm.vm.DirectoryBuildTarget;
 import org.teavm.vm.TeaVM;
 import org.teavm.vm.TeaVMBuilder;
 import org.teavm.vm.TeaVMOptimizationLevel;
+import org.teavm.vm.TeaVMPassMetrics;
+import org.teavm.vm.TeaVMPhase;
+import org.teavm.vm.TeaVMPluginLoader;
+import org.teavm.vm.TeaVMProgressFeedback;
 import org.teavm.vm.TeaVMProgressListener;
 import org.teavm.vm.TeaVMTarget;
+import org.teavm.vm.spi.TeaVMPlugin;
 
 public class TeaVMTool {
     private File targetDirectory = new File(".");
     private TeaVMTargetType targetType = TeaVMTargetType.JAVASCRIPT;
     private String targetFileName = "";
     private boolean minifying = true;
+    private boolean nativeBigInt;
+    private boolean streaming;
+    private boolean es2015;
+    private boolean asyncGenerators;
+    private boolean twoPassMinifying;
     private String mainClass;
     private String entryPointName = "main";
     private Properties properties = new Properties();
@@ -82,7 +102,7 @@ public class TeaVMTool {
     private TeaVMToolLog log = new EmptyTeaVMToolLog();
     private ClassLoader classLoader = TeaVMTool.class.getClassLoader();
     private DiskCachedClassHolderSource cachedClassSource;
-    private DiskProgramCache programCache;
+    private PackedDiskProgramCache programCache;
     private DiskMethodNodeCache astCache;
     private FileSymbolTable symbolTable;
     private FileSymbolTable fileTable;
@@ -99,6 +119,16 @@ public class TeaVMTool {
     private CTarget cTarget;
     private Set<File> generatedFiles = new HashSet<>();
     private int minHeapSize = 32 * (1 << 20);
+    private int maxHeapSize;
+    private int gcPauseBudget;
+    private int optimizationThreadCount = 1;
+    private int dependencyAnalysisThreadCount = 1;
+    private int codeGenerationThreadCount = 1;
+    private boolean cMultiFileOutput;
+    private File metricsFile;
+    private File sizeReportFile;
+    private int slowestMethodCount = 10;
+    private List<TeaVMPassMetrics> collectedMetrics;
 
     public File getTargetDirectory() {
         return targetDirectory;
@@ -124,6 +154,46 @@ public class TeaVMTool {
         this.minifying = minifying;
     }
 
+    public boolean isNativeBigInt() {
+        return nativeBigInt;
+    }
+
+    public void setNativeBigInt(boolean nativeBigInt) {
+        this.nativeBigInt = nativeBigInt;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isEs2015() {
+        return es2015;
+    }
+
+    public void setEs2015(boolean es2015) {
+        this.es2015 = es2015;
+    }
+
+    public boolean isAsyncGenerators() {
+        return asyncGenerators;
+    }
+
+    public void setAsyncGenerators(boolean asyncGenerators) {
+        this.asyncGenerators = asyncGenerators;
+    }
+
+    public boolean isTwoPassMinifying() {
+        return twoPassMinifying;
+    }
+
+    public void setTwoPassMinifying(boolean twoPassMinifying) {
+        this.twoPassMinifying = twoPassMinifying;
+    }
+
     public boolean isIncremental() {
         return incremental;
     }
@@ -224,6 +294,79 @@ public class TeaVMTool {
         this.minHeapSize = minHeapSize;
     }
 
+    public void setMaxHeapSize(int maxHeapSize) {
+        this.maxHeapSize = maxHeapSize;
+    }
+
+    public void setGcPauseBudget(int gcPauseBudget) {
+        this.gcPauseBudget = gcPauseBudget;
+    }
+
+    public int getOptimizationThreadCount() {
+        return optimizationThreadCount;
+    }
+
+    public void setOptimizationThreadCount(int optimizationThreadCount) {
+        this.optimizationThreadCount = optimizationThreadCount;
+    }
+
+    public int getDependencyAnalysisThreadCount() {
+        return dependencyAnalysisThreadCount;
+    }
+
+    public void setDependencyAnalysisThreadCount(int dependencyAnalysisThreadCount) {
+        this.dependencyAnalysisThreadCount = dependencyAnalysisThreadCount;
+    }
+
+    public int getCodeGenerationThreadCount() {
+        return codeGenerationThreadCount;
+    }
+
+    public void setCodeGenerationThreadCount(int codeGenerationThreadCount) {
+        this.codeGenerationThreadCount = codeGenerationThreadCount;
+    }
+
+    public boolean isCMultiFileOutput() {
+        return cMultiFileOutput;
+    }
+
+    public void setCMultiFileOutput(boolean cMultiFileOutput) {
+        this.cMultiFileOutput = cMultiFileOutput;
+    }
+
+    public File getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * <p>Sets file to write JSON report with time and memory spent in each compiler pass. When
+     * <code>null</code> (default), metrics are not collected.</p>
+     */
+    public void setMetricsFile(File metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    public File getSizeReportFile() {
+        return sizeReportFile;
+    }
+
+    /**
+     * <p>Sets file to write JSON report with size of every class and method of JavaScript output and call chains
+     * that make these methods reachable. The same report in HTML is written next to it, with <code>.html</code>
+     * extension. When <code>null</code> (default), the report is not produced.</p>
+     */
+    public void setSizeReportFile(File sizeReportFile) {
+        this.sizeReportFile = sizeReportFile;
+    }
+
+    public int getSlowestMethodCount() {
+        return slowestMethodCount;
+    }
+
+    public void setSlowestMethodCount(int slowestMethodCount) {
+        this.slowestMethodCount = slowestMethodCount;
+    }
+
     public ClassLoader getClassLoader() {
         return classLoader;
     }
@@ -291,6 +434,12 @@ public class TeaVMTool {
     private TeaVMTarget prepareJavaScriptTarget() {
         javaScriptTarget = new JavaScriptTarget();
         javaScriptTarget.setMinifying(minifying);
+        javaScriptTarget.setNativeBigInt(nativeBigInt);
+        javaScriptTarget.setStreaming(streaming);
+        javaScriptTarget.setEs2015(es2015);
+        javaScriptTarget.setAsyncGenerators(asyncGenerators);
+        javaScriptTarget.setTwoPassMinifying(twoPassMinifying);
+        javaScriptTarget.setSizeReportEnabled(sizeReportFile != null);
 
         debugEmitter = debugInformationGenerated || sourceMapsFileGenerated
                 ? new DebugInformationBuilder() : null;
@@ -306,12 +455,18 @@ public class TeaVMTool {
         webAssemblyTarget.setWastEmitted(debugInformationGenerated);
         webAssemblyTarget.setVersion(wasmVersion);
         webAssemblyTarget.setMinHeapSize(minHeapSize);
+        webAssemblyTarget.setMaxHeapSize(maxHeapSize);
+        webAssemblyTarget.setGcPauseBudget(gcPauseBudget);
+        webAssemblyTarget.setCodeGenerationThreadCount(codeGenerationThreadCount);
         return webAssemblyTarget;
     }
 
     private CTarget prepareCTarget() {
         cTarget = new CTarget();
         cTarget.setMinHeapSize(minHeapSize);
+        cTarget.setMaxHeapSize(maxHeapSize);
+        cTarget.setCodeGenerationThreadCount(codeGenerationThreadCount);
+        cTarget.setMultiFileOutput(cMultiFileOutput);
         return cTarget;
     }
 
@@ -321,6 +476,7 @@ public class TeaVMTool {
             log.info("Running TeaVM");
             TeaVMBuilder vmBuilder = new TeaVMBuilder(prepareTarget());
             CacheStatus cacheStatus;
+            programCache = null;
             if (incremental) {
                 cacheDirectory.mkdirs();
                 symbolTable = new FileSymbolTable(new File(cacheDirectory, "symbols"));
@@ -328,11 +484,24 @@ public class TeaVMTool {
                 ClasspathClassHolderSource innerClassSource = new ClasspathClassHolderSource(classLoader);
                 ClassHolderSource classSource = new PreOptimizingClassHolderSource(innerClassSource);
                 cachedClassSource = new DiskCachedClassHolderSource(cacheDirectory, symbolTable, fileTable,
-                        classSource, innerClassSource);
-                programCache = new DiskProgramCache(cacheDirectory, symbolTable, fileTable);
-                if (incremental && targetType == TeaVMTargetType.JAVASCRIPT) {
-                    astCache = new DiskMethodNodeCache(cacheDirectory, symbolTable, fileTable);
-                    javaScriptTarget.setAstCache(astCache);
+                        classSource, innerClassSource, innerClassSource);
+                cachedClassSource.setConfigurationHash(computeConfigurationHash(innerClassSource));
+                if (targetType == TeaVMTargetType.JAVASCRIPT) {
+                    // Programs are cached after target-specific transformations. WebAssembly and C targets
+                    // register call sites while transforming, so they must not skip it for cached programs
+                    programCache = new PackedDiskProgramCache(cacheDirectory, symbolTable, fileTable);
+                }
+                astCache = new DiskMethodNodeCache(cacheDirectory, symbolTable, fileTable);
+                switch (targetType) {
+                    case JAVASCRIPT:
+                        javaScriptTarget.setAstCache(astCache);
+                        break;
+                    case WEBASSEMBLY:
+                        webAssemblyTarget.setAstCache(astCache);
+                        break;
+                    case C:
+                        cTarget.setAstCache(astCache);
+                        break;
                 }
                 try {
                     symbolTable.update();
@@ -348,18 +517,32 @@ public class TeaVMTool {
                 cacheStatus = AlwaysStaleCacheStatus.INSTANCE;
             }
 
-            vmBuilder.setDependencyAnalyzerFactory(fastDependencyAnalysis
-                    ? FastDependencyAnalyzer::new
-                    : PreciseDependencyAnalyzer::new);
+            if (fastDependencyAnalysis) {
+                vmBuilder.setDependencyAnalyzerFactory(FastDependencyAnalyzer::new);
+            } else if (dependencyAnalysisThreadCount > 1) {
+                vmBuilder.setDependencyAnalyzerFactory(ParallelDependencyAnalyzer.factory(
+                        dependencyAnalysisThreadCount));
+            } else {
+                vmBuilder.setDependencyAnalyzerFactory(PreciseDependencyAnalyzer::new);
+            }
+            vmBuilder.setOptimizationThreadCount(optimizationThreadCount);
 
             vm = vmBuilder.build();
-            if (progressListener != null) {
+            collectedMetrics = null;
+            if (metricsFile != null) {
+                vm.setMetricsEnabled(true);
+                vm.setSlowestMethodCount(slowestMethodCount);
+                vm.setProgressListener(new MetricsCollectingListener(progressListener));
+            } else if (progressListener != null) {
                 vm.setProgressListener(progressListener);
             }
 
             vm.setProperties(properties);
-            vm.setProgramCache(incremental ? programCache : EmptyProgramCache.INSTANCE);
+            vm.setProgramCache(programCache != null ? programCache : EmptyProgramCache.INSTANCE);
             vm.setCacheStatus(cacheStatus);
+            if (incremental && !fastDependencyAnalysis) {
+                vm.setDependencySnapshot(readDependencySnapshot());
+            }
             vm.setOptimizationLevel(!fastDependencyAnalysis && !incremental
                     ? optimizationLevel
                     : TeaVMOptimizationLevel.SIMPLE);
@@ -382,11 +565,20 @@ public class TeaVMTool {
             BuildTarget buildTarget = new DirectoryBuildTarget(targetDirectory);
             String outputName = getResolvedTargetFileName();
             vm.build(buildTarget, outputName);
+            if (collectedMetrics != null) {
+                writeMetrics();
+            }
+            if (targetType == TeaVMTargetType.JAVASCRIPT && javaScriptTarget.getSizeReport() != null) {
+                writeSizeReport(javaScriptTarget.getSizeReport());
+            }
             if (vm.wasCancelled()) {
                 log.info("Build cancelled");
                 cancelled = true;
                 return;
             }
+            if (vm.wasDependencySnapshotUsed()) {
+                log.info("Dependency analysis was seeded from the previous build");
+            }
 
             ProblemProvider problemProvider = vm.getProblemProvider();
             if (problemProvider.getProblems().isEmpty()) {
@@ -399,6 +591,11 @@ public class TeaVMTool {
 
             File outputFile = new File(targetDirectory, outputName);
             generatedFiles.add(outputFile);
+            if (targetType == TeaVMTargetType.C) {
+                for (String fileName : cTarget.getGeneratedFileNames()) {
+                    generatedFiles.add(new File(targetDirectory, fileName));
+                }
+            }
 
             if (targetType == TeaVMTargetType.JAVASCRIPT) {
                 try (OutputStream output = new FileOutputStream(new File(targetDirectory, outputName), true)) {
@@ -409,7 +606,12 @@ public class TeaVMTool {
             }
 
             if (incremental) {
-                programCache.flush(vm.getDependencyClassSource());
+                if (!fastDependencyAnalysis) {
+                    writeDependencySnapshot(problemProvider.getSevereProblems().isEmpty());
+                }
+                if (programCache != null) {
+                    programCache.flush(vm.getDependencyClassSource());
+                }
                 if (astCache != null) {
                     astCache.flush();
                 }
@@ -471,6 +673,124 @@ public class TeaVMTool {
         }
     }
 
+    private String computeConfigurationHash(ClasspathClassHolderSource classSource) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("target:").append(targetType).append('\n');
+        for (String transformer : transformers) {
+            sb.append("transformer:").append(transformer).append(':')
+                    .append(classSource.getContentHash(transformer)).append('\n');
+        }
+        for (TeaVMPlugin plugin : TeaVMPluginLoader.load(classLoader)) {
+            String pluginName = plugin.getClass().getName();
+            sb.append("plugin:").append(pluginName).append(':')
+                    .append(classSource.getContentHash(pluginName)).append('\n');
+        }
+        List<String> propertyNames = new ArrayList<>(properties.stringPropertyNames());
+        Collections.sort(propertyNames);
+        for (String propertyName : propertyNames) {
+            sb.append("property:").append(propertyName).append('=').append(properties.getProperty(propertyName))
+                    .append('\n');
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return HashUtils.toHexString(digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeMetrics() throws IOException {
+        File parent = metricsFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(metricsFile)),
+                StandardCharsets.UTF_8)) {
+            new MetricsReportWriter(writer).write(targetType, vm.getOptimizationLevel().name(), collectedMetrics);
+        }
+        log.info("Compiler metrics written to " + metricsFile);
+    }
+
+    private void writeSizeReport(JavaScriptSizeReport report) throws IOException {
+        File parent = sizeReportFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(sizeReportFile)),
+                StandardCharsets.UTF_8)) {
+            new SizeReportWriter(writer).writeJson(report);
+        }
+        File htmlFile = getSizeReportHtmlFile();
+        try (Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(htmlFile)),
+                StandardCharsets.UTF_8)) {
+            new SizeReportWriter(writer).writeHtml(report);
+        }
+        log.info("Size report written to " + sizeReportFile + " and " + htmlFile);
+    }
+
+    private File getSizeReportHtmlFile() {
+        String name = sizeReportFile.getName();
+        if (name.endsWith(".json")) {
+            name = name.substring(0, name.length() - 5);
+        }
+        return new File(sizeReportFile.getAbsoluteFile().getParentFile(), name + ".html");
+    }
+
+    class MetricsCollectingListener implements TeaVMProgressListener {
+        private TeaVMProgressListener delegate;
+
+        MetricsCollectingListener(TeaVMProgressListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public TeaVMProgressFeedback phaseStarted(TeaVMPhase phase, int count) {
+            return delegate != null ? delegate.phaseStarted(phase, count) : TeaVMProgressFeedback.CONTINUE;
+        }
+
+        @Override
+        public TeaVMProgressFeedback progressReached(int progress) {
+            return delegate != null ? delegate.progressReached(progress) : TeaVMProgressFeedback.CONTINUE;
+        }
+
+        @Override
+        public void metricsCollected(List<TeaVMPassMetrics> passes) {
+            collectedMetrics = passes;
+            if (delegate != null) {
+                delegate.metricsCollected(passes);
+            }
+        }
+    }
+
+    private File getDependencySnapshotFile() {
+        return new File(cacheDirectory, "dependencies.teavm-deps");
+    }
+
+    private DependencySnapshot readDependencySnapshot() {
+        File file = getDependencySnapshotFile();
+        if (!file.exists()) {
+            return null;
+        }
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            return new DependencySnapshotIO(symbolTable).read(input);
+        } catch (IOException | RuntimeException e) {
+            log.info("Dependency snapshot could not be read, running full dependency analysis");
+            return null;
+        }
+    }
+
+    private void writeDependencySnapshot(boolean successful) throws IOException {
+        File file = getDependencySnapshotFile();
+        if (!successful) {
+            file.delete();
+            return;
+        }
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+            new DependencySnapshotIO(symbolTable).write(vm.captureDependencySnapshot(), output);
+        }
+    }
+
     private void printStats() {
         if (vm == null || vm.getWrittenClasses() == null) {
             return;
@@ -54,6 +54,16 @@ public interface BuildStrategy {
 
     void setMinifying(boolean minifying);
 
+    void setNativeBigInt(boolean nativeBigInt);
+
+    void setStreaming(boolean streaming);
+
+    void setEs2015(boolean es2015);
+
+    void setAsyncGenerators(boolean asyncGenerators);
+
+    void setTwoPassMinifying(boolean twoPassMinifying);
+
     void setProperties(Properties properties);
 
     void setTransformers(String[] transformers);
@@ -72,5 +82,23 @@ public interface BuildStrategy {
 
     void setHeapSize(int heapSize);
 
+    void setMaxHeapSize(int maxHeapSize);
+
+    void setGcPauseBudget(int gcPauseBudget);
+
+    void setOptimizationThreadCount(int threadCount);
+
+    void setDependencyAnalysisThreadCount(int threadCount);
+
+    void setCodeGenerationThreadCount(int threadCount);
+
+    void setCMultiFileOutput(boolean multiFileOutput);
+
+    void setMetricsFile(String metricsFile);
+
+    void setSizeReportFile(String sizeReportFile);
+
+    void setSlowestMethodCount(int slowestMethodCount);
+
     BuildResult build() throws BuildException;
 }
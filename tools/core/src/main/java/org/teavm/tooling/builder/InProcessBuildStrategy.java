@@ -52,6 +52,11 @@ public class InProcessBuildStrategy implements BuildStrategy {
     private TeaVMOptimizationLevel optimizationLevel = TeaVMOptimizationLevel.ADVANCED;
     private boolean fastDependencyAnalysis;
     private boolean minifying;
+    private boolean nativeBigInt;
+    private boolean streaming;
+    private boolean es2015;
+    private boolean asyncGenerators;
+    private boolean twoPassMinifying;
     private boolean sourceMapsFileGenerated;
     private boolean debugInformationGenerated;
     private boolean sourceFilesCopied;
@@ -59,6 +64,15 @@ public class InProcessBuildStrategy implements BuildStrategy {
     private String[] classesToPreserve = new String[0];
     private WasmBinaryVersion wasmVersion = WasmBinaryVersion.V_0x1;
     private int heapSize = 32;
+    private int maxHeapSize;
+    private int gcPauseBudget;
+    private int optimizationThreadCount = 1;
+    private int dependencyAnalysisThreadCount = 1;
+    private int codeGenerationThreadCount = 1;
+    private boolean cMultiFileOutput;
+    private String metricsFile;
+    private String sizeReportFile;
+    private int slowestMethodCount = 10;
     private final List<SourceFileProvider> sourceFileProviders = new ArrayList<>();
     private TeaVMProgressListener progressListener;
     private Properties properties = new Properties();
@@ -150,6 +164,31 @@ public class InProcessBuildStrategy implements BuildStrategy {
         this.minifying = minifying;
     }
 
+    @Override
+    public void setNativeBigInt(boolean nativeBigInt) {
+        this.nativeBigInt = nativeBigInt;
+    }
+
+    @Override
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    @Override
+    public void setEs2015(boolean es2015) {
+        this.es2015 = es2015;
+    }
+
+    @Override
+    public void setAsyncGenerators(boolean asyncGenerators) {
+        this.asyncGenerators = asyncGenerators;
+    }
+
+    @Override
+    public void setTwoPassMinifying(boolean twoPassMinifying) {
+        this.twoPassMinifying = twoPassMinifying;
+    }
+
     @Override
     public void setTransformers(String[] transformers) {
         this.transformers = transformers.clone();
@@ -190,6 +229,51 @@ public class InProcessBuildStrategy implements BuildStrategy {
         this.heapSize = heapSize;
     }
 
+    @Override
+    public void setMaxHeapSize(int maxHeapSize) {
+        this.maxHeapSize = maxHeapSize;
+    }
+
+    @Override
+    public void setGcPauseBudget(int gcPauseBudget) {
+        this.gcPauseBudget = gcPauseBudget;
+    }
+
+    @Override
+    public void setOptimizationThreadCount(int threadCount) {
+        this.optimizationThreadCount = threadCount;
+    }
+
+    @Override
+    public void setDependencyAnalysisThreadCount(int threadCount) {
+        this.dependencyAnalysisThreadCount = threadCount;
+    }
+
+    @Override
+    public void setCodeGenerationThreadCount(int threadCount) {
+        this.codeGenerationThreadCount = threadCount;
+    }
+
+    @Override
+    public void setCMultiFileOutput(boolean multiFileOutput) {
+        this.cMultiFileOutput = multiFileOutput;
+    }
+
+    @Override
+    public void setMetricsFile(String metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    @Override
+    public void setSizeReportFile(String sizeReportFile) {
+        this.sizeReportFile = sizeReportFile;
+    }
+
+    @Override
+    public void setSlowestMethodCount(int slowestMethodCount) {
+        this.slowestMethodCount = slowestMethodCount;
+    }
+
     @Override
     public BuildResult build() throws BuildException {
         TeaVMTool tool = new TeaVMTool();
@@ -209,12 +293,26 @@ public class InProcessBuildStrategy implements BuildStrategy {
         tool.setSourceFilesCopied(sourceFilesCopied);
 
         tool.setMinifying(minifying);
+        tool.setNativeBigInt(nativeBigInt);
+        tool.setStreaming(streaming);
+        tool.setEs2015(es2015);
+        tool.setAsyncGenerators(asyncGenerators);
+        tool.setTwoPassMinifying(twoPassMinifying);
         tool.setIncremental(incremental);
         tool.getTransformers().addAll(Arrays.asList(transformers));
         tool.getClassesToPreserve().addAll(Arrays.asList(classesToPreserve));
         tool.setCacheDirectory(cacheDirectory != null ? new File(cacheDirectory) : null);
         tool.setWasmVersion(wasmVersion);
         tool.setMinHeapSize(heapSize);
+        tool.setMaxHeapSize(maxHeapSize);
+        tool.setGcPauseBudget(gcPauseBudget);
+        tool.setOptimizationThreadCount(optimizationThreadCount);
+        tool.setDependencyAnalysisThreadCount(dependencyAnalysisThreadCount);
+        tool.setCodeGenerationThreadCount(codeGenerationThreadCount);
+        tool.setCMultiFileOutput(cMultiFileOutput);
+        tool.setMetricsFile(metricsFile != null ? new File(metricsFile) : null);
+        tool.setSizeReportFile(sizeReportFile != null ? new File(sizeReportFile) : null);
+        tool.setSlowestMethodCount(slowestMethodCount);
 
         tool.getProperties().putAll(properties);
 
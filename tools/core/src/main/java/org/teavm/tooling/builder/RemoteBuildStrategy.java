@@ -129,6 +129,31 @@ public class RemoteBuildStrategy implements BuildStrategy {
         request.minifying = minifying;
     }
 
+    @Override
+    public void setNativeBigInt(boolean nativeBigInt) {
+        request.nativeBigInt = nativeBigInt;
+    }
+
+    @Override
+    public void setStreaming(boolean streaming) {
+        request.streaming = streaming;
+    }
+
+    @Override
+    public void setEs2015(boolean es2015) {
+        request.es2015 = es2015;
+    }
+
+    @Override
+    public void setAsyncGenerators(boolean asyncGenerators) {
+        request.asyncGenerators = asyncGenerators;
+    }
+
+    @Override
+    public void setTwoPassMinifying(boolean twoPassMinifying) {
+        request.twoPassMinifying = twoPassMinifying;
+    }
+
     @Override
     public void setTransformers(String[] transformers) {
         request.transformers = transformers.clone();
@@ -169,6 +194,51 @@ public class RemoteBuildStrategy implements BuildStrategy {
         request.heapSize = heapSize;
     }
 
+    @Override
+    public void setMaxHeapSize(int maxHeapSize) {
+        request.maxHeapSize = maxHeapSize;
+    }
+
+    @Override
+    public void setGcPauseBudget(int gcPauseBudget) {
+        request.gcPauseBudget = gcPauseBudget;
+    }
+
+    @Override
+    public void setOptimizationThreadCount(int threadCount) {
+        request.optimizationThreadCount = threadCount;
+    }
+
+    @Override
+    public void setDependencyAnalysisThreadCount(int threadCount) {
+        request.dependencyAnalysisThreadCount = threadCount;
+    }
+
+    @Override
+    public void setCodeGenerationThreadCount(int threadCount) {
+        request.codeGenerationThreadCount = threadCount;
+    }
+
+    @Override
+    public void setCMultiFileOutput(boolean multiFileOutput) {
+        request.cMultiFileOutput = multiFileOutput;
+    }
+
+    @Override
+    public void setMetricsFile(String metricsFile) {
+        request.metricsFile = metricsFile;
+    }
+
+    @Override
+    public void setSizeReportFile(String sizeReportFile) {
+        request.sizeReportFile = sizeReportFile;
+    }
+
+    @Override
+    public void setSlowestMethodCount(int slowestMethodCount) {
+        request.slowestMethodCount = slowestMethodCount;
+    }
+
     @Override
     public BuildResult build() throws BuildException {
         RemoteBuildResponse response;
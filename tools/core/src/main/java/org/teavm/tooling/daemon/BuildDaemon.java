@@ -156,8 +156,26 @@ public class BuildDaemon extends UnicastRemoteObject implements RemoteBuildServi
         tool.setOptimizationLevel(request.optimizationLevel);
         tool.setFastDependencyAnalysis(request.fastDependencyAnalysis);
         tool.setMinifying(request.minifying);
+        tool.setNativeBigInt(request.nativeBigInt);
+        tool.setStreaming(request.streaming);
+        tool.setEs2015(request.es2015);
+        tool.setAsyncGenerators(request.asyncGenerators);
+        tool.setTwoPassMinifying(request.twoPassMinifying);
         tool.setWasmVersion(request.wasmVersion);
         tool.setMinHeapSize(request.heapSize);
+        tool.setMaxHeapSize(request.maxHeapSize);
+        tool.setGcPauseBudget(request.gcPauseBudget);
+        tool.setOptimizationThreadCount(request.optimizationThreadCount);
+        tool.setDependencyAnalysisThreadCount(request.dependencyAnalysisThreadCount);
+        tool.setCodeGenerationThreadCount(request.codeGenerationThreadCount);
+        tool.setCMultiFileOutput(request.cMultiFileOutput);
+        if (request.metricsFile != null) {
+            tool.setMetricsFile(new File(request.metricsFile));
+        }
+        if (request.sizeReportFile != null) {
+            tool.setSizeReportFile(new File(request.sizeReportFile));
+        }
+        tool.setSlowestMethodCount(request.slowestMethodCount);
 
         for (String sourceDirectory : request.sourceDirectories) {
             tool.addSourceFileProvider(new DirectorySourceFileProvider(new File(sourceDirectory)));
@@ -40,9 +40,23 @@ public class RemoteBuildRequest implements Serializable {
     public boolean incremental;
     public String cacheDirectory;
     public boolean minifying;
+    public boolean nativeBigInt;
+    public boolean streaming;
+    public boolean es2015;
+    public boolean asyncGenerators;
+    public boolean twoPassMinifying;
     public Properties properties;
     public TeaVMOptimizationLevel optimizationLevel;
     public boolean fastDependencyAnalysis;
     public WasmBinaryVersion wasmVersion;
     public int heapSize;
+    public int maxHeapSize;
+    public int gcPauseBudget;
+    public int optimizationThreadCount = 1;
+    public int dependencyAnalysisThreadCount = 1;
+    public int codeGenerationThreadCount = 1;
+    public boolean cMultiFileOutput;
+    public String metricsFile;
+    public String sizeReportFile;
+    public int slowestMethodCount = 10;
 }
@@ -80,6 +80,96 @@ interface TeaVMTestConfiguration<T extends TeaVMTarget> {
         }
     };
 
+    TeaVMTestConfiguration<JavaScriptTarget> JS_NATIVE_BIGINT = new TeaVMTestConfiguration<JavaScriptTarget>() {
+        @Override
+        public String getSuffix() {
+            return "bigint";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(JavaScriptTarget target) {
+            target.setMinifying(false);
+            target.setNativeBigInt(true);
+        }
+    };
+
+    TeaVMTestConfiguration<JavaScriptTarget> JS_ES2015 = new TeaVMTestConfiguration<JavaScriptTarget>() {
+        @Override
+        public String getSuffix() {
+            return "es2015";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(JavaScriptTarget target) {
+            target.setMinifying(false);
+            target.setEs2015(true);
+        }
+    };
+
+    TeaVMTestConfiguration<JavaScriptTarget> JS_ASYNC_GENERATORS = new TeaVMTestConfiguration<JavaScriptTarget>() {
+        @Override
+        public String getSuffix() {
+            return "generators";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(JavaScriptTarget target) {
+            target.setMinifying(false);
+            target.setAsyncGenerators(true);
+        }
+    };
+
+    TeaVMTestConfiguration<JavaScriptTarget> JS_STREAMING = new TeaVMTestConfiguration<JavaScriptTarget>() {
+        @Override
+        public String getSuffix() {
+            return "streaming";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(JavaScriptTarget target) {
+            target.setMinifying(false);
+            target.setStreaming(true);
+        }
+    };
+
+    TeaVMTestConfiguration<JavaScriptTarget> JS_TWO_PASS_MINIFIED = new TeaVMTestConfiguration<JavaScriptTarget>() {
+        @Override
+        public String getSuffix() {
+            return "min-two-pass";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(JavaScriptTarget target) {
+            target.setMinifying(true);
+            target.setTwoPassMinifying(true);
+        }
+    };
+
     TeaVMTestConfiguration<WasmTarget> WASM_DEFAULT = new TeaVMTestConfiguration<WasmTarget>() {
         @Override
         public String getSuffix() {
@@ -116,6 +206,24 @@ interface TeaVMTestConfiguration<T extends TeaVMTarget> {
         }
     };
 
+    TeaVMTestConfiguration<WasmTarget> WASM_INCREMENTAL_GC = new TeaVMTestConfiguration<WasmTarget>() {
+        @Override
+        public String getSuffix() {
+            return "incremental-gc";
+        }
+
+        @Override
+        public void apply(TeaVM vm) {
+            vm.setOptimizationLevel(TeaVMOptimizationLevel.SIMPLE);
+        }
+
+        @Override
+        public void apply(WasmTarget target) {
+            target.setMinHeapSize(32 * 1024 * 1024);
+            target.setGcPauseBudget(64 * 1024);
+        }
+    };
+
     TeaVMTestConfiguration<CTarget> C_DEFAULT = new TeaVMTestConfiguration<CTarget>() {
         @Override
         public String getSuffix() {
@@ -102,6 +102,11 @@ public class TeaVMTestRunner extends Runner implements Filterable {
     private static final String C_COMPILER = "teavm.junit.c.compiler";
     private static final String MINIFIED = "teavm.junit.minified";
     private static final String OPTIMIZED = "teavm.junit.optimized";
+    private static final String NATIVE_BIGINT = "teavm.junit.js.nativeBigInt";
+    private static final String ES2015 = "teavm.junit.js.es2015";
+    private static final String ASYNC_GENERATORS = "teavm.junit.js.asyncGenerators";
+    private static final String STREAMING = "teavm.junit.js.streaming";
+    private static final String TWO_PASS_MINIFIED = "teavm.junit.js.twoPassMinified";
     private static final String FAST_ANALYSIS = "teavm.junit.fastAnalysis";
 
     private static final int stopTimeout = 15000;
@@ -685,6 +690,21 @@ public class TeaVMTestRunner extends Runner implements Filterable {
             if (Boolean.getBoolean(OPTIMIZED)) {
                 configurations.add(TeaVMTestConfiguration.JS_OPTIMIZED);
             }
+            if (Boolean.getBoolean(NATIVE_BIGINT)) {
+                configurations.add(TeaVMTestConfiguration.JS_NATIVE_BIGINT);
+            }
+            if (Boolean.getBoolean(ES2015)) {
+                configurations.add(TeaVMTestConfiguration.JS_ES2015);
+            }
+            if (Boolean.getBoolean(ASYNC_GENERATORS)) {
+                configurations.add(TeaVMTestConfiguration.JS_ASYNC_GENERATORS);
+            }
+            if (Boolean.getBoolean(STREAMING)) {
+                configurations.add(TeaVMTestConfiguration.JS_STREAMING);
+            }
+            if (Boolean.getBoolean(TWO_PASS_MINIFIED)) {
+                configurations.add(TeaVMTestConfiguration.JS_TWO_PASS_MINIFIED);
+            }
         }
         return configurations;
     }
@@ -696,6 +716,7 @@ public class TeaVMTestRunner extends Runner implements Filterable {
             if (Boolean.getBoolean(OPTIMIZED)) {
                 configurations.add(TeaVMTestConfiguration.WASM_OPTIMIZED);
             }
+            configurations.add(TeaVMTestConfiguration.WASM_INCREMENTAL_GC);
         }
         return configurations;
     }
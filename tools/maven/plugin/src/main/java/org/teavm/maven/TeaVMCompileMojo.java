@@ -80,6 +80,21 @@ public class TeaVMCompileMojo extends AbstractMojo {
     @Parameter(property = "teavm.minifying", defaultValue = "true")
     private boolean minifying = true;
 
+    @Parameter(property = "teavm.twoPassMinifying", defaultValue = "false")
+    private boolean twoPassMinifying;
+
+    @Parameter(property = "teavm.nativeBigInt", defaultValue = "false")
+    private boolean nativeBigInt;
+
+    @Parameter(property = "teavm.streaming", defaultValue = "false")
+    private boolean streaming;
+
+    @Parameter(property = "teavm.es2015", defaultValue = "false")
+    private boolean es2015;
+
+    @Parameter(property = "teavm.asyncGenerators", defaultValue = "false")
+    private boolean asyncGenerators;
+
     @Parameter
     private Properties properties;
 
@@ -137,6 +152,33 @@ public class TeaVMCompileMojo extends AbstractMojo {
     @Parameter(property = "teavm.heapSize", defaultValue = "32")
     private int heapSize;
 
+    @Parameter(property = "teavm.maxHeapSize", defaultValue = "0")
+    private int maxHeapSize;
+
+    @Parameter(property = "teavm.gcPauseBudget", defaultValue = "0")
+    private int gcPauseBudget;
+
+    @Parameter(property = "teavm.optimizationThreadCount", defaultValue = "1")
+    private int optimizationThreadCount = 1;
+
+    @Parameter(property = "teavm.dependencyAnalysisThreadCount", defaultValue = "1")
+    private int dependencyAnalysisThreadCount = 1;
+
+    @Parameter(property = "teavm.codeGenerationThreadCount", defaultValue = "1")
+    private int codeGenerationThreadCount = 1;
+
+    @Parameter(property = "teavm.cMultiFileOutput", defaultValue = "false")
+    private boolean cMultiFileOutput;
+
+    @Parameter(property = "teavm.metricsFile")
+    private File metricsFile;
+
+    @Parameter(property = "teavm.sizeReportFile")
+    private File sizeReportFile;
+
+    @Parameter(property = "teavm.slowestMethodCount", defaultValue = "10")
+    private int slowestMethodCount = 10;
+
     @Parameter(property = "teavm.outOfProcess", defaultValue = "false")
     private boolean outOfProcess;
 
@@ -148,6 +190,11 @@ public class TeaVMCompileMojo extends AbstractMojo {
         try {
             builder.setClassPathEntries(prepareClassPath());
             builder.setMinifying(minifying);
+            builder.setNativeBigInt(nativeBigInt);
+            builder.setStreaming(streaming);
+            builder.setEs2015(es2015);
+            builder.setAsyncGenerators(asyncGenerators);
+            builder.setTwoPassMinifying(twoPassMinifying);
             builder.setTargetDirectory(targetDirectory.getAbsolutePath());
             if (transformers != null) {
                 builder.setTransformers(transformers);
@@ -163,12 +210,34 @@ public class TeaVMCompileMojo extends AbstractMojo {
             builder.setDebugInformationGenerated(debugInformationGenerated);
             builder.setSourceMapsFileGenerated(sourceMapsGenerated);
             builder.setSourceFilesCopied(sourceFilesCopied);
-            builder.setHeapSize(heapSize * 1024 * 1024);
+            builder.setHeapSize(megabytesToBytes("heapSize", heapSize));
+            builder.setMaxHeapSize(megabytesToBytes("maxHeapSize", maxHeapSize));
+            builder.setGcPauseBudget(gcPauseBudget * 1024);
+            builder.setOptimizationThreadCount(optimizationThreadCount);
+            builder.setDependencyAnalysisThreadCount(dependencyAnalysisThreadCount);
+            builder.setCodeGenerationThreadCount(codeGenerationThreadCount);
+            builder.setCMultiFileOutput(cMultiFileOutput);
+            if (metricsFile != null) {
+                builder.setMetricsFile(metricsFile.getAbsolutePath());
+            }
+            builder.setSlowestMethodCount(slowestMethodCount);
+            if (sizeReportFile != null) {
+                builder.setSizeReportFile(sizeReportFile.getAbsolutePath());
+            }
         } catch (RuntimeException e) {
             throw new MojoExecutionException("Unexpected error occurred", e);
         }
     }
 
+    private static int megabytesToBytes(String parameterName, int megabytes) throws MojoExecutionException {
+        long bytes = (long) megabytes * 1024 * 1024;
+        if (bytes < 0 || bytes > Integer.MAX_VALUE) {
+            throw new MojoExecutionException(parameterName + " must be between 0 and "
+                    + (Integer.MAX_VALUE / (1024 * 1024)) + " megabytes, got " + megabytes);
+        }
+        return (int) bytes;
+    }
+
     private List<String> prepareClassPath() {
         Log log = getLog();
         log.info("Preparing classpath for TeaVM");